@@ -0,0 +1,105 @@
+package service.pricing;
+
+import config.PricingConfig;
+import model.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quotes per second for {@link PricingEngine} against the per-night loop it replaced.
+ *
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; pass other JMH options through
+ * {@code -Djmh.args=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QuoteBenchmark {
+    // The old BillingContext add-on table, looked up by name
+    private static final Map<String, Double> ADD_ON_PRICES =
+            Map.of("WiFi", 10.0, "Breakfast", 25.0, "Parking", 15.0, "Spa", 100.0);
+    private static final Map<String, Boolean> ADD_ON_PER_NIGHT =
+            Map.of("WiFi", true, "Breakfast", true, "Parking", true, "Spa", false);
+
+    @Param({"3", "30"})
+    public int nights;
+
+    private PricingConfig pricingConfig;
+    private PricingEngine pricingEngine;
+    private List<RoomType> rooms;
+    private List<String> addOns;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+
+    @Setup
+    public void setUp() {
+        pricingConfig = new PricingConfig();
+        pricingEngine = new PricingEngine(pricingConfig);
+        rooms = List.of(room(RoomType.Type.SINGLE, 100.0), room(RoomType.Type.DOUBLE, 150.0),
+                room(RoomType.Type.DELUXE, 250.0));
+        addOns = List.of("WiFi", "Breakfast", "Spa");
+        checkIn = LocalDate.now().plusDays(14);
+        checkOut = checkIn.plusDays(nights);
+    }
+
+    @Benchmark
+    public double pricingEngine() {
+        return pricingEngine.quote(rooms, addOns, checkIn, checkOut, 0.0, null).total();
+    }
+
+    /**
+     * The BillingContext total before the pricing engine, without its logging: every room
+     * walks every night, then add-ons, then tax.
+     */
+    @Benchmark
+    public double perNightLoop() {
+        double roomTotal = 0.0;
+        for (RoomType room : rooms) {
+            LocalDate currentDate = checkIn;
+            while (currentDate.isBefore(checkOut)) {
+                DayOfWeek day = currentDate.getDayOfWeek();
+                boolean weekend = day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+                double nightPrice = room.getBasePrice() * (weekend
+                        ? pricingConfig.getWeekendMultiplier()
+                        : pricingConfig.getWeekdayMultiplier());
+                if (pricingConfig.isPeakSeason(currentDate)) {
+                    nightPrice *= pricingConfig.getPeakSeasonMultiplier();
+                }
+                roomTotal += nightPrice;
+                currentDate = currentDate.plusDays(1);
+            }
+        }
+
+        double addOnTotal = 0.0;
+        for (String addOn : addOns) {
+            Double price = ADD_ON_PRICES.get(addOn);
+            if (price == null) {
+                continue;
+            }
+            addOnTotal += ADD_ON_PER_NIGHT.getOrDefault(addOn, false) ? price * nights : price;
+        }
+
+        double subtotal = roomTotal + addOnTotal;
+        return subtotal + subtotal * pricingConfig.getTaxRate();
+    }
+
+    private static RoomType room(RoomType.Type type, double basePrice) {
+        RoomType room = new RoomType();
+        room.setType(type);
+        room.setBasePrice(basePrice);
+        room.setCapacity(2);
+        return room;
+    }
+}
@@ -2,30 +2,53 @@ package app;
 
 import security.AuthenticationService;
 import app.config.EntityManagerProvider;
+import config.ConfigService;
 import config.LoyaltyConfig;
 import config.PricingConfig;
 import events.RoomAvailabilitySubject;
+import repository.AddOnRepository;
 import repository.GuestRepository;
+import repository.LoyaltyRepository;
+import repository.NightAuditRepository;
 import repository.PaymentRepository;
 import repository.RoomRepository;
-import repository.ReservationRepository;
 import repository.FeedbackRepository;
+import repository.UnitOfWork;
+import repository.impl.AddOnRepositoryImpl;
 import repository.impl.GuestRepositoryImpl;
+import repository.impl.LoyaltyRepositoryImpl;
+import repository.impl.NightAuditRepositoryImpl;
 import repository.impl.PaymentRepositoryImpl;
 import repository.impl.RoomRepositoryImpl;
+import repository.impl.IndexedReservationRepository;
+import repository.impl.JournaledPaymentRepository;
 import repository.impl.ReservationRepositoryImpl;
+import repository.index.OccupancyCalendar;
+import repository.journal.PaymentJournal;
 import repository.impl.FeedbackRepositoryImpl;
 import service.BillingContext;
 import service.FeedbackService;
 import service.GuestService;
+import service.LoyaltyAccrualJob;
 import service.LoyaltyService;
+import service.NightAuditJob;
+import service.PaymentLedgerReconciler;
 import service.PaymentService;
 import service.ReservationService;
 import service.RoomService;
+import service.availability.AvailabilityEngine;
+import service.availability.FlexibleDateSearch;
+import service.availability.InventoryHoldManager;
+import service.availability.ReservationAdmission;
+import service.pricing.AddOnCatalog;
+import service.pricing.BulkRepricingJob;
+import service.pricing.PricingEngine;
 import service.strategy.StandardBillingStrategy;
 import util.LoggingProvider;
 
-import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -45,10 +68,17 @@ public class Bootstrap {
     private static GuestService guestService;
     private static AuthenticationService authenticationService;
     private static FeedbackService feedbackService;
+    private static InventoryHoldManager inventoryHoldManager;
+    private static BulkRepricingJob bulkRepricingJob;
+    private static AddOnCatalog addOnCatalog;
+    private static PaymentLedgerReconciler paymentLedgerReconciler;
+    private static NightAuditJob nightAuditJob;
+    private static LoyaltyAccrualJob loyaltyAccrualJob;
 
     // Configuration instances
     private static PricingConfig pricingConfig;
     private static LoyaltyConfig loyaltyConfig;
+    private static ConfigService configService;
 
     // Event subjects
     private static RoomAvailabilitySubject roomAvailabilitySubject;
@@ -60,23 +90,70 @@ public class Bootstrap {
             // Initialize logging
             LoggingProvider.configure();
 
-            // Initialize persistence
-            EntityManager entityManager = EntityManagerProvider.getEntityManager();
-            LOGGER.info("EntityManager initialized successfully");
+            // Initialize persistence: every repository call runs in its own short-lived
+            // EntityManager from the shared factory, so sessions never share a persistence context
+            UnitOfWork unitOfWork = new UnitOfWork(EntityManagerProvider.getEntityManagerFactory());
+            LOGGER.info("EntityManagerFactory initialized successfully");
 
             // Initialize configuration objects
             initializeConfigurations();
 
             // Initialize repositories
-            GuestRepository guestRepository = new GuestRepositoryImpl(entityManager);
-            RoomRepository roomRepository = new RoomRepositoryImpl(entityManager);
-            ReservationRepository reservationRepository = new ReservationRepositoryImpl(entityManager);
-            PaymentRepository paymentRepository = new PaymentRepositoryImpl(entityManager);
-            FeedbackRepository feedbackRepository = new FeedbackRepositoryImpl(entityManager);
+            GuestRepository guestRepository = new GuestRepositoryImpl(unitOfWork);
+            RoomRepository roomRepository = new RoomRepositoryImpl(unitOfWork);
+            // Admission and availability read the occupancy calendar of active stays,
+            // loaded here and kept in sync after every committed reservation change
+            IndexedReservationRepository reservationRepository = new IndexedReservationRepository(
+                    new ReservationRepositoryImpl(unitOfWork), unitOfWork);
+            OccupancyCalendar occupancyCalendar = new OccupancyCalendar();
+            reservationRepository.addStayListener(occupancyCalendar);
+            PaymentRepository paymentRepository = new PaymentRepositoryImpl(unitOfWork);
+            paymentRepository.createIdempotencyKeyIndex();
+            // Optional fast capture: -Dhotel.paymentJournal=<file> journals payments and applies them in batches.
+            // Each capture waits for its sync to disk unless -Dhotel.paymentJournal.sync=false
+            String journalPath = System.getProperty("hotel.paymentJournal");
+            if (journalPath != null && !journalPath.isBlank()) {
+                JournaledPaymentRepository journaled = new JournaledPaymentRepository(paymentRepository,
+                        reservationRepository, PaymentJournal.open(Path.of(journalPath)),
+                        !"false".equalsIgnoreCase(System.getProperty("hotel.paymentJournal.sync")));
+                // Apply what is still pending on a clean exit rather than leaving it for the next start
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        journaled.close();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to close the payment journal", e);
+                    }
+                }, "payment-journal-close"));
+                paymentRepository = journaled;
+                LOGGER.info("Payments are captured through the journal at " + journalPath);
+            }
+            FeedbackRepository feedbackRepository = new FeedbackRepositoryImpl(unitOfWork);
+            NightAuditRepository nightAuditRepository = new NightAuditRepositoryImpl(unitOfWork);
+            LoyaltyRepository loyaltyRepository = new LoyaltyRepositoryImpl(unitOfWork);
+            loyaltyRepository.createAccrualIndex();
+            int legacyAccounts = loyaltyRepository.openLegacyAccounts();
+            if (legacyAccounts > 0) {
+                LOGGER.info("Dated enrollment of " + legacyAccounts + " loyalty accounts");
+            }
             LOGGER.info("Repositories initialized");
 
             initializeRoomTypes(roomRepository);
 
+            // Balances are read from the payment ledger; fill in any rows it is missing
+            // (the whole ledger, the first time a database is opened) before anything reads it
+            paymentLedgerReconciler = new PaymentLedgerReconciler(paymentRepository);
+            paymentLedgerReconciler.reconcile(true);
+
+            // Add-on prices come from the catalog table, held in memory as an immutable snapshot
+            AddOnRepository addOnRepository = new AddOnRepositoryImpl(unitOfWork);
+            addOnCatalog = new AddOnCatalog(addOnRepository);
+            addOnCatalog.seedDefaults();
+            addOnCatalog.reload();
+            int linked = addOnRepository.linkReservationAddOns();
+            if (linked > 0) {
+                LOGGER.info("Linked " + linked + " booked add-ons to the add-on catalog");
+            }
+
             // Initialize event system
             roomAvailabilitySubject = new RoomAvailabilitySubject();
 
@@ -84,17 +161,34 @@ public class Bootstrap {
             LOGGER.info("Authentication service initialized");
 
             // Initialize billing context with default strategy
-            billingContext = new BillingContext(pricingConfig);
-            billingContext.setStrategy(new StandardBillingStrategy(pricingConfig));
+            PricingEngine pricingEngine = new PricingEngine(pricingConfig, addOnCatalog);
+            billingContext = new BillingContext(pricingEngine);
+            billingContext.setStrategy(StandardBillingStrategy.pipeline());
             LOGGER.info("Billing context initialized with standard strategy");
 
             // Initialize services
-            reservationService = new ReservationService(guestRepository, reservationRepository, roomRepository, authenticationService);
+            AvailabilityEngine availabilityEngine = new AvailabilityEngine(roomRepository, occupancyCalendar);
+            ReservationAdmission reservationAdmission = new ReservationAdmission(availabilityEngine, unitOfWork);
+            reservationService = new ReservationService(guestRepository, reservationRepository, roomRepository,
+                    authenticationService, unitOfWork, reservationAdmission, pricingEngine);
             guestService = new GuestService(guestRepository, reservationRepository);
-            roomService = new RoomService(roomAvailabilitySubject, roomRepository, reservationRepository);
-            loyaltyService = new LoyaltyService(loyaltyConfig);
+            roomService = new RoomService(roomAvailabilitySubject, roomRepository, availabilityEngine,
+                    new FlexibleDateSearch(availabilityEngine, occupancyCalendar, pricingConfig));
+            inventoryHoldManager = new InventoryHoldManager(reservationAdmission, occupancyCalendar,
+                    InventoryHoldManager.DEFAULT_HOLD_DURATION);
+            loyaltyService = new LoyaltyService(loyaltyConfig, loyaltyRepository);
             paymentService = new PaymentService(reservationRepository, paymentRepository, billingContext, loyaltyService);
             feedbackService = new FeedbackService(reservationRepository, feedbackRepository);
+            bulkRepricingJob = new BulkRepricingJob(reservationRepository, pricingEngine);
+            // Stored totals follow the rates: a pricing file that changes them reprices future bookings
+            configService.addPricingListener(bulkRepricingJob::requestRepricing);
+            nightAuditJob = new NightAuditJob(reservationRepository, nightAuditRepository, pricingEngine);
+            // Close each business day after midnight, and yesterday now if it was never closed
+            nightAuditJob.schedule(NightAuditJob.DEFAULT_CLOSE_TIME);
+            loyaltyAccrualJob = new LoyaltyAccrualJob(loyaltyRepository, loyaltyService);
+            // Points are earned as stays check out; the first run also credits any left from before
+            reservationService.addCheckOutListener(loyaltyAccrualJob::requestAccrual);
+            loyaltyAccrualJob.requestAccrual();
             LOGGER.info("Services initialized");
 
             // TODO: Launch JavaFX Application once UI controllers are implemented
@@ -121,9 +215,11 @@ public class Bootstrap {
         pricingConfig = new PricingConfig();
         loyaltyConfig = new LoyaltyConfig();
 
-        // TODO: Load configurations from external properties file or environment variables
-        // Properties props = loadProperties("application.properties");
-        // pricingConfig.setWeekendMultiplier(Double.parseDouble(props.getProperty("pricing.weekend", "1.2")));
+        // Settings come from application.properties (or -Dhotel.config=<path>) and are reloaded when it changes
+        configService = new ConfigService(Path.of(System.getProperty("hotel.config", "application.properties")),
+                pricingConfig, loyaltyConfig);
+        configService.reload();
+        configService.start();
 
         LOGGER.info("Configurations initialized");
     }
@@ -144,6 +240,48 @@ public class Bootstrap {
         return roomService;
     }
 
+    public static InventoryHoldManager getInventoryHoldManager() {
+        if (inventoryHoldManager == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return inventoryHoldManager;
+    }
+
+    public static AddOnCatalog getAddOnCatalog() {
+        if (addOnCatalog == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return addOnCatalog;
+    }
+
+    public static BulkRepricingJob getBulkRepricingJob() {
+        if (bulkRepricingJob == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return bulkRepricingJob;
+    }
+
+    public static NightAuditJob getNightAuditJob() {
+        if (nightAuditJob == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return nightAuditJob;
+    }
+
+    public static LoyaltyAccrualJob getLoyaltyAccrualJob() {
+        if (loyaltyAccrualJob == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return loyaltyAccrualJob;
+    }
+
+    public static PaymentLedgerReconciler getPaymentLedgerReconciler() {
+        if (paymentLedgerReconciler == null) {
+            throw new IllegalStateException("Application not initialized. Call main() first.");
+        }
+        return paymentLedgerReconciler;
+    }
+
     public static LoyaltyService getLoyaltyService() {
         if (loyaltyService == null) {
             throw new IllegalStateException("Application not initialized. Call main() first.");
@@ -193,6 +331,10 @@ public class Bootstrap {
         return loyaltyConfig;
     }
 
+    public static ConfigService getConfigService() {
+        return configService;
+    }
+
     public static RoomAvailabilitySubject getRoomAvailabilitySubject() {
         return roomAvailabilitySubject;
     }
@@ -202,18 +344,27 @@ public class Bootstrap {
             return;
         }
 
-        seedRoomType(roomRepository, model.RoomType.Type.SINGLE, 100.0, 2);
-        seedRoomType(roomRepository, model.RoomType.Type.DOUBLE, 150.0, 4);
-        seedRoomType(roomRepository, model.RoomType.Type.DELUXE, 250.0, 2);
-        seedRoomType(roomRepository, model.RoomType.Type.PENTHOUSE, 500.0, 2);
+        // Inventory totals (rooms per type) are stored on the room type rows
+        seedRoomType(roomRepository, model.RoomType.Type.SINGLE, 100.0, 2, 10);
+        seedRoomType(roomRepository, model.RoomType.Type.DOUBLE, 150.0, 4, 8);
+        seedRoomType(roomRepository, model.RoomType.Type.DELUXE, 250.0, 2, 5);
+        seedRoomType(roomRepository, model.RoomType.Type.PENTHOUSE, 500.0, 2, 2);
     }
 
     private static void seedRoomType(RoomRepository roomRepository, model.RoomType.Type type,
-                                     double basePrice, int capacity) {
+                                     double basePrice, int capacity, int totalRooms) {
         roomRepository.findByType(type).ifPresentOrElse(
-                existing -> LOGGER.fine("Room type already exists: " + type),
+                existing -> {
+                    if (!existing.hasTotalRooms()) {
+                        existing.setTotalRooms(totalRooms);
+                        roomRepository.save(existing);
+                        LOGGER.info("Backfilled inventory for room type: " + type);
+                    } else {
+                        LOGGER.fine("Room type already exists: " + type);
+                    }
+                },
                 () -> {
-                    model.RoomType roomType = service.factory.RoomFactory.create(type, basePrice, capacity);
+                    model.RoomType roomType = service.factory.RoomFactory.create(type, basePrice, capacity, totalRooms);
                     roomRepository.save(roomType);
                     LOGGER.info("Seeded room type: " + type);
                 }
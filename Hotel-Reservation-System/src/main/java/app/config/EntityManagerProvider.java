@@ -15,8 +15,10 @@ public final class EntityManagerProvider {
 
     /**
      * Lazily initialize and return the shared EntityManagerFactory.
+     * The factory is thread-safe; hand it to a {@link repository.UnitOfWork} rather than
+     * sharing a single EntityManager between callers.
      */
-    private static synchronized EntityManagerFactory getEntityManagerFactory() {
+    public static synchronized EntityManagerFactory getEntityManagerFactory() {
         if (emf == null) {
             // Persistence unit name should match META-INF/persistence.xml when added.
             emf = Persistence.createEntityManagerFactory("hotelPU");
@@ -0,0 +1,291 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads pricing and loyalty settings from a properties file and reloads them when it changes.
+ *
+ * A load starts from the built-in defaults, overrides them with every key in the file and
+ * builds a pricing snapshot and loyalty settings from the result. Those check the same ranges
+ * the setters do, without the setters' per-value logging, and only when all of them pass are
+ * they published to the live configurations. A file with any bad value is rejected as a whole
+ * and the running settings stay as they were. Publishing is a single reference swap, so bookings in progress are
+ * never paused and each one prices with either the old or the new settings, never a mix.
+ *
+ * Keys (all optional):
+ * <pre>
+ * pricing.weekendMultiplier, pricing.weekdayMultiplier, pricing.peakSeasonMultiplier,
+ * pricing.taxRate, pricing.peakMonths (comma-separated month names),
+ * pricing.season.&lt;name&gt; = firstNight,lastNight,multiplier[,priority] (ISO dates, both nights included;
+ *     equal priorities are ordered by name, so the later name wins),
+ * loyalty.earnRate, loyalty.redeemRate, loyalty.redeemCap, loyalty.minimumRedeemPoints
+ * </pre>
+ */
+public class ConfigService {
+    private static final Logger LOGGER = Logger.getLogger(ConfigService.class.getName());
+
+    private static final long SETTLE_MILLIS = 200;
+    private static final String SEASON_PREFIX = "pricing.season.";
+
+    private final Path file;
+    private final PricingConfig pricingConfig;
+    private final LoyaltyConfig loyaltyConfig;
+    private final AtomicLong version = new AtomicLong();
+    private final List<Runnable> pricingListeners = new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+    private Thread watcher;
+
+    public ConfigService(Path file, PricingConfig pricingConfig, LoyaltyConfig loyaltyConfig) {
+        this.file = file.toAbsolutePath().normalize();
+        this.pricingConfig = pricingConfig;
+        this.loyaltyConfig = loyaltyConfig;
+    }
+
+    /**
+     * Load the file now; a missing file leaves the defaults in place.
+     *
+     * @return true if the file was read and its settings are in effect
+     */
+    public synchronized boolean reload() {
+        if (!Files.isRegularFile(file)) {
+            LOGGER.info("No configuration file at " + file + "; using current settings");
+            return false;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read configuration file " + file, e);
+            return false;
+        }
+
+        PricingSnapshot pricing;
+        LoyaltyConfig.Settings loyalty;
+        try {
+            pricing = parsePricing(properties);
+            loyalty = parseLoyalty(properties);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Configuration file " + file + " rejected, keeping current settings: " + e.getMessage());
+            return false;
+        }
+
+        boolean pricingChanged = pricingConfig.publish(pricing);
+        boolean loyaltyChanged = !loyalty.equals(loyaltyConfig.settings());
+        if (loyaltyChanged) {
+            loyaltyConfig.publish(loyalty);
+        }
+        if (pricingChanged || loyaltyChanged) {
+            long current = version.incrementAndGet();
+            LOGGER.info(String.format("Configuration v%d loaded from %s: %s, %s",
+                    current, file, pricingConfig.snapshot(), loyalty));
+        }
+        if (pricingChanged) {
+            for (Runnable listener : pricingListeners) {
+                listener.run();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run the listener after every load that publishes new pricing settings, on the thread
+     * that loaded them; it should hand any real work off.
+     */
+    public void addPricingListener(Runnable listener) {
+        pricingListeners.add(listener);
+    }
+
+    /**
+     * Watch the file's directory and reload whenever the file is written, created or replaced.
+     */
+    public synchronized void start() {
+        if (watcher != null) {
+            return;
+        }
+        Path directory = file.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Configuration hot reload disabled; cannot watch " + directory, e);
+            return;
+        }
+        watcher = new Thread(this::watch, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOGGER.info("Watching " + file + " for configuration changes");
+    }
+
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Closing configuration watcher failed", e);
+            }
+        }
+        watcher = null;
+        watchService = null;
+    }
+
+    /**
+     * Increases by one each time a load changes the settings in effect. Pricing quotes
+     * that only depend on pricing can key on {@link PricingConfig#getVersion()} instead.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        touched = true;
+                    }
+                }
+                key.reset();
+                if (touched) {
+                    // Editors often write a file in several steps; let it settle, then drop the duplicates
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey pending = service.poll();
+                    if (pending != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.fine("Configuration watcher stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PricingSnapshot parsePricing(Properties properties) {
+        PricingSnapshot defaults = PricingSnapshot.DEFAULTS;
+        double weekend = defaults.getWeekendMultiplier();
+        double weekday = defaults.getWeekdayMultiplier();
+        double peak = defaults.getPeakSeasonMultiplier();
+        double taxRate = defaults.getTaxRate();
+        Set<Month> months = defaults.getPeakSeasonMonths();
+        SeasonalRuleSet seasonalRules = defaults.getSeasonalRules();
+        String value;
+        if ((value = property(properties, "pricing.weekendMultiplier")) != null) {
+            weekend = finite("pricing.weekendMultiplier", value);
+        }
+        if ((value = property(properties, "pricing.weekdayMultiplier")) != null) {
+            weekday = finite("pricing.weekdayMultiplier", value);
+        }
+        if ((value = property(properties, "pricing.peakSeasonMultiplier")) != null) {
+            peak = finite("pricing.peakSeasonMultiplier", value);
+        }
+        if ((value = property(properties, "pricing.taxRate")) != null) {
+            taxRate = finite("pricing.taxRate", value);
+        }
+        if ((value = properties.getProperty("pricing.peakMonths")) != null) {
+            months = EnumSet.noneOf(Month.class);
+            for (String name : value.split(",")) {
+                if (!name.isBlank()) {
+                    months.add(Month.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+        }
+        List<SeasonalRule> seasons = new ArrayList<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.startsWith(SEASON_PREFIX) && property(properties, key) != null) {
+                seasons.add(parseSeason(key.substring(SEASON_PREFIX.length()), property(properties, key)));
+            }
+        }
+        if (!seasons.isEmpty()) {
+            seasonalRules = new SeasonalRuleSet(seasons);
+        }
+        return new PricingSnapshot(defaults.getVersion(), weekend, weekday, peak, taxRate, months, seasonalRules);
+    }
+
+    private static SeasonalRule parseSeason(String name, String value) {
+        String[] parts = value.split(",");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException(SEASON_PREFIX + name
+                    + " must be firstNight,lastNight,multiplier[,priority]");
+        }
+        try {
+            return new SeasonalRule(name,
+                    LocalDate.parse(parts[0].trim()),
+                    LocalDate.parse(parts[1].trim()),
+                    finite(SEASON_PREFIX + name, parts[2].trim()),
+                    parts.length == 4 ? Integer.parseInt(parts[3].trim()) : 0);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(SEASON_PREFIX + name + " has an invalid date: " + e.getParsedString());
+        }
+    }
+
+    private static LoyaltyConfig.Settings parseLoyalty(Properties properties) {
+        LoyaltyConfig.Settings defaults = LoyaltyConfig.DEFAULTS;
+        double earnRate = defaults.earnRate();
+        double redeemRate = defaults.redeemRate();
+        int redeemCap = defaults.redeemCap();
+        int minimumRedeemPoints = defaults.minimumRedeemPoints();
+        String value;
+        if ((value = property(properties, "loyalty.earnRate")) != null) {
+            earnRate = finite("loyalty.earnRate", value);
+        }
+        if ((value = property(properties, "loyalty.redeemRate")) != null) {
+            redeemRate = finite("loyalty.redeemRate", value);
+        }
+        if ((value = property(properties, "loyalty.redeemCap")) != null) {
+            redeemCap = Integer.parseInt(value);
+        }
+        if ((value = property(properties, "loyalty.minimumRedeemPoints")) != null) {
+            minimumRedeemPoints = Integer.parseInt(value);
+        }
+        return new LoyaltyConfig.Settings(earnRate, redeemRate, redeemCap, minimumRedeemPoints);
+    }
+
+    private static double finite(String key, String value) {
+        double parsed = Double.parseDouble(value);
+        if (!Double.isFinite(parsed)) {
+            throw new IllegalArgumentException(key + " must be a finite number");
+        }
+        return parsed;
+    }
+
+    private static String property(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -3,78 +3,73 @@
 // ============================================================================
 package config;
 
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 /**
  * Configuration class for loyalty program rules.
  * Manages point earning rates and redemption caps.
+ *
+ * Like {@link PricingConfig}, the values live in one immutable {@link Settings} behind a
+ * volatile reference, so a reload swaps every rule at once.
  */
 public class LoyaltyConfig {
     private static final Logger LOGGER = Logger.getLogger(LoyaltyConfig.class.getName());
 
-    // Points earning rate (points per dollar spent)
-    private double earnRate = 10.0; // 10 points per $1
-
-    // Points redemption rate (dollars per point)
-    private double redeemRate = 0.01; // $0.01 per point (100 points = $1)
-
-    // Maximum points that can be redeemed per reservation
-    private int redeemCap = 5000; // Max 5000 points = $50 discount
+    /**
+     * 10 points per $1, $0.01 per point (100 points = $1), at most 5000 points ($50) per
+     * reservation, and at least 100 points before redeeming.
+     */
+    public static final Settings DEFAULTS = new Settings(10.0, 0.01, 5000, 100);
 
-    // Minimum points required to start redeeming
-    private int minimumRedeemPoints = 100;
+    private volatile Settings settings = DEFAULTS;
 
     public LoyaltyConfig() {
         LOGGER.info("LoyaltyConfig initialized with default values");
     }
 
+    /**
+     * The rules in effect right now.
+     */
+    public Settings settings() {
+        return settings;
+    }
+
     // Getters and Setters
 
     public double getEarnRate() {
-        return earnRate;
+        return settings.earnRate();
     }
 
     public void setEarnRate(double earnRate) {
-        if (earnRate <= 0) {
-            throw new IllegalArgumentException("Earn rate must be positive");
-        }
-        this.earnRate = earnRate;
+        update(current -> new Settings(earnRate, current.redeemRate(), current.redeemCap(), current.minimumRedeemPoints()));
         LOGGER.info("Loyalty earn rate set to: " + earnRate + " points per $1");
     }
 
     public double getRedeemRate() {
-        return redeemRate;
+        return settings.redeemRate();
     }
 
     public void setRedeemRate(double redeemRate) {
-        if (redeemRate <= 0) {
-            throw new IllegalArgumentException("Redeem rate must be positive");
-        }
-        this.redeemRate = redeemRate;
+        update(current -> new Settings(current.earnRate(), redeemRate, current.redeemCap(), current.minimumRedeemPoints()));
         LOGGER.info("Loyalty redeem rate set to: $" + redeemRate + " per point");
     }
 
     public int getRedeemCap() {
-        return redeemCap;
+        return settings.redeemCap();
     }
 
     public void setRedeemCap(int redeemCap) {
-        if (redeemCap < 0) {
-            throw new IllegalArgumentException("Redeem cap cannot be negative");
-        }
-        this.redeemCap = redeemCap;
+        update(current -> new Settings(current.earnRate(), current.redeemRate(), redeemCap, current.minimumRedeemPoints()));
         LOGGER.info("Loyalty redeem cap set to: " + redeemCap + " points");
     }
 
     public int getMinimumRedeemPoints() {
-        return minimumRedeemPoints;
+        return settings.minimumRedeemPoints();
     }
 
     public void setMinimumRedeemPoints(int minimumRedeemPoints) {
-        if (minimumRedeemPoints < 0) {
-            throw new IllegalArgumentException("Minimum redeem points cannot be negative");
-        }
-        this.minimumRedeemPoints = minimumRedeemPoints;
+        update(current -> new Settings(current.earnRate(), current.redeemRate(), current.redeemCap(), minimumRedeemPoints));
         LOGGER.info("Minimum redeem points set to: " + minimumRedeemPoints);
     }
 
@@ -82,24 +77,56 @@ public class LoyaltyConfig {
      * Calculate points earned from an amount
      */
     public int calculatePointsEarned(double amount) {
-        return (int) (amount * earnRate);
+        return (int) (amount * settings.earnRate());
     }
 
     /**
      * Calculate discount from points redeemed
      */
     public double calculateDiscount(int points) {
-        if (points < minimumRedeemPoints) {
+        Settings current = settings;
+        if (points < current.minimumRedeemPoints()) {
             return 0.0;
         }
-        int pointsToRedeem = Math.min(points, redeemCap);
-        return pointsToRedeem * redeemRate;
+        int pointsToRedeem = Math.min(points, current.redeemCap());
+        return pointsToRedeem * current.redeemRate();
     }
 
     /**
      * Check if points can be redeemed
      */
     public boolean canRedeem(int points) {
-        return points >= minimumRedeemPoints;
+        return points >= settings.minimumRedeemPoints();
+    }
+
+    /**
+     * Replace every rule at once with settings already validated elsewhere.
+     */
+    synchronized void publish(Settings validated) {
+        settings = validated;
+    }
+
+    private synchronized void update(UnaryOperator<Settings> change) {
+        settings = change.apply(settings);
+    }
+
+    /**
+     * One immutable set of loyalty rules, checked as it is made.
+     */
+    public record Settings(double earnRate, double redeemRate, int redeemCap, int minimumRedeemPoints) {
+        public Settings {
+            if (earnRate <= 0) {
+                throw new IllegalArgumentException("Earn rate must be positive");
+            }
+            if (redeemRate <= 0) {
+                throw new IllegalArgumentException("Redeem rate must be positive");
+            }
+            if (redeemCap < 0) {
+                throw new IllegalArgumentException("Redeem cap cannot be negative");
+            }
+            if (minimumRedeemPoints < 0) {
+                throw new IllegalArgumentException("Minimum redeem points cannot be negative");
+            }
+        }
     }
 }
@@ -2,98 +2,81 @@ package config;
 
 import java.time.LocalDate;
 import java.time.Month;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 /**
  * Configuration class for dynamic pricing rules.
  * Manages weekend/weekday multipliers and seasonal pricing.
+ *
+ * The settings live in an immutable {@link PricingSnapshot} behind a volatile reference.
+ * Readers take the current snapshot without locking; setters copy it with one value
+ * changed and publish the copy, so concurrent quotes keep using the version they started with.
+ * The snapshot checks each value's range, so a rejected value leaves the settings as they were.
  */
 public class PricingConfig {
     private static final Logger LOGGER = Logger.getLogger(PricingConfig.class.getName());
 
-    // Pricing multipliers
-    private double weekendMultiplier = 1.2;  // 20% increase on weekends
-    private double weekdayMultiplier = 1.0;  // Standard pricing on weekdays
-    private double peakSeasonMultiplier = 1.5; // 50% increase during peak season
-
-    // Peak season date ranges (month -> is peak)
-    private final Map<Month, Boolean> peakSeasonMonths = new HashMap<>();
-
-    // Tax rate
-    private double taxRate = 0.10; // 10% tax
+    private volatile PricingSnapshot snapshot;
 
     public PricingConfig() {
-        initializeDefaultPeakSeasons();
+        this(PricingSnapshot.DEFAULTS);
+    }
+
+    public PricingConfig(PricingSnapshot initial) {
+        this.snapshot = initial;
     }
 
     /**
-     * Initialize default peak seasons
-     * Typically summer (June-August) and winter holidays (December)
+     * The settings in effect right now; a quote should read this once and use it throughout.
      */
-    private void initializeDefaultPeakSeasons() {
-        // Set all months to non-peak by default
-        for (Month month : Month.values()) {
-            peakSeasonMonths.put(month, false);
-        }
-
-        // Set peak season months
-        peakSeasonMonths.put(Month.JUNE, true);
-        peakSeasonMonths.put(Month.JULY, true);
-        peakSeasonMonths.put(Month.AUGUST, true);
-        peakSeasonMonths.put(Month.DECEMBER, true);
+    public PricingSnapshot snapshot() {
+        return snapshot;
+    }
 
-        LOGGER.info("Default peak seasons configured: June-August, December");
+    public long getVersion() {
+        return snapshot.getVersion();
     }
 
     // Getters and Setters
 
     public double getWeekendMultiplier() {
-        return weekendMultiplier;
+        return snapshot.getWeekendMultiplier();
     }
 
     public void setWeekendMultiplier(double weekendMultiplier) {
-        if (weekendMultiplier < 1.0) {
-            throw new IllegalArgumentException("Weekend multiplier must be >= 1.0");
-        }
-        this.weekendMultiplier = weekendMultiplier;
+        update(current -> current.withWeekendMultiplier(weekendMultiplier));
         LOGGER.info("Weekend multiplier set to: " + weekendMultiplier);
     }
 
     public double getWeekdayMultiplier() {
-        return weekdayMultiplier;
+        return snapshot.getWeekdayMultiplier();
     }
 
     public void setWeekdayMultiplier(double weekdayMultiplier) {
-        if (weekdayMultiplier < 0.5) {
-            throw new IllegalArgumentException("Weekday multiplier must be >= 0.5");
-        }
-        this.weekdayMultiplier = weekdayMultiplier;
+        update(current -> current.withWeekdayMultiplier(weekdayMultiplier));
         LOGGER.info("Weekday multiplier set to: " + weekdayMultiplier);
     }
 
     public double getPeakSeasonMultiplier() {
-        return peakSeasonMultiplier;
+        return snapshot.getPeakSeasonMultiplier();
     }
 
     public void setPeakSeasonMultiplier(double peakSeasonMultiplier) {
-        if (peakSeasonMultiplier < 1.0) {
-            throw new IllegalArgumentException("Peak season multiplier must be >= 1.0");
-        }
-        this.peakSeasonMultiplier = peakSeasonMultiplier;
+        update(current -> current.withPeakSeasonMultiplier(peakSeasonMultiplier));
         LOGGER.info("Peak season multiplier set to: " + peakSeasonMultiplier);
     }
 
     public double getTaxRate() {
-        return taxRate;
+        return snapshot.getTaxRate();
     }
 
     public void setTaxRate(double taxRate) {
-        if (taxRate < 0 || taxRate > 1.0) {
-            throw new IllegalArgumentException("Tax rate must be between 0 and 1.0");
-        }
-        this.taxRate = taxRate;
+        update(current -> current.withTaxRate(taxRate));
         LOGGER.info("Tax rate set to: " + (taxRate * 100) + "%");
     }
 
@@ -101,21 +84,74 @@ public class PricingConfig {
      * Check if a given date is in peak season
      */
     public boolean isPeakSeason(LocalDate date) {
-        return peakSeasonMonths.getOrDefault(date.getMonth(), false);
+        return snapshot.isPeakSeason(date);
     }
 
     /**
      * Set whether a specific month is peak season
      */
     public void setPeakSeasonMonth(Month month, boolean isPeak) {
-        peakSeasonMonths.put(month, isPeak);
+        update(current -> current.withPeakSeasonMonth(month, isPeak));
         LOGGER.info(String.format("%s set to %s", month, isPeak ? "peak season" : "regular season"));
     }
 
+    /**
+     * Replace the whole set of peak season months
+     */
+    public void setPeakSeasonMonths(Set<Month> months) {
+        update(current -> current.withPeakSeasonMonths(months));
+        LOGGER.info("Peak season months set to: " + months);
+    }
+
+    /**
+     * Replace the date-range seasonal rules (holidays, events, blackout periods)
+     */
+    public void setSeasonalRules(List<SeasonalRule> rules) {
+        SeasonalRuleSet resolved = new SeasonalRuleSet(rules);
+        update(current -> current.withSeasonalRules(resolved));
+        LOGGER.info("Seasonal rules set: " + resolved);
+    }
+
+    public List<SeasonalRule> getSeasonalRules() {
+        return snapshot.getSeasonalRules().getRules();
+    }
+
     /**
      * Get all peak season months
      */
     public Map<Month, Boolean> getPeakSeasonMonths() {
-        return new HashMap<>(peakSeasonMonths);
+        PricingSnapshot current = snapshot;
+        Map<Month, Boolean> months = new EnumMap<>(Month.class);
+        for (Month month : Month.values()) {
+            months.put(month, current.getPeakSeasonMonths().contains(month));
+        }
+        return months;
+    }
+
+    /**
+     * Nightly rate multipliers precomputed from the current settings.
+     */
+    public RateCalendar getRateCalendar() {
+        return snapshot.getRateCalendar();
+    }
+
+    /**
+     * Replace every setting at once with a snapshot already validated elsewhere, e.g. one
+     * loaded from a file. Returns false, and keeps the current version, when nothing changed.
+     */
+    synchronized boolean publish(PricingSnapshot validated) {
+        PricingSnapshot current = snapshot;
+        if (current.hasSameSettings(validated)) {
+            return false;
+        }
+        snapshot = validated.withVersion(current.getVersion() + 1);
+        return true;
+    }
+
+    /**
+     * Copy-on-write update; setters are rare, so they simply take turns.
+     */
+    private synchronized void update(UnaryOperator<PricingSnapshot> change) {
+        snapshot = change.apply(snapshot);
     }
-}
\ No newline at end of file
+}
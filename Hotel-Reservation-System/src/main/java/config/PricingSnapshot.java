@@ -0,0 +1,161 @@
+package config;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * One immutable version of the pricing settings.
+ *
+ * Multipliers and tax rate are final fields, peak months an {@link EnumSet}, and the rate
+ * calendar is built once when the snapshot is made. A quote reads one snapshot from
+ * {@link PricingConfig#snapshot()} and uses it throughout, so it never sees half of an
+ * update and never allocates or logs anything for the configuration.
+ */
+public final class PricingSnapshot {
+    private static final Set<Month> DEFAULT_PEAK_MONTHS =
+            EnumSet.of(Month.JUNE, Month.JULY, Month.AUGUST, Month.DECEMBER);
+
+    /** Default settings: 1.2x weekends, 1.5x in June-August and December, 10% tax. */
+    public static final PricingSnapshot DEFAULTS = new PricingSnapshot(1, 1.2, 1.0, 1.5, 0.10,
+            DEFAULT_PEAK_MONTHS, SeasonalRuleSet.EMPTY);
+
+    private final long version;
+    private final double weekendMultiplier;
+    private final double weekdayMultiplier;
+    private final double peakSeasonMultiplier;
+    private final double taxRate;
+    private final Set<Month> peakSeasonMonths;
+    private final SeasonalRuleSet seasonalRules;
+    private final RateCalendar rateCalendar;
+
+    PricingSnapshot(long version, double weekendMultiplier, double weekdayMultiplier,
+                    double peakSeasonMultiplier, double taxRate, Set<Month> peakSeasonMonths,
+                    SeasonalRuleSet seasonalRules) {
+        if (weekendMultiplier < 1.0) {
+            throw new IllegalArgumentException("Weekend multiplier must be >= 1.0");
+        }
+        if (weekdayMultiplier < 0.5) {
+            throw new IllegalArgumentException("Weekday multiplier must be >= 0.5");
+        }
+        if (peakSeasonMultiplier < 1.0) {
+            throw new IllegalArgumentException("Peak season multiplier must be >= 1.0");
+        }
+        if (taxRate < 0 || taxRate > 1.0) {
+            throw new IllegalArgumentException("Tax rate must be between 0 and 1.0");
+        }
+        this.version = version;
+        this.weekendMultiplier = weekendMultiplier;
+        this.weekdayMultiplier = weekdayMultiplier;
+        this.peakSeasonMultiplier = peakSeasonMultiplier;
+        this.taxRate = taxRate;
+        Set<Month> months = EnumSet.noneOf(Month.class);
+        months.addAll(peakSeasonMonths);
+        this.peakSeasonMonths = Collections.unmodifiableSet(months);
+        this.seasonalRules = seasonalRules;
+        this.rateCalendar = new RateCalendar(this);
+    }
+
+    /**
+     * Increases by one with every change published through {@link PricingConfig}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public double getWeekendMultiplier() {
+        return weekendMultiplier;
+    }
+
+    public double getWeekdayMultiplier() {
+        return weekdayMultiplier;
+    }
+
+    public double getPeakSeasonMultiplier() {
+        return peakSeasonMultiplier;
+    }
+
+    public double getTaxRate() {
+        return taxRate;
+    }
+
+    public Set<Month> getPeakSeasonMonths() {
+        return peakSeasonMonths;
+    }
+
+    /**
+     * Date-range rules; where one covers a night it replaces the peak-month multiplier.
+     */
+    public SeasonalRuleSet getSeasonalRules() {
+        return seasonalRules;
+    }
+
+    public boolean isPeakSeason(LocalDate date) {
+        return peakSeasonMonths.contains(date.getMonth());
+    }
+
+    public RateCalendar getRateCalendar() {
+        return rateCalendar;
+    }
+
+    PricingSnapshot withWeekendMultiplier(double value) {
+        return new PricingSnapshot(version + 1, value, weekdayMultiplier, peakSeasonMultiplier, taxRate, peakSeasonMonths, seasonalRules);
+    }
+
+    PricingSnapshot withWeekdayMultiplier(double value) {
+        return new PricingSnapshot(version + 1, weekendMultiplier, value, peakSeasonMultiplier, taxRate, peakSeasonMonths, seasonalRules);
+    }
+
+    PricingSnapshot withPeakSeasonMultiplier(double value) {
+        return new PricingSnapshot(version + 1, weekendMultiplier, weekdayMultiplier, value, taxRate, peakSeasonMonths, seasonalRules);
+    }
+
+    PricingSnapshot withTaxRate(double value) {
+        return new PricingSnapshot(version + 1, weekendMultiplier, weekdayMultiplier, peakSeasonMultiplier, value, peakSeasonMonths, seasonalRules);
+    }
+
+    PricingSnapshot withPeakSeasonMonth(Month month, boolean peak) {
+        Set<Month> months = EnumSet.noneOf(Month.class);
+        months.addAll(peakSeasonMonths);
+        if (peak) {
+            months.add(month);
+        } else {
+            months.remove(month);
+        }
+        return withPeakSeasonMonths(months);
+    }
+
+    PricingSnapshot withPeakSeasonMonths(Set<Month> months) {
+        return new PricingSnapshot(version + 1, weekendMultiplier, weekdayMultiplier, peakSeasonMultiplier, taxRate, months, seasonalRules);
+    }
+
+    PricingSnapshot withSeasonalRules(SeasonalRuleSet rules) {
+        return new PricingSnapshot(version + 1, weekendMultiplier, weekdayMultiplier, peakSeasonMultiplier, taxRate,
+                peakSeasonMonths, rules);
+    }
+
+    PricingSnapshot withVersion(long value) {
+        return new PricingSnapshot(value, weekendMultiplier, weekdayMultiplier, peakSeasonMultiplier, taxRate, peakSeasonMonths, seasonalRules);
+    }
+
+    /**
+     * Same multipliers, tax rate, peak months and seasonal rules, whatever the version.
+     */
+    public boolean hasSameSettings(PricingSnapshot other) {
+        return weekendMultiplier == other.weekendMultiplier
+                && weekdayMultiplier == other.weekdayMultiplier
+                && peakSeasonMultiplier == other.peakSeasonMultiplier
+                && taxRate == other.taxRate
+                && peakSeasonMonths.equals(other.peakSeasonMonths)
+                && seasonalRules.equals(other.seasonalRules);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PricingSnapshot{v%d, weekend=%.2fx, weekday=%.2fx, peak=%.2fx %s, %s, tax=%.2f%%}",
+                version, weekendMultiplier, weekdayMultiplier, peakSeasonMultiplier, peakSeasonMonths, seasonalRules,
+                taxRate * 100);
+    }
+}
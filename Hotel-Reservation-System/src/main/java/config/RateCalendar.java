@@ -0,0 +1,107 @@
+package config;
+
+import model.RoomType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precomputed nightly rate multipliers for a pricing configuration.
+ *
+ * Each night from two years back to five years ahead gets its multiplier (weekend or weekday
+ * rate, times the seasonal or peak-season rate) in an array indexed by epoch day, with
+ * prefix sums on top. The multiplier for a whole stay is then one subtraction, so a room
+ * charge costs the same for one night or three hundred. Stays outside the table fall back to
+ * walking the nights.
+ *
+ * Each {@link PricingSnapshot} builds its calendar once, so a settings change publishes a
+ * new calendar together with the new values.
+ */
+public final class RateCalendar {
+    /** Nights charged at the weekend rate: a stay checking in on Friday or Saturday evening. */
+    public static final Set<DayOfWeek> WEEKEND_NIGHTS = Collections.unmodifiableSet(
+            EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+
+    private static final int DAYS_BACK = 2 * 366;
+    private static final int DAYS_AHEAD = 5 * 366;
+
+    private final double weekendMultiplier;
+    private final double weekdayMultiplier;
+    private final double peakSeasonMultiplier;
+    private final boolean[] peakMonths = new boolean[Month.values().length];
+    private final SeasonalRuleSet seasonalRules;
+    private final long firstDay;
+    private final double[] prefixSums;
+
+    RateCalendar(PricingSnapshot pricing) {
+        this.weekendMultiplier = pricing.getWeekendMultiplier();
+        this.weekdayMultiplier = pricing.getWeekdayMultiplier();
+        this.peakSeasonMultiplier = pricing.getPeakSeasonMultiplier();
+        for (Month month : pricing.getPeakSeasonMonths()) {
+            peakMonths[month.ordinal()] = true;
+        }
+        this.seasonalRules = pricing.getSeasonalRules();
+
+        LocalDate start = LocalDate.now().minusDays(DAYS_BACK);
+        this.firstDay = start.toEpochDay();
+        int days = DAYS_BACK + DAYS_AHEAD;
+        this.prefixSums = new double[days + 1];
+        LocalDate night = start;
+        for (int i = 0; i < days; i++) {
+            prefixSums[i + 1] = prefixSums[i] + multiplierFor(night);
+            night = night.plusDays(1);
+        }
+    }
+
+    /**
+     * Multiplier for a single night: the seasonal rule covering it if there is one,
+     * otherwise the peak-month rate in peak months.
+     */
+    public double multiplierFor(LocalDate night) {
+        double multiplier = WEEKEND_NIGHTS.contains(night.getDayOfWeek()) ? weekendMultiplier : weekdayMultiplier;
+        double seasonal = seasonalRules.isEmpty() ? Double.NaN : seasonalRules.multiplierOn(night.toEpochDay());
+        if (!Double.isNaN(seasonal)) {
+            multiplier *= seasonal;
+        } else if (peakMonths[night.getMonthValue() - 1]) {
+            multiplier *= peakSeasonMultiplier;
+        }
+        return multiplier;
+    }
+
+    /**
+     * Sum of the nightly multipliers from {@code checkIn} up to (not including) {@code checkOut};
+     * a room's charge for the stay is its base price times this value.
+     */
+    public double stayMultiplier(LocalDate checkIn, LocalDate checkOut) {
+        long from = checkIn.toEpochDay() - firstDay;
+        long to = checkOut.toEpochDay() - firstDay;
+        if (to <= from) {
+            return 0.0;
+        }
+        if (from >= 0 && to < prefixSums.length) {
+            return prefixSums[(int) to] - prefixSums[(int) from];
+        }
+
+        double total = 0.0;
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            total += multiplierFor(night);
+        }
+        return total;
+    }
+
+    /**
+     * Room charges for the stay: the base prices of all rooms times the stay multiplier.
+     */
+    public double roomCharges(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
+        double basePrices = 0.0;
+        for (RoomType room : rooms) {
+            basePrices += room.getBasePrice();
+        }
+        return basePrices == 0.0 ? 0.0 : basePrices * stayMultiplier(checkIn, checkOut);
+    }
+}
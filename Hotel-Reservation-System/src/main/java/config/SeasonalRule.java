@@ -0,0 +1,23 @@
+package config;
+
+import java.time.LocalDate;
+
+/**
+ * A named period priced with its own multiplier: a holiday weekend, a city event, a
+ * blackout period. Both nights are inclusive. Where rules overlap, the one with the higher
+ * priority wins, and between equal priorities the one listed later.
+ */
+public record SeasonalRule(String name, LocalDate firstNight, LocalDate lastNight, double multiplier, int priority) {
+
+    public SeasonalRule {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Seasonal rule name is required");
+        }
+        if (firstNight == null || lastNight == null || lastNight.isBefore(firstNight)) {
+            throw new IllegalArgumentException("Seasonal rule " + name + " must end on or after its first night");
+        }
+        if (!(multiplier > 0) || Double.isInfinite(multiplier)) {
+            throw new IllegalArgumentException("Seasonal rule " + name + " multiplier must be a positive number");
+        }
+    }
+}
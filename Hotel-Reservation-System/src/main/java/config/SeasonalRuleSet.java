@@ -0,0 +1,130 @@
+package config;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Seasonal rules resolved into sorted, non-overlapping intervals.
+ *
+ * Overlaps are settled once, when the set is built: the timeline is cut at every rule
+ * boundary, each piece takes the winning rule (highest priority, then latest listed), and
+ * neighbouring pieces with the same winner are merged. Looking up a night is then a binary
+ * search over the interval starts, and nights no rule covers have no seasonal multiplier.
+ */
+public final class SeasonalRuleSet {
+    public static final SeasonalRuleSet EMPTY = new SeasonalRuleSet(List.of());
+
+    private final List<SeasonalRule> rules;
+    private final long[] starts;
+    private final long[] ends;
+    private final SeasonalRule[] winners;
+
+    public SeasonalRuleSet(List<SeasonalRule> rules) {
+        this.rules = List.copyOf(rules);
+
+        long[] boundaries = new long[this.rules.size() * 2];
+        for (int i = 0; i < this.rules.size(); i++) {
+            SeasonalRule rule = this.rules.get(i);
+            boundaries[2 * i] = rule.firstNight().toEpochDay();
+            boundaries[2 * i + 1] = rule.lastNight().toEpochDay() + 1;
+        }
+        Arrays.sort(boundaries);
+
+        List<long[]> spans = new ArrayList<>();
+        List<SeasonalRule> owners = new ArrayList<>();
+        for (int b = 0; b + 1 < boundaries.length; b++) {
+            long from = boundaries[b];
+            long to = boundaries[b + 1];
+            if (from == to) {
+                continue;
+            }
+            SeasonalRule winner = winnerAt(from);
+            if (winner == null) {
+                continue;
+            }
+            int last = spans.size() - 1;
+            if (last >= 0 && owners.get(last) == winner && spans.get(last)[1] == from) {
+                spans.get(last)[1] = to;
+            } else {
+                spans.add(new long[]{from, to});
+                owners.add(winner);
+            }
+        }
+
+        this.starts = new long[spans.size()];
+        this.ends = new long[spans.size()];
+        this.winners = owners.toArray(new SeasonalRule[0]);
+        for (int i = 0; i < spans.size(); i++) {
+            starts[i] = spans.get(i)[0];
+            ends[i] = spans.get(i)[1];
+        }
+    }
+
+    public List<SeasonalRule> getRules() {
+        return rules;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Number of resolved intervals after overlaps were settled.
+     */
+    public int intervalCount() {
+        return starts.length;
+    }
+
+    /**
+     * The rule pricing this night, if any.
+     */
+    public Optional<SeasonalRule> ruleFor(LocalDate night) {
+        int index = indexOf(night.toEpochDay());
+        return index < 0 ? Optional.empty() : Optional.of(winners[index]);
+    }
+
+    /**
+     * The winning rule's multiplier for the night, or NaN when no rule covers it.
+     */
+    public double multiplierOn(long epochDay) {
+        int index = indexOf(epochDay);
+        return index < 0 ? Double.NaN : winners[index].multiplier();
+    }
+
+    private int indexOf(long epochDay) {
+        int position = Arrays.binarySearch(starts, epochDay);
+        if (position < 0) {
+            position = -position - 2;
+        }
+        return position >= 0 && epochDay < ends[position] ? position : -1;
+    }
+
+    private SeasonalRule winnerAt(long epochDay) {
+        SeasonalRule winner = null;
+        for (SeasonalRule rule : rules) {
+            if (rule.firstNight().toEpochDay() <= epochDay && epochDay <= rule.lastNight().toEpochDay()
+                    && (winner == null || rule.priority() >= winner.priority())) {
+                winner = rule;
+            }
+        }
+        return winner;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SeasonalRuleSet set && rules.equals(set.rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return rules.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return rules.size() + " seasonal rule(s) in " + starts.length + " interval(s)";
+    }
+}
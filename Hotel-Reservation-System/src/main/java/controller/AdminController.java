@@ -10,21 +10,31 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import model.Guest;
+import model.LoyaltyLedgerEntry;
+import model.Payment;
 import model.Reservation;
 import model.RoomType;
 import model.ReservationStatus;
 import security.AdminUser;
 import security.AuthenticationService;
 import service.BillingContext;
+import service.GuestService;
 import service.LoyaltyService;
 import service.FeedbackService;
 import service.ReservationService;
 import service.RoomService;
+import service.availability.AvailabilityEngine;
 import util.ValidationUtils;
 
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,14 +44,18 @@ import java.util.logging.Logger;
  */
 public class AdminController {
     private static final Logger LOGGER = Logger.getLogger(AdminController.class.getName());
+    private static final int LOYALTY_HISTORY_ROWS = 50;
 
     // Services (injected via constructor or Bootstrap)
     private final ReservationService reservationService;
     private final RoomService roomService;
     private final LoyaltyService loyaltyService;
+    private final GuestService guestService;
     private final BillingContext billingContext;
     private final AuthenticationService authService;
     private final PaymentService paymentService;
+    // Records payments made with loyalty points; the placeholder above only logs
+    private final service.PaymentService loyaltyPaymentService;
     private final WaitlistService waitlistService;
     private final FeedbackService feedbackService;
 
@@ -168,9 +182,11 @@ public class AdminController {
         this.reservationService = Bootstrap.getReservationService();
         this.roomService = Bootstrap.getRoomService();
         this.loyaltyService = Bootstrap.getLoyaltyService();
+        this.guestService = Bootstrap.getGuestService();
         this.billingContext = Bootstrap.getBillingContext();
         this.authService = Bootstrap.getAuthenticationService();
         this.paymentService = new PaymentService();
+        this.loyaltyPaymentService = Bootstrap.getPaymentService();
         this.waitlistService = new WaitlistService();
         this.feedbackService = Bootstrap.getFeedbackService();
 
@@ -181,15 +197,17 @@ public class AdminController {
      * Alternative constructor for testing or direct injection
      */
     public AdminController(ReservationService reservationService, RoomService roomService,
-                           LoyaltyService loyaltyService, BillingContext billingContext,
+                           LoyaltyService loyaltyService, GuestService guestService, BillingContext billingContext,
                            AuthenticationService authService, PaymentService paymentService,
-                           WaitlistService waitlistService, FeedbackService feedbackService) {
+                           service.PaymentService loyaltyPaymentService, WaitlistService waitlistService, FeedbackService feedbackService) {
         this.reservationService = reservationService;
         this.roomService = roomService;
         this.loyaltyService = loyaltyService;
+        this.guestService = guestService;
         this.billingContext = billingContext;
         this.authService = authService;
         this.paymentService = paymentService;
+        this.loyaltyPaymentService = loyaltyPaymentService;
         this.waitlistService = waitlistService;
         this.feedbackService = feedbackService;
 
@@ -694,6 +712,12 @@ public class AdminController {
             return;
         }
 
+        String method = paymentMethodCombo.getValue();
+        if ("Loyalty Points".equals(method)) {
+            handleLoyaltyPointsPayment();
+            return;
+        }
+
         String amountText = paymentAmountField.getText().trim();
         if (amountText.isEmpty()) {
             showWarning("Input Required", "Please enter payment amount");
@@ -702,27 +726,14 @@ public class AdminController {
 
         try {
             double amount = Double.parseDouble(amountText);
-            String method = paymentMethodCombo.getValue();
 
             if (amount <= 0) {
                 showWarning("Invalid Amount", "Payment amount must be positive");
                 return;
             }
 
-            // Process payment based on method
-            if ("Loyalty Points".equals(method)) {
-                // Handle loyalty points redemption
-                String pointsText = loyaltyPointsField.getText().trim();
-                if (pointsText.isEmpty()) {
-                    showWarning("Input Required", "Please enter loyalty points");
-                    return;
-                }
-                int points = Integer.parseInt(pointsText);
-                // TODO: Process loyalty payment
-            } else {
-                // Process cash/card payment
-                paymentService.processPayment(currentReservation.getId(), amount, method);
-            }
+            // Process cash/card payment
+            paymentService.processPayment(currentReservation.getId(), amount, method);
 
             showInfo("Success", String.format("Payment of $%.2f processed", amount));
             logActivity("PAYMENT", "Reservation", currentReservation.getId().toString(),
@@ -740,6 +751,44 @@ public class AdminController {
         }
     }
 
+    /**
+     * Pay with loyalty points: the points are redeemed and a payment for their cash value
+     * is recorded in one step, so the dollar amount field does not apply.
+     */
+    private void handleLoyaltyPointsPayment() {
+        String pointsText = loyaltyPointsField.getText().trim();
+        if (pointsText.isEmpty()) {
+            showWarning("Input Required", "Please enter loyalty points");
+            return;
+        }
+
+        try {
+            int points = Integer.parseInt(pointsText);
+            Optional<Payment> payment = loyaltyPaymentService.payWithPoints(
+                    currentReservation.getId(), currentReservation.getGuest(), points);
+            if (payment.isEmpty()) {
+                showWarning("Insufficient Points", "The guest does not have " + points + " points to redeem");
+                return;
+            }
+
+            BigDecimal amount = payment.get().getAmount();
+            showInfo("Success", String.format("Redeemed %,d points for a payment of $%.2f", points, amount));
+            logActivity("PAYMENT", "Reservation", currentReservation.getId().toString(),
+                    String.format("Payment processed: $%.2f via %,d loyalty points", amount, points));
+
+            displayPaymentInformation();
+            loyaltyPointsField.clear();
+
+        } catch (NumberFormatException e) {
+            showWarning("Invalid Input", "Please enter a valid number of points");
+        } catch (IllegalArgumentException e) {
+            showWarning("Invalid Points", e.getMessage());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Loyalty points payment failed", e);
+            showError("Payment Error", "Failed to process payment: " + e.getMessage());
+        }
+    }
+
     /**
      * Process refund
      */
@@ -1059,8 +1108,28 @@ public class AdminController {
             return;
         }
 
-        // TODO: Search for loyalty account
-        LOGGER.info("Searching loyalty for: " + searchText);
+        // Phone numbers are digits and separators; anything else is searched as a name
+        boolean byPhone = searchText.matches("[0-9()+\\-. ]+");
+        Optional<Guest> member = guestService.searchGuests(byPhone ? null : searchText, byPhone ? searchText : null,
+                        null, null).stream()
+                .filter(guest -> guest.getLoyaltyNumber() != null && !guest.getLoyaltyNumber().isBlank())
+                .findFirst();
+        if (member.isEmpty()) {
+            showInfo("Not Found", "No loyalty member matches \"" + searchText + "\"");
+            return;
+        }
+
+        // The balance is one account row, however long the guest's history
+        Guest guest = member.get();
+        loyaltyGuestNameLabel.setText(guest.getFirstName() + " " + guest.getLastName()
+                + " (" + guest.getLoyaltyNumber() + ")");
+        loyaltyPointsBalanceLabel.setText(String.format("%,d points", loyaltyService.getBalance(guest.getId())));
+        if (loyaltyHistoryTable != null) {
+            loyaltyHistoryTable.setItems(FXCollections.observableArrayList(
+                    loyaltyService.getHistory(guest.getId(), LOYALTY_HISTORY_ROWS).stream()
+                            .map(LoyaltyTransaction::new)
+                            .toList()));
+        }
     }
 
     /**
@@ -1234,10 +1303,29 @@ public class AdminController {
             return;
         }
 
+        if (endDate.isBefore(startDate)) {
+            showWarning("Invalid Range", "End date must not be before start date");
+            return;
+        }
+
         LOGGER.info(String.format("Generating %s occupancy report from %s to %s",
                 type, startDate, endDate));
 
-        // TODO: Generate and display occupancy report
+        // Nightly counts come from the in-memory occupancy calendar; roll them up per period
+        Map<LocalDate, OccupancyReport> byPeriod = new TreeMap<>();
+        for (AvailabilityEngine.NightlyOccupancy night : roomService.getOccupancy(startDate, endDate.plusDays(1))) {
+            LocalDate periodStart = switch (type == null ? "Daily" : type) {
+                case "Weekly" -> night.night().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case "Monthly" -> night.night().withDayOfMonth(1);
+                default -> night.night();
+            };
+            byPeriod.computeIfAbsent(periodStart, OccupancyReport::new).add(night.booked(), night.total());
+        }
+
+        if (occupancyReportTable != null) {
+            occupancyReportTable.setItems(FXCollections.observableArrayList(byPeriod.values()));
+        }
+        LOGGER.info(String.format("Occupancy report generated with %d periods", byPeriod.size()));
     }
 
     /**
@@ -1375,10 +1463,50 @@ public class AdminController {
     // ----- DTOs used by the UI tables -----
     public static class PaymentRecord { }
     public static class WaitlistEntry { }
-    public static class LoyaltyTransaction { }
+    public static class LoyaltyTransaction {
+        private final LocalDateTime date;
+        private final String type;
+        private final long points;
+        private final Long reservationId;
+        private final String note;
+
+        public LoyaltyTransaction(LoyaltyLedgerEntry entry) {
+            this.date = entry.getCreatedAt();
+            this.type = entry.getType().name();
+            this.points = entry.getPoints();
+            this.reservationId = entry.getReservationId();
+            this.note = entry.getNote();
+        }
+
+        public LocalDateTime getDate() { return date; }
+        public String getType() { return type; }
+        public long getPoints() { return points; }
+        public Long getReservationId() { return reservationId; }
+        public String getNote() { return note; }
+    }
     public static class FeedbackEntry { }
     public static class RevenueReport { }
-    public static class OccupancyReport { }
+    public static class OccupancyReport {
+        private final LocalDate periodStart;
+        private int bookedRoomNights;
+        private int totalRoomNights;
+
+        public OccupancyReport(LocalDate periodStart) {
+            this.periodStart = periodStart;
+        }
+
+        void add(int booked, int total) {
+            bookedRoomNights += booked;
+            totalRoomNights += total;
+        }
+
+        public LocalDate getPeriodStart() { return periodStart; }
+        public int getBookedRoomNights() { return bookedRoomNights; }
+        public int getTotalRoomNights() { return totalRoomNights; }
+        public double getOccupancyRate() {
+            return totalRoomNights > 0 ? (double) bookedRoomNights / totalRoomNights : 0.0;
+        }
+    }
     public static class ActivityLog { }
 
     // ----- Dialog placeholders used by the controller -----
@@ -11,6 +11,7 @@ import model.Reservation;
 import model.ReservationStatus;
 import model.RoomType;
 import service.BillingContext;
+import service.pricing.PriceBreakdown;
 import service.FeedbackService;
 import service.LoyaltyService;
 import service.ReservationConflictException;
@@ -165,8 +166,9 @@ public class AdminReservationEditController {
     private void refreshPriceView() {
         if (reservation == null) return;
 
-        double base = reservation.calculateBaseSubtotal();
-        double total = billingContext.calculateTotal(reservation);
+        PriceBreakdown price = billingContext.calculateBreakdown(reservation);
+        double base = price.subtotal();
+        double total = price.total();
 
         baseSubtotalLabel.setText(String.format("$%.2f", base));
         totalAfterDiscountLabel.setText(String.format("$%.2f", total));
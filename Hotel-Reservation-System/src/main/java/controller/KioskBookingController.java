@@ -1,7 +1,6 @@
 package controller;
 
 import app.Bootstrap;
-import config.PricingConfig;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -13,6 +12,10 @@ import model.RoomType;
 import service.BillingContext;
 import service.RoomService;
 import service.RoomSuggestion;
+import service.ReservationConflictException;
+import service.availability.FlexibleDateSearch;
+import service.availability.InventoryHoldManager;
+import service.availability.RoomCombinationSolver;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -22,16 +25,20 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
  * Handles Step 2 – selecting dates and a room plan.
  */
 public class KioskBookingController {
+    private static final int NEARBY_WINDOW_DAYS = 7;
+    private static final int NEARBY_DATES_SHOWN = 3;
+
     private final KioskFlowContext context;
     private final RoomService roomService;
     private final BillingContext billingContext;
-    private final PricingConfig pricingConfig;
+    private final InventoryHoldManager holdManager;
     private List<RoomSuggestion> currentSuggestions = java.util.Collections.emptyList();
 
     @FXML
@@ -68,13 +75,15 @@ public class KioskBookingController {
     }
 
     public KioskBookingController(KioskFlowContext context) {
-        this(Bootstrap.getRoomService(), Bootstrap.getBillingContext(), Bootstrap.getPricingConfig(), context);
+        this(Bootstrap.getRoomService(), Bootstrap.getBillingContext(), Bootstrap.getInventoryHoldManager(),
+                context);
     }
 
-    public KioskBookingController(RoomService roomService, BillingContext billingContext, PricingConfig pricingConfig, KioskFlowContext context) {
+    public KioskBookingController(RoomService roomService, BillingContext billingContext,
+                                  InventoryHoldManager holdManager, KioskFlowContext context) {
         this.roomService = roomService;
         this.billingContext = billingContext;
-        this.pricingConfig = pricingConfig;
+        this.holdManager = holdManager;
         this.context = context;
     }
 
@@ -205,6 +214,16 @@ public class KioskBookingController {
             return;                    // stay on this step
         }
 
+        // Hold the rooms while the guest fills in the remaining steps; drop any earlier hold first
+        holdManager.release(context.getHoldId());
+        context.setHoldId(null);
+        try {
+            context.setHoldId(holdManager.place(selectedRooms, checkIn, checkOut).id());
+        } catch (ReservationConflictException | IllegalArgumentException e) {
+            showRoomsUnavailableAlert(e.getMessage(), nearbyDates(selectedRooms, checkIn, checkOut));
+            return;
+        }
+
         context.setSelectedRooms(selectedRooms);
         context.setCheckIn(checkIn);
         context.setCheckOut(checkOut);
@@ -299,6 +318,41 @@ public class KioskBookingController {
         alert.showAndWait();
     }
 
+    private void showRoomsUnavailableAlert(String message, List<String> nearbyDates) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Rooms Unavailable");
+        alert.setHeaderText("Your selection could not be held");
+        String nearby = nearbyDates.isEmpty()
+                ? ""
+                : "\n\nThe same rooms are free for the same length of stay on:\n" + String.join("\n", nearbyDates);
+        alert.setContentText(message + nearby + "\n\nPlease choose other rooms or dates.");
+        alert.showAndWait();
+    }
+
+    /**
+     * The check-ins closest to the chosen one, within a week either side, on which every
+     * selected room is free for the whole stay.
+     */
+    private List<String> nearbyDates(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
+        Map<RoomType.Type, Long> needed = rooms.stream()
+                .collect(Collectors.groupingBy(RoomType::getType, Collectors.counting()));
+        List<FlexibleDateSearch.DateOption> options;
+        try {
+            options = roomService.searchFlexibleDates(checkIn, (int) ChronoUnit.DAYS.between(checkIn, checkOut),
+                    NEARBY_WINDOW_DAYS);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return List.of();
+        }
+        return options.stream()
+                .filter(option -> !option.checkIn().equals(checkIn))
+                .filter(option -> option.quotes().stream().allMatch(quote ->
+                        quote.available() >= needed.getOrDefault(quote.roomType().getType(), 0L)))
+                .sorted(Comparator.comparingLong(option -> Math.abs(ChronoUnit.DAYS.between(checkIn, option.checkIn()))))
+                .limit(NEARBY_DATES_SHOWN)
+                .map(option -> option.checkIn() + " to " + option.checkOut())
+                .toList();
+    }
+
     private void onInputsChanged() {
         updateCustomControls();
         validateDates();
@@ -360,13 +414,17 @@ public class KioskBookingController {
             return;
         }
 
-        List<RoomType> suggested = buildSuggestedPlan(availableRooms);
+        List<RoomType> suggested = buildSuggestedPlan(checkIn, checkOut);
         context.setSuggestedRooms(suggested);
 
         String summary = suggested.isEmpty()
                 ? "No suggestion available."
-                : String.format("Suggested: %d × %s based on your group size and availability.",
-                suggested.size(), suggested.get(0).getType().name());
+                : String.format("Suggested: %s based on your group size and availability.",
+                suggested.stream()
+                        .collect(Collectors.groupingBy(RoomType::getType, TreeMap::new, Collectors.counting()))
+                        .entrySet().stream()
+                        .map(e -> e.getValue() + " × " + e.getKey().name())
+                        .collect(Collectors.joining(", ")));
         suggestionLabel.setText(summary);
 
         List<RoomType> planRooms = suggestedRadio.isSelected() ? suggested : buildCustomPlan(availableRooms);
@@ -380,31 +438,11 @@ public class KioskBookingController {
         updateEstimate(planRooms, checkIn, checkOut);
     }
 
-    private List<RoomType> buildSuggestedPlan(List<RoomType> availableRooms) {
-        int totalGuests = context.getAdults() + context.getChildren();
-        if (totalGuests <= 0) {
-            return new ArrayList<>();
-        }
-
-        List<RoomType> sorted = availableRooms.stream()
-                .sorted(Comparator.comparingInt(RoomType::getCapacity))
-                .collect(Collectors.toList());
-
-        List<RoomType> selection = new ArrayList<>();
-        int remaining = totalGuests;
-        for (RoomType room : sorted) {
-            if (remaining <= 0) {
-                break;
-            }
-            selection.add(room);
-            remaining -= room.getCapacity();
-        }
-
-        if (remaining > 0 && !sorted.isEmpty()) {
-            selection.add(sorted.get(sorted.size() - 1));
-        }
-
-        return selection;
+    private List<RoomType> buildSuggestedPlan(LocalDate checkIn, LocalDate checkOut) {
+        // Cheapest combination that seats everyone, from live availability and stay prices
+        List<RoomCombinationSolver.Plan> plans =
+                roomService.planRooms(context.getAdults(), context.getChildren(), checkIn, checkOut);
+        return plans.isEmpty() ? new ArrayList<>() : new ArrayList<>(plans.get(0).rooms());
     }
 
     private List<RoomType> buildCustomPlan(List<RoomType> availableRooms) {
@@ -432,7 +470,7 @@ public class KioskBookingController {
 
     private void updateEstimate(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
         long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        KioskPricingHelper.BookingBreakdown breakdown = KioskPricingHelper.calculate(rooms, context.getAddOns(), checkIn, checkOut, billingContext, pricingConfig);
+        KioskPricingHelper.BookingBreakdown breakdown = KioskPricingHelper.calculate(rooms, context.getAddOns(), checkIn, checkOut, billingContext);
         context.setSelectedRooms(rooms);
         context.setCheckIn(checkIn);
         context.setCheckOut(checkOut);
@@ -28,6 +28,7 @@ public class KioskFlowContext {
     private double addOnSubtotal;
     private double tax;
     private Long lastReservationId;
+    private Long holdId;
 
     private KioskFlowContext() {
     }
@@ -51,6 +52,7 @@ public class KioskFlowContext {
         addOnSubtotal = 0.0;
         tax = 0.0;
         lastReservationId = null;
+        holdId = null;
     }
 
     public LocalDate getCheckIn() {
@@ -167,4 +169,15 @@ public class KioskFlowContext {
     public void setLastReservationId(Long lastReservationId) {
         this.lastReservationId = lastReservationId;
     }
+
+    /**
+     * Inventory hold placed for the selected rooms, or null when nothing is held.
+     */
+    public Long getHoldId() {
+        return holdId;
+    }
+
+    public void setHoldId(Long holdId) {
+        this.holdId = holdId;
+    }
 }
@@ -10,13 +10,14 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import model.Guest;
 import service.BillingContext;
+import service.pricing.AddOnCatalog;
+import util.Money;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -281,17 +282,13 @@ public class KioskGuestDetailsController {
             nights = ChronoUnit.DAYS.between(in, out);
         }
 
-        Map<String, Double> prices = BillingContext.getAvailableAddOns();
-        double total = 0;
+        AddOnCatalog.Snapshot catalog = billingContext.getAddOnCatalog().snapshot();
+        long total = 0;
         for (String addOn : addOns) {
-            Double price = prices.get(addOn);
-            if (price == null) {
-                continue;
-            }
-            boolean perNight = BillingContext.isAddOnPerNight(addOn);
-            total += perNight && nights > 0 ? price * nights : price;
+            int id = catalog.idOf(addOn);
+            total += catalog.chargeCents(id, Math.max(nights, 1));
         }
-        addOnSummaryLabel.setText(String.format("Add-ons subtotal: $%.2f", total));
+        addOnSummaryLabel.setText(String.format("Add-ons subtotal: $%.2f", Money.toDollars(total)));
     }
 
     private void loadScene(String resource) throws IOException {
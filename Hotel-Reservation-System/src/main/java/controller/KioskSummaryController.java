@@ -2,7 +2,6 @@ package controller;
 
 import app.Bootstrap;
 import config.LoyaltyConfig;
-import config.PricingConfig;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -17,7 +16,9 @@ import model.Reservation;
 import model.RoomType;
 import model.ReservationStatus;
 import service.BillingContext;
+import service.ReservationConflictException;
 import service.ReservationService;
+import service.availability.InventoryHoldManager;
 import javafx.scene.paint.Color;   // ⬅️ add this import at the top
 
 import java.io.IOException;
@@ -33,8 +34,8 @@ import java.util.stream.Collectors;
 public class KioskSummaryController {
     private final ReservationService reservationService;
     private final LoyaltyConfig loyaltyConfig;
-    private final PricingConfig pricingConfig;
     private final BillingContext billingContext;
+    private final InventoryHoldManager holdManager;
     private final KioskFlowContext context;
 
     @FXML
@@ -73,14 +74,16 @@ public class KioskSummaryController {
     }
 
     public KioskSummaryController(KioskFlowContext context) {
-        this(Bootstrap.getReservationService(), Bootstrap.getLoyaltyConfig(), Bootstrap.getPricingConfig(), Bootstrap.getBillingContext(), context);
+        this(Bootstrap.getReservationService(), Bootstrap.getLoyaltyConfig(), Bootstrap.getBillingContext(),
+                Bootstrap.getInventoryHoldManager(), context);
     }
 
-    public KioskSummaryController(ReservationService reservationService, LoyaltyConfig loyaltyConfig, PricingConfig pricingConfig, BillingContext billingContext, KioskFlowContext context) {
+    public KioskSummaryController(ReservationService reservationService, LoyaltyConfig loyaltyConfig, BillingContext billingContext,
+                                  InventoryHoldManager holdManager, KioskFlowContext context) {
         this.reservationService = reservationService;
         this.loyaltyConfig = loyaltyConfig;
-        this.pricingConfig = pricingConfig;
         this.billingContext = billingContext;
+        this.holdManager = holdManager;
         this.context = context;
     }
 
@@ -112,7 +115,7 @@ public class KioskSummaryController {
             return;
         }
 
-        KioskPricingHelper.BookingBreakdown breakdown = KioskPricingHelper.calculate(rooms, context.getAddOns(), in, out, billingContext, pricingConfig);
+        KioskPricingHelper.BookingBreakdown breakdown = KioskPricingHelper.calculate(rooms, context.getAddOns(), in, out, billingContext);
         context.setEstimatedTotal(breakdown.total());
         context.setRoomSubtotal(breakdown.roomSubtotal());
         context.setAddOnSubtotal(breakdown.addOnSubtotal());
@@ -145,13 +148,22 @@ public class KioskSummaryController {
             Reservation savedReservation = reservationService.createReservation(
                     reservation,
                     context.getSelectedRooms(),
-                    context.getAddOns()
+                    context.getAddOns(),
+                    context.getHoldId()
             );
             context.setLastReservationId(savedReservation.getId());
 
+            // The booking now owns the rooms, so the hold can go
+            holdManager.release(context.getHoldId());
+            context.setHoldId(null);
+
             statusLabel.setText("Your reservation has been saved. Billing will be handled at the front desk.");
             statusLabel.setTextFill(Color.GREEN);
             confirmButton.setDisable(true);
+        } catch (ReservationConflictException ex) {
+            // The hold expired and someone else took the rooms in the meantime
+            statusLabel.setText(ex.getMessage() + " Please go back and choose again.");
+            statusLabel.setTextFill(Color.RED);
         } catch (IllegalArgumentException ex) {
             // e.g. "Valid 10-digit phone number is required"
             statusLabel.setText(ex.getMessage());
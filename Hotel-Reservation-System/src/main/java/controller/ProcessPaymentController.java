@@ -16,6 +16,7 @@ import service.LoyaltyService;
 import service.PaymentService;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +46,8 @@ public class ProcessPaymentController {
     private BigDecimal currentBalance = BigDecimal.ZERO;
     private BigDecimal totalPaid = BigDecimal.ZERO;
     private Runnable onPaymentProcessed;
+    // One key per payment this dialog takes, so a double click or a retry cannot charge twice
+    private final String idempotencyKey = UUID.randomUUID().toString();
 
     public ProcessPaymentController() {
         PaymentService payService;
@@ -92,7 +95,7 @@ public class ProcessPaymentController {
                 throw new IllegalStateException("Payment service is not available");
             }
 
-            paymentService.processPayment(reservationId, method, type, amount);
+            paymentService.processPayment(idempotencyKey, reservationId, method, type, amount);
             closeDialog();
 
             if (onPaymentProcessed != null) {
@@ -20,12 +20,16 @@ import model.Payment;
 import model.Reservation;
 import model.ReservationAddOn;
 import model.RoomType;
+import repository.PaymentTotals;
 import security.AdminUser;
 import security.AuthenticationService;
 import service.BillingContext;
+import service.pricing.AddOnCatalog;
+import service.pricing.PriceBreakdown;
 import service.LoyaltyService;
 import service.PaymentService;
 import service.ReservationService;
+import util.Money;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -53,21 +57,6 @@ public class ReservationController {
     private final ObservableList<AddOnRow> addOnRows = FXCollections.observableArrayList();
     private final ObservableList<PaymentRow> paymentRows = FXCollections.observableArrayList();
 
-    private static final Map<String, Double> ADD_ON_PRICES = new HashMap<>();
-    private static final Map<String, Boolean> ADD_ON_PER_NIGHT = new HashMap<>();
-
-    static {
-        ADD_ON_PRICES.put("WiFi", 10.0);
-        ADD_ON_PRICES.put("Breakfast", 25.0);
-        ADD_ON_PRICES.put("Parking", 15.0);
-        ADD_ON_PRICES.put("Spa", 100.0);
-
-        ADD_ON_PER_NIGHT.put("WiFi", true);
-        ADD_ON_PER_NIGHT.put("Breakfast", true);
-        ADD_ON_PER_NIGHT.put("Parking", true);
-        ADD_ON_PER_NIGHT.put("Spa", false);
-    }
-
     // ─────────── TOP BAR ───────────
     @FXML private Button backButton;
     @FXML private Label titleLabel;
@@ -273,7 +262,7 @@ public class ReservationController {
         List<PaymentRow> payments = new ArrayList<>();
         double amountPaid = 0.0;
         if (paymentService != null && reservation.getId() != null) {
-            amountPaid = paymentService.calculateTotalPaid(reservation).doubleValue();
+            amountPaid = Money.toDollars(paymentService.calculateTotalPaidCents(reservation));
             payments = paymentService.getPaymentsForReservation(reservation.getId()).stream()
                     .map(this::toPaymentRow)
                     .collect(Collectors.toList());
@@ -393,8 +382,6 @@ public class ReservationController {
 
     private void populateRoomTable(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
         roomRows.clear();
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-
         Map<RoomType.Type, List<RoomType>> grouped = new HashMap<>();
         for (RoomType room : rooms) {
             grouped.computeIfAbsent(room.getType(), key -> new ArrayList<>()).add(room);
@@ -403,7 +390,7 @@ public class ReservationController {
         grouped.forEach((type, roomList) -> {
             RoomType sample = roomList.get(0);
             int quantity = roomList.size();
-            double subtotal = sample.getBasePrice() * quantity * nights;
+            double subtotal = billingContext.getPricingEngine().roomCharges(roomList, checkIn, checkOut);
             roomRows.add(new RoomRow(type.name(), quantity, sample.getCapacity(), sample.getBasePrice(), subtotal));
         });
     }
@@ -412,40 +399,27 @@ public class ReservationController {
         addOnRows.clear();
         long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
 
+        AddOnCatalog.Snapshot catalog = billingContext.getAddOnCatalog().snapshot();
         for (String addOn : addOns) {
-            double price = ADD_ON_PRICES.getOrDefault(addOn, 0.0);
-            boolean perNight = ADD_ON_PER_NIGHT.getOrDefault(addOn, false);
-            double total = perNight ? price * nights : price;
-            addOnRows.add(new AddOnRow(addOn, perNight ? "Per Night" : "Per Stay", price, total));
+            int id = catalog.idOf(addOn);
+            boolean perNight = catalog.isPerNight(id);
+            addOnRows.add(new AddOnRow(addOn, perNight ? "Per Night" : "Per Stay",
+                    Money.toDollars(catalog.priceCents(id)), Money.toDollars(catalog.chargeCents(id, nights))));
         }
     }
 
     private void updateFinancials(LocalDate checkIn, LocalDate checkOut, List<RoomType> rooms,
                                   List<String> addOns, double amountPaid,
                                   double discount, double loyaltyRedemption) {
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        double roomSubtotal = rooms.stream()
-                .mapToDouble(room -> room.getBasePrice() * nights)
-                .sum();
-
-        double addonsTotal = addOns.stream()
-                .mapToDouble(addOn -> {
-                    double price = ADD_ON_PRICES.getOrDefault(addOn, 0.0);
-                    return ADD_ON_PER_NIGHT.getOrDefault(addOn, false) ? price * nights : price;
-                })
-                .sum();
-
-        double subtotal = roomSubtotal + addonsTotal;
-
-        // Apply discount if exists
         double discountPercent = currentReservation != null ? currentReservation.getDiscountPercent() : 0.0;
-        double discountAmount = subtotal * (discountPercent / 100.0);
-        double afterDiscount = subtotal - discountAmount;
-
-        // Calculate tax on discounted amount
-        double tax = afterDiscount * 0.13;
-
-        double grandTotal = afterDiscount - loyaltyRedemption + tax;
+        PriceBreakdown price = billingContext.calculateBreakdown(rooms, addOns, checkIn, checkOut, discountPercent);
+        double roomSubtotal = price.roomCharges();
+        double addonsTotal = price.addOnCharges();
+        double subtotal = price.subtotal();
+        double discountAmount = price.discount();
+        double tax = price.tax();
+
+        double grandTotal = price.total() - loyaltyRedemption;
         double balance = Math.max(0, grandTotal - amountPaid);
 
         roomSubtotalLabel.setText(formatCurrency(roomSubtotal));
@@ -588,8 +562,9 @@ public class ReservationController {
         if (reservationService != null) {
             reservationService.findById(currentReservation.getId()).ifPresent(reservation -> {
                 currentReservation = reservation;
-                double totalPaid = paymentService.calculateTotalPaid(reservation).doubleValue();
-                double balance = paymentService.calculateBalance(reservation).doubleValue();
+                PaymentTotals totals = paymentService.getPaymentTotals(reservation);
+                double totalPaid = Money.toDollars(totals.netCents());
+                double balance = Money.toDollars(paymentService.calculateBalanceCents(reservation, totals));
 
                 paidLabel.setText(formatCurrency(totalPaid));
                 balanceLabel.setText(formatCurrency(balance));
@@ -16,8 +16,11 @@ import model.Guest;
 import model.Reservation;
 import model.RoomType;
 import service.BillingContext;
+import service.pricing.AddOnCatalog;
+import service.pricing.PriceBreakdown;
 import service.LoyaltyService;
 import service.ReservationService;
+import util.Money;
 import security.AdminUser;
 import security.AuthenticationService;
 
@@ -48,22 +51,6 @@ public class ReservationDetailsController {
     private final ObservableList<AddOnRow> addOnRows = FXCollections.observableArrayList();
     private final ObservableList<PaymentRow> paymentRows = FXCollections.observableArrayList();
 
-    // Static pricing map
-    private static final Map<String, Double> ADD_ON_PRICES = new HashMap<>();
-    private static final Map<String, Boolean> ADD_ON_PER_NIGHT = new HashMap<>();
-
-    static {
-        ADD_ON_PRICES.put("WiFi", 10.0);
-        ADD_ON_PRICES.put("Breakfast", 25.0);
-        ADD_ON_PRICES.put("Parking", 15.0);
-        ADD_ON_PRICES.put("Spa", 100.0);
-
-        ADD_ON_PER_NIGHT.put("WiFi", true);
-        ADD_ON_PER_NIGHT.put("Breakfast", true);
-        ADD_ON_PER_NIGHT.put("Parking", true);
-        ADD_ON_PER_NIGHT.put("Spa", false);
-    }
-
     // ─────────── TOP BAR ───────────
     @FXML private Button backButton;
     @FXML private Label titleLabel;
@@ -273,8 +260,7 @@ public class ReservationDetailsController {
 
         if (isMember) {
             loyaltyNumberLabel.setText(guest.getLoyaltyNumber());
-            int points = loyaltyService.calculateEarnedPoints(500.0); // Example
-            loyaltyPointsLabel.setText(String.valueOf(points));
+            loyaltyPointsLabel.setText(String.valueOf(loyaltyService.getBalance(guest.getId())));
         }
 
         syncSectionVisibility();
@@ -297,8 +283,6 @@ public class ReservationDetailsController {
 
     private void populateRoomTable(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
         roomRows.clear();
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-
         Map<RoomType.Type, List<RoomType>> grouped = new HashMap<>();
         for (RoomType room : rooms) {
             grouped.computeIfAbsent(room.getType(), key -> new ArrayList<>()).add(room);
@@ -307,7 +291,7 @@ public class ReservationDetailsController {
         grouped.forEach((type, roomList) -> {
             RoomType sample = roomList.get(0);
             int quantity = roomList.size();
-            double subtotal = sample.getBasePrice() * quantity * nights;
+            double subtotal = billingContext.getPricingEngine().roomCharges(roomList, checkIn, checkOut);
             roomRows.add(new RoomRow(type.name(), quantity, sample.getCapacity(),
                     sample.getBasePrice(), subtotal));
         });
@@ -317,45 +301,26 @@ public class ReservationDetailsController {
         addOnRows.clear();
         long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
 
+        AddOnCatalog.Snapshot catalog = billingContext.getAddOnCatalog().snapshot();
         for (String addOn : addOns) {
-            double price = ADD_ON_PRICES.getOrDefault(addOn, 0.0);
-            boolean perNight = ADD_ON_PER_NIGHT.getOrDefault(addOn, false);
-            double total = perNight ? price * nights : price;
-            addOnRows.add(new AddOnRow(addOn, perNight ? "Per Night" : "Per Stay", price, total));
+            int id = catalog.idOf(addOn);
+            boolean perNight = catalog.isPerNight(id);
+            addOnRows.add(new AddOnRow(addOn, perNight ? "Per Night" : "Per Stay",
+                    Money.toDollars(catalog.priceCents(id)), Money.toDollars(catalog.chargeCents(id, nights))));
         }
     }
 
     private void updateFinancials(Reservation reservation, List<RoomType> rooms,
                                   List<String> addOns, double amountPaid) {
-        long nights = ChronoUnit.DAYS.between(
-                reservation.getCheckIn(), reservation.getCheckOut());
-
-        // Calculate room subtotal
-        double roomSubtotal = rooms.stream()
-                .mapToDouble(room -> room.getBasePrice() * nights)
-                .sum();
-
-        // Calculate add-ons total
-        double addonsTotal = addOns.stream()
-                .mapToDouble(addOn -> {
-                    double price = ADD_ON_PRICES.getOrDefault(addOn, 0.0);
-                    return ADD_ON_PER_NIGHT.getOrDefault(addOn, false) ? price * nights : price;
-                })
-                .sum();
-
-        double subtotal = roomSubtotal + addonsTotal;
-
-        // Apply discount
         double discountPercent = reservation.getDiscountPercent();
-        double discountAmount = subtotal * (discountPercent / 100.0);
-        double afterDiscount = subtotal - discountAmount;
-
-        // Calculate tax on discounted amount
-        double taxRate = 0.13; // 13% tax
-        double tax = afterDiscount * taxRate;
-
-        // Grand total
-        double grandTotal = afterDiscount + tax;
+        PriceBreakdown price = billingContext.calculateBreakdown(rooms, addOns,
+                reservation.getCheckIn(), reservation.getCheckOut(), discountPercent);
+        double roomSubtotal = price.roomCharges();
+        double addonsTotal = price.addOnCharges();
+        double subtotal = price.subtotal();
+        double discountAmount = price.discount();
+        double tax = price.tax();
+        double grandTotal = price.total();
         double balance = Math.max(0, grandTotal - amountPaid);
 
         // Update labels
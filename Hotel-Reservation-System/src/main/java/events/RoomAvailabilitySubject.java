@@ -1,10 +1,10 @@
 package events;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class RoomAvailabilitySubject {
-    private final List<RoomAvailabilityObserver> observers = new ArrayList<>();
+    private final List<RoomAvailabilityObserver> observers = new CopyOnWriteArrayList<>();
 
     public void addObserver(RoomAvailabilityObserver observer) {
         observers.add(observer);
@@ -0,0 +1,44 @@
+package model;
+
+import jakarta.persistence.*;
+
+/**
+ * An add-on guests can book with a stay (WiFi, breakfast, ...), as listed in the catalog.
+ */
+@Entity
+@Table(name = "addon_catalog")
+public class AddOnItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private double price;
+
+    // true = charged per night, false = once per reservation
+    @Column(nullable = false)
+    private boolean perNight;
+
+    public AddOnItem() {}
+
+    public AddOnItem(String name, double price, boolean perNight) {
+        this.name = name;
+        this.price = price;
+        this.perNight = perNight;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public double getPrice() { return price; }
+    public void setPrice(double price) { this.price = price; }
+
+    public boolean isPerNight() { return perNight; }
+    public void setPerNight(boolean perNight) { this.perNight = perNight; }
+}
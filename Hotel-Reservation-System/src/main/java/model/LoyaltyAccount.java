@@ -0,0 +1,58 @@
+package model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A loyalty member's points balance, kept up to date in the same transaction as every
+ * ledger entry written, so reading a balance is one row instead of the guest's history.
+ */
+@Entity
+@Table(name = "loyalty_account")
+public class LoyaltyAccount {
+    @Id
+    @Column(name = "guest_id")
+    private Long guestId;
+
+    @Column(name = "balance_points", nullable = false)
+    private long balancePoints;
+
+    @Column(name = "lifetime_earned", nullable = false)
+    private long lifetimeEarned;
+
+    @Column(name = "lifetime_redeemed", nullable = false)
+    private long lifetimeRedeemed;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Nullable so existing databases can add the column; only stays checked out after it earn points
+    @Column(name = "enrolled_at")
+    private LocalDateTime enrolledAt;
+
+    public LoyaltyAccount() {}
+
+    public LoyaltyAccount(Long guestId, long earned) {
+        this.guestId = guestId;
+        this.balancePoints = earned;
+        this.lifetimeEarned = earned;
+    }
+
+    public Long getGuestId() { return guestId; }
+
+    public long getBalancePoints() { return balancePoints; }
+    public void setBalancePoints(long balancePoints) { this.balancePoints = balancePoints; }
+
+    public long getLifetimeEarned() { return lifetimeEarned; }
+    public void setLifetimeEarned(long lifetimeEarned) { this.lifetimeEarned = lifetimeEarned; }
+
+    public long getLifetimeRedeemed() { return lifetimeRedeemed; }
+    public void setLifetimeRedeemed(long lifetimeRedeemed) { this.lifetimeRedeemed = lifetimeRedeemed; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getEnrolledAt() { return enrolledAt; }
+    public void setEnrolledAt(LocalDateTime enrolledAt) { this.enrolledAt = enrolledAt; }
+}
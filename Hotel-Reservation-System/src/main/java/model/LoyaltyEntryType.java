@@ -0,0 +1,7 @@
+package model;
+
+public enum LoyaltyEntryType {
+    EARN,
+    REDEEM,
+    REVERSAL
+}
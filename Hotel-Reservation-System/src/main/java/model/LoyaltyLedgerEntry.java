@@ -0,0 +1,61 @@
+package model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One movement of loyalty points: points earned for a stay (positive) or redeemed
+ * (negative). A guest's entries always sum to the balance on their {@link LoyaltyAccount}.
+ */
+@Entity
+@Table(name = "loyalty_ledger", indexes = {
+        @Index(name = "idx_loyalty_ledger_guest", columnList = "guest_id"),
+        @Index(name = "idx_loyalty_ledger_reservation", columnList = "reservation_id")})
+public class LoyaltyLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "guest_id", nullable = false)
+    private Long guestId;
+
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LoyaltyEntryType type;
+
+    @Column(nullable = false)
+    private long points;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private String note;
+
+    public LoyaltyLedgerEntry() {}
+
+    public LoyaltyLedgerEntry(Long guestId, Long reservationId, LoyaltyEntryType type, long points, String note) {
+        this.guestId = guestId;
+        this.reservationId = reservationId;
+        this.type = type;
+        this.points = points;
+        this.note = note;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getGuestId() { return guestId; }
+
+    public Long getReservationId() { return reservationId; }
+
+    public LoyaltyEntryType getType() { return type; }
+
+    public long getPoints() { return points; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public String getNote() { return note; }
+}
@@ -0,0 +1,119 @@
+package model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Result of closing one business day: how many stays were in house or departing, the
+ * booked arrivals that never checked in, the room-night revenue posted for the night, and
+ * the folios left unpaid. Amounts are in cents.
+ * Running the audit again for the same day replaces its record.
+ */
+@Entity
+@Table(name = "night_audit")
+public class NightAudit {
+    @Id
+    @Column(name = "business_date")
+    private LocalDate businessDate;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    @Column(name = "in_house", nullable = false)
+    private int inHouse;
+
+    @Column(nullable = false)
+    private int departures;
+
+    // Nullable so existing databases can add the column
+    @Column(name = "no_shows")
+    private Integer noShows;
+
+    @Column(name = "room_revenue_cents", nullable = false)
+    private long roomRevenueCents;
+
+    @Column(name = "addon_revenue_cents", nullable = false)
+    private long addOnRevenueCents;
+
+    @Column(name = "discount_cents", nullable = false)
+    private long discountCents;
+
+    @Column(name = "tax_cents", nullable = false)
+    private long taxCents;
+
+    @Column(name = "revenue_cents", nullable = false)
+    private long revenueCents;
+
+    @Column(name = "outstanding_cents", nullable = false)
+    private long outstandingCents;
+
+    @Column(name = "unpaid_folios", nullable = false)
+    private int unpaidFolios;
+
+    @Column(name = "unpaid_departures", nullable = false)
+    private int unpaidDepartures;
+
+    @Column(name = "pricing_version", nullable = false)
+    private long pricingVersion;
+
+    @Column(name = "elapsed_ms", nullable = false)
+    private long elapsedMillis;
+
+    @Column(name = "stage_timings", length = 500)
+    private String stageTimings;
+
+    public NightAudit() {}
+
+    public NightAudit(LocalDate businessDate) {
+        this.businessDate = businessDate;
+    }
+
+    public LocalDate getBusinessDate() { return businessDate; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public int getInHouse() { return inHouse; }
+    public void setInHouse(int inHouse) { this.inHouse = inHouse; }
+
+    public int getDepartures() { return departures; }
+    public void setDepartures(int departures) { this.departures = departures; }
+
+    public int getNoShows() { return noShows != null ? noShows : 0; }
+    public void setNoShows(int noShows) { this.noShows = noShows; }
+
+    public long getRoomRevenueCents() { return roomRevenueCents; }
+    public void setRoomRevenueCents(long roomRevenueCents) { this.roomRevenueCents = roomRevenueCents; }
+
+    public long getAddOnRevenueCents() { return addOnRevenueCents; }
+    public void setAddOnRevenueCents(long addOnRevenueCents) { this.addOnRevenueCents = addOnRevenueCents; }
+
+    public long getDiscountCents() { return discountCents; }
+    public void setDiscountCents(long discountCents) { this.discountCents = discountCents; }
+
+    public long getTaxCents() { return taxCents; }
+    public void setTaxCents(long taxCents) { this.taxCents = taxCents; }
+
+    public long getRevenueCents() { return revenueCents; }
+    public void setRevenueCents(long revenueCents) { this.revenueCents = revenueCents; }
+
+    public long getOutstandingCents() { return outstandingCents; }
+    public void setOutstandingCents(long outstandingCents) { this.outstandingCents = outstandingCents; }
+
+    public int getUnpaidFolios() { return unpaidFolios; }
+    public void setUnpaidFolios(int unpaidFolios) { this.unpaidFolios = unpaidFolios; }
+
+    public int getUnpaidDepartures() { return unpaidDepartures; }
+    public void setUnpaidDepartures(int unpaidDepartures) { this.unpaidDepartures = unpaidDepartures; }
+
+    public long getPricingVersion() { return pricingVersion; }
+    public void setPricingVersion(long pricingVersion) { this.pricingVersion = pricingVersion; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    public String getStageTimings() { return stageTimings; }
+    public void setStageTimings(String stageTimings) { this.stageTimings = stageTimings; }
+}
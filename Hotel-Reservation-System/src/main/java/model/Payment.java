@@ -6,7 +6,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment")
+@Table(name = "payment", indexes = @Index(name = "idx_payment_reservation", columnList = "reservation_id"))
 public class Payment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,6 +36,15 @@ public class Payment {
     @Column(length = 500)
     private String notes;
 
+    /**
+     * Key the caller sent with the payment request; a repeat with the same key returns this
+     * payment instead of charging again. Null for payments recorded without one. Unique through
+     * an index created by {@link repository.PaymentRepository#createIdempotencyKeyIndex()},
+     * since SQLite cannot add a unique column to an existing table.
+     */
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     public Long getId() {
         return id;
     }
@@ -95,4 +104,12 @@ public class Payment {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -0,0 +1,53 @@
+package model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running payment totals for one reservation, kept up to date in the same transaction as
+ * every payment written, so a balance check reads one row instead of every payment.
+ * Amounts are in cents.
+ */
+@Entity
+@Table(name = "payment_ledger")
+public class PaymentLedger {
+    @Id
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @Column(name = "paid_cents", nullable = false)
+    private long paidCents;
+
+    @Column(name = "refunded_cents", nullable = false)
+    private long refundedCents;
+
+    @Column(name = "payment_count", nullable = false)
+    private int paymentCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public PaymentLedger() {}
+
+    public PaymentLedger(Long reservationId, long paidCents, long refundedCents, int paymentCount) {
+        this.reservationId = reservationId;
+        this.paidCents = paidCents;
+        this.refundedCents = refundedCents;
+        this.paymentCount = paymentCount;
+    }
+
+    public Long getReservationId() { return reservationId; }
+
+    public long getPaidCents() { return paidCents; }
+    public void setPaidCents(long paidCents) { this.paidCents = paidCents; }
+
+    public long getRefundedCents() { return refundedCents; }
+    public void setRefundedCents(long refundedCents) { this.refundedCents = refundedCents; }
+
+    public int getPaymentCount() { return paymentCount; }
+    public void setPaymentCount(int paymentCount) { this.paymentCount = paymentCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,11 +1,8 @@
 // Replace the existing Reservation.java with this updated version
 package model;
 
-import config.PricingConfig;
 import jakarta.persistence.*;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -90,48 +87,4 @@ public class Reservation {
     public void setPayments(List<Payment> payments) {
         this.payments = payments;
     }
-
-    /**
-     * Base subtotal before any discounts or loyalty.
-     */
-    public double calculateBaseSubtotal() {
-        if (checkIn == null || checkOut == null || rooms == null || rooms.isEmpty()) {
-            return 0.0;
-        }
-
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        if (nights <= 0) {
-            return 0.0;
-        }
-
-        PricingConfig pricingConfig = new PricingConfig();
-        double total = 0.0;
-
-        for (RoomType room : rooms) {
-            double basePrice = room.getBasePrice();
-            LocalDate currentDate = checkIn;
-            for (int i = 0; i < nights; i++) {
-                double nightly = basePrice;
-                if (isWeekend(currentDate)) {
-                    nightly *= pricingConfig.getWeekendMultiplier();
-                } else {
-                    nightly *= pricingConfig.getWeekdayMultiplier();
-                }
-
-                if (pricingConfig.isPeakSeason(currentDate)) {
-                    nightly *= pricingConfig.getPeakSeasonMultiplier();
-                }
-
-                total += nightly;
-                currentDate = currentDate.plusDays(1);
-            }
-        }
-
-        return total;
-    }
-
-    private boolean isWeekend(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
-    }
 }
\ No newline at end of file
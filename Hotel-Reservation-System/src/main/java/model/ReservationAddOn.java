@@ -14,6 +14,11 @@ public class ReservationAddOn {
     @JoinColumn(name = "reservation_id", nullable = false)
     private Reservation reservation;
 
+    // Catalog entry booked; nullable so existing databases can add the column
+    @Column(name = "addon_id")
+    private Long addOnId;
+
+    // Name, price and pricing model as booked, kept for display if the catalog changes later
     @Column(nullable = false)
     private String addOnName;
 
@@ -25,8 +30,9 @@ public class ReservationAddOn {
 
     public ReservationAddOn() {}
 
-    public ReservationAddOn(Reservation reservation, String addOnName, double price, boolean perNight) {
+    public ReservationAddOn(Reservation reservation, Long addOnId, String addOnName, double price, boolean perNight) {
         this.reservation = reservation;
+        this.addOnId = addOnId;
         this.addOnName = addOnName;
         this.price = price;
         this.perNight = perNight;
@@ -39,6 +45,9 @@ public class ReservationAddOn {
     public Reservation getReservation() { return reservation; }
     public void setReservation(Reservation reservation) { this.reservation = reservation; }
 
+    public Long getAddOnId() { return addOnId; }
+    public void setAddOnId(Long addOnId) { this.addOnId = addOnId; }
+
     public String getAddOnName() { return addOnName; }
     public void setAddOnName(String addOnName) { this.addOnName = addOnName; }
 
@@ -6,5 +6,12 @@ public enum ReservationStatus {
     CHECKED_OUT,
     CONFIRMED,
     CHECKED_IN,
-    COMPLETED
+    COMPLETED;
+
+    /**
+     * Whether a reservation in this status still holds its rooms (counts against inventory).
+     */
+    public boolean occupiesRooms() {
+        return this == BOOKED || this == CONFIRMED || this == CHECKED_IN;
+    }
 }
@@ -16,11 +16,19 @@ public class RoomType {
     private double basePrice;
     private int capacity;
 
+    // Number of physical rooms of this type; nullable so existing databases can add the column
+    @Column(name = "total_rooms")
+    private Integer totalRooms;
+
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
     public Type getType() { return type; }
     public void setType(Type type) { this.type = type; }
     public double getBasePrice() { return basePrice; }
     public void setBasePrice(double basePrice) { this.basePrice = basePrice; }
     public int getCapacity() { return capacity; }
     public void setCapacity(int capacity) { this.capacity = capacity; }
+    public int getTotalRooms() { return totalRooms != null ? totalRooms : 0; }
+    public void setTotalRooms(Integer totalRooms) { this.totalRooms = totalRooms; }
+    public boolean hasTotalRooms() { return totalRooms != null; }
 }
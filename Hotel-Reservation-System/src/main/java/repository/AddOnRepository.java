@@ -0,0 +1,31 @@
+package repository;
+
+import model.AddOnItem;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for the add-on catalog.
+ */
+public interface AddOnRepository {
+
+    /**
+     * Save or update a catalog entry
+     */
+    AddOnItem save(AddOnItem item);
+
+    Optional<AddOnItem> findByName(String name);
+
+    /**
+     * Every catalog entry, ordered by id
+     */
+    List<AddOnItem> findAll();
+
+    /**
+     * Point booked add-ons saved before the catalog existed at their catalog entry, by name.
+     *
+     * @return number of booked add-ons linked
+     */
+    int linkReservationAddOns();
+}
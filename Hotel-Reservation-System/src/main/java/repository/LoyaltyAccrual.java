@@ -0,0 +1,7 @@
+package repository;
+
+/**
+ * Points to credit a guest for one stay.
+ */
+public record LoyaltyAccrual(long reservationId, long guestId, long points) {
+}
@@ -0,0 +1,8 @@
+package repository;
+
+/**
+ * A checked-out stay of a loyalty member that has not been credited with points yet,
+ * read without loading the reservation.
+ */
+public record LoyaltyAccrualRow(long reservationId, long guestId, double totalAmount) {
+}
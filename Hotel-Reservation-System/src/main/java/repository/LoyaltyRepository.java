@@ -0,0 +1,66 @@
+package repository;
+
+import model.LoyaltyAccount;
+import model.LoyaltyLedgerEntry;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface LoyaltyRepository {
+    /**
+     * Give the guest a loyalty number, unless they already have one, and open their account.
+     * The account is stamped with the enrollment time; only stays checked out after it earn points.
+     *
+     * @return the guest's loyalty number
+     */
+    String enroll(Long guestId, String loyaltyNumber);
+
+    Optional<LoyaltyAccount> findAccount(Long guestId);
+
+    /**
+     * Take {@code points} off the guest's balance if it holds at least that many, and record
+     * the redemption. The check and the deduction are one statement, so concurrent
+     * redemptions can never take the balance below zero.
+     *
+     * @return false if the balance was too low (or there is no account) and nothing changed
+     */
+    boolean redeem(Long guestId, long points, Long reservationId, String note);
+
+    /**
+     * Give back points taken by {@link #redeem} whose payment could not be recorded, with a
+     * reversal entry in the ledger.
+     */
+    void reverseRedemption(Long guestId, long points, Long reservationId, String note);
+
+    /**
+     * A guest's most recent ledger entries, newest first.
+     */
+    List<LoyaltyLedgerEntry> findHistory(Long guestId, int limit);
+
+    /**
+     * Checked-out stays of enrolled guests with no points posted yet, in id order after {@code afterId}.
+     * Only stays that check out after the guest's enrollment count.
+     */
+    List<LoyaltyAccrualRow> findAccrualPage(long afterId, int limit);
+
+    /**
+     * Post earned points for many stays in one transaction, with one balance update per
+     * guest. Stays already credited are skipped.
+     *
+     * @return how many stays were credited
+     */
+    int postAccruals(List<LoyaltyAccrual> accruals);
+
+    /**
+     * Open an account, dated now, for each guest enrolled before loyalty accounts existed,
+     * and date any account without an enrollment time, so those members earn from now on.
+     *
+     * @return how many accounts were opened or dated
+     */
+    int openLegacyAccounts();
+
+    /**
+     * Create the unique index that lets a stay earn points only once.
+     */
+    void createAccrualIndex();
+}
@@ -0,0 +1,21 @@
+package repository;
+
+import model.NightAudit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface NightAuditRepository {
+    /**
+     * Store the audit for its business date, replacing an earlier run for the same date.
+     */
+    NightAudit save(NightAudit audit);
+
+    Optional<NightAudit> findByDate(LocalDate businessDate);
+
+    /**
+     * The latest audits, newest business date first.
+     */
+    List<NightAudit> findRecent(int limit);
+}
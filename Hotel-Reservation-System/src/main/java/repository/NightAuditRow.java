@@ -0,0 +1,10 @@
+package repository;
+
+import model.ReservationStatus;
+
+/**
+ * One reservation as the night audit reads it: what pricing needs, its status, and its
+ * payment totals from the ledger.
+ */
+public record NightAuditRow(StayPricingRow stay, ReservationStatus status, PaymentTotals payments) {
+}
@@ -3,9 +3,60 @@ package repository;
 import model.Payment;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface PaymentRepository {
+    /**
+     * Save a payment and apply it to the reservation's ledger row in the same transaction.
+     */
     Payment save(Payment payment);
 
+    /**
+     * Insert new payments and apply them to their ledger rows in one transaction. Payments
+     * whose idempotency key is already stored are skipped, so a batch can be replayed.
+     *
+     * @return number of payments inserted
+     */
+    int saveBatch(List<Payment> payments);
+
     List<Payment> findByReservationId(Long reservationId);
+
+    /**
+     * The payment recorded under an idempotency key, if any.
+     */
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Create the unique index on the idempotency key column if it does not exist yet.
+     */
+    void createIdempotencyKeyIndex();
+
+    /**
+     * The reservation's ledger row, one primary-key read; empty if it has none yet.
+     */
+    Optional<PaymentTotals> findLedgerTotals(Long reservationId);
+
+    /**
+     * Totals summed from the raw payment rows of one reservation.
+     */
+    PaymentTotals sumPayments(Long reservationId);
+
+    /**
+     * Totals summed from the raw payment rows, per reservation, in one grouped query.
+     */
+    Map<Long, PaymentTotals> sumPaymentsByReservation();
+
+    /**
+     * Every ledger row, per reservation.
+     */
+    Map<Long, PaymentTotals> findAllLedgerTotals();
+
+    /**
+     * Recompute a reservation's ledger row from its payment rows in one transaction,
+     * creating the row if it is missing.
+     *
+     * @return the totals now stored
+     */
+    PaymentTotals rebuildLedger(Long reservationId);
 }
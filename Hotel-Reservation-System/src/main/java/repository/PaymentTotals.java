@@ -0,0 +1,24 @@
+package repository;
+
+import util.Money;
+
+/**
+ * Payments for one reservation in cents: money taken (normal payments and deposits),
+ * money refunded, and how many payment rows that covers.
+ */
+public record PaymentTotals(long paidCents, long refundedCents, int paymentCount) {
+    public static final PaymentTotals NONE = new PaymentTotals(0, 0, 0);
+
+    /**
+     * Paid less refunded.
+     */
+    public long netCents() {
+        return paidCents - refundedCents;
+    }
+
+    public PaymentTotals plus(PaymentTotals other) {
+        return new PaymentTotals(Money.add(paidCents, other.paidCents),
+                Money.add(refundedCents, other.refundedCents),
+                paymentCount + other.paymentCount);
+    }
+}
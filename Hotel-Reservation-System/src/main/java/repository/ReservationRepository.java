@@ -4,10 +4,12 @@ import model.Guest;
 import model.Reservation;
 import model.ReservationStatus;
 import model.RoomType;
+import repository.index.RoomStay;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ReservationRepository {
 
@@ -17,11 +19,21 @@ public interface ReservationRepository {
 
     Optional<Reservation> findById(Long id);
 
+    /**
+     * The reservation row alone, without fetching rooms, add-ons or payments; enough to
+     * check it exists and to link a new row to it.
+     */
+    Optional<Reservation> findShallowById(Long id);
+
     List<Reservation> findAll();
 
     void delete(Long id);
 
-    int countBookedRooms(String roomType, LocalDate checkIn, LocalDate checkOut);
+    /**
+     * Rooms held per type by every reservation that still occupies inventory,
+     * used to load the occupancy calendar at startup.
+     */
+    List<RoomStay> findActiveRoomStays();
 
     List<Reservation> findByGuestName(String name);
 
@@ -56,7 +68,24 @@ public interface ReservationRepository {
     Optional<Reservation> findMostRecentReservationByGuestEmail(String email);
 
     /**
-     * Used when creating/updating reservations to check for overlapping bookings.
+     * One keyset page of reservations in {@code status} checking in on or after {@code from},
+     * ordered by id and starting after {@code afterId}, as pricing rows rather than entities.
+     */
+    List<StayPricingRow> findPricingPage(ReservationStatus status, LocalDate from, long afterId, int limit);
+
+    /**
+     * One keyset page of the reservations the night audit for {@code businessDate} covers:
+     * stays still holding rooms that have arrived by that date and not left before it, plus
+     * stays already checked out that depart on it. Each comes with its ledger totals.
+     */
+    List<NightAuditRow> findNightAuditPage(LocalDate businessDate, long afterId, int limit);
+
+    /**
+     * Overwrite stored totals with one batched JDBC update, without loading the reservations.
+     * A reservation that is no longer booked, or whose total changed since it was read, is
+     * left as it is.
+     *
+     * @return ids of the reservations updated
      */
-    boolean hasConflict(RoomType room, LocalDate checkIn, LocalDate checkOut, Long excludeReservationId);
+    Set<Long> updateTotalAmounts(List<TotalAmountUpdate> updates);
 }
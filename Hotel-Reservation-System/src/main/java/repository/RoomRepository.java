@@ -4,6 +4,7 @@
 package repository;
 
 import model.RoomType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +28,11 @@ public interface RoomRepository {
      */
     Optional<RoomType> findByType(RoomType.Type type);
 
+    /**
+     * Find every room type matching one of the given ids or type enums in a single query
+     */
+    List<RoomType> findByIdsOrTypes(Collection<Long> ids, Collection<RoomType.Type> types);
+
     /**
      * Find all room types
      */
@@ -0,0 +1,16 @@
+package repository;
+
+import model.ReservationAddOn;
+import model.RoomType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * What pricing needs from a stored reservation, read without loading the entity graph:
+ * the stay dates, rooms, discount and the total currently on file (null if none), and the
+ * add-ons as booked (detached, with their booked price and pricing model, no reservation).
+ */
+public record StayPricingRow(long reservationId, LocalDate checkIn, LocalDate checkOut, double discountPercent,
+                             Double totalAmount, List<RoomType> rooms, List<ReservationAddOn> addOns) {
+}
@@ -0,0 +1,8 @@
+package repository;
+
+/**
+ * A new total for a booked reservation, written only if the total on file still rounds to
+ * {@code expectedTotalCents}, the value it was priced from, or is still missing when that is null.
+ */
+public record TotalAmountUpdate(long reservationId, Long expectedTotalCents, double newTotal) {
+}
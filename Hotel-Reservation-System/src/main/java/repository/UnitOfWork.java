@@ -0,0 +1,114 @@
+package repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Scopes a short-lived EntityManager (and transaction) to a single unit of work.
+ *
+ * Each call opens its own persistence context from the shared factory, so kiosks and
+ * front-desk sessions never share a non-thread-safe EntityManager. Calls made while a
+ * unit of work is already open on the current thread join it, which lets a service
+ * group several repository operations into one transaction.
+ */
+public class UnitOfWork {
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadLocal<EntityManager> current = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
+
+    public UnitOfWork(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Run work inside a transaction, committing on success and rolling back on failure.
+     * Joins the transaction already open on this thread, if any.
+     */
+    public <T> T execute(Function<EntityManager, T> work) {
+        EntityManager active = current.get();
+        if (active != null) {
+            return work.apply(active);
+        }
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+        current.set(entityManager);
+        T result;
+        List<Runnable> callbacks;
+        try {
+            transaction.begin();
+            result = work.apply(entityManager);
+            transaction.commit();
+            callbacks = afterCommit.get();
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            afterCommit.remove();
+            current.remove();
+            entityManager.close();
+        }
+
+        if (callbacks != null) {
+            callbacks.forEach(Runnable::run);
+        }
+        return result;
+    }
+
+    public void run(Consumer<EntityManager> work) {
+        execute(entityManager -> {
+            work.accept(entityManager);
+            return null;
+        });
+    }
+
+    /**
+     * Run read-only work without opening a transaction.
+     * Joins the unit of work already open on this thread, if any.
+     */
+    public <T> T read(Function<EntityManager, T> work) {
+        EntityManager active = current.get();
+        if (active != null) {
+            return work.apply(active);
+        }
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return work.apply(entityManager);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Run the callback once the enclosing unit of work commits, or immediately when none is open.
+     * Callbacks registered in a unit of work that rolls back are discarded.
+     */
+    public void afterCommit(Runnable callback) {
+        if (current.get() == null) {
+            callback.run();
+            return;
+        }
+        List<Runnable> callbacks = afterCommit.get();
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            afterCommit.set(callbacks);
+        }
+        callbacks.add(callback);
+    }
+
+    /**
+     * @return true when the calling thread is inside an open unit of work
+     */
+    public boolean isActive() {
+        return current.get() != null;
+    }
+}
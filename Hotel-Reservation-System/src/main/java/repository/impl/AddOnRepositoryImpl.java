@@ -0,0 +1,63 @@
+package repository.impl;
+
+import jakarta.persistence.TypedQuery;
+import model.AddOnItem;
+import repository.AddOnRepository;
+import repository.UnitOfWork;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * JPA implementation of AddOnRepository
+ */
+public class AddOnRepositoryImpl implements AddOnRepository {
+    private static final Logger LOGGER = Logger.getLogger(AddOnRepositoryImpl.class.getName());
+
+    private final UnitOfWork unitOfWork;
+
+    public AddOnRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    @Override
+    public AddOnItem save(AddOnItem item) {
+        try {
+            return unitOfWork.execute(entityManager -> {
+                if (item.getId() == null) {
+                    entityManager.persist(item);
+                    return item;
+                }
+                return entityManager.merge(item);
+            });
+        } catch (Exception e) {
+            LOGGER.severe("Failed to save add-on: " + e.getMessage());
+            throw new RuntimeException("Failed to save add-on", e);
+        }
+    }
+
+    @Override
+    public Optional<AddOnItem> findByName(String name) {
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<AddOnItem> query = entityManager.createQuery(
+                    "SELECT a FROM AddOnItem a WHERE a.name = :name", AddOnItem.class);
+            query.setParameter("name", name);
+            return query.getResultList().stream().findFirst();
+        });
+    }
+
+    @Override
+    public List<AddOnItem> findAll() {
+        return unitOfWork.read(entityManager -> entityManager.createQuery(
+                "SELECT a FROM AddOnItem a ORDER BY a.id", AddOnItem.class).getResultList());
+    }
+
+    @Override
+    public int linkReservationAddOns() {
+        return unitOfWork.execute(entityManager -> entityManager.createQuery(
+                "UPDATE ReservationAddOn r SET r.addOnId = "
+                        + "(SELECT a.id FROM AddOnItem a WHERE a.name = r.addOnName) "
+                        + "WHERE r.addOnId IS NULL").executeUpdate());
+    }
+}
@@ -1,44 +1,47 @@
 package repository.impl;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import model.Feedback;
 import repository.FeedbackRepository;
+import repository.UnitOfWork;
 
 import java.util.List;
 
 public class FeedbackRepositoryImpl implements FeedbackRepository {
-    private final EntityManager entityManager;
+    private final UnitOfWork unitOfWork;
 
-    public FeedbackRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public FeedbackRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public Feedback save(Feedback feedback) {
-        entityManager.getTransaction().begin();
-        if (feedback.getId() == null) {
-            entityManager.persist(feedback);
-        } else {
-            feedback = entityManager.merge(feedback);
-        }
-        entityManager.getTransaction().commit();
-        return feedback;
+        return unitOfWork.execute(entityManager -> {
+            if (feedback.getId() == null) {
+                entityManager.persist(feedback);
+                return feedback;
+            }
+            return entityManager.merge(feedback);
+        });
     }
 
     @Override
     public List<Feedback> findAll() {
-        TypedQuery<Feedback> query = entityManager.createQuery(
-                "SELECT f FROM Feedback f ORDER BY f.createdAt DESC",
-                Feedback.class);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Feedback> query = entityManager.createQuery(
+                    "SELECT f FROM Feedback f ORDER BY f.createdAt DESC",
+                    Feedback.class);
+            return query.getResultList();
+        });
     }
 
     @Override
     public List<Feedback> findByGuestEmail(String guestEmail) {
-        TypedQuery<Feedback> query = entityManager.createQuery(
-                "SELECT f FROM Feedback f WHERE LOWER(f.guestEmail) = LOWER(:email)", Feedback.class);
-        query.setParameter("email", guestEmail);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Feedback> query = entityManager.createQuery(
+                    "SELECT f FROM Feedback f WHERE LOWER(f.guestEmail) = LOWER(:email)", Feedback.class);
+            query.setParameter("email", guestEmail);
+            return query.getResultList();
+        });
     }
 }
@@ -1,53 +1,57 @@
 package repository.impl;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import model.Guest;
 import repository.GuestRepository;
+import repository.UnitOfWork;
 
 import java.util.List;
 import java.util.Optional;
 
 public class GuestRepositoryImpl implements GuestRepository {
-    private final EntityManager entityManager;
+    private final UnitOfWork unitOfWork;
 
-    public GuestRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public GuestRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public Guest save(Guest guest) {
-        entityManager.getTransaction().begin();
-        if (guest.getId() == null) {
-            entityManager.persist(guest);
-        } else {
-            guest = entityManager.merge(guest);
-        }
-        entityManager.getTransaction().commit();
-        return guest;
+        return unitOfWork.execute(entityManager -> {
+            if (guest.getId() == null) {
+                entityManager.persist(guest);
+                return guest;
+            }
+            return entityManager.merge(guest);
+        });
     }
 
     @Override
     public Optional<Guest> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(Guest.class, id));
+        return unitOfWork.read(entityManager -> Optional.ofNullable(entityManager.find(Guest.class, id)));
     }
 
     @Override
     public Optional<Guest> findByEmail(String email) {
-        TypedQuery<Guest> query = entityManager.createQuery(
-                "SELECT g FROM Guest g WHERE LOWER(g.email) = LOWER(:email)", Guest.class);
-        query.setParameter("email", email);
-        return query.getResultStream().findFirst();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Guest> query = entityManager.createQuery(
+                    "SELECT g FROM Guest g WHERE LOWER(g.email) = LOWER(:email)", Guest.class);
+            query.setParameter("email", email);
+            query.setMaxResults(1);
+            return query.getResultStream().findFirst();
+        });
     }
 
     @Override
     public List<Guest> findByName(String name) {
         String pattern = "%" + name.toLowerCase() + "%";
-        TypedQuery<Guest> query = entityManager.createQuery(
-                "SELECT g FROM Guest g WHERE LOWER(g.firstName) LIKE :name OR LOWER(g.lastName) LIKE :name",
-                Guest.class);
-        query.setParameter("name", pattern);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Guest> query = entityManager.createQuery(
+                    "SELECT g FROM Guest g WHERE LOWER(g.firstName) LIKE :name OR LOWER(g.lastName) LIKE :name",
+                    Guest.class);
+            query.setParameter("name", pattern);
+            return query.getResultList();
+        });
     }
 
     @Override
@@ -60,12 +64,14 @@ public class GuestRepositoryImpl implements GuestRepository {
                 "AND (:address IS NULL OR LOWER(g.address) LIKE LOWER(CONCAT('%', :address, '%'))) " +
                 "ORDER BY g.lastName, g.firstName";
 
-        TypedQuery<Guest> query = entityManager.createQuery(jpql, Guest.class);
-        query.setParameter("name", normalizeParam(name));
-        query.setParameter("phone", normalizeParam(phone));
-        query.setParameter("email", normalizeParam(email));
-        query.setParameter("address", normalizeParam(address));
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Guest> query = entityManager.createQuery(jpql, Guest.class);
+            query.setParameter("name", normalizeParam(name));
+            query.setParameter("phone", normalizeParam(phone));
+            query.setParameter("email", normalizeParam(email));
+            query.setParameter("address", normalizeParam(address));
+            return query.getResultList();
+        });
     }
 
     private String normalizeParam(String value) {
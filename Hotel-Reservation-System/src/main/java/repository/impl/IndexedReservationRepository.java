@@ -0,0 +1,189 @@
+package repository.impl;
+
+import model.Guest;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import repository.NightAuditRow;
+import repository.ReservationRepository;
+import repository.StayPricingRow;
+import repository.TotalAmountUpdate;
+import repository.UnitOfWork;
+import repository.index.RoomStay;
+import repository.index.StayListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reservation repository that keeps in-memory booking structures in sync with the database.
+ *
+ * Every write is forwarded to the wrapped repository; once the surrounding unit of work
+ * commits, the reservation's active stays are pushed to each registered {@link StayListener}.
+ */
+public class IndexedReservationRepository implements ReservationRepository {
+    private final ReservationRepository delegate;
+    private final UnitOfWork unitOfWork;
+    private final List<StayListener> listeners = new CopyOnWriteArrayList<>();
+
+    public IndexedReservationRepository(ReservationRepository delegate, UnitOfWork unitOfWork) {
+        this.delegate = delegate;
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Register a listener and load it with the currently active stays.
+     */
+    public void addStayListener(StayListener listener) {
+        listener.replaceAll(delegate.findActiveRoomStays());
+        listeners.add(listener);
+    }
+
+    @Override
+    public Reservation save(Reservation reservation) {
+        Reservation saved = delegate.save(reservation);
+        publish(saved.getId(), staysOf(saved));
+        return saved;
+    }
+
+    @Override
+    public Reservation saveOrUpdate(Reservation reservation, List<RoomType> rooms) {
+        Reservation saved = delegate.saveOrUpdate(reservation, rooms);
+        publish(saved.getId(), staysOf(saved));
+        return saved;
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+        publish(id, List.of());
+    }
+
+    /**
+     * Totals do not change the stays, so the index and listeners need no update.
+     */
+    @Override
+    public Set<Long> updateTotalAmounts(List<TotalAmountUpdate> updates) {
+        return delegate.updateTotalAmounts(updates);
+    }
+
+    @Override
+    public List<StayPricingRow> findPricingPage(ReservationStatus status, LocalDate from, long afterId, int limit) {
+        return delegate.findPricingPage(status, from, afterId, limit);
+    }
+
+    @Override
+    public List<NightAuditRow> findNightAuditPage(LocalDate businessDate, long afterId, int limit) {
+        return delegate.findNightAuditPage(businessDate, afterId, limit);
+    }
+
+    /**
+     * Group the reservation's rooms by type; reservations that no longer occupy rooms hold nothing.
+     */
+    static List<RoomStay> staysOf(Reservation reservation) {
+        ReservationStatus status = reservation.getStatus();
+        if (status == null || !status.occupiesRooms()
+                || reservation.getCheckIn() == null || reservation.getCheckOut() == null
+                || reservation.getRooms() == null) {
+            return List.of();
+        }
+
+        Map<RoomType.Type, Integer> roomsByType = new EnumMap<>(RoomType.Type.class);
+        for (RoomType room : reservation.getRooms()) {
+            roomsByType.merge(room.getType(), 1, Integer::sum);
+        }
+
+        long checkInDay = reservation.getCheckIn().toEpochDay();
+        long checkOutDay = reservation.getCheckOut().toEpochDay();
+        List<RoomStay> stays = new ArrayList<>(roomsByType.size());
+        for (Map.Entry<RoomType.Type, Integer> entry : roomsByType.entrySet()) {
+            stays.add(new RoomStay(reservation.getId(), entry.getKey(), entry.getValue(), checkInDay, checkOutDay));
+        }
+        return stays;
+    }
+
+    private void publish(Long reservationId, List<RoomStay> stays) {
+        if (reservationId == null) {
+            return;
+        }
+        unitOfWork.afterCommit(() -> {
+            for (StayListener listener : listeners) {
+                listener.update(reservationId, stays);
+            }
+        });
+    }
+
+    // ---- read-only operations go straight to the database ----
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Reservation> findShallowById(Long id) {
+        return delegate.findShallowById(id);
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<RoomStay> findActiveRoomStays() {
+        return delegate.findActiveRoomStays();
+    }
+
+    @Override
+    public List<Reservation> findByGuestName(String name) {
+        return delegate.findByGuestName(name);
+    }
+
+    @Override
+    public List<Reservation> findByDateRange(LocalDate from, LocalDate to) {
+        return delegate.findByDateRange(from, to);
+    }
+
+    @Override
+    public List<Reservation> findByStatus(String status) {
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public List<Reservation> findByGuestPhone(String phone) {
+        return delegate.findByGuestPhone(phone);
+    }
+
+    @Override
+    public List<Reservation> findByGuest(Guest guest) {
+        return delegate.findByGuest(guest);
+    }
+
+    @Override
+    public boolean existsByGuest(Guest guest) {
+        return delegate.existsByGuest(guest);
+    }
+
+    @Override
+    public boolean existsByGuestAndStatus(Guest guest, ReservationStatus status) {
+        return delegate.existsByGuestAndStatus(guest, status);
+    }
+
+    @Override
+    public List<Reservation> searchReservations(String guestName, String phone, String email,
+                                                LocalDate start, LocalDate end, ReservationStatus status) {
+        return delegate.searchReservations(guestName, phone, email, start, end, status);
+    }
+
+    @Override
+    public Optional<Reservation> findMostRecentReservationByGuestEmail(String email) {
+        return delegate.findMostRecentReservationByGuestEmail(email);
+    }
+}
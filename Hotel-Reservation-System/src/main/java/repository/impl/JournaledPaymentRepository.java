@@ -0,0 +1,474 @@
+package repository.impl;
+
+import model.Payment;
+import model.PaymentType;
+import model.Reservation;
+import repository.PaymentRepository;
+import repository.PaymentTotals;
+import repository.ReservationRepository;
+import repository.journal.PaymentJournal;
+import util.Money;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Payment repository that captures new payments in a {@link PaymentJournal} and writes them
+ * to the database in the background.
+ *
+ * Saving a new payment appends it to the journal and returns; the payment gets its id
+ * once applied. A single applier thread, started a few milliseconds after the first
+ * capture it has not yet seen, inserts captured payments in batches, one transaction per
+ * batch, then advances the journal's applied sequence. Until then they are
+ * held in memory and merged into every read, so balances, payment lists and idempotency
+ * lookups see a payment as soon as it is captured. A payment without an idempotency key is
+ * given one from the journal, which makes replaying a batch that was committed but not yet
+ * marked applied harmless. Edits and payments with notes go straight to the database.
+ *
+ * By default a save also waits for the journal's next group commit, so a returned payment
+ * survives losing the machine; {@code syncCapture = false} opts out and returns as soon as
+ * the record is in mapped memory.
+ *
+ * On construction, entries the journal recovered from a previous run are applied before
+ * anything else can read. One whose reservation no longer exists is written to a
+ * dead-letter file next to the journal ({@code <journal>.dead}) before the applied mark
+ * moves past it.
+ *
+ * A batch that fails {@link #MAX_BATCH_ATTEMPTS} times in a row is applied one payment at a
+ * time, and a payment that fails on its own while the database still answers reads goes to
+ * the dead-letter file too, so one bad row cannot hold up every capture behind it. A capture that finds the journal full waits
+ * at most {@link #CAPTURE_TIMEOUT_MILLIS} for the applier to catch up, then fails.
+ */
+public class JournaledPaymentRepository implements PaymentRepository, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(JournaledPaymentRepository.class.getName());
+
+    public static final int BATCH_SIZE = 500;
+    /** How long the applier lets captures collect before writing them, so batches are not all size one. */
+    public static final long APPLY_DELAY_MILLIS = 20;
+    /** Failed attempts at a batch before its payments are applied one at a time. */
+    public static final int MAX_BATCH_ATTEMPTS = 3;
+    /** Longest a capture waits for room in the journal, including behind other captures. */
+    public static final long CAPTURE_TIMEOUT_MILLIS = PaymentJournal.DEFAULT_APPEND_TIMEOUT_MILLIS;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final PaymentRepository delegate;
+    private final PaymentJournal journal;
+    private final boolean syncCapture;
+    private final ConcurrentSkipListMap<Long, Payment> pendingBySequence = new ConcurrentSkipListMap<>();
+    private final Map<String, Payment> pendingByKey = new ConcurrentHashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Held for writing while a batch commits and leaves the pending set, so no read counts it twice
+    private final ReadWriteLock applyLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService applier;
+    // Only touched by whoever is applying: the constructor, then the applier, then close
+    private int failedAttempts;
+
+    public JournaledPaymentRepository(PaymentRepository delegate, ReservationRepository reservationRepository,
+                                      PaymentJournal journal) {
+        this(delegate, reservationRepository, journal, true);
+    }
+
+    /**
+     * @param reservationRepository used once, to attach recovered entries to their reservations
+     * @param syncCapture wait for each captured payment to be synced to disk before returning;
+     *                    false trades that guarantee for latency
+     */
+    public JournaledPaymentRepository(PaymentRepository delegate, ReservationRepository reservationRepository,
+                                      PaymentJournal journal, boolean syncCapture) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.syncCapture = syncCapture;
+        this.applier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-journal-apply");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replay(reservationRepository);
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        if (payment.getId() != null || payment.getNotes() != null
+                || payment.getReservation() == null || payment.getReservation().getId() == null) {
+            return delegate.save(payment);
+        }
+        PaymentJournal.Entry entry;
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CAPTURE_TIMEOUT_MILLIS);
+            if (!appendLock.tryLock(CAPTURE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out after " + CAPTURE_TIMEOUT_MILLIS
+                        + " ms waiting to capture a payment; the payment journal is not keeping up");
+            }
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                entry = journal.append(new PaymentJournal.Entry(0, payment.getReservation().getId(),
+                        payment.getMethod(), payment.getType(), Money.fromBigDecimal(payment.getAmount()),
+                        payment.getCreatedAt(), payment.getCreatedBy(), payment.getIdempotencyKey()), remaining);
+                // Added while still holding the lock, so the pending set never has gaps in sequence
+                payment.setIdempotencyKey(entry.idempotencyKey());
+                pendingBySequence.put(entry.sequence(), payment);
+                pendingByKey.put(entry.idempotencyKey(), payment);
+            } finally {
+                appendLock.unlock();
+            }
+            scheduleApply();
+            if (syncCapture) {
+                journal.awaitDurable(entry.sequence());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while capturing payment", ex);
+        }
+        return payment;
+    }
+
+    @Override
+    public int saveBatch(List<Payment> payments) {
+        return delegate.saveBatch(payments);
+    }
+
+    @Override
+    public List<Payment> findByReservationId(Long reservationId) {
+        applyLock.readLock().lock();
+        try {
+            List<Payment> payments = new ArrayList<>(delegate.findByReservationId(reservationId));
+            List<Payment> pending = pendingFor(reservationId);
+            if (pending.isEmpty()) {
+                return payments;
+            }
+            payments.addAll(pending);
+            payments.sort(Comparator.comparing(Payment::getCreatedAt).reversed());
+            return payments;
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Needs no lock: a payment leaves the pending set only after its batch commits, so a
+     * miss here means the database already has it or it was never captured.
+     */
+    @Override
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        Payment pending = pendingByKey.get(idempotencyKey);
+        return pending != null ? Optional.of(pending) : delegate.findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public void createIdempotencyKeyIndex() {
+        delegate.createIdempotencyKeyIndex();
+    }
+
+    @Override
+    public Optional<PaymentTotals> findLedgerTotals(Long reservationId) {
+        applyLock.readLock().lock();
+        try {
+            Optional<PaymentTotals> stored = delegate.findLedgerTotals(reservationId);
+            PaymentTotals pending = pendingTotals(reservationId);
+            if (pending.paymentCount() == 0) {
+                return stored;
+            }
+            return Optional.of(stored.orElse(PaymentTotals.NONE).plus(pending));
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PaymentTotals sumPayments(Long reservationId) {
+        applyLock.readLock().lock();
+        try {
+            return delegate.sumPayments(reservationId).plus(pendingTotals(reservationId));
+        } finally {
+            applyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Database rows only; captured payments not yet applied are in neither these sums nor
+     * the ledger, so reconciliation compares like with like.
+     */
+    @Override
+    public Map<Long, PaymentTotals> sumPaymentsByReservation() {
+        return delegate.sumPaymentsByReservation();
+    }
+
+    @Override
+    public Map<Long, PaymentTotals> findAllLedgerTotals() {
+        return delegate.findAllLedgerTotals();
+    }
+
+    @Override
+    public PaymentTotals rebuildLedger(Long reservationId) {
+        return delegate.rebuildLedger(reservationId);
+    }
+
+    /**
+     * Captured payments not yet in the database.
+     */
+    public int getPendingCount() {
+        return pendingBySequence.size();
+    }
+
+    public PaymentJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Stop the applier, apply everything captured so far and close the journal. Anything
+     * that still fails to apply stays in the journal for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        applier.shutdown();
+        try {
+            if (!applier.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warning("Payment journal applier did not stop within 10 s");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        applyPending();
+        journal.close();
+    }
+
+    private void replay(ReservationRepository reservationRepository) {
+        List<PaymentJournal.Entry> entries = journal.recoveredEntries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<Long, Reservation> reservations = new HashMap<>();
+        List<PaymentJournal.Entry> orphaned = new ArrayList<>();
+        for (PaymentJournal.Entry entry : entries) {
+            Reservation reservation = reservations.computeIfAbsent(entry.reservationId(),
+                    id -> reservationRepository.findShallowById(id).orElse(null));
+            if (reservation == null) {
+                // Nothing to attach it to; it goes to the dead-letter file instead of the database
+                LOGGER.severe("Journaled payment #" + entry.sequence() + " for missing reservation "
+                        + entry.reservationId() + " moved to the dead-letter file: " + entry);
+                orphaned.add(entry);
+            }
+            Payment payment = new Payment();
+            payment.setReservation(reservation);
+            payment.setMethod(entry.method());
+            payment.setType(entry.type());
+            payment.setAmount(Money.toBigDecimal(entry.amountCents()));
+            payment.setCreatedAt(entry.createdAt());
+            payment.setCreatedBy(entry.createdBy());
+            payment.setIdempotencyKey(entry.idempotencyKey());
+            pendingBySequence.put(entry.sequence(), payment);
+            pendingByKey.put(entry.idempotencyKey(), payment);
+        }
+        // Written and synced before applying, so the applied mark never passes an entry kept nowhere
+        writeDeadLetters(orphaned);
+        applyPending();
+        LOGGER.info("Replayed " + entries.size() + " journaled payments"
+                + (orphaned.isEmpty() ? "" : ", " + orphaned.size() + " without a reservation"));
+    }
+
+    private void writeDeadLetters(List<PaymentJournal.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Path file = journal.getPath().resolveSibling(journal.getPath().getFileName() + ".dead");
+        List<String> lines = new ArrayList<>(entries.size());
+        for (PaymentJournal.Entry entry : entries) {
+            lines.add(entry.toString());
+        }
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                    StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to write journaled payments to " + file, ex);
+        }
+    }
+
+    private void scheduleApply() {
+        if (applyScheduled.compareAndSet(false, true)) {
+            applier.schedule(this::applyPending, APPLY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Insert pending payments in sequence order, a batch per transaction. On failure the
+     * batch stays pending and is retried after a pause; once it has failed
+     * {@link #MAX_BATCH_ATTEMPTS} times it is split instead.
+     */
+    private void applyPending() {
+        applyScheduled.set(false);
+        while (!pendingBySequence.isEmpty()) {
+            List<Map.Entry<Long, Payment>> batch = new ArrayList<>(BATCH_SIZE);
+            for (Map.Entry<Long, Payment> pending : pendingBySequence.entrySet()) {
+                batch.add(pending);
+                if (batch.size() == BATCH_SIZE) {
+                    break;
+                }
+            }
+            List<Payment> payments = new ArrayList<>(batch.size());
+            for (Map.Entry<Long, Payment> pending : batch) {
+                if (pending.getValue().getReservation() != null) {
+                    payments.add(pending.getValue());
+                }
+            }
+
+            if (failedAttempts >= MAX_BATCH_ATTEMPTS) {
+                if (!applySeparately(batch)) {
+                    retryLater();
+                    return;
+                }
+            } else if (!applyBatch(batch, payments)) {
+                return;
+            }
+            failedAttempts = 0;
+            journal.markApplied(batch.get(batch.size() - 1).getKey());
+        }
+    }
+
+    /**
+     * Insert one batch in one transaction and drop it from the pending set.
+     *
+     * @return false if it failed and is left pending, with a retry scheduled
+     */
+    private boolean applyBatch(List<Map.Entry<Long, Payment>> batch, List<Payment> payments) {
+        applyLock.writeLock().lock();
+        try {
+            delegate.saveBatch(payments);
+            for (Map.Entry<Long, Payment> pending : batch) {
+                removePending(pending);
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            failedAttempts++;
+            LOGGER.log(Level.WARNING, "Failed to apply " + payments.size() + " journaled payments (attempt "
+                    + failedAttempts + " of " + MAX_BATCH_ATTEMPTS + "); retrying in " + RETRY_DELAY_MILLIS + " ms", ex);
+            retryLater();
+            return false;
+        } finally {
+            applyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert a batch that keeps failing one payment per transaction. Payments that fail
+     * on their own are written to the dead-letter file and dropped, unless the database
+     * cannot be read either, which is an outage rather than a bad payment.
+     *
+     * @return false on an outage or if the dead-letter file could not be written; the
+     *         payments that went to neither place stay pending
+     */
+    private boolean applySeparately(List<Map.Entry<Long, Payment>> batch) {
+        List<Map.Entry<Long, Payment>> rejected = new ArrayList<>();
+        for (Map.Entry<Long, Payment> pending : batch) {
+            Payment payment = pending.getValue();
+            applyLock.writeLock().lock();
+            try {
+                if (payment.getReservation() != null) {
+                    delegate.saveBatch(List.of(payment));
+                }
+                removePending(pending);
+            } catch (RuntimeException ex) {
+                Optional<Payment> stored;
+                try {
+                    stored = delegate.findByIdempotencyKey(payment.getIdempotencyKey());
+                } catch (RuntimeException unavailable) {
+                    LOGGER.log(Level.WARNING, "Database unavailable while applying journaled payments", unavailable);
+                    return false;
+                }
+                if (stored.isPresent()) {
+                    removePending(pending);
+                    continue;
+                }
+                LOGGER.log(Level.SEVERE, "Journaled payment #" + pending.getKey()
+                        + " cannot be applied; moving it to the dead-letter file", ex);
+                rejected.add(pending);
+            } finally {
+                applyLock.writeLock().unlock();
+            }
+        }
+        if (rejected.isEmpty()) {
+            return true;
+        }
+        List<PaymentJournal.Entry> entries = new ArrayList<>(rejected.size());
+        for (Map.Entry<Long, Payment> pending : rejected) {
+            entries.add(entryOf(pending.getKey(), pending.getValue()));
+        }
+        try {
+            writeDeadLetters(entries);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to set aside " + entries.size() + " journaled payments", ex);
+            return false;
+        }
+        applyLock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Payment> pending : rejected) {
+                removePending(pending);
+            }
+        } finally {
+            applyLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    private void retryLater() {
+        if (!applier.isShutdown() && applyScheduled.compareAndSet(false, true)) {
+            applier.schedule(this::applyPending, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void removePending(Map.Entry<Long, Payment> pending) {
+        pendingBySequence.remove(pending.getKey());
+        pendingByKey.remove(pending.getValue().getIdempotencyKey());
+    }
+
+    private static PaymentJournal.Entry entryOf(long sequence, Payment payment) {
+        long reservationId = payment.getReservation() != null ? payment.getReservation().getId() : 0L;
+        return new PaymentJournal.Entry(sequence, reservationId, payment.getMethod(), payment.getType(),
+                Money.fromBigDecimal(payment.getAmount()), payment.getCreatedAt(), payment.getCreatedBy(),
+                payment.getIdempotencyKey());
+    }
+
+    private List<Payment> pendingFor(Long reservationId) {
+        List<Payment> payments = new ArrayList<>();
+        for (Payment payment : pendingBySequence.values()) {
+            if (payment.getReservation() != null && payment.getReservation().getId().equals(reservationId)) {
+                payments.add(payment);
+            }
+        }
+        return payments;
+    }
+
+    private PaymentTotals pendingTotals(Long reservationId) {
+        PaymentTotals totals = PaymentTotals.NONE;
+        for (Payment payment : pendingFor(reservationId)) {
+            long amount = Money.fromBigDecimal(payment.getAmount());
+            totals = totals.plus(payment.getType() == PaymentType.REFUND
+                    ? new PaymentTotals(0, amount, 1)
+                    : new PaymentTotals(amount, 0, 1));
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,238 @@
+package repository.impl;
+
+import jakarta.persistence.EntityManager;
+import model.Guest;
+import model.LoyaltyAccount;
+import model.LoyaltyEntryType;
+import model.LoyaltyLedgerEntry;
+import model.ReservationStatus;
+import repository.LoyaltyAccrual;
+import repository.LoyaltyAccrualRow;
+import repository.LoyaltyRepository;
+import repository.UnitOfWork;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class LoyaltyRepositoryImpl implements LoyaltyRepository {
+    private final UnitOfWork unitOfWork;
+
+    public LoyaltyRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    @Override
+    public String enroll(Long guestId, String loyaltyNumber) {
+        try {
+            return unitOfWork.execute(entityManager -> {
+                Guest guest = entityManager.find(Guest.class, guestId);
+                if (guest == null) {
+                    throw new IllegalArgumentException("Guest not found: " + guestId);
+                }
+                if (guest.getLoyaltyNumber() == null || guest.getLoyaltyNumber().isBlank()) {
+                    guest.setLoyaltyNumber(loyaltyNumber);
+                }
+                LoyaltyAccount account = entityManager.find(LoyaltyAccount.class, guestId);
+                if (account == null) {
+                    account = new LoyaltyAccount(guestId, 0);
+                    entityManager.persist(account);
+                }
+                if (account.getEnrolledAt() == null) {
+                    account.setEnrolledAt(LocalDateTime.now());
+                }
+                return guest.getLoyaltyNumber();
+            });
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to enroll guest in loyalty program", ex);
+        }
+    }
+
+    @Override
+    public Optional<LoyaltyAccount> findAccount(Long guestId) {
+        if (guestId == null) {
+            return Optional.empty();
+        }
+        return unitOfWork.read(entityManager -> Optional.ofNullable(entityManager.find(LoyaltyAccount.class, guestId)));
+    }
+
+    @Override
+    public boolean redeem(Long guestId, long points, Long reservationId, String note) {
+        try {
+            return unitOfWork.execute(entityManager -> {
+                int updated = entityManager.createQuery(
+                                "UPDATE LoyaltyAccount a SET a.balancePoints = a.balancePoints - :points, " +
+                                        "a.lifetimeRedeemed = a.lifetimeRedeemed + :points, a.updatedAt = :now " +
+                                        "WHERE a.guestId = :guestId AND a.balancePoints >= :points")
+                        .setParameter("points", points)
+                        .setParameter("now", LocalDateTime.now())
+                        .setParameter("guestId", guestId)
+                        .executeUpdate();
+                if (updated == 0) {
+                    return false;
+                }
+                entityManager.persist(new LoyaltyLedgerEntry(guestId, reservationId, LoyaltyEntryType.REDEEM,
+                        -points, note));
+                return true;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to redeem loyalty points", ex);
+        }
+    }
+
+    @Override
+    public void reverseRedemption(Long guestId, long points, Long reservationId, String note) {
+        try {
+            unitOfWork.run(entityManager -> {
+                int updated = entityManager.createQuery(
+                                "UPDATE LoyaltyAccount a SET a.balancePoints = a.balancePoints + :points, " +
+                                        "a.lifetimeRedeemed = a.lifetimeRedeemed - :points, a.updatedAt = :now " +
+                                        "WHERE a.guestId = :guestId")
+                        .setParameter("points", points)
+                        .setParameter("now", LocalDateTime.now())
+                        .setParameter("guestId", guestId)
+                        .executeUpdate();
+                if (updated == 0) {
+                    throw new IllegalStateException("No loyalty account for guest " + guestId);
+                }
+                entityManager.persist(new LoyaltyLedgerEntry(guestId, reservationId, LoyaltyEntryType.REVERSAL,
+                        points, note));
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to restore loyalty points", ex);
+        }
+    }
+
+    @Override
+    public List<LoyaltyLedgerEntry> findHistory(Long guestId, int limit) {
+        return unitOfWork.read(entityManager -> entityManager.createQuery(
+                        "SELECT e FROM LoyaltyLedgerEntry e WHERE e.guestId = :guestId ORDER BY e.id DESC",
+                        LoyaltyLedgerEntry.class)
+                .setParameter("guestId", guestId)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    @Override
+    public List<LoyaltyAccrualRow> findAccrualPage(long afterId, int limit) {
+        return unitOfWork.read(entityManager -> {
+            List<Object[]> rows = entityManager.createQuery(
+                            "SELECT r.id, g.id, r.totalAmount FROM Reservation r JOIN r.guest g " +
+                                    "JOIN LoyaltyAccount a ON a.guestId = g.id " +
+                                    "WHERE r.id > :afterId AND r.status IN :departed AND g.loyaltyNumber IS NOT NULL " +
+                                    "AND a.enrolledAt IS NOT NULL AND r.checkOut >= a.enrolledAt " +
+                                    "AND NOT EXISTS (SELECT e.id FROM LoyaltyLedgerEntry e " +
+                                    "WHERE e.reservationId = r.id AND e.type = :earn) " +
+                                    "ORDER BY r.id", Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setParameter("departed", List.of(ReservationStatus.CHECKED_OUT, ReservationStatus.COMPLETED))
+                    .setParameter("earn", LoyaltyEntryType.EARN)
+                    .setMaxResults(limit)
+                    .getResultList();
+            List<LoyaltyAccrualRow> page = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                page.add(new LoyaltyAccrualRow((Long) row[0], (Long) row[1],
+                        row[2] != null ? (Double) row[2] : 0.0));
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public int postAccruals(List<LoyaltyAccrual> accruals) {
+        if (accruals.isEmpty()) {
+            return 0;
+        }
+        try {
+            return unitOfWork.execute(entityManager -> {
+                List<Long> reservationIds = new ArrayList<>(accruals.size());
+                for (LoyaltyAccrual accrual : accruals) {
+                    reservationIds.add(accrual.reservationId());
+                }
+                Set<Long> credited = new HashSet<>(entityManager.createQuery(
+                                "SELECT e.reservationId FROM LoyaltyLedgerEntry e " +
+                                        "WHERE e.reservationId IN :ids AND e.type = :earn", Long.class)
+                        .setParameter("ids", reservationIds)
+                        .setParameter("earn", LoyaltyEntryType.EARN)
+                        .getResultList());
+
+                // One balance update per guest rather than per stay
+                Map<Long, Long> earnedByGuest = new LinkedHashMap<>();
+                int posted = 0;
+                for (LoyaltyAccrual accrual : accruals) {
+                    if (!credited.add(accrual.reservationId())) {
+                        continue;
+                    }
+                    entityManager.persist(new LoyaltyLedgerEntry(accrual.guestId(), accrual.reservationId(),
+                            LoyaltyEntryType.EARN, accrual.points(), null));
+                    earnedByGuest.merge(accrual.guestId(), accrual.points(), Long::sum);
+                    posted++;
+                }
+                earnedByGuest.forEach((guestId, points) -> addToBalance(entityManager, guestId, points));
+                return posted;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to post loyalty points", ex);
+        }
+    }
+
+    @Override
+    public int openLegacyAccounts() {
+        try {
+            return unitOfWork.execute(entityManager -> {
+                LocalDateTime now = LocalDateTime.now();
+                int opened = entityManager.createQuery(
+                                "INSERT INTO LoyaltyAccount (guestId, balancePoints, lifetimeEarned, lifetimeRedeemed, " +
+                                        "updatedAt, enrolledAt) " +
+                                        "SELECT g.id, 0, 0, 0, :now, :now FROM Guest g WHERE g.loyaltyNumber IS NOT NULL " +
+                                        "AND NOT EXISTS (SELECT a.guestId FROM LoyaltyAccount a WHERE a.guestId = g.id)")
+                        .setParameter("now", now)
+                        .executeUpdate();
+                int dated = entityManager.createQuery(
+                                "UPDATE LoyaltyAccount a SET a.enrolledAt = :now WHERE a.enrolledAt IS NULL")
+                        .setParameter("now", now)
+                        .executeUpdate();
+                return opened + dated;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to open loyalty accounts", ex);
+        }
+    }
+
+    @Override
+    public void createAccrualIndex() {
+        try {
+            unitOfWork.run(entityManager -> entityManager.createNativeQuery(
+                            "CREATE UNIQUE INDEX IF NOT EXISTS ux_loyalty_ledger_earn ON loyalty_ledger (reservation_id) " +
+                                    "WHERE type = 'EARN'")
+                    .executeUpdate());
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to create loyalty accrual index", ex);
+        }
+    }
+
+    /**
+     * Add earned points to the account in place, opening the account for a guest who
+     * was enrolled without one. Runs inside the caller's transaction.
+     */
+    private static void addToBalance(EntityManager entityManager, Long guestId, long points) {
+        int updated = entityManager.createQuery(
+                        "UPDATE LoyaltyAccount a SET a.balancePoints = a.balancePoints + :points, " +
+                                "a.lifetimeEarned = a.lifetimeEarned + :points, a.updatedAt = :now " +
+                                "WHERE a.guestId = :guestId")
+                .setParameter("points", points)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("guestId", guestId)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.persist(new LoyaltyAccount(guestId, points));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package repository.impl;
+
+import model.NightAudit;
+import repository.NightAuditRepository;
+import repository.UnitOfWork;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public class NightAuditRepositoryImpl implements NightAuditRepository {
+    private final UnitOfWork unitOfWork;
+
+    public NightAuditRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    @Override
+    public NightAudit save(NightAudit audit) {
+        try {
+            return unitOfWork.execute(entityManager -> entityManager.merge(audit));
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to save night audit", ex);
+        }
+    }
+
+    @Override
+    public Optional<NightAudit> findByDate(LocalDate businessDate) {
+        return unitOfWork.read(entityManager -> Optional.ofNullable(entityManager.find(NightAudit.class, businessDate)));
+    }
+
+    @Override
+    public List<NightAudit> findRecent(int limit) {
+        return unitOfWork.read(entityManager -> entityManager.createQuery(
+                        "SELECT a FROM NightAudit a ORDER BY a.businessDate DESC", NightAudit.class)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+}
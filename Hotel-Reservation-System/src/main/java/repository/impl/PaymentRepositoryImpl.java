@@ -3,42 +3,256 @@ package repository.impl;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import model.Payment;
+import model.PaymentLedger;
+import model.PaymentType;
 import repository.PaymentRepository;
+import repository.PaymentTotals;
+import repository.UnitOfWork;
+import util.Money;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class PaymentRepositoryImpl implements PaymentRepository {
-    private final EntityManager entityManager;
+    private final UnitOfWork unitOfWork;
 
-    public PaymentRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public PaymentRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public Payment save(Payment payment) {
-        entityManager.getTransaction().begin();
         try {
-            if (payment.getId() == null) {
-                entityManager.persist(payment);
-            } else {
-                payment = entityManager.merge(payment);
-            }
-            entityManager.getTransaction().commit();
-            return payment;
+            return unitOfWork.execute(entityManager -> {
+                if (payment.getId() == null) {
+                    entityManager.persist(payment);
+                    applyToLedger(entityManager, reservationIdOf(payment), contributionOf(payment, 1));
+                    return payment;
+                }
+                Payment previous = entityManager.find(Payment.class, payment.getId());
+                if (previous != null) {
+                    applyToLedger(entityManager, reservationIdOf(previous), contributionOf(previous, -1));
+                }
+                Payment merged = entityManager.merge(payment);
+                applyToLedger(entityManager, reservationIdOf(merged), contributionOf(merged, 1));
+                return merged;
+            });
         } catch (Exception ex) {
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
-            }
             throw new RuntimeException("Failed to save payment", ex);
         }
     }
 
+    @Override
+    public int saveBatch(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return 0;
+        }
+        try {
+            return unitOfWork.execute(entityManager -> {
+                List<String> keys = new ArrayList<>();
+                for (Payment payment : payments) {
+                    if (payment.getIdempotencyKey() != null) {
+                        keys.add(payment.getIdempotencyKey());
+                    }
+                }
+                Set<String> stored = keys.isEmpty() ? new HashSet<>() : new HashSet<>(entityManager.createQuery(
+                                "SELECT p.idempotencyKey FROM Payment p WHERE p.idempotencyKey IN :keys", String.class)
+                        .setParameter("keys", keys)
+                        .getResultList());
+
+                // One ledger update per reservation rather than per payment
+                Map<Long, PaymentTotals> ledgerDeltas = new LinkedHashMap<>();
+                int inserted = 0;
+                for (Payment payment : payments) {
+                    String key = payment.getIdempotencyKey();
+                    if (payment.getId() != null || (key != null && !stored.add(key))) {
+                        continue;
+                    }
+                    entityManager.persist(payment);
+                    ledgerDeltas.merge(reservationIdOf(payment), contributionOf(payment, 1), PaymentTotals::plus);
+                    inserted++;
+                }
+                ledgerDeltas.forEach((reservationId, delta) -> applyToLedger(entityManager, reservationId, delta));
+                return inserted;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to save payments", ex);
+        }
+    }
+
     @Override
     public List<Payment> findByReservationId(Long reservationId) {
-        TypedQuery<Payment> query = entityManager.createQuery(
-                "SELECT p FROM Payment p WHERE p.reservation.id = :reservationId ORDER BY p.createdAt DESC",
-                Payment.class);
-        query.setParameter("reservationId", reservationId);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Payment> query = entityManager.createQuery(
+                    "SELECT p FROM Payment p WHERE p.reservation.id = :reservationId ORDER BY p.createdAt DESC",
+                    Payment.class);
+            query.setParameter("reservationId", reservationId);
+            return query.getResultList();
+        });
+    }
+
+    @Override
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        return unitOfWork.read(entityManager -> entityManager.createQuery(
+                        "SELECT p FROM Payment p WHERE p.idempotencyKey = :idempotencyKey", Payment.class)
+                .setParameter("idempotencyKey", idempotencyKey)
+                .getResultStream()
+                .findFirst());
+    }
+
+    @Override
+    public void createIdempotencyKeyIndex() {
+        try {
+            unitOfWork.run(entityManager -> entityManager.createNativeQuery(
+                            "CREATE UNIQUE INDEX IF NOT EXISTS ux_payment_idempotency_key ON payment (idempotency_key)")
+                    .executeUpdate());
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to create payment idempotency key index", ex);
+        }
+    }
+
+    @Override
+    public Optional<PaymentTotals> findLedgerTotals(Long reservationId) {
+        if (reservationId == null) {
+            return Optional.empty();
+        }
+        return unitOfWork.read(entityManager ->
+                Optional.ofNullable(entityManager.find(PaymentLedger.class, reservationId))
+                        .map(PaymentRepositoryImpl::totalsOf));
+    }
+
+    @Override
+    public PaymentTotals sumPayments(Long reservationId) {
+        if (reservationId == null) {
+            return PaymentTotals.NONE;
+        }
+        return unitOfWork.read(entityManager -> {
+            List<Object[]> rows = sumQuery(entityManager, reservationId).getResultList();
+            return foldSums(rows).getOrDefault(reservationId, PaymentTotals.NONE);
+        });
+    }
+
+    @Override
+    public Map<Long, PaymentTotals> sumPaymentsByReservation() {
+        return unitOfWork.read(entityManager -> foldSums(entityManager.createQuery(
+                        "SELECT p.reservation.id, p.type, SUM(p.amount), COUNT(p) FROM Payment p " +
+                                "GROUP BY p.reservation.id, p.type ORDER BY p.reservation.id",
+                        Object[].class)
+                .getResultList()));
+    }
+
+    @Override
+    public Map<Long, PaymentTotals> findAllLedgerTotals() {
+        return unitOfWork.read(entityManager -> {
+            Map<Long, PaymentTotals> totals = new LinkedHashMap<>();
+            for (PaymentLedger ledger : entityManager.createQuery(
+                    "SELECT l FROM PaymentLedger l ORDER BY l.reservationId", PaymentLedger.class).getResultList()) {
+                totals.put(ledger.getReservationId(), totalsOf(ledger));
+            }
+            return totals;
+        });
+    }
+
+    @Override
+    public PaymentTotals rebuildLedger(Long reservationId) {
+        try {
+            return unitOfWork.execute(entityManager -> {
+                PaymentTotals totals = foldSums(sumQuery(entityManager, reservationId).getResultList())
+                        .getOrDefault(reservationId, PaymentTotals.NONE);
+                PaymentLedger ledger = entityManager.find(PaymentLedger.class, reservationId);
+                if (ledger == null) {
+                    entityManager.persist(new PaymentLedger(reservationId, totals.paidCents(),
+                            totals.refundedCents(), totals.paymentCount()));
+                    return totals;
+                }
+                ledger.setPaidCents(totals.paidCents());
+                ledger.setRefundedCents(totals.refundedCents());
+                ledger.setPaymentCount(totals.paymentCount());
+                ledger.setUpdatedAt(LocalDateTime.now());
+                return totals;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to rebuild payment ledger", ex);
+        }
+    }
+
+    private static TypedQuery<Object[]> sumQuery(EntityManager entityManager, Long reservationId) {
+        return entityManager.createQuery(
+                        "SELECT p.reservation.id, p.type, SUM(p.amount), COUNT(p) FROM Payment p " +
+                                "WHERE p.reservation.id = :reservationId GROUP BY p.reservation.id, p.type",
+                        Object[].class)
+                .setParameter("reservationId", reservationId);
+    }
+
+    /**
+     * Add a payment's amounts to the ledger row in place, creating the row for the first
+     * payment. Runs inside the caller's transaction, so the ledger commits or rolls back
+     * together with the payment.
+     */
+    private static void applyToLedger(EntityManager entityManager, Long reservationId, PaymentTotals delta) {
+        if (reservationId == null) {
+            throw new IllegalArgumentException("Payment has no reservation");
+        }
+        int updated = entityManager.createQuery(
+                        "UPDATE PaymentLedger l SET l.paidCents = l.paidCents + :paid, " +
+                                "l.refundedCents = l.refundedCents + :refunded, " +
+                                "l.paymentCount = l.paymentCount + :count, l.updatedAt = :now " +
+                                "WHERE l.reservationId = :reservationId")
+                .setParameter("paid", delta.paidCents())
+                .setParameter("refunded", delta.refundedCents())
+                .setParameter("count", delta.paymentCount())
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("reservationId", reservationId)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.persist(new PaymentLedger(reservationId, delta.paidCents(),
+                    delta.refundedCents(), delta.paymentCount()));
+        }
+    }
+
+    private static Long reservationIdOf(Payment payment) {
+        return payment.getReservation() != null ? payment.getReservation().getId() : null;
+    }
+
+    /**
+     * One payment as ledger amounts; {@code sign} -1 takes it back out.
+     */
+    private static PaymentTotals contributionOf(Payment payment, int sign) {
+        long amount = sign * Money.fromBigDecimal(payment.getAmount());
+        return payment.getType() == PaymentType.REFUND
+                ? new PaymentTotals(0, amount, sign)
+                : new PaymentTotals(amount, 0, sign);
+    }
+
+    private static PaymentTotals totalsOf(PaymentLedger ledger) {
+        return new PaymentTotals(ledger.getPaidCents(), ledger.getRefundedCents(), ledger.getPaymentCount());
+    }
+
+    /**
+     * Combine (reservation id, type, sum, count) rows into totals per reservation.
+     */
+    private static Map<Long, PaymentTotals> foldSums(List<Object[]> rows) {
+        Map<Long, PaymentTotals> totals = new TreeMap<>();
+        for (Object[] row : rows) {
+            Long reservationId = (Long) row[0];
+            long cents = Money.fromBigDecimal((BigDecimal) row[2]);
+            int count = ((Number) row[3]).intValue();
+            PaymentTotals part = row[1] == PaymentType.REFUND
+                    ? new PaymentTotals(0, cents, count)
+                    : new PaymentTotals(cents, 0, count);
+            totals.merge(reservationId, part, PaymentTotals::plus);
+        }
+        return totals;
     }
 }
@@ -1,23 +1,57 @@
 package repository.impl;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import model.Guest;
 import model.Reservation;
+import model.ReservationAddOn;
 import model.ReservationStatus;
 import model.RoomType;
+import org.hibernate.Session;
+import repository.NightAuditRow;
+import repository.PaymentTotals;
 import repository.ReservationRepository;
+import repository.StayPricingRow;
+import repository.TotalAmountUpdate;
+import repository.UnitOfWork;
+import repository.index.RoomStay;
 
+import java.sql.PreparedStatement;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class ReservationRepositoryImpl implements ReservationRepository {
-    private final EntityManager entityManager;
-
-    public ReservationRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    /**
+     * Reservations leave the unit of work detached, so load the guest and rooms the
+     * screens display up front instead of relying on lazy loading later.
+     */
+    private static final String SELECT_WITH_DETAILS =
+            "SELECT r FROM Reservation r JOIN FETCH r.guest LEFT JOIN FETCH r.rooms";
+
+    /**
+     * Booked add-on columns the pricing pages read, so stored add-ons keep their booked price.
+     */
+    private static final String BOOKED_ADD_ON = "a.addOnId, a.addOnName, a.price, a.perNight";
+
+    /**
+     * Statuses that still hold their rooms; cancelled and checked-out stays free inventory.
+     */
+    private static final List<ReservationStatus> OCCUPYING_STATUSES = Arrays.stream(ReservationStatus.values())
+            .filter(ReservationStatus::occupiesRooms)
+            .toList();
+
+    private final UnitOfWork unitOfWork;
+
+    public ReservationRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
@@ -27,93 +61,128 @@ public class ReservationRepositoryImpl implements ReservationRepository {
 
     @Override
     public Reservation saveOrUpdate(Reservation reservation, List<RoomType> rooms) {
-        entityManager.getTransaction().begin();
-
         try {
-            if (rooms != null) {
-                reservation.setRooms(new ArrayList<>(rooms));
-            }
-
-            if (reservation.getId() == null) {
-                entityManager.persist(reservation);
-            } else {
-                reservation = entityManager.merge(reservation);
-            }
-
-            entityManager.getTransaction().commit();
-            return reservation;
+            return unitOfWork.execute(entityManager -> {
+                if (rooms != null) {
+                    reservation.setRooms(new ArrayList<>(rooms));
+                }
+
+                if (reservation.getId() == null) {
+                    entityManager.persist(reservation);
+                    return reservation;
+                }
+                return entityManager.merge(reservation);
+            });
         } catch (Exception e) {
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
-            }
             throw new RuntimeException("Failed to save reservation", e);
         }
     }
 
     @Override
     public Optional<Reservation> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(Reservation.class, id));
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE r.id = :id",
+                    Reservation.class);
+            query.setParameter("id", id);
+            return query.getResultList().stream().findFirst();
+        });
+    }
+
+    @Override
+    public Optional<Reservation> findShallowById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return unitOfWork.read(entityManager -> Optional.ofNullable(entityManager.find(Reservation.class, id)));
     }
 
     @Override
     public List<Reservation> findAll() {
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r",
-                Reservation.class);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> entityManager.createQuery(
+                SELECT_WITH_DETAILS,
+                Reservation.class).getResultList());
     }
 
     @Override
     public void delete(Long id) {
-        entityManager.getTransaction().begin();
-        Reservation reservation = entityManager.find(Reservation.class, id);
-        if (reservation != null) {
-            entityManager.remove(reservation);
-        }
-        entityManager.getTransaction().commit();
+        unitOfWork.run(entityManager -> {
+            Reservation reservation = entityManager.find(Reservation.class, id);
+            if (reservation != null) {
+                entityManager.remove(reservation);
+            }
+        });
     }
 
     @Override
-    public int countBookedRooms(String roomType, LocalDate checkIn, LocalDate checkOut) {
-        return 0;
+    public List<RoomStay> findActiveRoomStays() {
+        String jpql = "SELECT r.id, rr.type, COUNT(rr), r.checkIn, r.checkOut FROM Reservation r " +
+                "JOIN r.rooms rr " +
+                "WHERE r.status IN :occupying " +
+                "GROUP BY r.id, rr.type, r.checkIn, r.checkOut";
+
+        List<Object[]> rows = unitOfWork.read(entityManager -> {
+            TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+            query.setParameter("occupying", OCCUPYING_STATUSES);
+            return query.getResultList();
+        });
+
+        List<RoomStay> stays = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            stays.add(new RoomStay(
+                    ((Number) row[0]).longValue(),
+                    (RoomType.Type) row[1],
+                    ((Number) row[2]).intValue(),
+                    ((LocalDate) row[3]).toEpochDay(),
+                    ((LocalDate) row[4]).toEpochDay()));
+        }
+        return stays;
     }
 
     @Override
     public List<Reservation> findByGuestName(String name) {
         String pattern = "%" + name.toLowerCase() + "%";
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE LOWER(r.guest.firstName) LIKE :name OR LOWER(r.guest.lastName) LIKE :name",
-                Reservation.class);
-        query.setParameter("name", pattern);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE LOWER(r.guest.firstName) LIKE :name OR LOWER(r.guest.lastName) LIKE :name",
+                    Reservation.class);
+            query.setParameter("name", pattern);
+            return query.getResultList();
+        });
     }
 
     @Override
     public List<Reservation> findByDateRange(LocalDate from, LocalDate to) {
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE r.checkIn >= :from AND r.checkOut <= :to",
-                Reservation.class);
-        query.setParameter("from", from);
-        query.setParameter("to", to);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE r.checkIn >= :from AND r.checkOut <= :to",
+                    Reservation.class);
+            query.setParameter("from", from);
+            query.setParameter("to", to);
+            return query.getResultList();
+        });
     }
 
     @Override
     public List<Reservation> findByStatus(String status) {
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE r.status = :status",
-                Reservation.class);
-        query.setParameter("status", status);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE r.status = :status",
+                    Reservation.class);
+            query.setParameter("status", ReservationStatus.valueOf(status.trim().toUpperCase(Locale.ROOT)));
+            return query.getResultList();
+        });
     }
 
     @Override
     public List<Reservation> findByGuestPhone(String phone) {
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE r.guest.phone = :phone",
-                Reservation.class);
-        query.setParameter("phone", phone);
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE r.guest.phone = :phone",
+                    Reservation.class);
+            query.setParameter("phone", phone);
+            return query.getResultList();
+        });
     }
 
     @Override
@@ -121,11 +190,13 @@ public class ReservationRepositoryImpl implements ReservationRepository {
         if (guest == null || guest.getId() == null) {
             return List.of();
         }
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE r.guest.id = :guestId",
-                Reservation.class);
-        query.setParameter("guestId", guest.getId());
-        return query.getResultList();
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE r.guest.id = :guestId",
+                    Reservation.class);
+            query.setParameter("guestId", guest.getId());
+            return query.getResultList();
+        });
     }
 
     @Override
@@ -134,11 +205,13 @@ public class ReservationRepositoryImpl implements ReservationRepository {
             return false;
         }
 
-        TypedQuery<Long> query = entityManager.createQuery(
-                "SELECT COUNT(r) FROM Reservation r WHERE r.guest.id = :guestId",
-                Long.class);
-        query.setParameter("guestId", guest.getId());
-        Long count = query.getSingleResult();
+        Long count = unitOfWork.read(entityManager -> {
+            TypedQuery<Long> query = entityManager.createQuery(
+                    "SELECT COUNT(r) FROM Reservation r WHERE r.guest.id = :guestId",
+                    Long.class);
+            query.setParameter("guestId", guest.getId());
+            return query.getSingleResult();
+        });
         return count != null && count > 0;
     }
 
@@ -148,18 +221,20 @@ public class ReservationRepositoryImpl implements ReservationRepository {
             return false;
         }
 
-        TypedQuery<Long> query = entityManager.createQuery(
-                "SELECT COUNT(r) FROM Reservation r WHERE r.guest.id = :guestId AND r.status = :status",
-                Long.class);
-        query.setParameter("guestId", guest.getId());
-        query.setParameter("status", status);
-        Long count = query.getSingleResult();
+        Long count = unitOfWork.read(entityManager -> {
+            TypedQuery<Long> query = entityManager.createQuery(
+                    "SELECT COUNT(r) FROM Reservation r WHERE r.guest.id = :guestId AND r.status = :status",
+                    Long.class);
+            query.setParameter("guestId", guest.getId());
+            query.setParameter("status", status);
+            return query.getSingleResult();
+        });
         return count != null && count > 0;
     }
 
     @Override
     public List<Reservation> searchReservations(String guestName, String phone, String email, LocalDate start, LocalDate end, ReservationStatus status) {
-        StringBuilder jpql = new StringBuilder("SELECT r FROM Reservation r WHERE 1=1");
+        StringBuilder jpql = new StringBuilder(SELECT_WITH_DETAILS + " WHERE 1=1");
 
         if (guestName != null && !guestName.isBlank()) {
             jpql.append(" AND (LOWER(r.guest.firstName) LIKE LOWER(CONCAT('%', :guestName, '%'))")
@@ -181,28 +256,30 @@ public class ReservationRepositoryImpl implements ReservationRepository {
             jpql.append(" AND r.status = :status");
         }
 
-        TypedQuery<Reservation> query = entityManager.createQuery(jpql.toString(), Reservation.class);
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(jpql.toString(), Reservation.class);
 
-        if (guestName != null && !guestName.isBlank()) {
-            query.setParameter("guestName", guestName);
-        }
-        if (phone != null && !phone.isBlank()) {
-            query.setParameter("phone", phone);
-        }
-        if (email != null && !email.isBlank()) {
-            query.setParameter("email", email);
-        }
-        if (start != null) {
-            query.setParameter("start", start);
-        }
-        if (end != null) {
-            query.setParameter("end", end);
-        }
-        if (status != null) {
-            query.setParameter("status", status);
-        }
+            if (guestName != null && !guestName.isBlank()) {
+                query.setParameter("guestName", guestName);
+            }
+            if (phone != null && !phone.isBlank()) {
+                query.setParameter("phone", phone);
+            }
+            if (email != null && !email.isBlank()) {
+                query.setParameter("email", email);
+            }
+            if (start != null) {
+                query.setParameter("start", start);
+            }
+            if (end != null) {
+                query.setParameter("end", end);
+            }
+            if (status != null) {
+                query.setParameter("status", status);
+            }
 
-        return query.getResultList();
+            return query.getResultList();
+        });
     }
 
     @Override
@@ -217,32 +294,174 @@ public class ReservationRepositoryImpl implements ReservationRepository {
         }
 
         // FIXED: Changed r.checkOutDate to r.checkOut
-        TypedQuery<Reservation> query = entityManager.createQuery(
-                "SELECT r FROM Reservation r WHERE LOWER(r.guest.email) = :email ORDER BY r.checkOut DESC",
-                Reservation.class);
-        query.setParameter("email", normalized);
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Reservation> query = entityManager.createQuery(
+                    SELECT_WITH_DETAILS + " WHERE LOWER(r.guest.email) = :email ORDER BY r.checkOut DESC",
+                    Reservation.class);
+            query.setParameter("email", normalized);
+            return query.getResultList().stream().findFirst();
+        });
+    }
+
+    @Override
+    public List<StayPricingRow> findPricingPage(ReservationStatus status, LocalDate from, long afterId, int limit) {
+        String where = " WHERE r.status = :status AND r.checkIn >= :from AND r.id > :afterId";
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Object[]> page = entityManager.createQuery(
+                    "SELECT r.id, r.checkIn, r.checkOut, r.discountPercent, r.totalAmount FROM Reservation r"
+                            + where + " ORDER BY r.id", Object[].class);
+            page.setParameter("status", status);
+            page.setParameter("from", from);
+            page.setParameter("afterId", afterId);
+            page.setMaxResults(limit);
+            List<Object[]> rows = page.getResultList();
+            if (rows.isEmpty()) {
+                return List.of();
+            }
 
-        return query.getResultStream().findFirst();
+            // Rooms and add-ons for the whole page by id range, one query each
+            long lastId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            Map<Long, List<RoomType>> rooms = new HashMap<>();
+            TypedQuery<Object[]> roomQuery = entityManager.createQuery(
+                    "SELECT r.id, rr FROM Reservation r JOIN r.rooms rr" + where + " AND r.id <= :lastId",
+                    Object[].class);
+            bindPage(roomQuery, status, from, afterId, lastId);
+            for (Object[] row : roomQuery.getResultList()) {
+                rooms.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((RoomType) row[1]);
+            }
+            Map<Long, List<ReservationAddOn>> addOns = new HashMap<>();
+            TypedQuery<Object[]> addOnQuery = entityManager.createQuery(
+                    "SELECT r.id, " + BOOKED_ADD_ON + " FROM ReservationAddOn a JOIN a.reservation r" + where
+                            + " AND r.id <= :lastId", Object[].class);
+            bindPage(addOnQuery, status, from, afterId, lastId);
+            for (Object[] row : addOnQuery.getResultList()) {
+                addOns.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(bookedAddOn(row));
+            }
+
+            List<StayPricingRow> result = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                result.add(new StayPricingRow(id, (LocalDate) row[1], (LocalDate) row[2],
+                        row[3] != null ? (Double) row[3] : 0.0,
+                        (Double) row[4],
+                        rooms.getOrDefault(id, List.of()),
+                        addOns.getOrDefault(id, List.of())));
+            }
+            return result;
+        });
     }
 
     @Override
-    public boolean hasConflict(RoomType room, LocalDate checkIn, LocalDate checkOut, Long excludeReservationId) {
-        String jpql = "SELECT COUNT(r) FROM Reservation r " +
-                "JOIN r.rooms rr " +
-                "WHERE rr = :room " +
-                "AND r.status <> :cancelled " +
-                "AND (:excludeId IS NULL OR r.id <> :excludeId) " +
-                "AND r.checkIn < :checkOut " +
-                "AND r.checkOut > :checkIn";
-
-        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
-        query.setParameter("room", room);
-        query.setParameter("cancelled", ReservationStatus.CANCELLED);
-        query.setParameter("excludeId", excludeReservationId);
-        query.setParameter("checkIn", checkIn);
-        query.setParameter("checkOut", checkOut);
-
-        Long count = query.getSingleResult();
-        return count != null && count > 0;
+    public List<NightAuditRow> findNightAuditPage(LocalDate businessDate, long afterId, int limit) {
+        return unitOfWork.read(entityManager -> {
+            TypedQuery<Object[]> page = entityManager.createQuery(
+                    "SELECT r.id, r.checkIn, r.checkOut, r.discountPercent, r.totalAmount, r.status, "
+                            + "l.paidCents, l.refundedCents, l.paymentCount "
+                            + "FROM Reservation r LEFT JOIN PaymentLedger l ON l.reservationId = r.id "
+                            + "WHERE r.checkIn <= :date AND r.checkOut >= :date AND r.id > :afterId "
+                            + "AND (r.status IN :holding OR (r.status IN :departed AND r.checkOut = :date)) "
+                            + "ORDER BY r.id", Object[].class);
+            page.setParameter("date", businessDate);
+            page.setParameter("afterId", afterId);
+            page.setParameter("holding", List.of(ReservationStatus.BOOKED, ReservationStatus.CONFIRMED,
+                    ReservationStatus.CHECKED_IN));
+            page.setParameter("departed", List.of(ReservationStatus.CHECKED_OUT, ReservationStatus.COMPLETED));
+            page.setMaxResults(limit);
+            List<Object[]> rows = page.getResultList();
+            if (rows.isEmpty()) {
+                return List.of();
+            }
+
+            // Rooms and add-ons for the whole page, one query each
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                ids.add((Long) row[0]);
+            }
+            Map<Long, List<RoomType>> rooms = new HashMap<>();
+            for (Object[] row : entityManager.createQuery(
+                            "SELECT r.id, rr FROM Reservation r JOIN r.rooms rr WHERE r.id IN :ids", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList()) {
+                rooms.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((RoomType) row[1]);
+            }
+            Map<Long, List<ReservationAddOn>> addOns = new HashMap<>();
+            for (Object[] row : entityManager.createQuery(
+                            "SELECT a.reservation.id, " + BOOKED_ADD_ON
+                                    + " FROM ReservationAddOn a WHERE a.reservation.id IN :ids", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList()) {
+                addOns.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(bookedAddOn(row));
+            }
+
+            List<NightAuditRow> result = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                StayPricingRow stay = new StayPricingRow(id, (LocalDate) row[1], (LocalDate) row[2],
+                        row[3] != null ? (Double) row[3] : 0.0,
+                        (Double) row[4],
+                        rooms.getOrDefault(id, List.of()),
+                        addOns.getOrDefault(id, List.of()));
+                PaymentTotals payments = row[6] != null
+                        ? new PaymentTotals((Long) row[6], (Long) row[7], (Integer) row[8])
+                        : PaymentTotals.NONE;
+                result.add(new NightAuditRow(stay, (ReservationStatus) row[5], payments));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * A booked add-on as read by the page queries, after the reservation id in column 0.
+     */
+    private static ReservationAddOn bookedAddOn(Object[] row) {
+        return new ReservationAddOn(null, (Long) row[1], (String) row[2], (Double) row[3], (Boolean) row[4]);
+    }
+
+    private static void bindPage(TypedQuery<Object[]> query, ReservationStatus status, LocalDate from,
+                                 long afterId, long lastId) {
+        query.setParameter("status", status);
+        query.setParameter("from", from);
+        query.setParameter("afterId", afterId);
+        query.setParameter("lastId", lastId);
+    }
+
+    @Override
+    public Set<Long> updateTotalAmounts(List<TotalAmountUpdate> updates) {
+        if (updates.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            return unitOfWork.execute(entityManager -> entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                // Only a stay still booked at the total it was priced from is overwritten, so a
+                // cancellation or edit that commits after the page was read is not clobbered.
+                // Totals are compared in cents, and a missing total only matches a missing one.
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE Reservation SET total_amount = ? WHERE id = ? AND status = 'BOOKED' AND "
+                                + "((total_amount IS NULL AND ? IS NULL) OR ROUND(total_amount * 100) = ?)")) {
+                    for (TotalAmountUpdate entry : updates) {
+                        update.setDouble(1, entry.newTotal());
+                        update.setLong(2, entry.reservationId());
+                        if (entry.expectedTotalCents() == null) {
+                            update.setNull(3, Types.BIGINT);
+                            update.setNull(4, Types.BIGINT);
+                        } else {
+                            update.setLong(3, entry.expectedTotalCents());
+                            update.setLong(4, entry.expectedTotalCents());
+                        }
+                        update.addBatch();
+                    }
+                    int[] counts = update.executeBatch();
+                    Set<Long> updated = new HashSet<>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            updated.add(updates.get(i).reservationId());
+                        }
+                    }
+                    return updated;
+                }
+            }));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update reservation totals", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,12 +3,13 @@
 // ============================================================================
 package repository.impl;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
 import model.RoomType;
 import repository.RoomRepository;
+import repository.UnitOfWork;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -19,31 +20,26 @@ import java.util.logging.Logger;
 public class RoomRepositoryImpl implements RoomRepository {
     private static final Logger LOGGER = Logger.getLogger(RoomRepositoryImpl.class.getName());
 
-    private final EntityManager entityManager;
+    private final UnitOfWork unitOfWork;
 
-    public RoomRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public RoomRepositoryImpl(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
     public RoomType save(RoomType roomType) {
         try {
-            entityManager.getTransaction().begin();
-
-            if (roomType.getId() == null) {
-                entityManager.persist(roomType);
-                LOGGER.info("New room type created: " + roomType.getType());
-            } else {
-                roomType = entityManager.merge(roomType);
-                LOGGER.info("Room type updated: " + roomType.getType());
-            }
-
-            entityManager.getTransaction().commit();
-            return roomType;
+            return unitOfWork.execute(entityManager -> {
+                if (roomType.getId() == null) {
+                    entityManager.persist(roomType);
+                    LOGGER.info("New room type created: " + roomType.getType());
+                    return roomType;
+                }
+                RoomType merged = entityManager.merge(roomType);
+                LOGGER.info("Room type updated: " + merged.getType());
+                return merged;
+            });
         } catch (Exception e) {
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
-            }
             LOGGER.severe("Failed to save room type: " + e.getMessage());
             throw new RuntimeException("Failed to save room type", e);
         }
@@ -52,7 +48,7 @@ public class RoomRepositoryImpl implements RoomRepository {
     @Override
     public Optional<RoomType> findById(Long id) {
         try {
-            RoomType roomType = entityManager.find(RoomType.class, id);
+            RoomType roomType = unitOfWork.read(entityManager -> entityManager.find(RoomType.class, id));
             return Optional.ofNullable(roomType);
         } catch (Exception e) {
             LOGGER.severe("Error finding room type by ID: " + e.getMessage());
@@ -63,11 +59,12 @@ public class RoomRepositoryImpl implements RoomRepository {
     @Override
     public Optional<RoomType> findByType(RoomType.Type type) {
         try {
-            TypedQuery<RoomType> query = entityManager.createQuery(
-                    "SELECT r FROM RoomType r WHERE r.type = :type", RoomType.class);
-            query.setParameter("type", type);
-
-            RoomType roomType = query.getSingleResult();
+            RoomType roomType = unitOfWork.read(entityManager -> {
+                TypedQuery<RoomType> query = entityManager.createQuery(
+                        "SELECT r FROM RoomType r WHERE r.type = :type", RoomType.class);
+                query.setParameter("type", type);
+                return query.getSingleResult();
+            });
             return Optional.of(roomType);
         } catch (NoResultException e) {
             return Optional.empty();
@@ -77,12 +74,44 @@ public class RoomRepositoryImpl implements RoomRepository {
         }
     }
 
+    @Override
+    public List<RoomType> findByIdsOrTypes(Collection<Long> ids, Collection<RoomType.Type> types) {
+        boolean hasIds = ids != null && !ids.isEmpty();
+        boolean hasTypes = types != null && !types.isEmpty();
+        if (!hasIds && !hasTypes) {
+            return List.of();
+        }
+
+        String where = hasIds && hasTypes ? "r.id IN :ids OR r.type IN :types"
+                : hasIds ? "r.id IN :ids" : "r.type IN :types";
+        try {
+            return unitOfWork.read(entityManager -> {
+                TypedQuery<RoomType> query = entityManager.createQuery(
+                        "SELECT r FROM RoomType r WHERE " + where, RoomType.class);
+                if (hasIds) {
+                    query.setParameter("ids", ids);
+                }
+                if (hasTypes) {
+                    query.setParameter("types", types);
+                }
+                return query.getResultList();
+            });
+        } catch (Exception e) {
+            // Runs inside the booking transaction: "no rooms" would hide a failure that has
+            // already marked it rollback-only
+            LOGGER.severe("Error finding room types by id/type: " + e.getMessage());
+            throw new RuntimeException("Failed to find room types", e);
+        }
+    }
+
     @Override
     public List<RoomType> findAll() {
         try {
-            TypedQuery<RoomType> query = entityManager.createQuery(
-                    "SELECT r FROM RoomType r ORDER BY r.basePrice", RoomType.class);
-            return query.getResultList();
+            return unitOfWork.read(entityManager -> {
+                TypedQuery<RoomType> query = entityManager.createQuery(
+                        "SELECT r FROM RoomType r ORDER BY r.basePrice", RoomType.class);
+                return query.getResultList();
+            });
         } catch (Exception e) {
             LOGGER.severe("Error finding all room types: " + e.getMessage());
             return List.of();
@@ -92,19 +121,14 @@ public class RoomRepositoryImpl implements RoomRepository {
     @Override
     public void delete(Long id) {
         try {
-            entityManager.getTransaction().begin();
-
-            RoomType roomType = entityManager.find(RoomType.class, id);
-            if (roomType != null) {
-                entityManager.remove(roomType);
-                LOGGER.info("Room type deleted: " + id);
-            }
-
-            entityManager.getTransaction().commit();
+            unitOfWork.run(entityManager -> {
+                RoomType roomType = entityManager.find(RoomType.class, id);
+                if (roomType != null) {
+                    entityManager.remove(roomType);
+                    LOGGER.info("Room type deleted: " + id);
+                }
+            });
         } catch (Exception e) {
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
-            }
             LOGGER.severe("Failed to delete room type: " + e.getMessage());
             throw new RuntimeException("Failed to delete room type", e);
         }
@@ -113,11 +137,12 @@ public class RoomRepositoryImpl implements RoomRepository {
     @Override
     public int countByType(RoomType.Type type) {
         try {
-            TypedQuery<Long> query = entityManager.createQuery(
-                    "SELECT COUNT(r) FROM RoomType r WHERE r.type = :type", Long.class);
-            query.setParameter("type", type);
-
-            return query.getSingleResult().intValue();
+            return unitOfWork.read(entityManager -> {
+                TypedQuery<Long> query = entityManager.createQuery(
+                        "SELECT COUNT(r) FROM RoomType r WHERE r.type = :type", Long.class);
+                query.setParameter("type", type);
+                return query.getSingleResult().intValue();
+            });
         } catch (Exception e) {
             LOGGER.severe("Error counting rooms by type: " + e.getMessage());
             return 0;
@@ -0,0 +1,274 @@
+package repository.index;
+
+import model.RoomType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Booked-room counts per room type for every night, stored as primitive int arrays
+ * indexed by {@link RoomType.Type} ordinal and epoch day. A second layer of the same
+ * shape counts rooms under temporary holds; availability looks at both, reports at bookings only.
+ *
+ * The calendar starts one month back and covers a year and a bit ahead; it grows in either
+ * direction when a stay falls outside that window. Kept up to date incrementally through
+ * {@link StayListener} callbacks, so range queries are array scans rather than database calls.
+ *
+ * It also answers the conflict checks: a stay fits when, for each type, the peak count over its
+ * nights ({@link #peakBookedByType}) plus the rooms wanted stays within inventory. That is one
+ * array read per night, whatever the number of reservations on the books.
+ */
+public class OccupancyCalendar implements StayListener {
+    private static final Logger LOGGER = Logger.getLogger(OccupancyCalendar.class.getName());
+
+    private static final int TYPE_COUNT = RoomType.Type.values().length;
+    private static final int DAYS_BACK = 31;
+    private static final int DEFAULT_HORIZON_DAYS = 400;
+    private static final int GROWTH_DAYS = 90;
+
+    private long baseDay;
+    private int[][] booked;
+    private int[][] held;
+    private final Map<Long, List<RoomStay>> staysByReservation = new HashMap<>();
+    private final Map<Long, List<RoomStay>> staysByHold = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public OccupancyCalendar() {
+        this(LocalDate.now().minusDays(DAYS_BACK), DAYS_BACK + DEFAULT_HORIZON_DAYS);
+    }
+
+    public OccupancyCalendar(LocalDate firstNight, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Calendar must cover at least one night");
+        }
+        this.baseDay = firstNight.toEpochDay();
+        this.booked = new int[TYPE_COUNT][days];
+        this.held = new int[TYPE_COUNT][days];
+    }
+
+    @Override
+    public void replaceAll(Collection<RoomStay> stays) {
+        lock.writeLock().lock();
+        try {
+            for (int[] nights : booked) {
+                Arrays.fill(nights, 0);
+            }
+            staysByReservation.clear();
+            for (RoomStay stay : stays) {
+                apply(stay, 1, false);
+                staysByReservation.computeIfAbsent(stay.reservationId(), id -> new ArrayList<>(1)).add(stay);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Occupancy calendar loaded with " + stays.size() + " active room stays");
+    }
+
+    @Override
+    public void update(long reservationId, List<RoomStay> stays) {
+        lock.writeLock().lock();
+        try {
+            List<RoomStay> previous = staysByReservation.remove(reservationId);
+            if (previous != null) {
+                for (RoomStay stay : previous) {
+                    apply(stay, -1, false);
+                }
+            }
+            if (!stays.isEmpty()) {
+                for (RoomStay stay : stays) {
+                    apply(stay, 1, false);
+                }
+                staysByReservation.put(reservationId, List.copyOf(stays));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count the stays against availability under a temporary hold (the stay's id is ignored).
+     */
+    public void placeHold(long holdId, List<RoomStay> stays) {
+        lock.writeLock().lock();
+        try {
+            for (RoomStay stay : stays) {
+                apply(stay, 1, true);
+            }
+            staysByHold.put(holdId, List.copyOf(stays));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void releaseHold(long holdId) {
+        lock.writeLock().lock();
+        try {
+            List<RoomStay> stays = staysByHold.remove(holdId);
+            if (stays != null) {
+                for (RoomStay stay : stays) {
+                    apply(stay, -1, true);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rooms of this type booked on the given night.
+     */
+    public int bookedOn(RoomType.Type type, LocalDate night) {
+        lock.readLock().lock();
+        try {
+            int offset = (int) (night.toEpochDay() - baseDay);
+            int[] nights = booked[type.ordinal()];
+            return offset >= 0 && offset < nights.length ? nights[offset] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Most rooms of each type booked or held on any night in [checkIn, checkOut), indexed by type ordinal.
+     */
+    public int[] peakBookedByType(LocalDate checkIn, LocalDate checkOut) {
+        return peakBookedByType(checkIn, checkOut, null, null);
+    }
+
+    /**
+     * Same as {@link #peakBookedByType(LocalDate, LocalDate)} but leaves out the rooms already
+     * taken by one reservation and one hold, so an edited booking or a booking confirming
+     * its own hold is not counted against itself.
+     */
+    public int[] peakBookedByType(LocalDate checkIn, LocalDate checkOut,
+                                  Long excludeReservationId, Long excludeHoldId) {
+        int[] peaks = new int[TYPE_COUNT];
+        lock.readLock().lock();
+        try {
+            int from = clampOffset(checkIn.toEpochDay());
+            int to = clampOffset(checkOut.toEpochDay());
+            List<RoomStay> ownBooked = excludeReservationId != null
+                    ? staysByReservation.getOrDefault(excludeReservationId, List.of())
+                    : List.of();
+            List<RoomStay> ownHeld = excludeHoldId != null
+                    ? staysByHold.getOrDefault(excludeHoldId, List.of())
+                    : List.of();
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                int[] bookedNights = booked[t];
+                int[] heldNights = held[t];
+                int peak = 0;
+                for (int d = from; d < to; d++) {
+                    long day = baseDay + d;
+                    int count = bookedNights[d] + heldNights[d]
+                            - ownRooms(ownBooked, t, day) - ownRooms(ownHeld, t, day);
+                    if (count > peak) {
+                        peak = count;
+                    }
+                }
+                peaks[t] = peak;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return peaks;
+    }
+
+    /**
+     * Booked counts for one room type, one entry per night in [from, to).
+     */
+    public int[] nightlyBooked(RoomType.Type type, LocalDate from, LocalDate to) {
+        return nightly(type, from, to, false);
+    }
+
+    /**
+     * Booked plus held counts for one room type, one entry per night in [from, to).
+     */
+    public int[] nightlyTaken(RoomType.Type type, LocalDate from, LocalDate to) {
+        return nightly(type, from, to, true);
+    }
+
+    private int[] nightly(RoomType.Type type, LocalDate from, LocalDate to, boolean includeHolds) {
+        long start = from.toEpochDay();
+        int length = (int) Math.max(0, to.toEpochDay() - start);
+        int[] result = new int[length];
+        lock.readLock().lock();
+        try {
+            int first = clampOffset(start);
+            int last = clampOffset(start + length);
+            int target = (int) (baseDay + first - start);
+            if (last > first) {
+                System.arraycopy(booked[type.ordinal()], first, result, target, last - first);
+                if (includeHolds) {
+                    int[] heldNights = held[type.ordinal()];
+                    for (int d = first; d < last; d++) {
+                        result[target + d - first] += heldNights[d];
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void apply(RoomStay stay, int sign, boolean hold) {
+        if (stay.checkOutDay() <= stay.checkInDay() || stay.rooms() <= 0) {
+            return;
+        }
+        ensureCovered(stay.checkInDay(), stay.checkOutDay());
+        int[] nights = (hold ? held : booked)[stay.type().ordinal()];
+        int delta = sign * stay.rooms();
+        int to = (int) (stay.checkOutDay() - baseDay);
+        for (int d = (int) (stay.checkInDay() - baseDay); d < to; d++) {
+            nights[d] += delta;
+        }
+    }
+
+    /**
+     * Grow the arrays (with some slack) so that [start, end) lies inside the calendar.
+     */
+    private void ensureCovered(long start, long end) {
+        long currentEnd = baseDay + booked[0].length;
+        if (start >= baseDay && end <= currentEnd) {
+            return;
+        }
+        long newBase = start < baseDay ? start - GROWTH_DAYS : baseDay;
+        long newEnd = end > currentEnd ? end + GROWTH_DAYS : currentEnd;
+        int shift = (int) (baseDay - newBase);
+        booked = grow(booked, shift, (int) (newEnd - newBase));
+        held = grow(held, shift, (int) (newEnd - newBase));
+        baseDay = newBase;
+    }
+
+    private static int[][] grow(int[][] layer, int shift, int days) {
+        int[][] grown = new int[TYPE_COUNT][days];
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            System.arraycopy(layer[t], 0, grown[t], shift, layer[t].length);
+        }
+        return grown;
+    }
+
+    private static int ownRooms(List<RoomStay> own, int typeOrdinal, long epochDay) {
+        int rooms = 0;
+        for (RoomStay stay : own) {
+            if (stay.type().ordinal() == typeOrdinal
+                    && stay.checkInDay() <= epochDay && epochDay < stay.checkOutDay()) {
+                rooms += stay.rooms();
+            }
+        }
+        return rooms;
+    }
+
+    private int clampOffset(long epochDay) {
+        long offset = epochDay - baseDay;
+        return (int) Math.max(0, Math.min(booked[0].length, offset));
+    }
+}
@@ -0,0 +1,10 @@
+package repository.index;
+
+import model.RoomType;
+
+/**
+ * Rooms of one type held by an active reservation, as a half-open range of epoch days
+ * [checkInDay, checkOutDay) so the check-out day is free for the next guest.
+ */
+public record RoomStay(long reservationId, RoomType.Type type, int rooms, long checkInDay, long checkOutDay) {
+}
@@ -0,0 +1,22 @@
+package repository.index;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Receives the active room stays whenever reservations are loaded or change,
+ * so in-memory booking structures stay in sync with the database.
+ */
+public interface StayListener {
+
+    /**
+     * Replace everything with the given stays (startup load).
+     */
+    void replaceAll(Collection<RoomStay> stays);
+
+    /**
+     * Replace the stays held by one reservation; an empty list releases them
+     * (cancelled, checked out or deleted).
+     */
+    void update(long reservationId, List<RoomStay> stays);
+}
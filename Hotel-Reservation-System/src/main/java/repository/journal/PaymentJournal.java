@@ -0,0 +1,386 @@
+package repository.journal;
+
+import model.PaymentMethod;
+import model.PaymentType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of captured payments in a memory-mapped file.
+ *
+ * The file is a small header followed by a ring of fixed-size records; a record's slot
+ * follows from its sequence number, so appending is a copy into mapped memory and needs
+ * no system call. Once copied, a record survives the process dying. A flusher thread
+ * forces the mapping to disk every few milliseconds, covering every record appended
+ * since its last pass with one sync (group commit); {@link #awaitDurable(long)} waits for
+ * that when a caller needs the record to survive losing the machine too.
+ *
+ * The header keeps the sequence of the last record applied to the database. A slot is only
+ * reused once a mark at or past its record has been synced to disk, so a crash can never
+ * leave the on-disk mark pointing before a record that has already been overwritten. The
+ * ring fills when applying (or syncing the mark) falls {@code capacity} records behind, and
+ * then appends wait, for a bounded time before failing. On open, records after the applied
+ * sequence are read back, stopping at the first slot whose sequence or checksum does not
+ * match, which is where an interrupted append left off.
+ *
+ * Record layout (little-endian): magic, CRC32C of the rest, sequence, reservation id,
+ * amount in cents, creation time in epoch microseconds (UTC wall clock), method and type
+ * ordinals, key and creator lengths, then the UTF-8 idempotency key and creator name.
+ */
+public final class PaymentJournal implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(PaymentJournal.class.getName());
+
+    public static final int RECORD_SIZE = 256;
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2;
+    /** How long an append waits for a free slot before giving up. */
+    public static final long DEFAULT_APPEND_TIMEOUT_MILLIS = 5_000;
+    public static final int MAX_KEY_BYTES = 160;
+    public static final int MAX_CREATED_BY_BYTES = 48;
+
+    private static final int FILE_MAGIC = 0x504A524E;
+    private static final int RECORD_MAGIC = 0x50415931;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_CAPACITY = 12;
+    private static final int HEADER_JOURNAL_ID = 16;
+    private static final int HEADER_APPLIED = 24;
+    private static final int KEY_OFFSET = 44;
+    private static final int CREATED_BY_OFFSET = KEY_OFFSET + MAX_KEY_BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long journalId;
+    private final List<Entry> recovered;
+    private final ScheduledExecutorService flusher;
+    private final Object durableLock = new Object();
+    private volatile long appendedSequence;
+    private volatile long appliedSequence;
+    private volatile long durableSequence;
+    private volatile long flushedApplied;
+    private boolean closed;
+
+    private PaymentJournal(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity, long journalId,
+                           long appliedSequence, long flushIntervalMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.journalId = journalId;
+        this.appliedSequence = appliedSequence;
+        this.recovered = Collections.unmodifiableList(readBack());
+        this.appendedSequence = appliedSequence + recovered.size();
+        this.durableSequence = appendedSequence;
+        this.flushedApplied = appliedSequence;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static PaymentJournal open(Path path) throws IOException {
+        return open(path, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Open the journal at {@code path}, creating it with room for {@code capacity} records if
+     * it does not exist. An existing journal keeps the capacity it was created with.
+     */
+    public static PaymentJournal open(Path path, int capacity, long flushIntervalMillis) throws IOException {
+        if (capacity <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Journal capacity and flush interval must be positive");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if (!created) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getInt(0) != FILE_MAGIC || header.getInt(4) != VERSION
+                        || header.getInt(8) != RECORD_SIZE) {
+                    throw new IOException("Not a payment journal, or written by another version: " + path);
+                }
+                capacity = header.getInt(HEADER_CAPACITY);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                buffer.putInt(0, FILE_MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, RECORD_SIZE);
+                buffer.putInt(HEADER_CAPACITY, capacity);
+                buffer.putLong(HEADER_JOURNAL_ID, ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+                buffer.putLong(HEADER_APPLIED, 0L);
+                buffer.force();
+            }
+            PaymentJournal journal = new PaymentJournal(path, channel, buffer, capacity,
+                    buffer.getLong(HEADER_JOURNAL_ID), buffer.getLong(HEADER_APPLIED), flushIntervalMillis);
+            LOGGER.info("Payment journal " + path + " opened: " + capacity + " slots, applied through #"
+                    + journal.appliedSequence + ", " + journal.recovered.size() + " to replay");
+            return journal;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Append a payment, waiting up to {@link #DEFAULT_APPEND_TIMEOUT_MILLIS} while the ring is
+     * full of records not yet durably applied.
+     */
+    public Entry append(Entry draft) throws InterruptedException {
+        return append(draft, DEFAULT_APPEND_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Append a payment, waiting up to {@code timeoutMillis} while the ring is full of records
+     * not yet durably applied.
+     *
+     * @param draft the payment; its sequence is ignored, and a null idempotency key is
+     *              replaced by one derived from the journal id and sequence
+     * @return the entry as written, with its sequence and key
+     * @throws IllegalStateException if the journal is closed, or still full when the wait runs out
+     */
+    public synchronized Entry append(Entry draft, long timeoutMillis) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Payment journal is closed");
+        }
+        long sequence = appendedSequence + 1;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (sequence - flushedApplied > capacity) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("Payment journal " + path + " is full: "
+                        + (appendedSequence - appliedSequence) + " captured payments are not yet in the database"
+                        + " after waiting " + timeoutMillis + " ms");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            if (closed) {
+                throw new IllegalStateException("Payment journal is closed");
+            }
+        }
+        String key = draft.idempotencyKey() != null ? draft.idempotencyKey() : keyFor(sequence);
+        Entry entry = new Entry(sequence, draft.reservationId(), draft.method(), draft.type(), draft.amountCents(),
+                draft.createdAt(), draft.createdBy(), key);
+        write(entry);
+        appendedSequence = sequence;
+        return entry;
+    }
+
+    /**
+     * Record that every entry up to {@code sequence} is in the database; their slots are
+     * free once the flusher has synced the mark.
+     */
+    public synchronized void markApplied(long sequence) {
+        if (sequence <= appliedSequence) {
+            return;
+        }
+        if (sequence > appendedSequence) {
+            throw new IllegalArgumentException("Cannot apply past the last appended entry");
+        }
+        buffer.putLong(HEADER_APPLIED, sequence);
+        appliedSequence = sequence;
+    }
+
+    /**
+     * Block until the entry with {@code sequence} has been forced to disk.
+     */
+    public void awaitDurable(long sequence) throws InterruptedException {
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                durableLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Entries found after the applied sequence when the journal was opened, in order.
+     */
+    public List<Entry> recoveredEntries() {
+        return recovered;
+    }
+
+    public long getAppendedSequence() {
+        return appendedSequence;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Force everything appended so far to disk and stop the flusher.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        channel.close();
+    }
+
+    private String keyFor(long sequence) {
+        return "journal-" + Long.toHexString(journalId) + "-" + sequence;
+    }
+
+    /**
+     * One group commit: sync the mapping if anything was appended or applied since the last.
+     * Runs on the flusher thread (and once from close, after it stops) without the append
+     * lock, so appends carry on while the sync is in progress; appends waiting for slots are
+     * woken once a newer applied mark is on disk.
+     */
+    private void flush() {
+        long target = appendedSequence;
+        long applied = appliedSequence;
+        if (target == durableSequence && applied == flushedApplied) {
+            return;
+        }
+        try {
+            buffer.force();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to sync payment journal " + path, ex);
+            return;
+        }
+        if (applied > flushedApplied) {
+            synchronized (this) {
+                flushedApplied = applied;
+                notifyAll();
+            }
+        }
+        if (target > durableSequence) {
+            synchronized (durableLock) {
+                durableSequence = target;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private int offsetOf(long sequence) {
+        return HEADER_SIZE + (int) ((sequence - 1) % capacity) * RECORD_SIZE;
+    }
+
+    private void write(Entry entry) {
+        byte[] key = entry.idempotencyKey().getBytes(StandardCharsets.UTF_8);
+        byte[] createdBy = entry.createdBy() != null ? entry.createdBy().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (key.length > MAX_KEY_BYTES || createdBy.length > MAX_CREATED_BY_BYTES) {
+            throw new IllegalArgumentException("Idempotency key or creator name too long for the payment journal");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        record.putLong(8, entry.sequence());
+        record.putLong(16, entry.reservationId());
+        record.putLong(24, entry.amountCents());
+        record.putLong(32, toEpochMicros(entry.createdAt()));
+        record.put(40, (byte) entry.method().ordinal());
+        record.put(41, (byte) entry.type().ordinal());
+        record.put(42, (byte) key.length);
+        record.put(43, (byte) createdBy.length);
+        record.put(KEY_OFFSET, key);
+        record.put(CREATED_BY_OFFSET, createdBy);
+        record.putInt(4, checksum(record));
+        record.putInt(0, RECORD_MAGIC);
+        buffer.put(offsetOf(entry.sequence()), record.array());
+    }
+
+    private List<Entry> readBack() {
+        List<Entry> entries = new ArrayList<>();
+        byte[] bytes = new byte[RECORD_SIZE];
+        for (long sequence = appliedSequence + 1; sequence - appliedSequence <= capacity; sequence++) {
+            buffer.get(offsetOf(sequence), bytes);
+            ByteBuffer record = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (record.getInt(0) != RECORD_MAGIC || record.getLong(8) != sequence
+                    || record.getInt(4) != checksum(record)) {
+                break;
+            }
+            PaymentMethod[] methods = PaymentMethod.values();
+            PaymentType[] types = PaymentType.values();
+            int method = record.get(40);
+            int type = record.get(41);
+            if (method < 0 || method >= methods.length || type < 0 || type >= types.length) {
+                break;
+            }
+            String key = new String(bytes, KEY_OFFSET, record.get(42) & 0xFF, StandardCharsets.UTF_8);
+            int createdByLength = record.get(43) & 0xFF;
+            String createdBy = createdByLength > 0
+                    ? new String(bytes, CREATED_BY_OFFSET, createdByLength, StandardCharsets.UTF_8)
+                    : null;
+            entries.add(new Entry(sequence, record.getLong(16), methods[method], types[type], record.getLong(24),
+                    fromEpochMicros(record.getLong(32)), createdBy, key));
+        }
+        return entries;
+    }
+
+    private static int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), record.arrayOffset() + 8, RECORD_SIZE - 8);
+        return (int) crc.getValue();
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * One captured payment.
+     */
+    public record Entry(long sequence, long reservationId, PaymentMethod method, PaymentType type,
+                        long amountCents, LocalDateTime createdAt, String createdBy, String idempotencyKey) {
+        public Entry {
+            if (method == null || type == null || createdAt == null) {
+                throw new IllegalArgumentException("Payment method, type and time are required");
+            }
+        }
+    }
+}
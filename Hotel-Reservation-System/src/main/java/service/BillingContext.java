@@ -6,14 +6,17 @@ package service;
 import config.PricingConfig;
 import model.Reservation;
 import model.RoomType;
+import service.pricing.AddOnCatalog;
+import service.pricing.PriceBreakdown;
+import service.pricing.PricingEngine;
+import service.pricing.QuoteCache;
+import service.strategy.BillingPipeline;
 import service.strategy.BillingStrategy;
+import util.Money;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -23,53 +26,48 @@ import java.util.logging.Logger;
 public class BillingContext {
     private static final Logger LOGGER = Logger.getLogger(BillingContext.class.getName());
 
-    private BillingStrategy strategy;
-    private PricingConfig pricingConfig;
-
-    // Add-on pricing (per night or per reservation)
-    private static final Map<String, Double> ADD_ON_PRICES = new HashMap<>();
-    private static final Map<String, Boolean> ADD_ON_PER_NIGHT = new HashMap<>();
-
-    static {
-        // Initialize add-on prices
-        ADD_ON_PRICES.put("WiFi", 10.0);
-        ADD_ON_PRICES.put("Breakfast", 25.0);
-        ADD_ON_PRICES.put("Parking", 15.0);
-        ADD_ON_PRICES.put("Spa", 100.0);
-
-        // Define pricing model (true = per night, false = per reservation)
-        ADD_ON_PER_NIGHT.put("WiFi", true);
-        ADD_ON_PER_NIGHT.put("Breakfast", true);
-        ADD_ON_PER_NIGHT.put("Parking", true);
-        ADD_ON_PER_NIGHT.put("Spa", false);
-    }
+    private PricingEngine pricingEngine;
+    private QuoteCache quoteCache;
 
     public BillingContext() {
         this(new PricingConfig());
     }
 
     public BillingContext(PricingConfig pricingConfig) {
-        this.pricingConfig = pricingConfig;
+        this(new PricingEngine(pricingConfig));
+    }
+
+    public BillingContext(PricingEngine pricingEngine) {
+        this.pricingEngine = pricingEngine;
+        this.quoteCache = new QuoteCache(pricingEngine, QuoteCache.DEFAULT_CAPACITY);
     }
 
+    /**
+     * Default strategy for quotes that do not bring their own; the identity unless set. It is
+     * shared by every session, so set it once at startup; a session that needs its own
+     * discounts or loyalty credit passes a {@link BillingPipeline} to the quote instead.
+     * Night rate multipliers are not a strategy: the rate calendar already charges them per night.
+     * It is held by the pricing engine, so bookings and stored totals are priced with it too.
+     */
     public void setStrategy(BillingStrategy strategy) {
-        this.strategy = strategy;
+        pricingEngine.setStrategy(strategy);
     }
+
     public BillingStrategy getStrategy() {
-        return strategy;
+        return pricingEngine.getStrategy();
     }
     public void setPricingConfig(PricingConfig pricingConfig) {
-        this.pricingConfig = pricingConfig;
+        BillingStrategy strategy = pricingEngine.getStrategy();
+        this.pricingEngine = new PricingEngine(pricingConfig, pricingEngine.getAddOnCatalog());
+        pricingEngine.setStrategy(strategy);
+        this.quoteCache = new QuoteCache(pricingEngine, QuoteCache.DEFAULT_CAPACITY);
     }
 
     /**
-     * Apply strategy to a base amount
+     * Apply strategy to a base amount in dollars, rounded to the cent
      */
     public double calculate(double baseAmount) {
-        if (strategy == null) {
-            throw new IllegalStateException("Billing strategy not configured");
-        }
-        return strategy.apply(baseAmount);
+        return Money.toDollars(getStrategy().apply(Money.ofDollars(baseAmount)));
     }
 
     /**
@@ -83,208 +81,72 @@ public class BillingContext {
      */
     public double calculateTotal(List<RoomType> rooms, List<String> addOns,
                                  LocalDate checkIn, LocalDate checkOut) {
-        LOGGER.info(String.format("Calculating total for %d rooms, %d add-ons from %s to %s",
-                rooms.size(), addOns.size(), checkIn, checkOut));
-
-        // Calculate number of nights
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        if (nights <= 0) {
-            throw new IllegalArgumentException("Check-out must be after check-in");
+        PriceBreakdown breakdown = calculateBreakdown(rooms, addOns, checkIn, checkOut);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Billing breakdown - Rooms: $%.2f, Add-ons: $%.2f, " +
+                            "Subtotal: $%.2f, Adjustment: $%.2f, Tax: $%.2f, Total: $%.2f",
+                    breakdown.roomCharges(), breakdown.addOnCharges(), breakdown.subtotal(),
+                    breakdown.adjustment(), breakdown.tax(), breakdown.total()));
         }
-
-        // Calculate room charges with dynamic pricing
-        double roomTotal = calculateRoomCharges(rooms, checkIn, checkOut, nights);
-
-        // Calculate add-on charges
-        double addOnTotal = calculateAddOnCharges(addOns, nights);
-
-        // Subtotal before tax
-        double subtotal = roomTotal + addOnTotal;
-
-        // Apply billing strategy (discounts, loyalty, etc.)
-        double afterStrategy = strategy != null ? strategy.apply(subtotal) : subtotal;
-
-        // Add tax (10% standard rate)
-        double taxRate = pricingConfig != null ? pricingConfig.getTaxRate() : 0.10;
-        double tax = afterStrategy * taxRate;
-
-        // Final total
-        double total = afterStrategy + tax;
-
-        LOGGER.info(String.format("Billing breakdown - Rooms: $%.2f, Add-ons: $%.2f, " +
-                        "Subtotal: $%.2f, After strategy: $%.2f, Tax: $%.2f, Total: $%.2f",
-                roomTotal, addOnTotal, subtotal, afterStrategy, tax, total));
-
-        return total;
+        return breakdown.total();
     }
 
     /**
-     * Calculate room charges with dynamic pricing (weekends, peak season)
+     * Calculate detailed breakdown for display, with the current billing strategy applied
      */
-    private double calculateRoomCharges(List<RoomType> rooms, LocalDate checkIn,
-                                        LocalDate checkOut, long nights) {
-        double total = 0.0;
-
-        for (RoomType room : rooms) {
-            double roomBasePrice = room.getBasePrice();
-
-            // Calculate price for each night with multipliers
-            LocalDate currentDate = checkIn;
-            for (int i = 0; i < nights; i++) {
-                double nightPrice = roomBasePrice;
-
-                // Apply weekend multiplier
-                if (isWeekend(currentDate)) {
-                    double weekendMultiplier = pricingConfig != null ?
-                            pricingConfig.getWeekendMultiplier() : 1.2;
-                    nightPrice *= weekendMultiplier;
-                    LOGGER.fine(String.format("Weekend multiplier applied: %.2fx", weekendMultiplier));
-                } else {
-                    double weekdayMultiplier = pricingConfig != null ?
-                            pricingConfig.getWeekdayMultiplier() : 1.0;
-                    nightPrice *= weekdayMultiplier;
-                }
-
-                // Apply peak season multiplier if configured
-                if (pricingConfig != null && pricingConfig.isPeakSeason(currentDate)) {
-                    nightPrice *= pricingConfig.getPeakSeasonMultiplier();
-                    LOGGER.fine(String.format("Peak season multiplier applied: %.2fx",
-                            pricingConfig.getPeakSeasonMultiplier()));
-                }
-
-                total += nightPrice;
-                currentDate = currentDate.plusDays(1);
-            }
-        }
-
-        return total;
+    public PriceBreakdown calculateBreakdown(List<RoomType> rooms, List<String> addOns,
+                                             LocalDate checkIn, LocalDate checkOut) {
+        return quoteCache.quote(rooms, addOns, checkIn, checkOut, 0.0, null);
     }
 
     /**
-     * Calculate add-on service charges
+     * Breakdown for a prospective stay carrying a reservation discount, with the current billing strategy applied
      */
-    private double calculateAddOnCharges(List<String> addOns, long nights) {
-        double total = 0.0;
-
-        for (String addOn : addOns) {
-            Double price = ADD_ON_PRICES.get(addOn);
-            if (price == null) {
-                LOGGER.warning("Unknown add-on service: " + addOn);
-                continue;
-            }
-
-            // Check if priced per night or per reservation
-            boolean perNight = ADD_ON_PER_NIGHT.getOrDefault(addOn, false);
-            double addOnCharge = perNight ? (price * nights) : price;
-
-            total += addOnCharge;
-            LOGGER.fine(String.format("Add-on '%s': $%.2f %s", addOn, addOnCharge,
-                    perNight ? "(per night)" : "(per reservation)"));
-        }
-
-        return total;
+    public PriceBreakdown calculateBreakdown(List<RoomType> rooms, List<String> addOns,
+                                             LocalDate checkIn, LocalDate checkOut, double discountPercent) {
+        return quoteCache.quote(rooms, addOns, checkIn, checkOut, discountPercent, null);
     }
 
     /**
-     * Calculate detailed breakdown for display
+     * Breakdown with a strategy chosen for this quote alone, e.g. a session's discount and
+     * loyalty pipeline; the shared default strategy is left alone.
      */
-    public BillingBreakdown calculateBreakdown(List<RoomType> rooms, List<String> addOns,
-                                               LocalDate checkIn, LocalDate checkOut) {
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-
-        double roomTotal = calculateRoomCharges(rooms, checkIn, checkOut, nights);
-        double addOnTotal = calculateAddOnCharges(addOns, nights);
-        double subtotal = roomTotal + addOnTotal;
-        double afterStrategy = strategy != null ? strategy.apply(subtotal) : subtotal;
-        double taxRate = pricingConfig != null ? pricingConfig.getTaxRate() : 0.10;
-        double tax = afterStrategy * taxRate;
-        double total = afterStrategy + tax;
-
-        return new BillingBreakdown(roomTotal, addOnTotal, subtotal,
-                afterStrategy - subtotal, tax, total);
+    public PriceBreakdown calculateBreakdown(List<RoomType> rooms, List<String> addOns,
+                                             LocalDate checkIn, LocalDate checkOut, double discountPercent,
+                                             BillingStrategy strategy) {
+        return quoteCache.quote(rooms, addOns, checkIn, checkOut, discountPercent, strategy);
     }
 
     /**
-     * Check if date is weekend (Saturday or Sunday)
+     * Breakdown for a stored reservation: its rooms, add-ons and discount, the current billing
+     * strategy, then tax; the same figure {@code ReservationService} stores as its total.
      */
-    private boolean isWeekend(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    public PriceBreakdown calculateBreakdown(Reservation reservation) {
+        return pricingEngine.quote(reservation, null);
     }
 
-    /**
-     * Get price for a specific add-on
-     */
-    public static double getAddOnPrice(String addOn) {
-        return ADD_ON_PRICES.getOrDefault(addOn, 0.0);
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
     }
 
     /**
-     * Check if add-on is priced per night
+     * Cache behind the list-based breakdowns, e.g. to report its hit rate.
      */
-    public static boolean isAddOnPerNight(String addOn) {
-        return ADD_ON_PER_NIGHT.getOrDefault(addOn, false);
+    public QuoteCache.Stats getQuoteCacheStats() {
+        return quoteCache.getStats();
     }
 
     /**
-     * Get all available add-ons
+     * Add-ons guests can book, with their prices
      */
-    public static Map<String, Double> getAvailableAddOns() {
-        return new HashMap<>(ADD_ON_PRICES);
+    public AddOnCatalog getAddOnCatalog() {
+        return pricingEngine.getAddOnCatalog();
     }
 
     /**
-     * Calculate totals for a reservation, applying discount before loyalty and tax.
+     * Calculate totals for a reservation, applying discount before tax.
      */
     public double calculateTotal(Reservation reservation) {
-        if (reservation == null) {
-            return 0.0;
-        }
-
-        double baseSubtotal = reservation.calculateBaseSubtotal();
-        double discountPercent = reservation.getDiscountPercent();
-        double afterDiscount = baseSubtotal - (baseSubtotal * (discountPercent / 100.0));
-
-        double afterLoyalty = applyLoyaltyIfEnabled(reservation, afterDiscount);
-        double nonNegativeSubtotal = Math.max(afterLoyalty, 0.0);
-
-        double taxRate = pricingConfig != null ? pricingConfig.getTaxRate() : 0.10;
-        double tax = nonNegativeSubtotal * taxRate;
-
-        return Math.max(nonNegativeSubtotal + tax, 0.0);
-    }
-
-    private double applyLoyaltyIfEnabled(Reservation reservation, double amount) {
-        // Placeholder for future loyalty integration. Loyalty should be applied after discount.
-        return amount;
+        return calculateBreakdown(reservation).total();
     }
 }
-
-/**
- * Data class for billing breakdown
- */
-class BillingBreakdown {
-    private final double roomCharges;
-    private final double addOnCharges;
-    private final double subtotal;
-    private final double discount;
-    private final double tax;
-    private final double total;
-
-    public BillingBreakdown(double roomCharges, double addOnCharges, double subtotal,
-                            double discount, double tax, double total) {
-        this.roomCharges = roomCharges;
-        this.addOnCharges = addOnCharges;
-        this.subtotal = subtotal;
-        this.discount = discount;
-        this.tax = tax;
-        this.total = total;
-    }
-
-    public double getRoomCharges() { return roomCharges; }
-    public double getAddOnCharges() { return addOnCharges; }
-    public double getSubtotal() { return subtotal; }
-    public double getDiscount() { return discount; }
-    public double getTax() { return tax; }
-    public double getTotal() { return total; }
-}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each stage of a booking takes so slow commits show up in the logs.
+ * One instance per booking; not shared between threads.
+ */
+public class BookingStageTimer {
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final long startedAt = System.nanoTime();
+    private long lastMark = startedAt;
+
+    /**
+     * Close the current stage under the given name and start timing the next one.
+     */
+    public void mark(String stage) {
+        long now = System.nanoTime();
+        stageNanos.merge(stage, now - lastMark, Long::sum);
+        lastMark = now;
+    }
+
+    public long getStageNanos(String stage) {
+        return stageNanos.getOrDefault(stage, 0L);
+    }
+
+    public long getTotalNanos() {
+        return lastMark - startedAt;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : stageNanos.entrySet()) {
+            sb.append(entry.getKey()).append('=')
+                    .append(String.format("%.2fms", entry.getValue() / 1_000_000.0))
+                    .append(", ");
+        }
+        return sb.append(String.format("total=%.2fms", getTotalNanos() / 1_000_000.0)).toString();
+    }
+}
@@ -0,0 +1,119 @@
+package service;
+
+import repository.LoyaltyAccrual;
+import repository.LoyaltyAccrualRow;
+import repository.LoyaltyRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Posts earned points for every checked-out stay of a loyalty member that has not been
+ * credited yet.
+ *
+ * Stays are read in keyset pages (id order, no offsets) as plain rows, and each page is
+ * posted in one transaction with one balance update per guest, so a run over thousands of
+ * stays costs a few queries per page rather than a load and merge each. A stay earns once:
+ * stays already credited are skipped, so running the job again posts only new departures.
+ * {@link #requestAccrual()} runs it in the background, e.g. after each check-out.
+ */
+public class LoyaltyAccrualJob {
+    private static final Logger LOGGER = Logger.getLogger(LoyaltyAccrualJob.class.getName());
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final LoyaltyRepository loyaltyRepository;
+    private final LoyaltyService loyaltyService;
+    private final int pageSize;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loyalty-accrual");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LoyaltyAccrualJob(LoyaltyRepository loyaltyRepository, LoyaltyService loyaltyService) {
+        this(loyaltyRepository, loyaltyService, DEFAULT_PAGE_SIZE);
+    }
+
+    public LoyaltyAccrualJob(LoyaltyRepository loyaltyRepository, LoyaltyService loyaltyService, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.loyaltyRepository = loyaltyRepository;
+        this.loyaltyService = loyaltyService;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Credit checked-out stays on a background thread. Requests made before a queued run
+     * starts share that run; one made while a run is in progress queues another, so a stay
+     * checked out part way through is still credited.
+     */
+    public void requestAccrual() {
+        if (!requested.compareAndSet(false, true)) {
+            return;
+        }
+        background.execute(() -> {
+            requested.set(false);
+            try {
+                run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Background loyalty accrual failed", e);
+            }
+        });
+    }
+
+    /**
+     * Credit every uncredited checked-out stay, at the earn rate in effect now.
+     */
+    public synchronized Summary run() {
+        long started = System.nanoTime();
+        long scanned = 0;
+        long posted = 0;
+        long points = 0;
+        Set<Long> guests = new HashSet<>();
+
+        long afterId = 0L;
+        List<LoyaltyAccrualRow> page = loyaltyRepository.findAccrualPage(afterId, pageSize);
+        while (!page.isEmpty()) {
+            List<LoyaltyAccrual> accruals = new ArrayList<>(page.size());
+            for (LoyaltyAccrualRow row : page) {
+                int earned = Math.max(loyaltyService.calculateEarnedPoints(row.totalAmount()), 0);
+                accruals.add(new LoyaltyAccrual(row.reservationId(), row.guestId(), earned));
+                points += earned;
+                guests.add(row.guestId());
+            }
+            scanned += page.size();
+            posted += loyaltyRepository.postAccruals(accruals);
+
+            afterId = page.get(page.size() - 1).reservationId();
+            page = page.size() < pageSize ? List.of() : loyaltyRepository.findAccrualPage(afterId, pageSize);
+        }
+
+        Summary summary = new Summary(scanned, posted, points, guests.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        LOGGER.info("Loyalty accrual finished: " + summary);
+        return summary;
+    }
+
+    /**
+     * Outcome of a run: stays found and credited, points posted for them and how many guests they went to.
+     * Stays credited by a concurrent run in the meantime count as scanned, and their points as
+     * posted, but not as credited.
+     */
+    public record Summary(long scanned, long posted, long points, int guests, long elapsedMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d stays scanned, %d credited, %d points to %d guests, %d ms",
+                    scanned, posted, points, guests, elapsedMillis);
+        }
+    }
+}
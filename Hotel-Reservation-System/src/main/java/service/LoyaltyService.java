@@ -2,15 +2,34 @@ package service;
 
 import config.LoyaltyConfig;
 import model.Guest;
+import model.LoyaltyAccount;
+import model.LoyaltyLedgerEntry;
+import repository.LoyaltyRepository;
+import service.strategy.BillingPipeline;
+import util.Money;
+
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.logging.Logger;
+
 /**
- * Provides loyalty point earning and redemption calculations.
+ * Provides loyalty point earning and redemption calculations, and keeps members' points
+ * in the loyalty ledger when backed by a {@link LoyaltyRepository}.
  */
 public class LoyaltyService {
+    private static final Logger LOGGER = Logger.getLogger(LoyaltyService.class.getName());
+
     private final LoyaltyConfig loyaltyConfig;
+    private final LoyaltyRepository loyaltyRepository;
 
     public LoyaltyService(LoyaltyConfig loyaltyConfig) {
+        this(loyaltyConfig, null);
+    }
+
+    public LoyaltyService(LoyaltyConfig loyaltyConfig, LoyaltyRepository loyaltyRepository) {
         this.loyaltyConfig = loyaltyConfig;
+        this.loyaltyRepository = loyaltyRepository;
     }
 
     public int calculateEarnedPoints(double amountSpent) {
@@ -18,21 +37,103 @@ public class LoyaltyService {
     }
 
     public double applyRedemption(double amount, int pointsToRedeem) {
-        int redeemable = Math.min(pointsToRedeem, loyaltyConfig.getRedeemCap());
-        double credit = redeemable / 100.0;
-        return Math.max(0, amount - credit);
+        return Money.toDollars(redemption(pointsToRedeem).apply(Money.ofDollars(amount)));
     }
 
     /**
-     * Enroll a guest into the loyalty program and return a generated loyalty number.
-     * This basic implementation simply generates and returns an identifier; persistence
-     * can be added later when a loyalty repository exists.
+     * Billing steps for redeeming points: one cent per point up to the redeem cap in effect now,
+     * never taking the amount below zero. Pass it to a quote, or append it to a session's own steps.
+     */
+    public BillingPipeline redemption(int pointsToRedeem) {
+        long redeemable = Math.max(0, Math.min(pointsToRedeem, loyaltyConfig.getRedeemCap()));
+        return BillingPipeline.builder()
+                .pointsCredit(redeemable)
+                .floorAtZero()
+                .build();
+    }
+
+    /**
+     * Enroll a guest into the loyalty program and open their points account.
+     * A guest who already has a loyalty number keeps it.
+     *
+     * @return the guest's loyalty number
      */
     public String enrollGuest(Guest guest) {
-        return "LOY-" + UUID.randomUUID();
+        if (guest == null || guest.getId() == null) {
+            throw new IllegalArgumentException("A saved guest is required for loyalty enrollment");
+        }
+        String loyaltyNumber = requireRepository().enroll(guest.getId(),
+                "LOY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        guest.setLoyaltyNumber(loyaltyNumber);
+        LOGGER.info("Guest " + guest.getId() + " enrolled in loyalty program as " + loyaltyNumber);
+        return loyaltyNumber;
+    }
+
+    public Optional<LoyaltyAccount> findAccount(Long guestId) {
+        return loyaltyRepository != null ? loyaltyRepository.findAccount(guestId) : Optional.empty();
+    }
+
+    /**
+     * Points the guest can redeem now; 0 for a guest with no account.
+     */
+    public long getBalance(Long guestId) {
+        return findAccount(guestId).map(LoyaltyAccount::getBalancePoints).orElse(0L);
+    }
+
+    /**
+     * Redeem points from the guest's balance, e.g. toward a reservation's bill.
+     *
+     * @param reservationId reservation the points are applied to, or null
+     * @return false if the guest does not hold enough points; nothing is deducted then
+     */
+    public boolean redeemPoints(Guest guest, int points, Long reservationId) {
+        if (guest == null || guest.getId() == null) {
+            throw new IllegalArgumentException("Guest is required to redeem points");
+        }
+        if (points < loyaltyConfig.getMinimumRedeemPoints()) {
+            throw new IllegalArgumentException("At least " + loyaltyConfig.getMinimumRedeemPoints()
+                    + " points must be redeemed");
+        }
+        if (points > loyaltyConfig.getRedeemCap()) {
+            throw new IllegalArgumentException("At most " + loyaltyConfig.getRedeemCap()
+                    + " points can be redeemed at once");
+        }
+        boolean redeemed = requireRepository().redeem(guest.getId(), points, reservationId,
+                reservationId != null ? "Redeemed on reservation #" + reservationId : "Redeemed");
+        if (!redeemed) {
+            LOGGER.info("Guest " + guest.getId() + " has fewer than " + points + " points to redeem");
+        }
+        return redeemed;
+    }
+
+    /**
+     * Give back points redeemed for a payment that was not recorded. The ledger keeps both
+     * the redemption and its reversal.
+     */
+    public void restorePoints(Guest guest, int points, Long reservationId) {
+        if (guest == null || guest.getId() == null) {
+            throw new IllegalArgumentException("Guest is required to restore points");
+        }
+        requireRepository().reverseRedemption(guest.getId(), points, reservationId,
+                reservationId != null ? "Payment failed on reservation #" + reservationId : "Payment failed");
+        LOGGER.info("Restored " + points + " points to guest " + guest.getId());
+    }
+
+    /**
+     * The guest's most recent points earned and redeemed, newest first.
+     */
+    public List<LoyaltyLedgerEntry> getHistory(Long guestId, int limit) {
+        return loyaltyRepository != null ? loyaltyRepository.findHistory(guestId, limit) : List.of();
     }
 
     public LoyaltyConfig getLoyaltyConfig() {
         return loyaltyConfig;
     }
+
+    private LoyaltyRepository requireRepository() {
+        if (loyaltyRepository == null) {
+            throw new IllegalStateException("Loyalty points are not backed by a database");
+        }
+        return loyaltyRepository;
+    }
 }
@@ -0,0 +1,324 @@
+package service;
+
+import model.NightAudit;
+import model.ReservationAddOn;
+import model.ReservationStatus;
+import repository.NightAuditRepository;
+import repository.NightAuditRow;
+import repository.ReservationRepository;
+import repository.StayPricingRow;
+import service.pricing.PriceBreakdown;
+import service.pricing.PricingEngine;
+import util.Money;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Closes a business day: works out every in-house and departing folio's balance, posts the
+ * night's room revenue, counts no-shows, flags folios left unpaid and stores the day's
+ * {@link NightAudit}.
+ *
+ * Reservations are read in keyset pages, each page with its rooms, add-ons and payment
+ * ledger totals in three queries, and each page is priced on a fork-join pool while the
+ * next one is read. Stage times are kept with a {@link BookingStageTimer}: {@code load} is
+ * time spent reading, {@code compute} the part of pricing not hidden behind the reads,
+ * {@code tally} summing the results and {@code persist} writing the record.
+ *
+ * The night posted is the one starting on the business date, priced on its own: room
+ * charges for that night, per-night add-ons for one night and per-stay add-ons on the
+ * arrival night, each at its booked price, less the reservation discount, plus tax. Only
+ * checked-in guests post revenue; a stay due to arrive that day that is still booked or
+ * confirmed is a no-show and posts nothing.
+ *
+ * Once {@link #schedule scheduled}, the job closes each business day on its own thread
+ * shortly after midnight, and on start closes yesterday if nothing has audited it yet.
+ * Auditing a date again replaces its record.
+ */
+public class NightAuditJob {
+    private static final Logger LOGGER = Logger.getLogger(NightAuditJob.class.getName());
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    /** When the previous business day is closed, unless scheduled otherwise. */
+    public static final LocalTime DEFAULT_CLOSE_TIME = LocalTime.of(2, 0);
+
+    private final ReservationRepository reservationRepository;
+    private final NightAuditRepository nightAuditRepository;
+    private final PricingEngine pricingEngine;
+    private final ForkJoinPool pool;
+    private final int pageSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "night-audit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NightAuditJob(ReservationRepository reservationRepository, NightAuditRepository nightAuditRepository,
+                         PricingEngine pricingEngine) {
+        this(reservationRepository, nightAuditRepository, pricingEngine, ForkJoinPool.commonPool(), DEFAULT_PAGE_SIZE);
+    }
+
+    public NightAuditJob(ReservationRepository reservationRepository, NightAuditRepository nightAuditRepository,
+                         PricingEngine pricingEngine, ForkJoinPool pool, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.reservationRepository = reservationRepository;
+        this.nightAuditRepository = nightAuditRepository;
+        this.pricingEngine = pricingEngine;
+        this.pool = pool;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Close the day before every day at {@code closeAt}, on a background thread, starting
+     * with yesterday now if it has no record yet. A failed run is logged and the next day
+     * is still closed.
+     */
+    public void schedule(LocalTime closeAt) {
+        if (closeAt == null) {
+            throw new IllegalArgumentException("Close time is required");
+        }
+        scheduler.execute(() -> {
+            try {
+                catchUp(LocalDate.now());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Night audit catch-up failed", e);
+            }
+            scheduleNext(closeAt);
+        });
+    }
+
+    /**
+     * Stop closing days on schedule; a run in progress finishes.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Audit the day before {@code today} unless it already has a record.
+     *
+     * @return the new audit, or empty if the day was already closed
+     */
+    public Optional<Result> catchUp(LocalDate today) {
+        LocalDate yesterday = today.minusDays(1);
+        if (nightAuditRepository.findByDate(yesterday).isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(run(yesterday));
+    }
+
+    private void scheduleNext(LocalTime closeAt) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(closeAt);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        LocalDate businessDate = next.toLocalDate().minusDays(1);
+        scheduler.schedule(() -> {
+            try {
+                run(businessDate);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Night audit for " + businessDate + " failed", e);
+            }
+            scheduleNext(closeAt);
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Audit the business day {@code businessDate} and store its record, replacing any
+     * earlier record for the same date.
+     */
+    public synchronized Result run(LocalDate businessDate) {
+        if (businessDate == null) {
+            throw new IllegalArgumentException("Business date is required");
+        }
+        PricingEngine engine = pricingEngine.pinned();
+        BookingStageTimer timer = new BookingStageTimer();
+
+        Tally tally = new Tally();
+        List<NightAuditRow> page = reservationRepository.findNightAuditPage(businessDate, 0L, pageSize);
+        timer.mark("load");
+        while (!page.isEmpty()) {
+            List<NightAuditRow> current = page;
+            ForkJoinTask<List<Folio>> audited = pool.submit(() -> current.parallelStream()
+                    .map(row -> audit(engine, businessDate, row))
+                    .toList());
+
+            // Read ahead while the pool works on this page
+            long lastId = current.get(current.size() - 1).stay().reservationId();
+            page = current.size() < pageSize
+                    ? List.of()
+                    : reservationRepository.findNightAuditPage(businessDate, lastId, pageSize);
+            timer.mark("load");
+
+            List<Folio> folios = audited.join();
+            timer.mark("compute");
+            for (Folio folio : folios) {
+                tally.add(folio);
+            }
+            timer.mark("tally");
+        }
+
+        NightAudit record = tally.toRecord(businessDate, engine.getPricingConfig().getVersion());
+        record.setCompletedAt(LocalDateTime.now());
+        record.setElapsedMillis(timer.getTotalNanos() / 1_000_000);
+        record.setStageTimings(timer.toString());
+        nightAuditRepository.save(record);
+        timer.mark("persist");
+        record.setElapsedMillis(timer.getTotalNanos() / 1_000_000);
+        record.setStageTimings(timer.toString());
+
+        Result result = new Result(record, tally.unpaid(), timer);
+        LOGGER.info("Night audit for " + businessDate + " finished: " + result);
+        return result;
+    }
+
+    /**
+     * Balance and the night's posting for one reservation.
+     */
+    private static Folio audit(PricingEngine engine, LocalDate businessDate, NightAuditRow row) {
+        StayPricingRow stay = row.stay();
+        boolean departing = businessDate.equals(stay.checkOut());
+        boolean inHouse = !departing && row.status() == ReservationStatus.CHECKED_IN
+                && stay.checkIn() != null && !businessDate.isBefore(stay.checkIn());
+        boolean noShow = !departing && businessDate.equals(stay.checkIn())
+                && (row.status() == ReservationStatus.BOOKED || row.status() == ReservationStatus.CONFIRMED);
+
+        long totalCents = stay.totalAmount() != null ? Money.ofDollars(stay.totalAmount()) : 0;
+        if (totalCents <= 0 && stay.checkIn() != null && stay.checkOut() != null
+                && stay.checkOut().isAfter(stay.checkIn())) {
+            totalCents = engine.quoteBooked(stay.rooms(), stay.addOns(), stay.checkIn(), stay.checkOut(),
+                    stay.discountPercent(), null).totalCents();
+        }
+        long balanceCents = Money.subtract(totalCents, row.payments().netCents());
+
+        PriceBreakdown night = PriceBreakdown.EMPTY;
+        if (inHouse) {
+            night = engine.quoteBooked(stay.rooms(), nightAddOns(businessDate, stay), businessDate,
+                    businessDate.plusDays(1), stay.discountPercent(), null);
+        }
+        return new Folio(stay.reservationId(), departing, inHouse, noShow, totalCents, balanceCents, night);
+    }
+
+    /**
+     * Add-ons charged for the night: all of them on arrival, only those booked per night after.
+     */
+    private static List<ReservationAddOn> nightAddOns(LocalDate businessDate, StayPricingRow stay) {
+        if (stay.addOns().isEmpty() || businessDate.equals(stay.checkIn())) {
+            return stay.addOns();
+        }
+        List<ReservationAddOn> perNight = new ArrayList<>(stay.addOns().size());
+        for (ReservationAddOn addOn : stay.addOns()) {
+            if (addOn.isPerNight()) {
+                perNight.add(addOn);
+            }
+        }
+        return perNight;
+    }
+
+    /**
+     * Running totals for one audit; only touched from the thread running it.
+     */
+    private static final class Tally {
+        private int inHouse;
+        private int departures;
+        private int noShows;
+        private long roomRevenueCents;
+        private long addOnRevenueCents;
+        private long discountCents;
+        private long taxCents;
+        private long revenueCents;
+        private long outstandingCents;
+        private int unpaidDepartures;
+        private final List<Folio> unpaid = new ArrayList<>();
+
+        void add(Folio folio) {
+            if (folio.departing()) {
+                departures++;
+            }
+            if (folio.noShow()) {
+                noShows++;
+            }
+            if (folio.inHouse()) {
+                inHouse++;
+                PriceBreakdown night = folio.night();
+                roomRevenueCents += night.roomChargesCents();
+                addOnRevenueCents += night.addOnChargesCents();
+                discountCents += night.discountCents();
+                taxCents += night.taxCents();
+                revenueCents += night.totalCents();
+            }
+            if (folio.balanceCents() > 0) {
+                outstandingCents += folio.balanceCents();
+                unpaid.add(folio);
+                if (folio.departing()) {
+                    unpaidDepartures++;
+                }
+            }
+        }
+
+        /**
+         * Unpaid folios, departures first, then largest balance first.
+         */
+        List<Folio> unpaid() {
+            List<Folio> sorted = new ArrayList<>(unpaid);
+            sorted.sort(Comparator.comparing(Folio::departing).reversed()
+                    .thenComparing(Comparator.comparingLong(Folio::balanceCents).reversed()));
+            return List.copyOf(sorted);
+        }
+
+        NightAudit toRecord(LocalDate businessDate, long pricingVersion) {
+            NightAudit record = new NightAudit(businessDate);
+            record.setInHouse(inHouse);
+            record.setDepartures(departures);
+            record.setNoShows(noShows);
+            record.setRoomRevenueCents(roomRevenueCents);
+            record.setAddOnRevenueCents(addOnRevenueCents);
+            record.setDiscountCents(discountCents);
+            record.setTaxCents(taxCents);
+            record.setRevenueCents(revenueCents);
+            record.setOutstandingCents(outstandingCents);
+            record.setUnpaidFolios(unpaid.size());
+            record.setUnpaidDepartures(unpaidDepartures);
+            record.setPricingVersion(pricingVersion);
+            return record;
+        }
+    }
+
+    /**
+     * One reservation's folio at the close of the day, in cents. {@code night} is the posting
+     * for the business date, empty unless a checked-in guest stays that night; {@code noShow}
+     * marks a stay due that day that never checked in.
+     */
+    public record Folio(long reservationId, boolean departing, boolean inHouse, boolean noShow, long totalCents,
+                        long balanceCents, PriceBreakdown night) {
+    }
+
+    /**
+     * The stored audit record, the folios still owing money and how long each stage took.
+     */
+    public record Result(NightAudit audit, List<Folio> unpaidFolios, BookingStageTimer timings) {
+        @Override
+        public String toString() {
+            return String.format("%d in house, %d departing, %d no-shows, revenue %s, %d unpaid (%d departing) owing %s, %s",
+                    audit.getInHouse(), audit.getDepartures(), audit.getNoShows(), Money.format(audit.getRevenueCents()),
+                    audit.getUnpaidFolios(), audit.getUnpaidDepartures(), Money.format(audit.getOutstandingCents()),
+                    timings);
+        }
+    }
+}
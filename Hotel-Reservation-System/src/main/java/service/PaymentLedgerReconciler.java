@@ -0,0 +1,106 @@
+package service;
+
+import repository.PaymentRepository;
+import repository.PaymentTotals;
+import util.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Checks the payment ledger against the payment rows it summarises.
+ *
+ * Two grouped queries, one over the ledger and one summing payments per reservation, are
+ * compared in memory. A reservation whose numbers disagree is checked again on its own
+ * before it is reported, since a payment committed between the two queries shows up in
+ * one and not the other. With repair on, each confirmed mismatch is rebuilt from its
+ * payment rows; this is also how an existing database gets its ledger the first time.
+ */
+public class PaymentLedgerReconciler {
+    private static final Logger LOGGER = Logger.getLogger(PaymentLedgerReconciler.class.getName());
+
+    private final PaymentRepository paymentRepository;
+
+    public PaymentLedgerReconciler(PaymentRepository paymentRepository) {
+        this.paymentRepository = paymentRepository;
+    }
+
+    /**
+     * Compare every ledger row with its payments.
+     *
+     * @param repair rebuild mismatched ledger rows from the payment rows
+     */
+    public synchronized Result reconcile(boolean repair) {
+        long started = System.nanoTime();
+        Map<Long, PaymentTotals> ledger = paymentRepository.findAllLedgerTotals();
+        Map<Long, PaymentTotals> actual = paymentRepository.sumPaymentsByReservation();
+
+        TreeSet<Long> reservationIds = new TreeSet<>(ledger.keySet());
+        reservationIds.addAll(actual.keySet());
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        int repaired = 0;
+        for (Long reservationId : reservationIds) {
+            PaymentTotals recorded = ledger.get(reservationId);
+            PaymentTotals summed = actual.getOrDefault(reservationId, PaymentTotals.NONE);
+            if (agree(recorded, summed)) {
+                continue;
+            }
+            recorded = paymentRepository.findLedgerTotals(reservationId).orElse(null);
+            summed = paymentRepository.sumPayments(reservationId);
+            if (agree(recorded, summed)) {
+                continue;
+            }
+            mismatches.add(new Mismatch(reservationId, recorded, summed));
+            if (repair) {
+                paymentRepository.rebuildLedger(reservationId);
+                repaired++;
+            }
+        }
+
+        Result result = new Result(reservationIds.size(), List.copyOf(mismatches), repaired,
+                (System.nanoTime() - started) / 1_000_000);
+        if (mismatches.isEmpty()) {
+            LOGGER.info("Payment ledger reconciled: " + result);
+        } else {
+            LOGGER.warning("Payment ledger reconciled: " + result);
+        }
+        return result;
+    }
+
+    /**
+     * A reservation with no ledger row agrees with having no payments.
+     */
+    private static boolean agree(PaymentTotals recorded, PaymentTotals summed) {
+        return Objects.equals(recorded != null ? recorded : PaymentTotals.NONE, summed);
+    }
+
+    /**
+     * A ledger row that disagrees with its payments; {@code ledger} is null when the row is missing.
+     */
+    public record Mismatch(long reservationId, PaymentTotals ledger, PaymentTotals payments) {
+        public long differenceCents() {
+            long recorded = ledger != null ? ledger.netCents() : Money.ZERO;
+            return payments.netCents() - recorded;
+        }
+    }
+
+    /**
+     * Outcome of one reconciliation run.
+     */
+    public record Result(int checked, List<Mismatch> mismatches, int repaired, long elapsedMillis) {
+        public boolean consistent() {
+            return mismatches.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d reservations checked, %d mismatched, %d repaired, %d ms",
+                    checked, mismatches.size(), repaired, elapsedMillis);
+        }
+    }
+}
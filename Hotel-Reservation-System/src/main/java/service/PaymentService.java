@@ -1,25 +1,40 @@
 package service;
 
+import model.Guest;
 import model.Payment;
 import model.PaymentMethod;
 import model.PaymentType;
 import model.Reservation;
-import model.ReservationAddOn;
 import repository.PaymentRepository;
+import repository.PaymentTotals;
 import repository.ReservationRepository;
+import util.IdempotencyWindow;
+import util.Money;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class PaymentService {
+    private static final Logger LOGGER = Logger.getLogger(PaymentService.class.getName());
+
+    /** How long a processed idempotency key is answered from memory. */
+    public static final Duration DEDUPE_WINDOW = Duration.ofMinutes(15);
+    /** Most idempotency keys remembered at once. */
+    public static final int DEDUPE_CAPACITY = 10_000;
+    /** Longest idempotency key the payment table stores. */
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
     private final ReservationRepository reservationRepository;
     private final PaymentRepository paymentRepository;
     private final BillingContext billingContext;
     private final LoyaltyService loyaltyService;
+    private final IdempotencyWindow<Payment> recentPayments = new IdempotencyWindow<>(DEDUPE_CAPACITY, DEDUPE_WINDOW);
 
     public PaymentService(ReservationRepository reservationRepository,
                           PaymentRepository paymentRepository,
@@ -32,27 +47,72 @@ public class PaymentService {
     }
 
     public BigDecimal calculateTotalPaid(Reservation reservation) {
+        return Money.toBigDecimal(calculateTotalPaidCents(reservation));
+    }
+
+    public BigDecimal calculateBalance(Reservation reservation) {
+        return Money.toBigDecimal(calculateBalanceCents(reservation));
+    }
+
+    /**
+     * Payments net of refunds, in cents, read from the reservation's ledger row.
+     */
+    public long calculateTotalPaidCents(Reservation reservation) {
+        return getPaymentTotals(reservation).netCents();
+    }
+
+    /**
+     * Amount still owed in cents, never below zero.
+     */
+    public long calculateBalanceCents(Reservation reservation) {
+        return calculateBalanceCents(reservation, getPaymentTotals(reservation));
+    }
+
+    /**
+     * Amount still owed in cents given totals the caller already holds, never below zero.
+     */
+    public long calculateBalanceCents(Reservation reservation, PaymentTotals totals) {
+        long balance = Money.subtract(resolveReservationTotal(reservation), totals.netCents());
+        return Math.max(balance, Money.ZERO);
+    }
+
+    /**
+     * Paid and refunded totals for a reservation: one ledger row, or if it has none yet,
+     * a sum over its payment rows.
+     */
+    public PaymentTotals getPaymentTotals(Reservation reservation) {
         if (reservation == null || reservation.getId() == null) {
-            return BigDecimal.ZERO;
+            return PaymentTotals.NONE;
         }
-        List<Payment> payments = paymentRepository.findByReservationId(reservation.getId());
-        return payments.stream()
-                .map(this::normalizeAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+        return paymentRepository.findLedgerTotals(reservation.getId())
+                .orElseGet(() -> paymentRepository.sumPayments(reservation.getId()));
     }
 
-    public BigDecimal calculateBalance(Reservation reservation) {
-        BigDecimal total = resolveReservationTotal(reservation);
-        BigDecimal paid = calculateTotalPaid(reservation);
-        BigDecimal balance = total.subtract(paid);
-        return balance.max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Record a payment without an idempotency key; every call is a new payment.
+     */
+    public Payment processPayment(Long reservationId,
+                                  PaymentMethod method,
+                                  PaymentType type,
+                                  BigDecimal amount) {
+        return processPayment(null, reservationId, method, type, amount);
     }
 
-    public void processPayment(Long reservationId,
-                               PaymentMethod method,
-                               PaymentType type,
-                               BigDecimal amount) {
+    /**
+     * Record a payment at most once per idempotency key.
+     *
+     * A repeat with a key seen in the last {@link #DEDUPE_WINDOW} is answered from memory,
+     * and a repeat arriving while the first is still being written waits for it; older keys
+     * are found through the unique key column. Either way the original payment comes back
+     * and nothing is written. Reusing a key for a different payment is rejected.
+     *
+     * @param idempotencyKey chosen by the caller once per intended payment, or null for none
+     */
+    public Payment processPayment(String idempotencyKey,
+                                  Long reservationId,
+                                  PaymentMethod method,
+                                  PaymentType type,
+                                  BigDecimal amount) {
         if (reservationId == null) {
             throw new IllegalArgumentException("Reservation ID is required");
         }
@@ -62,20 +122,94 @@ public class PaymentService {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Amount must be greater than zero");
         }
+        BigDecimal scaledAmount = amount.setScale(2, RoundingMode.HALF_UP);
+        if (idempotencyKey == null) {
+            return recordPayment(null, reservationId, method, type, scaledAmount);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
 
-        Reservation reservation = reservationRepository.findById(reservationId)
+        Payment payment = recentPayments.execute(idempotencyKey, () -> paymentRepository
+                .findByIdempotencyKey(idempotencyKey)
+                .orElseGet(() -> recordPayment(idempotencyKey, reservationId, method, type, scaledAmount)));
+        if (!sameRequest(payment, reservationId, type, scaledAmount)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different payment");
+        }
+        return payment;
+    }
+
+    /**
+     * Pay toward a reservation with loyalty points: redeem them from the guest's balance and
+     * record a payment for their cash value. If the payment cannot be recorded, the points are
+     * given back with a reversal entry before the failure is rethrown.
+     *
+     * @return the recorded payment, or empty if the guest does not hold enough points
+     */
+    public Optional<Payment> payWithPoints(Long reservationId, Guest guest, int points) {
+        if (reservationId == null) {
+            throw new IllegalArgumentException("Reservation ID is required");
+        }
+        if (loyaltyService == null) {
+            throw new IllegalStateException("Loyalty points are not available");
+        }
+        if (!loyaltyService.redeemPoints(guest, points, reservationId)) {
+            return Optional.empty();
+        }
+        try {
+            BigDecimal value = Money.toBigDecimal(Money.ofDollars(
+                    loyaltyService.getLoyaltyConfig().calculateDiscount(points)));
+            return Optional.of(processPayment(reservationId, PaymentMethod.LOYALTY_POINTS, PaymentType.NORMAL, value));
+        } catch (RuntimeException ex) {
+            try {
+                loyaltyService.restorePoints(guest, points, reservationId);
+            } catch (RuntimeException restoreEx) {
+                LOGGER.log(Level.SEVERE, "Failed to restore " + points + " points to guest " + guest.getId(), restoreEx);
+                ex.addSuppressed(restoreEx);
+            }
+            throw ex;
+        }
+    }
+
+    private Payment recordPayment(String idempotencyKey,
+                                  Long reservationId,
+                                  PaymentMethod method,
+                                  PaymentType type,
+                                  BigDecimal amount) {
+        Reservation reservation = reservationRepository.findShallowById(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
 
         Payment payment = new Payment();
         payment.setReservation(reservation);
         payment.setMethod(method);
         payment.setType(type);
-        payment.setAmount(amount.setScale(2, RoundingMode.HALF_UP));
+        payment.setAmount(amount);
         payment.setCreatedAt(LocalDateTime.now());
         payment.setCreatedBy("System");
+        payment.setIdempotencyKey(idempotencyKey);
+
+        try {
+            return paymentRepository.save(payment);
+        } catch (RuntimeException ex) {
+            // Another instance won the race on the unique key column; its payment is the answer
+            if (idempotencyKey != null) {
+                Optional<Payment> winner = paymentRepository.findByIdempotencyKey(idempotencyKey);
+                if (winner.isPresent()) {
+                    LOGGER.info("Payment with idempotency key " + idempotencyKey + " was already recorded");
+                    return winner.get();
+                }
+            }
+            throw ex;
+        }
+    }
 
-        reservation.getPayments().add(payment);
-        paymentRepository.save(payment);
+    private static boolean sameRequest(Payment payment, Long reservationId, PaymentType type, BigDecimal amount) {
+        return payment.getReservation() != null
+                && reservationId.equals(payment.getReservation().getId())
+                && payment.getType() == type
+                && payment.getAmount() != null
+                && payment.getAmount().compareTo(amount) == 0;
     }
 
     public Optional<Reservation> findReservation(Long reservationId) {
@@ -86,31 +220,21 @@ public class PaymentService {
         return paymentRepository.findByReservationId(reservationId);
     }
 
-    private BigDecimal resolveReservationTotal(Reservation reservation) {
+    private long resolveReservationTotal(Reservation reservation) {
         if (reservation == null) {
-            return BigDecimal.ZERO;
+            return Money.ZERO;
         }
 
         Double totalAmount = reservation.getTotalAmount();
         if (totalAmount != null && totalAmount > 0) {
-            return BigDecimal.valueOf(totalAmount);
+            return Money.ofDollars(totalAmount);
         }
 
-        if (billingContext != null && reservation.getRooms() != null && reservation.getCheckIn() != null && reservation.getCheckOut() != null) {
-            List<String> addOns = reservation.getAddOns() != null
-                    ? reservation.getAddOns().stream().map(ReservationAddOn::getAddOnName).collect(Collectors.toList())
-                    : List.of();
-            double calculated = billingContext.calculateTotal(reservation.getRooms(), addOns, reservation.getCheckIn(), reservation.getCheckOut());
-            return BigDecimal.valueOf(calculated);
+        if (billingContext != null) {
+            return billingContext.calculateBreakdown(reservation).totalCents();
         }
 
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
-    private BigDecimal normalizeAmount(Payment payment) {
-        if (payment.getType() == PaymentType.REFUND) {
-            return payment.getAmount().negate();
-        }
-        return payment.getAmount();
-    }
 }
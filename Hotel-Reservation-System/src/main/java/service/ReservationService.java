@@ -3,8 +3,6 @@
 // ============================================================================
 package service;
 
-import java.util.ArrayList;
-
 import model.Guest;
 import model.Reservation;
 import model.ReservationStatus;
@@ -12,23 +10,28 @@ import model.RoomType;
 import repository.GuestRepository;
 import repository.ReservationRepository;
 import repository.RoomRepository;
+import repository.UnitOfWork;
 import security.AdminUser;
 import security.AuthenticationService;
+import service.availability.ReservationAdmission;
+import service.pricing.PriceBreakdown;
+import service.pricing.PricingEngine;
+import util.ActivityLogger;
 import util.ValidationUtils;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import util.ActivityLogger;
-// ADD these imports at the top of ReservationService.java
 
-import config.PricingConfig;
-import model.ReservationAddOn;
-import service.BillingContext;
-import java.time.DayOfWeek;
-import java.time.temporal.ChronoUnit;
-import java.util.Map;
 /**
  * Business layer gateway that validates reservations before persistence.
  * Enhanced with full booking workflow including rooms and add-ons.
@@ -40,15 +43,25 @@ public class ReservationService {
     private final ReservationRepository reservationRepository;
     private final RoomRepository roomRepository;
     private final AuthenticationService authenticationService;
+    private final UnitOfWork unitOfWork;
+    private final ReservationAdmission reservationAdmission;
+    private final PricingEngine pricingEngine;
+    private final List<Runnable> checkOutListeners = new CopyOnWriteArrayList<>();
 
     public ReservationService(GuestRepository guestRepository,
                               ReservationRepository reservationRepository,
                               RoomRepository roomRepository,
-                              AuthenticationService authenticationService) {
+                              AuthenticationService authenticationService,
+                              UnitOfWork unitOfWork,
+                              ReservationAdmission reservationAdmission,
+                              PricingEngine pricingEngine) {
         this.guestRepository = guestRepository;
         this.reservationRepository = reservationRepository;
         this.roomRepository = roomRepository;
         this.authenticationService = authenticationService;
+        this.unitOfWork = unitOfWork;
+        this.reservationAdmission = reservationAdmission;
+        this.pricingEngine = pricingEngine;
     }
 
     /**
@@ -58,20 +71,28 @@ public class ReservationService {
         ValidationUtils.require(checkIn != null && checkOut != null && !checkOut.isBefore(checkIn),
                 "Check-out date must be after check-in date.");
 
-        Guest persisted = guestRepository.save(guest);
-        Reservation reservation = new Reservation();
-        reservation.setGuest(persisted);
-        reservation.setCheckIn(checkIn);
-        reservation.setCheckOut(checkOut);
-        reservation.setStatus(ReservationStatus.BOOKED);
+        return unitOfWork.execute(entityManager -> {
+            Guest persisted = guestRepository.save(guest);
+            Reservation reservation = new Reservation();
+            reservation.setGuest(persisted);
+            reservation.setCheckIn(checkIn);
+            reservation.setCheckOut(checkOut);
+            reservation.setStatus(ReservationStatus.BOOKED);
 
-        return reservationRepository.save(reservation);
+            return reservationRepository.save(reservation);
+        });
     }
 
     /**
      * Create a complete reservation with rooms and add-ons
      * This is the main method used by the kiosk system
      *
+     * The guest, reservation, room links and add-ons are written in a single
+     * transaction (one commit). The rooms are resolved with a single query before
+     * admission, so capacity is checked against the stored room types.
+     * The commit runs under the admission locks for the requested rooms and dates,
+     * so concurrent kiosks cannot both take the last room of a type.
+     *
      * @param reservation Reservation object with guest, dates, and status
      * @param rooms List of selected room types
      * @param addOns List of selected add-on service names
@@ -79,7 +100,18 @@ public class ReservationService {
      */
     public Reservation createReservation(Reservation reservation, List<RoomType> rooms,
                                          List<String> addOns) {
+        return createReservation(reservation, rooms, addOns, null);
+    }
+
+    /**
+     * Create a reservation that confirms an inventory hold placed earlier in the kiosk flow.
+     * The held rooms count as free for this booking; the caller releases the hold afterwards.
+     * An unknown or expired hold id is treated like no hold at all.
+     */
+    public Reservation createReservation(Reservation reservation, List<RoomType> rooms,
+                                         List<String> addOns, Long holdId) {
         LOGGER.info("Creating new reservation with rooms and add-ons");
+        BookingStageTimer timer = new BookingStageTimer();
 
         // Validate reservation data
         validateReservation(reservation);
@@ -88,123 +120,73 @@ public class ReservationService {
         Guest guest = reservation.getGuest();
         validateGuest(guest);
 
-        // Save or retrieve guest
-        Guest persistedGuest = saveOrUpdateGuest(guest);
-        reservation.setGuest(persistedGuest);
-
         // Validate room selection
         ValidationUtils.require(rooms != null && !rooms.isEmpty(),
                 "At least one room must be selected");
+        timer.mark("validate");
 
+        // Resolve the rooms first so admission counts the stored types, not whatever the caller filled in
         List<RoomType> managedRooms = attachManagedRooms(rooms);
-
-        // Calculate and save total amount using BillingContext
-        long nights = ChronoUnit.DAYS.between(reservation.getCheckIn(), reservation.getCheckOut());
-        double roomTotal = calculateRoomCharges(managedRooms, reservation.getCheckIn(), nights);
-        double addOnTotal = calculateAddOnCharges(addOns, nights);
-        double subtotal = roomTotal + addOnTotal;
-
-        // Apply discount if exists
-        double discountPercent = reservation.getDiscountPercent();
-        double discountAmount = subtotal * (discountPercent / 100.0);
-        double afterDiscount = subtotal - discountAmount;
-
-        // Calculate tax
-        double taxRate = 0.13; // 13% tax
-        double tax = afterDiscount * taxRate;
-
-        // Set total on reservation
-        double totalAmount = afterDiscount + tax;
-        reservation.setTotalAmount(totalAmount);
-
-        // IMPORTANT: Clear and add to existing collection, don't replace it
-        reservation.getAddOns().clear();
-
-        // Create add-on entities and add them to the existing collection
-        if (addOns != null && !addOns.isEmpty()) {
-            Map<String, Double> addOnPrices = BillingContext.getAvailableAddOns();
-
-            for (String addOnName : addOns) {
-                Double price = addOnPrices.get(addOnName);
-                if (price != null) {
-                    boolean perNight = BillingContext.isAddOnPerNight(addOnName);
-                    ReservationAddOn addOn = new ReservationAddOn(reservation, addOnName, price, perNight);
-                    reservation.getAddOns().add(addOn);
-                }
-            }
-        }
-
-        // Save reservation with all associations
-        Reservation saved = reservationRepository.saveOrUpdate(reservation, managedRooms);
+        timer.mark("rooms");
+
+        Reservation saved = reservationAdmission.admit(countByType(managedRooms),
+                reservation.getCheckIn(), reservation.getCheckOut(), reservation.getId(), holdId,
+                () -> unitOfWork.execute(entityManager -> {
+            // Save or retrieve guest
+            Guest persistedGuest = saveOrUpdateGuest(guest);
+            reservation.setGuest(persistedGuest);
+            timer.mark("guest");
+
+            // IMPORTANT: Clear and add to existing collection, don't replace it
+            reservation.getAddOns().clear();
+
+            // Book the selected add-ons at today's catalog prices and add them to the existing collection
+            reservation.getAddOns().addAll(pricingEngine.bookAddOns(reservation, addOns));
+
+            // Price the stay as the kiosk quoted it: add-ons as booked, the discount, the default strategy and tax
+            PriceBreakdown quote = pricingEngine.quoteBooked(managedRooms, reservation.getAddOns(),
+                    reservation.getCheckIn(), reservation.getCheckOut(), reservation.getDiscountPercent(), null);
+            reservation.setTotalAmount(quote.total());
+            timer.mark("pricing");
+
+            // Save reservation with all associations
+            Reservation persisted = reservationRepository.saveOrUpdate(reservation, managedRooms);
+            entityManager.flush();
+            timer.mark("persist");
+            return persisted;
+        }));
+        timer.mark("commit");
 
         LOGGER.info(String.format("Reservation created: ID=%d, Guest=%s %s, Total=$%.2f, Rooms=%d, AddOns=%d",
                 saved.getId(),
-                persistedGuest.getFirstName(),
-                persistedGuest.getLastName(),
-                totalAmount,
+                saved.getGuest().getFirstName(),
+                saved.getGuest().getLastName(),
+                saved.getTotalAmount(),
                 rooms.size(),
                 saved.getAddOns().size()));
+        LOGGER.info("Booking pipeline timings: " + timer);
 
         return saved;
     }
 
     /**
      * Update an existing reservation
+     *
+     * @throws ReservationConflictException if its rooms are no longer free for its dates
      */
     public Reservation updateReservation(Reservation reservation) {
         LOGGER.info("Updating reservation: " + reservation.getId());
 
         validateReservation(reservation);
 
-        return reservationRepository.saveOrUpdate(reservation, reservation.getRooms());
-    }
-    private double calculateRoomCharges(List<RoomType> rooms, LocalDate checkIn, long nights) {
-        PricingConfig pricingConfig = new PricingConfig();
-        double total = 0.0;
-
-        for (RoomType room : rooms) {
-            double roomBasePrice = room.getBasePrice();
-            LocalDate currentDate = checkIn;
-            for (int i = 0; i < nights; i++) {
-                double nightPrice = roomBasePrice;
-                if (isWeekend(currentDate)) {
-                    nightPrice *= pricingConfig.getWeekendMultiplier();
-                } else {
-                    nightPrice *= pricingConfig.getWeekdayMultiplier();
-                }
-
-                if (pricingConfig.isPeakSeason(currentDate)) {
-                    nightPrice *= pricingConfig.getPeakSeasonMultiplier();
-                }
-
-                total += nightPrice;
-                currentDate = currentDate.plusDays(1);
-            }
+        List<RoomType> managedRooms = attachManagedRooms(reservation.getRooms());
+        if (reservation.getStatus() == ReservationStatus.CANCELLED) {
+            return reservationRepository.saveOrUpdate(reservation, managedRooms);
         }
-
-        return total;
-    }
-
-    private double calculateAddOnCharges(List<String> addOns, long nights) {
-        if (addOns == null) return 0.0;
-
-        double total = 0.0;
-        Map<String, Double> addOnPrices = BillingContext.getAvailableAddOns();
-
-        for (String addOn : addOns) {
-            Double price = addOnPrices.get(addOn);
-            if (price == null) continue;
-
-            boolean perNight = BillingContext.isAddOnPerNight(addOn);
-            total += perNight ? (price * nights) : price;
-        }
-
-        return total;
-    }
-
-    private boolean isWeekend(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-        return day == DayOfWeek.FRIDAY || day == DayOfWeek.SATURDAY;
+        // New dates or rooms are re-checked under the admission locks; the stay's own nights count as free
+        return reservationAdmission.admit(countByType(managedRooms),
+                reservation.getCheckIn(), reservation.getCheckOut(), reservation.getId(),
+                () -> reservationRepository.saveOrUpdate(reservation, managedRooms));
     }
     /**
      * Retrieve every reservation in the system.
@@ -258,32 +240,46 @@ public class ReservationService {
             Reservation reservation = existing.get();
             reservation.setStatus(ReservationStatus.CHECKED_OUT);
             reservationRepository.saveOrUpdate(reservation, reservation.getRooms());
+            unitOfWork.afterCommit(() -> {
+                for (Runnable listener : checkOutListeners) {
+                    listener.run();
+                }
+            });
             LOGGER.info("Reservation checked out successfully");
         } else {
             throw new IllegalArgumentException("Reservation not found: " + reservationId);
         }
     }
 
+    /**
+     * Run the listener after every check-out commits, on the thread that checked out; it
+     * should hand any real work off.
+     */
+    public void addCheckOutListener(Runnable listener) {
+        checkOutListeners.add(listener);
+    }
+
     public void saveWithConflictCheck(Reservation reservation, List<RoomType> rooms) {
         if (rooms == null) {
             rooms = new java.util.ArrayList<>();
         }
         List<RoomType> managedRooms = attachManagedRooms(rooms);
-        for (RoomType room : managedRooms) {
-            boolean conflict = reservationRepository.hasConflict(
-                    room,
-                    reservation.getCheckIn(),
-                    reservation.getCheckOut(),
-                    reservation.getId()
-            );
-            if (conflict) {
-                throw new ReservationConflictException(
-                        "Room " + room.getType().name() + " is not available for the selected dates."
-                );
+        // Re-check capacity and save while holding the admission locks for these rooms and dates
+        reservationAdmission.admit(countByType(managedRooms),
+                reservation.getCheckIn(), reservation.getCheckOut(), reservation.getId(), () -> {
+                    reservation.setStatus(ReservationStatus.BOOKED);
+                    return reservationRepository.saveOrUpdate(reservation, managedRooms);
+                });
+    }
+
+    private static Map<RoomType.Type, Integer> countByType(List<RoomType> rooms) {
+        Map<RoomType.Type, Integer> counts = new EnumMap<>(RoomType.Type.class);
+        for (RoomType room : rooms) {
+            if (room != null && room.getType() != null) {
+                counts.merge(room.getType(), 1, Integer::sum);
             }
         }
-        reservation.setStatus(ReservationStatus.BOOKED);
-        reservationRepository.saveOrUpdate(reservation, managedRooms);
+        return counts;
     }
 
     public void cancelReservation(Reservation reservation) {
@@ -320,48 +316,13 @@ public class ReservationService {
         LOGGER.info(String.format("Updated total for reservation %d: $%.2f", reservationId, total));
     }
     public double calculateReservationTotal(Reservation reservation) {
-        if (reservation == null || reservation.getCheckIn() == null ||
-                reservation.getCheckOut() == null || reservation.getRooms() == null) {
-            return 0.0;
-        }
-
-        long nights = ChronoUnit.DAYS.between(reservation.getCheckIn(), reservation.getCheckOut());
-        if (nights <= 0) {
-            return 0.0;
-        }
-
-        // 1. Calculate room charges with dynamic pricing
-        double roomTotal = calculateRoomCharges(reservation.getRooms(), reservation.getCheckIn(), nights);
-
-        // 2. Calculate add-on charges
-        List<String> addOnNames = new ArrayList<>();
-        if (reservation.getAddOns() != null) {
-            for (ReservationAddOn addOn : reservation.getAddOns()) {
-                addOnNames.add(addOn.getAddOnName());
-            }
+        PriceBreakdown price = pricingEngine.quote(reservation, null);
+        if (reservation != null && LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Reservation %d calculation: rooms=%.2f, addons=%.2f, subtotal=%.2f, discount=%.2f, tax=%.2f, total=%.2f",
+                    reservation.getId(), price.roomCharges(), price.addOnCharges(), price.subtotal(),
+                    price.discount(), price.tax(), price.total()));
         }
-        double addOnTotal = calculateAddOnCharges(addOnNames, nights);
-
-        // 3. Subtotal before discount
-        double subtotal = roomTotal + addOnTotal;
-
-        // 4. Apply discount
-        double discountPercent = reservation.getDiscountPercent() != null ? reservation.getDiscountPercent() : 0.0;
-        double discountAmount = subtotal * (discountPercent / 100.0);
-        double afterDiscount = subtotal - discountAmount;
-
-        // 5. Calculate tax on discounted amount
-        PricingConfig pricingConfig = new PricingConfig();
-        double taxRate = pricingConfig.getTaxRate();
-        double tax = afterDiscount * taxRate;
-
-        // 6. Grand total
-        double grandTotal = afterDiscount + tax;
-
-        LOGGER.fine(String.format("Reservation %d calculation: rooms=%.2f, addons=%.2f, subtotal=%.2f, discount=%.2f%%, afterDiscount=%.2f, tax=%.2f, total=%.2f",
-                reservation.getId(), roomTotal, addOnTotal, subtotal, discountPercent, afterDiscount, tax, grandTotal));
-
-        return grandTotal;
+        return price.total();
     }
 
     public void applyDiscount(Long reservationId, double percent) {
@@ -393,7 +354,7 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found: " + reservationId));
 
-        double base = reservation.calculateBaseSubtotal();
+        double base = pricingEngine.quote(reservation, null).subtotal();
         double discountAmount = base * (percent / 100.0);
         if (discountAmount > base) {
             throw new IllegalArgumentException("Discount would make subtotal negative.");
@@ -420,8 +381,7 @@ public class ReservationService {
      */
     public List<Reservation> searchByGuestName(String name) {
         LOGGER.info("Searching reservations for guest: " + name);
-        // TODO: Implement in repository
-        return List.of();
+        return reservationRepository.findByGuestName(name);
     }
 
     /**
@@ -429,8 +389,7 @@ public class ReservationService {
      */
     public List<Reservation> searchByDateRange(LocalDate startDate, LocalDate endDate) {
         LOGGER.info(String.format("Searching reservations from %s to %s", startDate, endDate));
-        // TODO: Implement in repository
-        return List.of();
+        return reservationRepository.findByDateRange(startDate, endDate);
     }
 
     /**
@@ -438,8 +397,7 @@ public class ReservationService {
      */
     public List<Reservation> searchByStatus(String status) {
         LOGGER.info("Searching reservations with status: " + status);
-        // TODO: Implement in repository
-        return List.of();
+        return reservationRepository.findByStatus(status);
     }
 
     /**
@@ -471,22 +429,45 @@ public class ReservationService {
                 "Valid email address is required");
     }
 
+    /**
+     * Resolve the requested rooms to persisted RoomType rows with one query,
+     * keeping the requested order and duplicates (two doubles = DOUBLE twice).
+     */
     private List<RoomType> attachManagedRooms(List<RoomType> rooms) {
         if (rooms == null || rooms.isEmpty()) {
             return new ArrayList<>();
         }
 
+        Set<Long> ids = new HashSet<>();
+        Set<RoomType.Type> types = new HashSet<>();
+        for (RoomType room : rooms) {
+            if (room == null) continue;
+            if (room.getId() != null) {
+                ids.add(room.getId());
+            }
+            if (room.getType() != null) {
+                types.add(room.getType());
+            }
+        }
+
+        Map<Long, RoomType> byId = new HashMap<>();
+        Map<RoomType.Type, RoomType> byType = new EnumMap<>(RoomType.Type.class);
+        for (RoomType found : roomRepository.findByIdsOrTypes(ids, types)) {
+            byId.put(found.getId(), found);
+            byType.put(found.getType(), found);
+        }
+
         List<RoomType> managed = new ArrayList<>();
         for (RoomType room : rooms) {
             if (room == null) continue;
 
             RoomType managedRoom = null;
             if (room.getId() != null) {
-                managedRoom = roomRepository.findById(room.getId()).orElse(null);
+                managedRoom = byId.get(room.getId());
             }
 
             if (managedRoom == null && room.getType() != null) {
-                managedRoom = roomRepository.findByType(room.getType()).orElse(null);
+                managedRoom = byType.get(room.getType());
             }
 
             if (managedRoom == null) {
@@ -7,13 +7,17 @@ import events.RoomAvailabilityObserver;
 import events.RoomAvailabilitySubject;
 import model.RoomType;
 import repository.RoomRepository;
-import repository.ReservationRepository;
+import service.availability.AvailabilityEngine;
+import service.availability.FlexibleDateSearch;
+import service.availability.RoomCombinationSolver;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,35 +27,52 @@ import java.util.stream.Collectors;
 public class RoomService {
     private static final Logger LOGGER = Logger.getLogger(RoomService.class.getName());
 
+    private static final RoomType.Type[] TYPES = RoomType.Type.values();
+
     private final RoomAvailabilitySubject availabilitySubject;
-    private final Map<String, Integer> availabilityByType = new HashMap<>();
+    /** Rooms currently available per type, indexed by {@link RoomType.Type} ordinal. */
+    private final AtomicIntegerArray availableByType = new AtomicIntegerArray(TYPES.length);
     private final RoomRepository roomRepository;
-    private final ReservationRepository reservationRepository;
+    private final AvailabilityEngine availabilityEngine;
+    private final FlexibleDateSearch flexibleDateSearch;
 
     public RoomService(RoomAvailabilitySubject availabilitySubject) {
         this.availabilitySubject = availabilitySubject;
         this.roomRepository = null;
-        this.reservationRepository = null;
+        this.availabilityEngine = null;
+        this.flexibleDateSearch = null;
         initializeDefaultAvailability();
     }
 
     public RoomService(RoomAvailabilitySubject availabilitySubject,
                        RoomRepository roomRepository,
-                       ReservationRepository reservationRepository) {
+                       AvailabilityEngine availabilityEngine,
+                       FlexibleDateSearch flexibleDateSearch) {
         this.availabilitySubject = availabilitySubject;
         this.roomRepository = roomRepository;
-        this.reservationRepository = reservationRepository;
-        initializeDefaultAvailability();
+        this.availabilityEngine = availabilityEngine;
+        this.flexibleDateSearch = flexibleDateSearch;
+        initializePersistedAvailability();
+    }
+
+    /**
+     * Initialize room availability from the inventory totals stored on each room type
+     */
+    private void initializePersistedAvailability() {
+        for (RoomType roomType : roomRepository.findAll()) {
+            availableByType.set(roomType.getType().ordinal(), roomType.getTotalRooms());
+        }
+        LOGGER.info("Room availability initialized from persisted inventory");
     }
 
     /**
      * Initialize default room availability for each type
      */
     private void initializeDefaultAvailability() {
-        availabilityByType.put("SINGLE", 10);
-        availabilityByType.put("DOUBLE", 8);
-        availabilityByType.put("DELUXE", 5);
-        availabilityByType.put("PENTHOUSE", 2);
+        availableByType.set(RoomType.Type.SINGLE.ordinal(), 10);
+        availableByType.set(RoomType.Type.DOUBLE.ordinal(), 8);
+        availableByType.set(RoomType.Type.DELUXE.ordinal(), 5);
+        availableByType.set(RoomType.Type.PENTHOUSE.ordinal(), 2);
         LOGGER.info("Default room availability initialized");
     }
 
@@ -64,20 +85,35 @@ public class RoomService {
     }
 
     public void updateAvailability(String roomType, int availableCount) {
-        int previousCount = availabilityByType.getOrDefault(roomType, 0);
-        availabilityByType.put(roomType, availableCount);
+        RoomType.Type type = typeOf(roomType);
+        if (type == null) {
+            LOGGER.warning("Ignoring availability update for unknown room type: " + roomType);
+            return;
+        }
+        updateAvailability(type, availableCount);
+    }
+
+    public void updateAvailability(RoomType.Type roomType, int availableCount) {
+        int previousCount = availableByType.getAndSet(roomType.ordinal(), availableCount);
 
-        LOGGER.info(String.format("Room availability updated: %s from %d to %d",
-                roomType, previousCount, availableCount));
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Room availability updated: %s from %d to %d",
+                    roomType, previousCount, availableCount));
+        }
 
-        // Notify observers if availability increased (rooms became available)
+        // Notify observers only if availability really increased (rooms became available)
         if (availableCount > previousCount) {
-            availabilitySubject.notifyChange(roomType, availableCount);
+            availabilitySubject.notifyChange(roomType.name(), availableCount);
         }
     }
 
     public int getAvailability(String roomType) {
-        return availabilityByType.getOrDefault(roomType, 0);
+        RoomType.Type type = typeOf(roomType);
+        return type != null ? getAvailability(type) : 0;
+    }
+
+    public int getAvailability(RoomType.Type roomType) {
+        return availableByType.get(roomType.ordinal());
     }
 
     /**
@@ -93,9 +129,9 @@ public class RoomService {
 
         List<RoomType> availableRooms = new ArrayList<>();
 
-        // If repository is available, query from database
-        if (roomRepository != null && reservationRepository != null) {
-            availableRooms = queryAvailableRoomsFromDatabase(checkIn, checkOut);
+        // If the availability engine is wired, use persisted inventory and the occupancy calendar
+        if (availabilityEngine != null) {
+            availableRooms = availabilityEngine.getAvailableRoomTypes(checkIn, checkOut);
         } else {
             // Otherwise, use in-memory availability
             availableRooms = getAvailableRoomsFromMemory();
@@ -106,31 +142,42 @@ public class RoomService {
     }
 
     /**
-     * Query available rooms from database considering existing reservations
+     * Available room count per type for a date range, computed in one pass
      */
-    private List<RoomType> queryAvailableRoomsFromDatabase(LocalDate checkIn, LocalDate checkOut) {
-        // Get all room types
-        List<RoomType> allRoomTypes = roomRepository.findAll();
-
-        // For each room type, check if rooms are available
-        List<RoomType> available = new ArrayList<>();
-        for (RoomType roomType : allRoomTypes) {
-            int totalRooms = availabilityByType.getOrDefault(roomType.getType().name(), 0);
-
-            // Count booked rooms for this type in the date range
-            int bookedRooms = reservationRepository.countBookedRooms(
-                    roomType.getType().name(), checkIn, checkOut);
+    public Map<RoomType.Type, Integer> getAvailableCounts(LocalDate checkIn, LocalDate checkOut) {
+        if (availabilityEngine != null) {
+            return availabilityEngine.getAvailableCounts(checkIn, checkOut);
+        }
 
-            int availableCount = totalRooms - bookedRooms;
+        Map<RoomType.Type, Integer> counts = new EnumMap<>(RoomType.Type.class);
+        for (RoomType.Type type : TYPES) {
+            counts.put(type, availableByType.get(type.ordinal()));
+        }
+        return counts;
+    }
 
-            if (availableCount > 0) {
-                available.add(roomType);
-                LOGGER.fine(String.format("%s: %d available (%d total, %d booked)",
-                        roomType.getType(), availableCount, totalRooms, bookedRooms));
-            }
+    /**
+     * Availability grid for flexible dates: for every check-in within +/- windowDays of the
+     * preferred date, the room types free for the whole stay and their quoted room price
+     */
+    public List<FlexibleDateSearch.DateOption> searchFlexibleDates(LocalDate preferredCheckIn,
+                                                                   int nights, int windowDays) {
+        if (flexibleDateSearch == null) {
+            throw new IllegalStateException("Flexible date search is not configured");
         }
+        LOGGER.info(String.format("Flexible search around %s for %d nights (+/- %d days)",
+                preferredCheckIn, nights, windowDays));
+        return flexibleDateSearch.search(preferredCheckIn, nights, windowDays);
+    }
 
-        return available;
+    /**
+     * Booked and total rooms per type for each night in the range, read from the occupancy calendar
+     */
+    public List<AvailabilityEngine.NightlyOccupancy> getOccupancy(LocalDate from, LocalDate to) {
+        if (availabilityEngine == null) {
+            return List.of();
+        }
+        return availabilityEngine.occupancy(from, to);
     }
 
     /**
@@ -139,10 +186,9 @@ public class RoomService {
     private List<RoomType> getAvailableRoomsFromMemory() {
         List<RoomType> available = new ArrayList<>();
 
-        for (Map.Entry<String, Integer> entry : availabilityByType.entrySet()) {
-            if (entry.getValue() > 0) {
-                RoomType roomType = createRoomType(entry.getKey());
-                available.add(roomType);
+        for (RoomType.Type type : TYPES) {
+            if (availableByType.get(type.ordinal()) > 0) {
+                available.add(createRoomType(type.name()));
             }
         }
 
@@ -180,11 +226,79 @@ public class RoomService {
     }
 
     /**
-     * Suggest room combinations for a given guest count
-     * Follows business rules for group bookings
+     * Suggest room combinations for a given guest count.
+     * With live availability, offers the cheapest and the fewest-rooms combination that seat
+     * the whole group; otherwise falls back to the fixed group booking rules.
      */
     public List<RoomSuggestion> suggestRooms(int adults, int children,
                                              LocalDate checkIn, LocalDate checkOut) {
+        if (!canPlan(checkIn, checkOut)) {
+            return ruleBasedSuggestions(adults, children);
+        }
+
+        List<RoomSuggestion> suggestions = new ArrayList<>();
+        List<RoomCombinationSolver.Plan> plans = planRooms(adults, children, checkIn, checkOut);
+        for (int i = 0; i < plans.size(); i++) {
+            RoomCombinationSolver.Plan plan = plans.get(i);
+            String label = i == 0 ? "Lowest price" : "Fewest rooms";
+            suggestions.add(new RoomSuggestion(
+                    String.format("%s: %s ($%.2f)", label, describe(plan.rooms()), plan.price()),
+                    plan.rooms().stream().map(room -> room.getType().name()).toList()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Cheapest plan first, then the fewest-rooms plan when it differs, for the live
+     * availability and room prices of the stay. Empty when the group cannot be seated.
+     */
+    public List<RoomCombinationSolver.Plan> planRooms(int adults, int children,
+                                                      LocalDate checkIn, LocalDate checkOut) {
+        int totalGuests = adults + children;
+        if (totalGuests <= 0 || !canPlan(checkIn, checkOut)) {
+            return List.of();
+        }
+
+        int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+        List<FlexibleDateSearch.DateOption> stay = flexibleDateSearch.search(checkIn, nights, 0);
+        if (stay.isEmpty()) {
+            return List.of();
+        }
+
+        List<RoomCombinationSolver.Option> options = new ArrayList<>();
+        for (FlexibleDateSearch.TypeQuote quote : stay.get(0).quotes()) {
+            options.add(new RoomCombinationSolver.Option(
+                    quote.roomType(), quote.available(), Math.round(quote.roomPrice() * 100)));
+        }
+
+        List<RoomCombinationSolver.Plan> plans = new ArrayList<>(2);
+        RoomCombinationSolver.solve(totalGuests, options, RoomCombinationSolver.Objective.CHEAPEST)
+                .ifPresent(plans::add);
+        RoomCombinationSolver.solve(totalGuests, options, RoomCombinationSolver.Objective.FEWEST_ROOMS)
+                .filter(plan -> plans.isEmpty() || plan.roomCount() < plans.get(0).roomCount())
+                .ifPresent(plans::add);
+        return plans;
+    }
+
+    private boolean canPlan(LocalDate checkIn, LocalDate checkOut) {
+        return flexibleDateSearch != null && checkIn != null && checkOut != null
+                && checkOut.isAfter(checkIn) && !checkIn.isBefore(LocalDate.now());
+    }
+
+    private static String describe(List<RoomType> rooms) {
+        Map<RoomType.Type, Integer> counts = new EnumMap<>(RoomType.Type.class);
+        for (RoomType room : rooms) {
+            counts.merge(room.getType(), 1, Integer::sum);
+        }
+        List<String> parts = new ArrayList<>();
+        counts.forEach((type, count) -> parts.add(count + " × " + type.name()));
+        return String.join(", ", parts);
+    }
+
+    /**
+     * Fixed group booking rules, used when there is no live availability to plan against
+     */
+    private List<RoomSuggestion> ruleBasedSuggestions(int adults, int children) {
         int totalGuests = adults + children;
         List<RoomSuggestion> suggestions = new ArrayList<>();
 
@@ -263,15 +377,18 @@ public class RoomService {
     }
 
     /**
-     * Mark rooms as booked (reduce availability)
+     * Mark rooms as booked (reduce availability); a type already at zero stays at zero
      */
     public void bookRooms(List<RoomType> rooms) {
         for (RoomType room : rooms) {
-            String type = room.getType().name();
-            int current = availabilityByType.getOrDefault(type, 0);
-            if (current > 0) {
-                updateAvailability(type, current - 1);
-            }
+            int ordinal = room.getType().ordinal();
+            int current;
+            do {
+                current = availableByType.get(ordinal);
+                if (current == 0) {
+                    break;
+                }
+            } while (!availableByType.compareAndSet(ordinal, current, current - 1));
         }
     }
 
@@ -280,10 +397,19 @@ public class RoomService {
      */
     public void releaseRooms(List<RoomType> rooms) {
         for (RoomType room : rooms) {
-            String type = room.getType().name();
-            int current = availabilityByType.getOrDefault(type, 0);
-            updateAvailability(type, current + 1);
+            RoomType.Type type = room.getType();
+            int availableCount = availableByType.incrementAndGet(type.ordinal());
+            availabilitySubject.notifyChange(type.name(), availableCount);
+        }
+    }
+
+    private static RoomType.Type typeOf(String roomType) {
+        for (RoomType.Type type : TYPES) {
+            if (type.name().equals(roomType)) {
+                return type;
+            }
         }
+        return null;
     }
 }
 
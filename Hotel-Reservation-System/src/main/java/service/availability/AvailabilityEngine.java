@@ -0,0 +1,130 @@
+package service.availability;
+
+import model.RoomType;
+import repository.RoomRepository;
+import repository.index.OccupancyCalendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Computes per-room-type availability for a stay from persisted inventory totals
+ * and the in-memory occupancy calendar, without a database round trip per query.
+ * A room type is available when its busiest night in the stay still has a room that is
+ * neither booked nor under a temporary hold.
+ */
+public class AvailabilityEngine {
+    private static final Logger LOGGER = Logger.getLogger(AvailabilityEngine.class.getName());
+
+    private final OccupancyCalendar occupancyCalendar;
+    private final List<RoomType> inventory;
+
+    public AvailabilityEngine(RoomRepository roomRepository, OccupancyCalendar occupancyCalendar) {
+        this.occupancyCalendar = occupancyCalendar;
+        this.inventory = List.copyOf(roomRepository.findAll());
+    }
+
+    /**
+     * Room types with their inventory totals, as loaded at startup. Nothing in the application
+     * edits the totals once they are seeded; a change made in the database takes a restart.
+     */
+    public List<RoomType> getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Available room count per type for the stay, in one pass over the room types.
+     */
+    public Map<RoomType.Type, Integer> getAvailableCounts(LocalDate checkIn, LocalDate checkOut) {
+        return toCounts(snapshot(checkIn, checkOut));
+    }
+
+    /**
+     * Room types with at least one room free for the whole stay.
+     */
+    public List<RoomType> getAvailableRoomTypes(LocalDate checkIn, LocalDate checkOut) {
+        List<RoomType> available = new ArrayList<>();
+        for (TypeAvailability entry : snapshot(checkIn, checkOut)) {
+            if (entry.available() > 0) {
+                available.add(entry.roomType());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Inventory, booked and available counts for every room type over the stay.
+     */
+    public List<TypeAvailability> snapshot(LocalDate checkIn, LocalDate checkOut) {
+        List<RoomType> roomTypes = inventory;
+        int[] booked = occupancyCalendar.peakBookedByType(checkIn, checkOut);
+
+        List<TypeAvailability> result = new ArrayList<>(roomTypes.size());
+        for (RoomType roomType : roomTypes) {
+            int total = roomType.getTotalRooms();
+            int bookedRooms = booked[roomType.getType().ordinal()];
+            int available = Math.max(0, total - bookedRooms);
+            result.add(new TypeAvailability(roomType, total, bookedRooms, available));
+            LOGGER.fine(String.format("%s: %d available (%d total, %d booked)",
+                    roomType.getType(), available, total, bookedRooms));
+        }
+        return result;
+    }
+
+    /**
+     * Rooms of each type still free on every night of the stay, indexed by type ordinal.
+     * Rooms already taken by {@code excludeReservationId} or {@code excludeHoldId} count as free.
+     */
+    public int[] availableByType(LocalDate checkIn, LocalDate checkOut,
+                                 Long excludeReservationId, Long excludeHoldId) {
+        int[] booked = occupancyCalendar.peakBookedByType(checkIn, checkOut, excludeReservationId, excludeHoldId);
+        int[] available = new int[booked.length];
+        for (RoomType roomType : inventory) {
+            int ordinal = roomType.getType().ordinal();
+            available[ordinal] = Math.max(0, roomType.getTotalRooms() - booked[ordinal]);
+        }
+        return available;
+    }
+
+    /**
+     * Booked and total rooms of every type for each night in [from, to), for occupancy reports.
+     */
+    public List<NightlyOccupancy> occupancy(LocalDate from, LocalDate to) {
+        List<NightlyOccupancy> result = new ArrayList<>();
+        for (RoomType roomType : inventory) {
+            int[] nights = occupancyCalendar.nightlyBooked(roomType.getType(), from, to);
+            for (int i = 0; i < nights.length; i++) {
+                result.add(new NightlyOccupancy(from.plusDays(i), roomType.getType(),
+                        nights[i], roomType.getTotalRooms()));
+            }
+        }
+        return result;
+    }
+
+    private static Map<RoomType.Type, Integer> toCounts(List<TypeAvailability> snapshot) {
+        Map<RoomType.Type, Integer> counts = new EnumMap<>(RoomType.Type.class);
+        for (TypeAvailability entry : snapshot) {
+            counts.put(entry.roomType().getType(), entry.available());
+        }
+        return counts;
+    }
+
+    /**
+     * Availability of one room type over a stay.
+     */
+    public record TypeAvailability(RoomType roomType, int total, int booked, int available) {
+    }
+
+    /**
+     * Occupancy of one room type on one night.
+     */
+    public record NightlyOccupancy(LocalDate night, RoomType.Type type, int booked, int total) {
+        public double occupancyRate() {
+            return total > 0 ? (double) booked / total : 0.0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package service.availability;
+
+import config.PricingConfig;
+import config.RateCalendar;
+import model.RoomType;
+import repository.index.OccupancyCalendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds open stays around a preferred check-in date.
+ *
+ * For a fixed stay length and a window of +/- N days, every candidate check-in is evaluated
+ * in one pass: the nightly occupancy of each room type is read once for the whole window,
+ * a sliding-window maximum gives the busiest night of each candidate stay, and the rate
+ * calendar gives each candidate's room price in constant time.
+ */
+public class FlexibleDateSearch {
+    private static final int MAX_WINDOW_DAYS = 60;
+    private static final int MAX_NIGHTS = 365;
+
+    private final AvailabilityEngine availabilityEngine;
+    private final OccupancyCalendar occupancyCalendar;
+    private final PricingConfig pricingConfig;
+
+    public FlexibleDateSearch(AvailabilityEngine availabilityEngine,
+                              OccupancyCalendar occupancyCalendar,
+                              PricingConfig pricingConfig) {
+        this.availabilityEngine = availabilityEngine;
+        this.occupancyCalendar = occupancyCalendar;
+        this.pricingConfig = pricingConfig;
+    }
+
+    /**
+     * Availability and room price of every room type for each check-in from
+     * {@code preferredCheckIn - windowDays} to {@code preferredCheckIn + windowDays}
+     * (never before today), for a stay of {@code nights} nights.
+     */
+    public List<DateOption> search(LocalDate preferredCheckIn, int nights, int windowDays) {
+        if (preferredCheckIn == null) {
+            throw new IllegalArgumentException("Preferred check-in date is required");
+        }
+        if (nights <= 0 || nights > MAX_NIGHTS) {
+            throw new IllegalArgumentException("Stay length must be between 1 and " + MAX_NIGHTS + " nights");
+        }
+        if (windowDays < 0 || windowDays > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Search window must be between 0 and " + MAX_WINDOW_DAYS + " days");
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate firstStart = preferredCheckIn.minusDays(windowDays);
+        if (firstStart.isBefore(today)) {
+            firstStart = today;
+        }
+        LocalDate lastStart = preferredCheckIn.plusDays(windowDays);
+        if (lastStart.isBefore(firstStart)) {
+            return List.of();
+        }
+
+        int candidates = (int) (lastStart.toEpochDay() - firstStart.toEpochDay()) + 1;
+        int span = candidates + nights - 1;
+        LocalDate spanEnd = firstStart.plusDays(span);
+
+        RateCalendar rateCalendar = pricingConfig.snapshot().getRateCalendar();
+
+        List<RoomType> inventory = availabilityEngine.getInventory();
+        int[][] availableByStart = new int[inventory.size()][];
+        for (int t = 0; t < inventory.size(); t++) {
+            RoomType roomType = inventory.get(t);
+            int[] taken = occupancyCalendar.nightlyTaken(roomType.getType(), firstStart, spanEnd);
+            int[] peaks = slidingMax(taken, nights);
+            int[] available = new int[candidates];
+            for (int i = 0; i < candidates; i++) {
+                available[i] = Math.max(0, roomType.getTotalRooms() - peaks[i]);
+            }
+            availableByStart[t] = available;
+        }
+
+        List<DateOption> options = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            LocalDate checkIn = firstStart.plusDays(i);
+            LocalDate checkOut = checkIn.plusDays(nights);
+            double stayMultiplier = rateCalendar.stayMultiplier(checkIn, checkOut);
+            List<TypeQuote> quotes = new ArrayList<>(inventory.size());
+            for (int t = 0; t < inventory.size(); t++) {
+                RoomType roomType = inventory.get(t);
+                quotes.add(new TypeQuote(roomType, availableByStart[t][i], roomType.getBasePrice() * stayMultiplier));
+            }
+            options.add(new DateOption(checkIn, checkOut, quotes));
+        }
+        return options;
+    }
+
+    /**
+     * Maximum of every window of {@code width} consecutive values, using a monotonic deque
+     * of indexes so the whole pass is O(n).
+     */
+    private static int[] slidingMax(int[] values, int width) {
+        int windows = values.length - width + 1;
+        int[] result = new int[Math.max(0, windows)];
+        int[] deque = new int[values.length];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < values.length; i++) {
+            while (tail > head && values[deque[tail - 1]] <= values[i]) {
+                tail--;
+            }
+            deque[tail++] = i;
+            if (deque[head] <= i - width) {
+                head++;
+            }
+            if (i >= width - 1) {
+                result[i - width + 1] = values[deque[head]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One candidate stay and what each room type offers for it.
+     */
+    public record DateOption(LocalDate checkIn, LocalDate checkOut, List<TypeQuote> quotes) {
+        public List<TypeQuote> availableQuotes() {
+            return quotes.stream().filter(quote -> quote.available() > 0).toList();
+        }
+    }
+
+    /**
+     * Rooms free for the whole stay and the pre-tax room price for one room of this type.
+     */
+    public record TypeQuote(RoomType roomType, int available, double roomPrice) {
+    }
+}
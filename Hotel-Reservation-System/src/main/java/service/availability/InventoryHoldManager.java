@@ -0,0 +1,139 @@
+package service.availability;
+
+import model.RoomType;
+import repository.index.OccupancyCalendar;
+import repository.index.RoomStay;
+import util.HashedTimingWheel;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Places short-lived holds on room-type inventory while a guest finishes the kiosk flow.
+ *
+ * A hold is admitted like a booking (same stripes, same capacity check) and then counts
+ * against availability in the occupancy calendar until it is released, confirmed or expires.
+ * Expiry is driven by one hashed timing wheel rather than a timer per hold, so placing and
+ * expiring a hold are O(1) even with thousands outstanding.
+ */
+public class InventoryHoldManager {
+    private static final Logger LOGGER = Logger.getLogger(InventoryHoldManager.class.getName());
+
+    public static final Duration DEFAULT_HOLD_DURATION = Duration.ofMinutes(10);
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final ReservationAdmission reservationAdmission;
+    private final OccupancyCalendar occupancyCalendar;
+    private final Duration holdDuration;
+    private final HashedTimingWheel expiryWheel;
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, HashedTimingWheel.Timeout> expiries = new ConcurrentHashMap<>();
+    private final AtomicLong nextHoldId = new AtomicLong();
+
+    public InventoryHoldManager(ReservationAdmission reservationAdmission,
+                                OccupancyCalendar occupancyCalendar,
+                                Duration holdDuration) {
+        if (holdDuration == null || holdDuration.isNegative() || holdDuration.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        this.reservationAdmission = reservationAdmission;
+        this.occupancyCalendar = occupancyCalendar;
+        this.holdDuration = holdDuration;
+        this.expiryWheel = new HashedTimingWheel("inventory-hold-expiry", TICK_MILLIS, WHEEL_SLOTS);
+    }
+
+    /**
+     * Hold the rooms for the stay if they are free right now.
+     *
+     * @throws service.ReservationConflictException if any room type has too few rooms left
+     */
+    public Hold place(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date.");
+        }
+        Map<RoomType.Type, Integer> requested = new EnumMap<>(RoomType.Type.class);
+        for (RoomType room : rooms) {
+            requested.merge(room.getType(), 1, Integer::sum);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("At least one room must be selected");
+        }
+
+        long holdId = nextHoldId.incrementAndGet();
+        Hold hold = new Hold(holdId, Map.copyOf(requested), checkIn, checkOut, Instant.now().plus(holdDuration));
+
+        reservationAdmission.admit(requested, checkIn, checkOut, null, () -> {
+            occupancyCalendar.placeHold(holdId, toStays(hold));
+            holds.put(holdId, hold);
+            return hold;
+        });
+        expiries.put(holdId, expiryWheel.schedule(() -> expire(holdId), holdDuration.toMillis()));
+
+        LOGGER.info(String.format("Hold %d placed on %s from %s to %s", holdId, requested, checkIn, checkOut));
+        return hold;
+    }
+
+    /**
+     * Give the held rooms back, e.g. after the booking is confirmed or the guest leaves.
+     * Unknown or already expired holds are ignored.
+     */
+    public void release(Long holdId) {
+        if (holdId == null) {
+            return;
+        }
+        HashedTimingWheel.Timeout timeout = expiries.remove(holdId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        if (holds.remove(holdId) != null) {
+            occupancyCalendar.releaseHold(holdId);
+            LOGGER.fine("Hold released: " + holdId);
+        }
+    }
+
+    public Optional<Hold> find(Long holdId) {
+        return holdId == null ? Optional.empty() : Optional.ofNullable(holds.get(holdId));
+    }
+
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    public void shutdown() {
+        expiryWheel.stop();
+    }
+
+    private void expire(long holdId) {
+        expiries.remove(holdId);
+        if (holds.remove(holdId) != null) {
+            occupancyCalendar.releaseHold(holdId);
+            LOGGER.info("Hold expired: " + holdId);
+        }
+    }
+
+    private static List<RoomStay> toStays(Hold hold) {
+        List<RoomStay> stays = new ArrayList<>(hold.rooms().size());
+        for (Map.Entry<RoomType.Type, Integer> entry : hold.rooms().entrySet()) {
+            stays.add(new RoomStay(hold.id(), entry.getKey(), entry.getValue(),
+                    hold.checkIn().toEpochDay(), hold.checkOut().toEpochDay()));
+        }
+        return stays;
+    }
+
+    /**
+     * Rooms held per type for a stay, until {@code expiresAt}.
+     */
+    public record Hold(long id, Map<RoomType.Type, Integer> rooms, LocalDate checkIn, LocalDate checkOut,
+                       Instant expiresAt) {
+    }
+}
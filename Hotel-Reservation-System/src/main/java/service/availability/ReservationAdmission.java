@@ -0,0 +1,122 @@
+package service.availability;
+
+import model.RoomType;
+import repository.UnitOfWork;
+import service.ReservationConflictException;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Admits bookings against room inventory without double-booking.
+ *
+ * Each (room type, week of stay) maps onto one of a fixed set of lock stripes. A booking
+ * locks every stripe its rooms and nights touch, always in ascending stripe order so two
+ * bookings can never wait on each other, then re-checks availability and commits while the
+ * stripes are held. Bookings for different room types or weeks mostly take different
+ * stripes and go through in parallel; overlapping ones are serialized.
+ */
+public class ReservationAdmission {
+    private static final Logger LOGGER = Logger.getLogger(ReservationAdmission.class.getName());
+
+    private static final int STRIPE_COUNT = 64;
+    private static final int BUCKET_DAYS = 7;
+
+    private final AvailabilityEngine availabilityEngine;
+    private final UnitOfWork unitOfWork;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+
+    public ReservationAdmission(AvailabilityEngine availabilityEngine, UnitOfWork unitOfWork) {
+        this.availabilityEngine = availabilityEngine;
+        this.unitOfWork = unitOfWork;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the stripes for the requested rooms, verify they are still free and run the commit.
+     *
+     * The commit must open and close its own unit of work, so the in-memory occupancy is
+     * updated before the stripes are released; calling this inside an open unit of work is an error.
+     *
+     * @param requested rooms wanted per type
+     * @param reservationId id of the reservation being edited, or null for a new booking
+     * @throws ReservationConflictException if any type does not have enough rooms left
+     */
+    public <T> T admit(Map<RoomType.Type, Integer> requested, LocalDate checkIn, LocalDate checkOut,
+                       Long reservationId, Supplier<T> commit) {
+        return admit(requested, checkIn, checkOut, reservationId, null, commit);
+    }
+
+    /**
+     * Same as {@link #admit(Map, LocalDate, LocalDate, Long, Supplier)} for a booking that
+     * confirms an inventory hold; the rooms under that hold count as free for it.
+     *
+     * @param holdId hold placed for this booking, or null
+     */
+    public <T> T admit(Map<RoomType.Type, Integer> requested, LocalDate checkIn, LocalDate checkOut,
+                       Long reservationId, Long holdId, Supplier<T> commit) {
+        if (unitOfWork.isActive()) {
+            throw new IllegalStateException("Reservation admission must run outside an open unit of work");
+        }
+
+        int[] locked = stripesFor(requested, checkIn, checkOut);
+        for (int stripe : locked) {
+            stripes[stripe].lock();
+        }
+        try {
+            int[] available = availabilityEngine.availableByType(checkIn, checkOut, reservationId, holdId);
+            for (Map.Entry<RoomType.Type, Integer> entry : requested.entrySet()) {
+                int free = available[entry.getKey().ordinal()];
+                if (entry.getValue() > free) {
+                    LOGGER.warning(String.format("Admission refused: %d %s requested, %d free from %s to %s",
+                            entry.getValue(), entry.getKey(), free, checkIn, checkOut));
+                    throw new ReservationConflictException(
+                            "Room " + entry.getKey().name() + " is not available for the selected dates.");
+                }
+            }
+            return commit.get();
+        } finally {
+            for (int i = locked.length - 1; i >= 0; i--) {
+                stripes[locked[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Distinct stripe indexes for every (type, date bucket) the booking touches, in ascending order.
+     */
+    private static int[] stripesFor(Map<RoomType.Type, Integer> requested, LocalDate checkIn, LocalDate checkOut) {
+        long firstBucket = Math.floorDiv(checkIn.toEpochDay(), BUCKET_DAYS);
+        long lastBucket = Math.floorDiv(Math.max(checkIn.toEpochDay(), checkOut.toEpochDay() - 1), BUCKET_DAYS);
+
+        boolean[] used = new boolean[STRIPE_COUNT];
+        int count = 0;
+        for (Map.Entry<RoomType.Type, Integer> entry : requested.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            int typeOrdinal = entry.getKey().ordinal();
+            for (long bucket = firstBucket; bucket <= lastBucket && count < STRIPE_COUNT; bucket++) {
+                int stripe = Math.floorMod(bucket * 31 + typeOrdinal, STRIPE_COUNT);
+                if (!used[stripe]) {
+                    used[stripe] = true;
+                    count++;
+                }
+            }
+        }
+
+        int[] result = new int[count];
+        int next = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            if (used[i]) {
+                result[next++] = i;
+            }
+        }
+        return result;
+    }
+}
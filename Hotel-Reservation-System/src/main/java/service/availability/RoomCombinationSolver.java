@@ -0,0 +1,117 @@
+package service.availability;
+
+import model.RoomType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Picks the room mix for a group from live availability and stay prices.
+ *
+ * Bounded knapsack over capacity: {@code best[t][g]} is the best way to seat at least
+ * {@code g} guests using only the first {@code t} room types, taking 0..available rooms of
+ * each. Costs are packed into one long so each objective is a single comparison:
+ * the cheapest plan orders by (price, rooms), the fewest-rooms plan by (rooms, price).
+ * Four room types and 100 guests is about forty thousand steps.
+ */
+public final class RoomCombinationSolver {
+    private static final long INFEASIBLE = Long.MAX_VALUE;
+    private static final int ROOM_BITS = 12;
+    private static final int PRICE_BITS = 48;
+
+    public enum Objective {
+        CHEAPEST,
+        FEWEST_ROOMS
+    }
+
+    private RoomCombinationSolver() {
+    }
+
+    /**
+     * Best plan seating {@code guests} for the objective, or empty when the available rooms
+     * cannot hold the group.
+     */
+    public static Optional<Plan> solve(int guests, List<Option> options, Objective objective) {
+        if (guests <= 0) {
+            return Optional.empty();
+        }
+
+        int types = options.size();
+        long[][] best = new long[types + 1][guests + 1];
+        int[][] taken = new int[types + 1][guests + 1];
+        Arrays.fill(best[0], INFEASIBLE);
+        best[0][0] = 0;
+
+        for (int t = 1; t <= types; t++) {
+            Option option = options.get(t - 1);
+            int capacity = option.roomType().getCapacity();
+            int limit = capacity > 0
+                    ? Math.min(option.available(), (guests + capacity - 1) / capacity)
+                    : 0;
+            long[] previous = best[t - 1];
+            long[] current = best[t];
+            for (int g = 0; g <= guests; g++) {
+                long bestCost = previous[g];
+                int bestCount = 0;
+                for (int k = 1; k <= limit; k++) {
+                    long before = previous[Math.max(0, g - k * capacity)];
+                    if (before == INFEASIBLE) {
+                        continue;
+                    }
+                    long cost = before + packedCost(objective, k, k * option.priceCents());
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestCount = k;
+                    }
+                }
+                current[g] = bestCost;
+                taken[t][g] = bestCount;
+            }
+        }
+
+        if (best[types][guests] == INFEASIBLE) {
+            return Optional.empty();
+        }
+
+        List<RoomType> rooms = new ArrayList<>();
+        long priceCents = 0;
+        int g = guests;
+        for (int t = types; t >= 1; t--) {
+            Option option = options.get(t - 1);
+            int count = taken[t][g];
+            rooms.addAll(Collections.nCopies(count, option.roomType()));
+            priceCents += count * option.priceCents();
+            g = Math.max(0, g - count * option.roomType().getCapacity());
+        }
+        Collections.reverse(rooms);
+        return Optional.of(new Plan(List.copyOf(rooms), priceCents));
+    }
+
+    private static long packedCost(Objective objective, int rooms, long priceCents) {
+        return objective == Objective.CHEAPEST
+                ? (priceCents << ROOM_BITS) + rooms
+                : ((long) rooms << PRICE_BITS) + priceCents;
+    }
+
+    /**
+     * One room type as a candidate: rooms free for the whole stay and the price of one room.
+     */
+    public record Option(RoomType roomType, int available, long priceCents) {
+    }
+
+    /**
+     * Rooms to book (one entry per room) and their combined stay price.
+     */
+    public record Plan(List<RoomType> rooms, long priceCents) {
+        public int roomCount() {
+            return rooms.size();
+        }
+
+        public double price() {
+            return priceCents / 100.0;
+        }
+    }
+}
@@ -10,4 +10,10 @@ public class RoomFactory {
         roomType.setCapacity(capacity);
         return roomType;
     }
+
+    public static RoomType create(RoomType.Type type, double basePrice, int capacity, int totalRooms) {
+        RoomType roomType = create(type, basePrice, capacity);
+        roomType.setTotalRooms(totalRooms);
+        return roomType;
+    }
 }
@@ -0,0 +1,226 @@
+package service.pricing;
+
+import model.AddOnItem;
+import repository.AddOnRepository;
+import util.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The add-ons guests can book, loaded from the {@code addon_catalog} table.
+ *
+ * Readers take the current {@link Snapshot}, an immutable view with prices and pricing
+ * models in arrays indexed by catalog id, so pricing an add-on is two array reads. Names
+ * are resolved to ids once, at the edge where a screen hands over a selection. A reload
+ * builds a complete new snapshot and publishes it with one reference swap, so a quote sees
+ * either the old catalog or the new one, never a mix.
+ */
+public class AddOnCatalog {
+    private static final Logger LOGGER = Logger.getLogger(AddOnCatalog.class.getName());
+
+    /** Largest catalog id the snapshot arrays will index. */
+    static final int MAX_ID = 1 << 16;
+
+    /** What a new database is seeded with, and the catalog used when there is no database. */
+    public static final List<AddOnItem> DEFAULT_ITEMS = List.of(
+            new AddOnItem("WiFi", 10.0, true),
+            new AddOnItem("Breakfast", 25.0, true),
+            new AddOnItem("Parking", 15.0, true),
+            new AddOnItem("Spa", 100.0, false));
+
+    private static final AddOnCatalog DEFAULTS = new AddOnCatalog(null, Snapshot.ofDefaults());
+
+    private final AddOnRepository repository;
+    private volatile Snapshot snapshot;
+
+    public AddOnCatalog(AddOnRepository repository) {
+        this(repository, Snapshot.ofDefaults());
+    }
+
+    private AddOnCatalog(AddOnRepository repository, Snapshot initial) {
+        this.repository = repository;
+        this.snapshot = initial;
+    }
+
+    /**
+     * The built-in add-ons, for pricing without a database.
+     */
+    public static AddOnCatalog defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * A catalog that always answers with the given snapshot, e.g. to price a batch
+     * consistently while the live catalog reloads.
+     */
+    public static AddOnCatalog fixed(Snapshot snapshot) {
+        return new AddOnCatalog(null, snapshot);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Store the default add-ons when the catalog table is empty.
+     */
+    public void seedDefaults() {
+        if (repository == null || !repository.findAll().isEmpty()) {
+            return;
+        }
+        for (AddOnItem item : DEFAULT_ITEMS) {
+            repository.save(new AddOnItem(item.getName(), item.getPrice(), item.isPerNight()));
+        }
+        LOGGER.info("Seeded add-on catalog with " + DEFAULT_ITEMS.size() + " add-ons");
+    }
+
+    /**
+     * Read the catalog table and publish it as the new snapshot.
+     */
+    public synchronized Snapshot reload() {
+        if (repository == null) {
+            return snapshot;
+        }
+        Snapshot next = new Snapshot(snapshot.version() + 1, repository.findAll());
+        snapshot = next;
+        LOGGER.info("Add-on catalog v" + next.version() + " loaded with " + next.entries().size() + " add-ons");
+        return next;
+    }
+
+    /**
+     * Add an add-on, or change the price or pricing model of an existing one, then reload.
+     */
+    public synchronized Snapshot save(String name, double price, boolean perNight) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Add-on name is required");
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Add-on price must be zero or more");
+        }
+        if (repository == null) {
+            throw new IllegalStateException("This add-on catalog is not backed by a database");
+        }
+        AddOnItem item = repository.findByName(name.trim()).orElseGet(AddOnItem::new);
+        item.setName(name.trim());
+        item.setPrice(price);
+        item.setPerNight(perNight);
+        repository.save(item);
+        return reload();
+    }
+
+    /**
+     * One catalog entry as the snapshot holds it.
+     */
+    public record Entry(int id, String name, long priceCents, boolean perNight) {
+        public double price() {
+            return Money.toDollars(priceCents);
+        }
+    }
+
+    /**
+     * One immutable version of the catalog.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<Entry> entries;
+        private final Map<String, Integer> idsByName;
+        private final long[] priceCents;
+        private final boolean[] perNight;
+        private final boolean[] present;
+        private final String[] names;
+
+        Snapshot(long version, List<AddOnItem> items) {
+            this.version = version;
+            int maxId = 0;
+            for (AddOnItem item : items) {
+                if (item.getId() == null || item.getId() < 1 || item.getId() > MAX_ID) {
+                    throw new IllegalArgumentException("Add-on id out of range: " + item.getId());
+                }
+                maxId = Math.max(maxId, item.getId().intValue());
+            }
+            this.priceCents = new long[maxId + 1];
+            this.perNight = new boolean[maxId + 1];
+            this.present = new boolean[maxId + 1];
+            this.names = new String[maxId + 1];
+
+            List<Entry> list = new ArrayList<>(items.size());
+            Map<String, Integer> ids = new HashMap<>();
+            for (AddOnItem item : items) {
+                int id = item.getId().intValue();
+                Entry entry = new Entry(id, item.getName(), Money.ofDollars(item.getPrice()), item.isPerNight());
+                list.add(entry);
+                ids.put(entry.name(), id);
+                priceCents[id] = entry.priceCents();
+                perNight[id] = entry.perNight();
+                present[id] = true;
+                names[id] = entry.name();
+            }
+            this.entries = Collections.unmodifiableList(list);
+            this.idsByName = Map.copyOf(ids);
+        }
+
+        private static Snapshot ofDefaults() {
+            List<AddOnItem> items = new ArrayList<>();
+            long id = 1;
+            for (AddOnItem item : DEFAULT_ITEMS) {
+                AddOnItem copy = new AddOnItem(item.getName(), item.getPrice(), item.isPerNight());
+                copy.setId(id++);
+                items.add(copy);
+            }
+            return new Snapshot(0, items);
+        }
+
+        /**
+         * Increases by one with every reload.
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Entries in id order.
+         */
+        public List<Entry> entries() {
+            return entries;
+        }
+
+        /**
+         * Catalog id for an add-on name, or -1 if there is no such add-on.
+         */
+        public int idOf(String name) {
+            Integer id = name == null ? null : idsByName.get(name);
+            return id != null ? id : -1;
+        }
+
+        public boolean contains(long id) {
+            return id > 0 && id < present.length && present[(int) id];
+        }
+
+        public String name(int id) {
+            return contains(id) ? names[id] : null;
+        }
+
+        public long priceCents(int id) {
+            return contains(id) ? priceCents[id] : 0;
+        }
+
+        public boolean isPerNight(int id) {
+            return contains(id) && perNight[id];
+        }
+
+        /**
+         * What the add-on costs for a stay of {@code nights}; unknown ids cost nothing.
+         */
+        public long chargeCents(int id, long nights) {
+            if (!contains(id)) {
+                return 0;
+            }
+            return perNight[id] ? Math.multiplyExact(priceCents[id], nights) : priceCents[id];
+        }
+    }
+}
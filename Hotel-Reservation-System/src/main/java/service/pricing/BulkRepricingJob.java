@@ -0,0 +1,239 @@
+package service.pricing;
+
+import model.ReservationStatus;
+import repository.ReservationRepository;
+import repository.StayPricingRow;
+import repository.TotalAmountUpdate;
+import util.Money;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reprices every future booked reservation after a rate change.
+ *
+ * Reservations are read in keyset pages (id order, no offsets) as plain pricing rows, and
+ * each page is priced on a fork-join pool while the next page is being read. Only totals
+ * whose cent amount changes are written back, one batched update per page, so a run
+ * over 100k reservations costs a few hundred queries rather than a load and merge each.
+ * A write only lands on a stay that is still booked at the total it was priced from; one
+ * cancelled or edited in the meantime is counted as skipped.
+ *
+ * The whole run prices against the settings and add-on catalog in effect when it starts, so
+ * a reload part way through cannot leave reservations priced under two versions.
+ */
+public class BulkRepricingJob {
+    private static final Logger LOGGER = Logger.getLogger(BulkRepricingJob.class.getName());
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int LARGEST_CHANGES = 10;
+
+    private final ReservationRepository reservationRepository;
+    private final PricingEngine pricingEngine;
+    private final ForkJoinPool pool;
+    private final int pageSize;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-repricing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BulkRepricingJob(ReservationRepository reservationRepository, PricingEngine pricingEngine) {
+        this(reservationRepository, pricingEngine, ForkJoinPool.commonPool(), DEFAULT_PAGE_SIZE);
+    }
+
+    public BulkRepricingJob(ReservationRepository reservationRepository, PricingEngine pricingEngine,
+                            ForkJoinPool pool, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.reservationRepository = reservationRepository;
+        this.pricingEngine = pricingEngine;
+        this.pool = pool;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Reprice booked reservations checking in today or later.
+     */
+    public Summary repriceFutureBookings(Consumer<Progress> progress) {
+        return reprice(LocalDate.now(), progress);
+    }
+
+    /**
+     * Reprice future bookings on a background thread, e.g. after a rate or add-on change.
+     * Requests made before a queued run starts share that run; one made while a run is in
+     * progress queues another, which prices against the settings in effect when it starts.
+     */
+    public void requestRepricing() {
+        if (!requested.compareAndSet(false, true)) {
+            return;
+        }
+        background.execute(() -> {
+            requested.set(false);
+            try {
+                repriceFutureBookings(null);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Background repricing failed", e);
+            }
+        });
+    }
+
+    /**
+     * Reprice booked reservations checking in on or after {@code from}.
+     *
+     * @param progress called on the calling thread after each page is written, or null
+     */
+    public synchronized Summary reprice(LocalDate from, Consumer<Progress> progress) {
+        PricingEngine engine = pricingEngine.pinned();
+        long started = System.nanoTime();
+
+        Tally tally = new Tally();
+        int pages = 0;
+        List<StayPricingRow> page = reservationRepository.findPricingPage(ReservationStatus.BOOKED, from, 0L, pageSize);
+        while (!page.isEmpty()) {
+            List<StayPricingRow> current = page;
+            ForkJoinTask<List<Change>> priced = pool.submit(() -> current.parallelStream()
+                    .map(row -> reprice(engine, row))
+                    .toList());
+
+            // Read ahead while the pool prices this page
+            long lastId = current.get(current.size() - 1).reservationId();
+            page = current.size() < pageSize
+                    ? List.of()
+                    : reservationRepository.findPricingPage(ReservationStatus.BOOKED, from, lastId, pageSize);
+
+            List<Change> changes = priced.join();
+            List<TotalAmountUpdate> updates = new ArrayList<>();
+            for (int i = 0; i < changes.size(); i++) {
+                Change change = changes.get(i);
+                if (change != null && change.changed()) {
+                    updates.add(new TotalAmountUpdate(change.reservationId(), change.oldTotalCents(),
+                            Money.toDollars(change.newTotalCents())));
+                }
+            }
+            Set<Long> written = reservationRepository.updateTotalAmounts(updates);
+            for (Change change : changes) {
+                // A stay cancelled or edited since the page was read kept its own total
+                boolean lost = change != null && change.changed() && !written.contains(change.reservationId());
+                tally.add(lost ? null : change);
+            }
+            pages++;
+            if (progress != null) {
+                progress.accept(new Progress(pages, tally.scanned, tally.changed, millisSince(started)));
+            }
+        }
+
+        Summary summary = tally.summary(engine.getPricingConfig().getVersion(), millisSince(started));
+        LOGGER.info("Repricing from " + from + " finished: " + summary);
+        return summary;
+    }
+
+    private static Change reprice(PricingEngine engine, StayPricingRow row) {
+        if (row.checkIn() == null || row.checkOut() == null || !row.checkOut().isAfter(row.checkIn())) {
+            return null;
+        }
+        long total = engine.quoteBooked(row.rooms(), row.addOns(), row.checkIn(), row.checkOut(),
+                row.discountPercent(), null).totalCents();
+        Long stored = row.totalAmount() != null ? Money.ofDollars(row.totalAmount()) : null;
+        return new Change(row.reservationId(), stored, total);
+    }
+
+    private static long millisSince(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /**
+     * Running counts for one job; only touched from the thread running the job.
+     */
+    private static final class Tally {
+        private long scanned;
+        private long skipped;
+        private long changed;
+        private long increased;
+        private long totalBeforeCents;
+        private long totalAfterCents;
+        private final PriorityQueue<Change> largest =
+                new PriorityQueue<>(Comparator.comparingLong(change -> Math.abs(change.deltaCents())));
+
+        void add(Change change) {
+            scanned++;
+            if (change == null) {
+                skipped++;
+                return;
+            }
+            totalBeforeCents += change.oldTotalCents() != null ? change.oldTotalCents() : 0;
+            totalAfterCents += change.newTotalCents();
+            if (!change.changed()) {
+                return;
+            }
+            changed++;
+            if (change.deltaCents() > 0) {
+                increased++;
+            }
+            largest.add(change);
+            if (largest.size() > LARGEST_CHANGES) {
+                largest.poll();
+            }
+        }
+
+        Summary summary(long pricingVersion, long elapsedMillis) {
+            List<Change> top = new ArrayList<>(largest);
+            top.sort(Comparator.comparingLong((Change change) -> Math.abs(change.deltaCents())).reversed());
+            return new Summary(scanned, changed, skipped, increased, changed - increased,
+                    totalBeforeCents, totalAfterCents, List.copyOf(top), pricingVersion, elapsedMillis);
+        }
+    }
+
+    /**
+     * One reservation's stored total against its repriced total, in cents; the stored total is
+     * null when none is on file, which always counts as a change.
+     */
+    public record Change(long reservationId, Long oldTotalCents, long newTotalCents) {
+        public long deltaCents() {
+            return newTotalCents - (oldTotalCents != null ? oldTotalCents : 0);
+        }
+
+        public boolean changed() {
+            return oldTotalCents == null || oldTotalCents != newTotalCents;
+        }
+    }
+
+    /**
+     * Pages written so far.
+     */
+    public record Progress(int pages, long scanned, long changed, long elapsedMillis) {
+    }
+
+    /**
+     * Outcome of a run: how many reservations were looked at and changed, the sum of their
+     * totals before and after, and the largest individual changes.
+     */
+    public record Summary(long scanned, long changed, long skipped, long increased, long decreased,
+                          long totalBeforeCents, long totalAfterCents, List<Change> largestChanges,
+                          long pricingVersion, long elapsedMillis) {
+        public long netChangeCents() {
+            return totalAfterCents - totalBeforeCents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d scanned, %d changed (%d up, %d down), %d skipped, net %s, pricing v%d, %d ms",
+                    scanned, changed, increased, decreased, skipped, Money.format(netChangeCents()),
+                    pricingVersion, elapsedMillis);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package service.pricing;
+
+import util.Money;
+
+/**
+ * Every line of a price quote, in the order the engine applies them: room and add-on
+ * charges, the reservation discount, any billing-strategy adjustment, then tax.
+ *
+ * Amounts are held in cents, each line already rounded, so the lines always add up to the
+ * total exactly. The accessors without the {@code Cents} suffix return dollars for display.
+ *
+ * @param discountCents amount taken off by the reservation's discount percent
+ * @param adjustmentCents change made by the billing strategy (negative when it lowers the price)
+ * @param taxableCents amount tax is charged on, never below zero
+ */
+public record PriceBreakdown(long nights,
+                             long roomChargesCents,
+                             long addOnChargesCents,
+                             long discountCents,
+                             long adjustmentCents,
+                             long taxableCents,
+                             double taxRate,
+                             long taxCents,
+                             long totalCents) {
+
+    public static final PriceBreakdown EMPTY = new PriceBreakdown(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * Room and add-on charges before discount, adjustments and tax.
+     */
+    public long subtotalCents() {
+        return roomChargesCents + addOnChargesCents;
+    }
+
+    public double subtotal() {
+        return Money.toDollars(subtotalCents());
+    }
+
+    public double roomCharges() {
+        return Money.toDollars(roomChargesCents);
+    }
+
+    public double addOnCharges() {
+        return Money.toDollars(addOnChargesCents);
+    }
+
+    public double discount() {
+        return Money.toDollars(discountCents);
+    }
+
+    public double adjustment() {
+        return Money.toDollars(adjustmentCents);
+    }
+
+    public double taxable() {
+        return Money.toDollars(taxableCents);
+    }
+
+    public double tax() {
+        return Money.toDollars(taxCents);
+    }
+
+    public double total() {
+        return Money.toDollars(totalCents);
+    }
+}
@@ -0,0 +1,189 @@
+package service.pricing;
+
+import config.PricingConfig;
+import config.PricingSnapshot;
+import model.Reservation;
+import model.ReservationAddOn;
+import model.RoomType;
+import service.strategy.BillingPipeline;
+import service.strategy.BillingStrategy;
+import util.Money;
+
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The one place stays are priced.
+ *
+ * Rooms are charged per night from the rate calendar (Friday and Saturday nights at the weekend
+ * rate, peak months at the peak rate), add-ons per night or per stay (new selections at catalog
+ * prices, booked ones at the price they were booked with), then the reservation discount, the
+ * billing strategy, and tax at the configured rate.
+ * Every quote ends in {@link #quoteBooked}: the kiosk's selections are booked at catalog prices
+ * first, exactly as a new reservation books them, so a quote and the total stored for the same
+ * stay agree. A null strategy means the engine's default strategy, the identity unless set.
+ * A quote walks the rooms and add-ons once and never the nights, and reads one pricing
+ * snapshot and one catalog snapshot for all of it.
+ * Every line is computed in cents with an explicit rounding mode (half up), so totals do not
+ * drift with the order amounts are added in.
+ */
+public class PricingEngine {
+    private final PricingConfig pricingConfig;
+    private final AddOnCatalog addOnCatalog;
+    private volatile BillingStrategy strategy = BillingPipeline.IDENTITY;
+
+    public PricingEngine(PricingConfig pricingConfig) {
+        this(pricingConfig, AddOnCatalog.defaults());
+    }
+
+    public PricingEngine(PricingConfig pricingConfig, AddOnCatalog addOnCatalog) {
+        if (pricingConfig == null) {
+            throw new IllegalArgumentException("Pricing configuration is required");
+        }
+        if (addOnCatalog == null) {
+            throw new IllegalArgumentException("Add-on catalog is required");
+        }
+        this.pricingConfig = pricingConfig;
+        this.addOnCatalog = addOnCatalog;
+    }
+
+    public PricingConfig getPricingConfig() {
+        return pricingConfig;
+    }
+
+    public AddOnCatalog getAddOnCatalog() {
+        return addOnCatalog;
+    }
+
+    /**
+     * Strategy for quotes that pass none; shared by every caller, so set it once at startup.
+     */
+    public void setStrategy(BillingStrategy strategy) {
+        this.strategy = strategy != null ? strategy : BillingPipeline.IDENTITY;
+    }
+
+    public BillingStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * An engine fixed to the pricing settings, add-on catalog and default strategy in effect
+     * now, for pricing a batch consistently while any of them is reloaded.
+     */
+    public PricingEngine pinned() {
+        PricingEngine pinned = new PricingEngine(new PricingConfig(pricingConfig.snapshot()),
+                AddOnCatalog.fixed(addOnCatalog.snapshot()));
+        pinned.setStrategy(strategy);
+        return pinned;
+    }
+
+    /**
+     * The selected add-ons as booked lines at today's catalog prices, for {@code reservation}
+     * (null for a quote); names not in the catalog are skipped.
+     */
+    public List<ReservationAddOn> bookAddOns(Reservation reservation, List<String> addOns) {
+        if (addOns == null || addOns.isEmpty()) {
+            return List.of();
+        }
+        AddOnCatalog.Snapshot catalog = addOnCatalog.snapshot();
+        List<ReservationAddOn> booked = new ArrayList<>(addOns.size());
+        for (String addOn : addOns) {
+            int id = catalog.idOf(addOn);
+            if (id > 0) {
+                booked.add(new ReservationAddOn(reservation, (long) id, addOn,
+                        Money.toDollars(catalog.priceCents(id)), catalog.isPerNight(id)));
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Price a prospective stay, with its add-ons booked as {@link #bookAddOns} books them.
+     *
+     * @param discountPercent reservation discount, 0 for none
+     * @param strategy billing strategy applied after the discount, or null for the default
+     */
+    public PriceBreakdown quote(List<RoomType> rooms, List<String> addOns, LocalDate checkIn, LocalDate checkOut,
+                                double discountPercent, BillingStrategy strategy) {
+        return quoteBooked(rooms, bookAddOns(null, addOns), checkIn, checkOut, discountPercent, strategy);
+    }
+
+    /**
+     * Price a stored reservation from its rooms, add-ons and discount; an incomplete
+     * reservation prices at zero.
+     */
+    public PriceBreakdown quote(Reservation reservation, BillingStrategy strategy) {
+        if (reservation == null || reservation.getCheckIn() == null || reservation.getCheckOut() == null
+                || reservation.getRooms() == null
+                || !reservation.getCheckOut().isAfter(reservation.getCheckIn())) {
+            return PriceBreakdown.EMPTY;
+        }
+        Double discountPercent = reservation.getDiscountPercent();
+        return quoteBooked(reservation.getRooms(), reservation.getAddOns(), reservation.getCheckIn(),
+                reservation.getCheckOut(), discountPercent != null ? discountPercent : 0.0, strategy);
+    }
+
+    /**
+     * Price a stay whose add-ons are already booked. Each add-on is charged at the price and
+     * pricing model it was booked with, so a later catalog change does not reprice it; rooms,
+     * discount and tax follow the current settings.
+     *
+     * @param strategy billing strategy applied after the discount, or null for the default
+     */
+    public PriceBreakdown quoteBooked(List<RoomType> rooms, List<ReservationAddOn> addOns, LocalDate checkIn,
+                                      LocalDate checkOut, double discountPercent, BillingStrategy strategy) {
+        if (checkIn == null || checkOut == null) {
+            throw new IllegalArgumentException("Check-in and check-out dates are required");
+        }
+        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+        if (nights <= 0) {
+            throw new IllegalArgumentException("Check-out must be after check-in");
+        }
+
+        PricingSnapshot pricing = pricingConfig.snapshot();
+        long roomCharges = roomChargesCents(pricing, rooms, checkIn, checkOut);
+        long addOnCharges = 0;
+        if (addOns != null) {
+            for (ReservationAddOn addOn : addOns) {
+                long price = Money.ofDollars(addOn.getPrice());
+                addOnCharges += addOn.isPerNight() ? Math.multiplyExact(price, nights) : price;
+            }
+        }
+        return finish(pricing, nights, roomCharges, addOnCharges, discountPercent, strategy);
+    }
+
+    /**
+     * Room charges alone for the stay, before add-ons, discounts and tax, in dollars.
+     */
+    public double roomCharges(List<RoomType> rooms, LocalDate checkIn, LocalDate checkOut) {
+        return Money.toDollars(roomChargesCents(pricingConfig.snapshot(), rooms, checkIn, checkOut));
+    }
+
+    /**
+     * The rate calendar works in fractional dollars; the stay's room charge is rounded to a
+     * cent once, here, and everything after it is exact.
+     */
+    private static long roomChargesCents(PricingSnapshot pricing, List<RoomType> rooms,
+                                         LocalDate checkIn, LocalDate checkOut) {
+        if (rooms == null || rooms.isEmpty()) {
+            return 0;
+        }
+        return Money.ofDollars(pricing.getRateCalendar().roomCharges(rooms, checkIn, checkOut), RoundingMode.HALF_UP);
+    }
+
+    private PriceBreakdown finish(PricingSnapshot pricing, long nights, long roomCharges, long addOnCharges,
+                                  double discountPercent, BillingStrategy strategy) {
+        long subtotal = Money.add(roomCharges, addOnCharges);
+        long discount = Money.percentOf(subtotal, discountPercent, RoundingMode.HALF_UP);
+        long afterDiscount = subtotal - discount;
+        long afterStrategy = (strategy != null ? strategy : this.strategy).apply(afterDiscount);
+        long taxable = Math.max(afterStrategy, 0);
+        double taxRate = pricing.getTaxRate();
+        long tax = Money.multiply(taxable, taxRate, RoundingMode.HALF_UP);
+        return new PriceBreakdown(nights, roomCharges, addOnCharges, discount, afterStrategy - afterDiscount,
+                taxable, taxRate, tax, Money.add(taxable, tax));
+    }
+}
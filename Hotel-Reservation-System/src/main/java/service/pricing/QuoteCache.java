@@ -0,0 +1,179 @@
+package service.pricing;
+
+import model.RoomType;
+import service.strategy.BillingPipeline;
+import service.strategy.BillingStrategy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache in front of {@link PricingEngine} for the quotes the kiosk recomputes on
+ * every control change.
+ *
+ * The key is canonical: the rooms as per-type counts plus their base-price total, the add-ons sorted,
+ * the stay dates, the discount, the billing strategy and the pricing config and add-on catalog
+ * versions. Two selections that list the same rooms in a different order share one entry,
+ * and a config or catalog change makes every older entry unreachable; the cache also empties
+ * itself the first time it sees a new version so stale quotes do not linger until evicted.
+ *
+ * Only quotes whose strategy, or the engine's default when none is passed, is a
+ * {@link BillingPipeline} are cached. A pipeline is immutable
+ * and compared by value; any other strategy may read live configuration in {@code apply}, such
+ * as the loyalty redeem cap, so its quotes always go to the engine.
+ */
+public class QuoteCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int ROOM_COUNT_BITS = 16;
+    private static final long ROOM_COUNT_MASK = (1L << ROOM_COUNT_BITS) - 1;
+
+    private final PricingEngine pricingEngine;
+    private final int capacity;
+    private final Map<QuoteKey, PriceBreakdown> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long cachedVersion = -1;
+    private long cachedCatalogVersion = -1;
+
+    public QuoteCache(PricingEngine pricingEngine, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Quote cache capacity must be positive");
+        }
+        this.pricingEngine = pricingEngine;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QuoteKey, PriceBreakdown> eldest) {
+                if (size() > QuoteCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link PricingEngine#quote(List, List, LocalDate, LocalDate, double, BillingStrategy)},
+     * answered from the cache when the same stay was priced under the current config.
+     */
+    public PriceBreakdown quote(List<RoomType> rooms, List<String> addOns, LocalDate checkIn, LocalDate checkOut,
+                                double discountPercent, BillingStrategy strategy) {
+        long roomCounts = rooms == null ? 0 : packRoomCounts(rooms);
+        BillingStrategy effective = strategy != null ? strategy : pricingEngine.getStrategy();
+        if (checkIn == null || checkOut == null || roomCounts < 0 || !(effective instanceof BillingPipeline)) {
+            return pricingEngine.quote(rooms, addOns, checkIn, checkOut, discountPercent, effective);
+        }
+
+        long version = pricingEngine.getPricingConfig().getVersion();
+        long catalogVersion = pricingEngine.getAddOnCatalog().snapshot().version();
+        QuoteKey key = new QuoteKey(roomCounts, rooms == null ? 0.0 : basePriceTotal(rooms), sorted(addOns),
+                checkIn.toEpochDay(), checkOut.toEpochDay(), discountPercent, (BillingPipeline) effective, version,
+                catalogVersion);
+
+        synchronized (entries) {
+            if (version != cachedVersion || catalogVersion != cachedCatalogVersion) {
+                entries.clear();
+                cachedVersion = version;
+                cachedCatalogVersion = catalogVersion;
+            }
+            PriceBreakdown cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        PriceBreakdown quote = pricingEngine.quote(rooms, addOns, checkIn, checkOut, discountPercent, effective);
+        synchronized (entries) {
+            if (version == cachedVersion && catalogVersion == cachedCatalogVersion) {
+                entries.put(key, quote);
+            }
+        }
+        return quote;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), size, capacity);
+    }
+
+    /**
+     * Room counts per type, one 16-bit field per type ordinal; -1 when the selection does not
+     * fit, in which case the quote is not cached.
+     */
+    private static long packRoomCounts(List<RoomType> rooms) {
+        long packed = 0;
+        for (RoomType room : rooms) {
+            RoomType.Type type = room.getType();
+            if (type == null || type.ordinal() >= Long.SIZE / ROOM_COUNT_BITS) {
+                return -1;
+            }
+            int shift = type.ordinal() * ROOM_COUNT_BITS;
+            if (((packed >>> shift) & ROOM_COUNT_MASK) == ROOM_COUNT_MASK) {
+                return -1;
+            }
+            packed += 1L << shift;
+        }
+        return packed;
+    }
+
+    private static double basePriceTotal(List<RoomType> rooms) {
+        double total = 0.0;
+        for (RoomType room : rooms) {
+            total += room.getBasePrice();
+        }
+        return total;
+    }
+
+    private static List<String> sorted(List<String> addOns) {
+        if (addOns == null || addOns.isEmpty()) {
+            return List.of();
+        }
+        for (int i = 1; i < addOns.size(); i++) {
+            if (addOns.get(i - 1).compareTo(addOns.get(i)) > 0) {
+                List<String> copy = new ArrayList<>(addOns);
+                Collections.sort(copy);
+                return copy;
+            }
+        }
+        // Already in order; List.copyOf returns immutable lists as they are
+        return List.copyOf(addOns);
+    }
+
+    /**
+     * Room charges depend on the rooms only through the sum of their base prices, so the
+     * per-type counts plus that sum identify the room multiset for pricing purposes.
+     */
+    private record QuoteKey(long roomCounts, double basePriceTotal, List<String> addOns, long checkIn,
+                            long checkOut, double discountPercent, BillingPipeline strategy, long configVersion,
+                            long catalogVersion) {
+    }
+
+    /**
+     * Hit, miss and eviction counts since start-up, with the current fill.
+     */
+    public record Stats(long hits, long misses, long evictions, int size, int capacity) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package service.strategy;
+
+import util.Money;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable billing strategy built from a declarative list of steps: rate multipliers,
+ * percentage discounts, loyalty point credits and a floor at zero.
+ *
+ * The steps are compiled once, when the pipeline is built. Runs of multipliers and discounts
+ * are folded into one factor, runs of credits into one amount, repeated floors into one, and
+ * steps that change nothing are dropped. Applying the pipeline is then a single pass over
+ * a few primitive arrays, rounding once per folded factor: the amount half up, or for a run
+ * of discounts alone the discount itself half up, computed as a percentage of the amount the
+ * way a single discount always has been, so the two agree to the cent. Nothing in it
+ * can change after construction, so one pipeline can be shared by every session and used
+ * as a quote cache key; pipelines that compile to the same operations are equal.
+ *
+ * <pre>
+ * BillingPipeline.builder()
+ *         .percentDiscount(10)
+ *         .pointsCredit(500)
+ *         .floorAtZero()
+ *         .build();
+ * </pre>
+ */
+public final class BillingPipeline implements BillingStrategy {
+    /** Leaves every amount as it is. */
+    public static final BillingPipeline IDENTITY = new BillingPipeline(List.of());
+
+    private static final byte SCALE = 0;
+    private static final byte DISCOUNT = 1;
+    private static final byte CREDIT = 2;
+    private static final byte FLOOR = 3;
+
+    private final List<Step> steps;
+    private final byte[] operations;
+    /** The factor of a SCALE operation, the percent of a DISCOUNT. */
+    private final double[] factors;
+    private final long[] credits;
+
+    private BillingPipeline(List<Step> steps) {
+        this.steps = List.copyOf(steps);
+
+        List<Byte> ops = new ArrayList<>();
+        List<Double> factorList = new ArrayList<>();
+        List<Long> creditList = new ArrayList<>();
+        for (Step step : this.steps) {
+            byte op;
+            double factor = 1.0;
+            long credit = 0;
+            if (step instanceof Multiplier multiplier) {
+                op = SCALE;
+                factor = multiplier.factor();
+            } else if (step instanceof PercentDiscount percentDiscount) {
+                op = DISCOUNT;
+                factor = percentDiscount.percent();
+            } else if (step instanceof PointsCredit points) {
+                op = CREDIT;
+                credit = points.cents();
+            } else {
+                op = FLOOR;
+            }
+
+            if ((op == SCALE && factor == 1.0) || (op == DISCOUNT && factor == 0.0) || (op == CREDIT && credit == 0)) {
+                continue;
+            }
+            int last = ops.size() - 1;
+            byte previous = last >= 0 ? ops.get(last) : -1;
+            if (previous == op && op == DISCOUNT) {
+                // Two discounts leave (100 - p1)% of (100 - p2)%
+                double kept = (100.0 - factorList.get(last)) * (100.0 - factor) / 100.0;
+                factorList.set(last, 100.0 - kept);
+                continue;
+            }
+            if ((previous == SCALE || previous == DISCOUNT) && (op == SCALE || op == DISCOUNT)) {
+                double previousFactor = previous == DISCOUNT ? 1.0 - factorList.get(last) / 100.0 : factorList.get(last);
+                double stepFactor = op == DISCOUNT ? 1.0 - factor / 100.0 : factor;
+                ops.set(last, SCALE);
+                factorList.set(last, previousFactor * stepFactor);
+                continue;
+            }
+            if (previous == op) {
+                if (op == CREDIT) {
+                    creditList.set(last, Math.addExact(creditList.get(last), credit));
+                }
+                continue;
+            }
+            ops.add(op);
+            factorList.add(factor);
+            creditList.add(credit);
+        }
+
+        int size = ops.size();
+        this.operations = new byte[size];
+        this.factors = new double[size];
+        this.credits = new long[size];
+        for (int i = 0; i < size; i++) {
+            operations[i] = ops.get(i);
+            factors[i] = factorList.get(i);
+            credits[i] = creditList.get(i);
+        }
+    }
+
+    public static BillingPipeline of(List<Step> steps) {
+        return steps.isEmpty() ? IDENTITY : new BillingPipeline(steps);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public long apply(long baseCents) {
+        long amount = baseCents;
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case SCALE -> amount = Money.multiply(amount, factors[i], RoundingMode.HALF_UP);
+                case DISCOUNT -> amount = Money.subtract(amount, Money.percentOf(amount, factors[i], RoundingMode.HALF_UP));
+                case CREDIT -> amount = Money.subtract(amount, credits[i]);
+                default -> amount = Math.max(amount, 0);
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * The steps as declared, before compilation.
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Number of operations left after folding; what one {@link #apply(long)} walks.
+     */
+    public int compiledLength() {
+        return operations.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BillingPipeline pipeline
+                && Arrays.equals(operations, pipeline.operations)
+                && Arrays.equals(factors, pipeline.factors)
+                && Arrays.equals(credits, pipeline.credits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(operations) + Arrays.hashCode(factors)) + Arrays.hashCode(credits);
+    }
+
+    @Override
+    public String toString() {
+        return "BillingPipeline" + steps;
+    }
+
+    /**
+     * One declarative pipeline step.
+     */
+    public sealed interface Step permits Multiplier, PercentDiscount, PointsCredit, FloorAtZero {
+    }
+
+    /**
+     * Multiply the amount, e.g. by a weekend or peak-season rate.
+     */
+    public record Multiplier(double factor) implements Step {
+        public Multiplier {
+            if (!(factor >= 0) || Double.isInfinite(factor)) {
+                throw new IllegalArgumentException("Multiplier must be a non-negative number");
+            }
+        }
+    }
+
+    /**
+     * Take a percentage (0-100) off the amount.
+     */
+    public record PercentDiscount(double percent) implements Step {
+        public PercentDiscount {
+            if (!(percent >= 0 && percent <= 100)) {
+                throw new IllegalArgumentException("Discount percent must be between 0 and 100");
+            }
+        }
+    }
+
+    /**
+     * Subtract a fixed credit, such as redeemed loyalty points, in cents.
+     */
+    public record PointsCredit(long cents) implements Step {
+        public PointsCredit {
+            if (cents < 0) {
+                throw new IllegalArgumentException("Credit cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * Raise a negative amount to zero.
+     */
+    public record FloorAtZero() implements Step {
+    }
+
+    /**
+     * Collects steps in order; not thread-safe, but the pipeline it builds is.
+     */
+    public static final class Builder {
+        private final List<Step> steps = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder multiplier(double factor) {
+            return step(new Multiplier(factor));
+        }
+
+        public Builder percentDiscount(double percent) {
+            return step(new PercentDiscount(percent));
+        }
+
+        /**
+         * Credit for redeemed loyalty points at one cent per point.
+         */
+        public Builder pointsCredit(long points) {
+            return step(new PointsCredit(points));
+        }
+
+        public Builder floorAtZero() {
+            return step(new FloorAtZero());
+        }
+
+        public Builder step(Step step) {
+            if (step == null) {
+                throw new IllegalArgumentException("Step is required");
+            }
+            steps.add(step);
+            return this;
+        }
+
+        public BillingPipeline build() {
+            return of(steps);
+        }
+    }
+}
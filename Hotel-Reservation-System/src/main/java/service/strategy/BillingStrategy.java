@@ -2,7 +2,10 @@ package service.strategy;
 
 /**
  * Strategy abstraction for billing calculations.
+ * Amounts are in cents (see {@link util.Money}); each strategy rounds its own result.
+ * Chains of multipliers, discounts and credits are built as a {@link BillingPipeline}
+ * rather than by wrapping strategies in one another.
  */
 public interface BillingStrategy {
-    double apply(double baseAmount);
+    long apply(long baseCents);
 }
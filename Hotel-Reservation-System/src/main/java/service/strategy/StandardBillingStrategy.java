@@ -1,31 +1,19 @@
 package service.strategy;
 
-import config.PricingConfig;
-
 /**
- * Default billing strategy that applies configured multipliers without discounts.
+ * Default billing: the stay as priced, without discounts or credits. Weekday, weekend and
+ * peak multipliers are per-night rates that the rate calendar already charges night by night,
+ * so they are not applied again here.
  */
-public class StandardBillingStrategy implements BillingStrategy {
-    private final PricingConfig pricingConfig;
-    private final boolean weekend;
-    private final boolean peakSeason;
-
-    public StandardBillingStrategy(PricingConfig pricingConfig) {
-        this(pricingConfig, false, false);
-    }
+public final class StandardBillingStrategy {
 
-    public StandardBillingStrategy(PricingConfig pricingConfig, boolean weekend, boolean peakSeason) {
-        this.pricingConfig = pricingConfig;
-        this.weekend = weekend;
-        this.peakSeason = peakSeason;
+    private StandardBillingStrategy() {
     }
 
-    @Override
-    public double apply(double baseAmount) {
-        double multiplier = weekend ? pricingConfig.getWeekendMultiplier() : pricingConfig.getWeekdayMultiplier();
-        if (peakSeason) {
-            multiplier *= pricingConfig.getPeakSeasonMultiplier();
-        }
-        return baseAmount * multiplier;
+    /**
+     * The standard strategy as a pipeline the quote cache can key on.
+     */
+    public static BillingPipeline pipeline() {
+        return BillingPipeline.IDENTITY;
     }
 }
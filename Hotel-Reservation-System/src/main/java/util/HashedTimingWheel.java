@@ -0,0 +1,139 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed timing wheel for large numbers of coarse-grained timeouts.
+ *
+ * Time is split into fixed ticks and each timeout lands in the slot for its deadline tick,
+ * so scheduling and cancelling are O(1) and a single worker thread expires everything,
+ * instead of one timer task per timeout. Timeouts fire no earlier than their delay and at
+ * most about one tick late. The current tick is read from the monotonic clock, so a worker
+ * that falls behind walks the slots it missed on its next run rather than drifting.
+ * New timeouts are handed to the worker through a lock-free queue; only the worker touches the slots.
+ */
+public class HashedTimingWheel {
+    private static final Logger LOGGER = Logger.getLogger(HashedTimingWheel.class.getName());
+
+    private final long tickMillis;
+    private final int mask;
+    private final Queue<Timeout>[] slots;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService worker;
+    private final long startNanos;
+    private long currentTick;
+
+    /**
+     * @param wheelSize number of slots, rounded up to a power of two
+     */
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        @SuppressWarnings("unchecked")
+        Queue<Timeout>[] table = (Queue<Timeout>[]) new Queue<?>[size];
+        this.slots = table;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run the task once, after at least the given delay.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = elapsedMillis() + Math.max(0, delayMillis);
+        Timeout timeout = new Timeout(task, (deadline + tickMillis - 1) / tickMillis);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void tick() {
+        long now = elapsedMillis() / tickMillis;
+        while (currentTick < now) {
+            advance(++currentTick);
+        }
+    }
+
+    private void advance(long tick) {
+        for (Timeout timeout; (timeout = pending.poll()) != null; ) {
+            if (!timeout.cancelled) {
+                // Deadlines already passed go in the current slot and fire on this tick
+                slots[(int) (Math.max(timeout.deadlineTick, tick) & mask)].add(timeout);
+            }
+        }
+
+        Iterator<Timeout> slot = slots[(int) (tick & mask)].iterator();
+        while (slot.hasNext()) {
+            Timeout timeout = slot.next();
+            if (timeout.cancelled) {
+                slot.remove();
+            } else if (timeout.deadlineTick <= tick) {
+                slot.remove();
+                timeout.expire();
+            }
+        }
+    }
+
+    /**
+     * Handle for a scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Stop the task from running; the slot entry is dropped on the next pass.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void expire() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Timing wheel task failed", e);
+            }
+        }
+    }
+}
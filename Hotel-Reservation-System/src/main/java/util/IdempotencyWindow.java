@@ -0,0 +1,126 @@
+package util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of recent keyed operations so that a repeat of the same key gets the
+ * first result back instead of running the operation again.
+ *
+ * The first caller for a key registers a pending result and runs the work; callers arriving
+ * with the same key while it runs wait for that result rather than starting their own. A
+ * failed attempt is forgotten, so a retry runs again. Results are kept until they expire
+ * or, when the window is full, until they are among the oldest; keys are tracked in arrival
+ * order so both are trimmed from the head of a queue without scanning the map.
+ */
+public class IdempotencyWindow<V> {
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<String> arrivals = new ConcurrentLinkedQueue<>();
+    private final int capacity;
+    private final long ttlNanos;
+
+    public IdempotencyWindow(int capacity, Duration ttl) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * The remembered result for {@code key}, or the result of running {@code work} once for it.
+     */
+    public V execute(String key, Supplier<V> work) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is required");
+        }
+        while (true) {
+            long now = System.nanoTime();
+            Entry<V> mine = new Entry<>(now + ttlNanos);
+            Entry<V> existing = entries.putIfAbsent(key, mine);
+            if (existing != null) {
+                if (existing.isExpired(now)) {
+                    entries.remove(key, existing);
+                    continue;
+                }
+                try {
+                    return existing.result.join();
+                } catch (CompletionException ex) {
+                    // The attempt we waited on failed and was forgotten; try again
+                    continue;
+                }
+            }
+
+            arrivals.add(key);
+            trim(now);
+            try {
+                V value = work.get();
+                mine.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error ex) {
+                entries.remove(key, mine);
+                mine.result.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Results currently remembered, including pending ones.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop expired results from the oldest end, then the oldest finished results while the
+     * window is over capacity. Pending results are never dropped.
+     */
+    private void trim(long now) {
+        // At most one look per remembered key, so a window full of pending results cannot spin
+        for (int budget = entries.size(); budget >= 0; budget--) {
+            String key = arrivals.peek();
+            if (key == null) {
+                return;
+            }
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired(now)) {
+                if (entries.size() <= capacity) {
+                    return;
+                }
+                if (!entry.result.isDone()) {
+                    // Still running; keep it and look past it
+                    if (arrivals.remove(key)) {
+                        arrivals.add(key);
+                    }
+                    continue;
+                }
+            }
+            if (arrivals.remove(key) && entry != null) {
+                entries.remove(key, entry);
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final long expiresAt;
+
+        Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return result.isDone() && now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a {@code long} count of cents.
+ *
+ * Amounts travel through billing as plain longs, so adding, subtracting and comparing them is
+ * exact and allocates nothing. The only places an amount is rounded are the calls here that
+ * take a {@link RoundingMode}: converting from dollars and taking a rate or percentage of an
+ * amount. {@link BigDecimal} is used only at the persistence boundary, via
+ * {@link #fromBigDecimal(BigDecimal)} and {@link #toBigDecimal(long)}.
+ *
+ * Supported rounding modes are HALF_UP, HALF_EVEN, HALF_DOWN, UP, DOWN, CEILING and FLOOR.
+ */
+public final class Money {
+    public static final long ZERO = 0L;
+    public static final int CENTS_PER_DOLLAR = 100;
+
+    private Money() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Cents for a dollar amount, rounded half up.
+     */
+    public static long ofDollars(double dollars) {
+        return ofDollars(dollars, RoundingMode.HALF_UP);
+    }
+
+    public static long ofDollars(double dollars, RoundingMode rounding) {
+        return round(dollars * CENTS_PER_DOLLAR, rounding);
+    }
+
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Cents for a stored amount, rounded half up if it carries more than two decimals.
+     */
+    public static long fromBigDecimal(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * The amount with a scale of 2, for persisting.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * The amount times a factor (a rate multiplier, a tax rate), rounded to a cent.
+     */
+    public static long multiply(long cents, double factor, RoundingMode rounding) {
+        return round(cents * factor, rounding);
+    }
+
+    /**
+     * {@code percent} percent of the amount, rounded to a cent.
+     */
+    public static long percentOf(long cents, double percent, RoundingMode rounding) {
+        return round(cents * percent / 100.0, rounding);
+    }
+
+    /**
+     * Round a fractional number of cents to a whole cent.
+     *
+     * The value is first snapped to 1e-9 of a cent so that binary noise such as
+     * 12.499999999999998 rounds as the 12.5 it stands for.
+     */
+    public static long round(double cents, RoundingMode rounding) {
+        if (!Double.isFinite(cents) || Math.abs(cents) >= 9.0e15) {
+            throw new ArithmeticException("Amount out of range: " + cents + " cents");
+        }
+        double value = Math.rint(cents * 1e9) / 1e9;
+        double floor = Math.floor(value);
+        double fraction = value - floor;
+        if (fraction == 0.0) {
+            return (long) floor;
+        }
+        long down = (long) floor;
+        long up = down + 1;
+        switch (rounding) {
+            case FLOOR:
+                return down;
+            case CEILING:
+                return up;
+            case DOWN:
+                return value > 0 ? down : up;
+            case UP:
+                return value > 0 ? up : down;
+            case HALF_UP:
+                if (fraction == 0.5) {
+                    return value > 0 ? up : down;
+                }
+                return fraction > 0.5 ? up : down;
+            case HALF_DOWN:
+                if (fraction == 0.5) {
+                    return value > 0 ? down : up;
+                }
+                return fraction > 0.5 ? up : down;
+            case HALF_EVEN:
+                if (fraction == 0.5) {
+                    return (down & 1) == 0 ? down : up;
+                }
+                return fraction > 0.5 ? up : down;
+            default:
+                throw new IllegalArgumentException("Unsupported rounding mode: " + rounding);
+        }
+    }
+
+    /**
+     * "$1,234.56" style text, e.g. for logs.
+     */
+    public static String format(long cents) {
+        return String.format("%s$%,d.%02d", cents < 0 ? "-" : "", Math.abs(cents / CENTS_PER_DOLLAR),
+                Math.abs(cents % CENTS_PER_DOLLAR));
+    }
+}
@@ -0,0 +1,126 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loading the settings file: a good file is published whole, a bad one leaves the running
+ * settings untouched, and neither goes through the setters' per-value logging.
+ */
+class ConfigServiceTest {
+    private static final String GOOD = """
+            pricing.weekendMultiplier=1.4
+            pricing.taxRate=0.12
+            pricing.peakMonths=July,August
+            pricing.season.summer=2030-07-01,2030-08-31,1.3
+            loyalty.earnRate=12
+            loyalty.redeemCap=4000
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final Logger pricingLogger = Logger.getLogger(PricingConfig.class.getName());
+    private final Logger loyaltyLogger = Logger.getLogger(LoyaltyConfig.class.getName());
+    private final List<LogRecord> records = new CopyOnWriteArrayList<>();
+    private final Handler capture = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private Path file;
+    private PricingConfig pricingConfig;
+    private LoyaltyConfig loyaltyConfig;
+    private ConfigService service;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("hotel.properties");
+        pricingConfig = new PricingConfig();
+        loyaltyConfig = new LoyaltyConfig();
+        service = new ConfigService(file, pricingConfig, loyaltyConfig);
+        capture.setLevel(Level.ALL);
+        pricingLogger.addHandler(capture);
+        loyaltyLogger.addHandler(capture);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pricingLogger.removeHandler(capture);
+        loyaltyLogger.removeHandler(capture);
+    }
+
+    @Test
+    void aGoodFileIsPublishedWithoutTheSettersLogging() throws IOException {
+        write(GOOD);
+
+        assertThat(service.reload()).isTrue();
+
+        assertThat(pricingConfig.getWeekendMultiplier()).isEqualTo(1.4);
+        assertThat(pricingConfig.getTaxRate()).isEqualTo(0.12);
+        assertThat(pricingConfig.snapshot().getSeasonalRules().getRules()).hasSize(1);
+        assertThat(loyaltyConfig.settings())
+                .isEqualTo(new LoyaltyConfig.Settings(12.0, LoyaltyConfig.DEFAULTS.redeemRate(), 4000,
+                        LoyaltyConfig.DEFAULTS.minimumRedeemPoints()));
+        assertThat(service.getVersion()).isEqualTo(1);
+        assertThat(records).isEmpty();
+    }
+
+    @Test
+    void anOutOfRangeValueRejectsTheFileAndKeepsThePreviousSnapshot() throws IOException {
+        write(GOOD);
+        service.reload();
+        PricingSnapshot before = pricingConfig.snapshot();
+        LoyaltyConfig.Settings loyaltyBefore = loyaltyConfig.settings();
+
+        // Every other value is fine, so nothing from this file may be published
+        write(GOOD + "pricing.weekdayMultiplier=1.1\nloyalty.redeemRate=0\n");
+
+        assertThat(service.reload()).isFalse();
+        assertThat(pricingConfig.snapshot()).isSameAs(before);
+        assertThat(loyaltyConfig.settings()).isSameAs(loyaltyBefore);
+        assertThat(service.getVersion()).isEqualTo(1);
+        assertThat(records).isEmpty();
+    }
+
+    @Test
+    void anUnreadableValueRejectsTheFile() throws IOException {
+        write(GOOD);
+        service.reload();
+        PricingSnapshot before = pricingConfig.snapshot();
+
+        write("pricing.weekendMultiplier=1.5\npricing.taxRate=twelve percent\n");
+
+        assertThat(service.reload()).isFalse();
+        assertThat(pricingConfig.snapshot()).isSameAs(before);
+        assertThat(pricingConfig.getWeekendMultiplier()).isEqualTo(1.4);
+    }
+
+    private void write(String contents) throws IOException {
+        Files.writeString(file, contents);
+    }
+}
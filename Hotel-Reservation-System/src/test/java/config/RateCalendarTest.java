@@ -0,0 +1,125 @@
+package config;
+
+import model.RoomType;
+import org.junit.jupiter.api.Test;
+import service.factory.RoomFactory;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Nightly multipliers from the default settings (1.2x weekend nights, 1.5x in June-August and
+ * December) and stay sums read from the prefix table or, outside it, by walking the nights.
+ */
+class RateCalendarTest {
+    /** Matches the table RateCalendar builds: two years back, five ahead. */
+    private static final int DAYS_BACK = 2 * 366;
+    private static final int DAYS = DAYS_BACK + 5 * 366;
+
+    /** A Monday in March, outside the default peak months. */
+    private static final LocalDate MONDAY = LocalDate.of(2027, 3, 1);
+
+    private final PricingConfig pricingConfig = new PricingConfig();
+
+    @Test
+    void fridayAndSaturdayNightsAreWeekendNights() {
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+
+        assertThat(MONDAY.getDayOfWeek()).isEqualTo(DayOfWeek.MONDAY);
+        assertThat(calendar.multiplierFor(MONDAY.plusDays(3))).as("Thursday").isEqualTo(1.0);
+        assertThat(calendar.multiplierFor(MONDAY.plusDays(4))).as("Friday").isEqualTo(1.2);
+        assertThat(calendar.multiplierFor(MONDAY.plusDays(5))).as("Saturday").isEqualTo(1.2);
+        assertThat(calendar.multiplierFor(MONDAY.plusDays(6))).as("Sunday").isEqualTo(1.0);
+        assertThat(calendar.stayMultiplier(MONDAY, MONDAY.plusWeeks(1))).isCloseTo(7.4, within(1e-9));
+    }
+
+    @Test
+    void peakMonthsMultiplyEveryNight() {
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+        LocalDate julyFriday = LocalDate.of(2027, 7, 2);
+
+        assertThat(julyFriday.getDayOfWeek()).isEqualTo(DayOfWeek.FRIDAY);
+        assertThat(calendar.multiplierFor(julyFriday)).isCloseTo(1.8, within(1e-12));
+        assertThat(calendar.multiplierFor(julyFriday.minusDays(1))).isEqualTo(1.5);
+    }
+
+    @Test
+    void aSeasonalRuleReplacesThePeakMonthRate() {
+        LocalDate julyFriday = LocalDate.of(2027, 7, 2);
+        pricingConfig.setSeasonalRules(List.of(new SeasonalRule("festival", julyFriday, julyFriday, 2.0, 0)));
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+
+        assertThat(calendar.multiplierFor(julyFriday)).isCloseTo(1.2 * 2.0, within(1e-12));
+        assertThat(calendar.multiplierFor(julyFriday.plusDays(1))).isCloseTo(1.2 * 1.5, within(1e-12));
+    }
+
+    @Test
+    void staysAtTheEdgesOfTheTableMatchWalkingTheNights() {
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+        LocalDate tableStart = LocalDate.now().minusDays(DAYS_BACK);
+        LocalDate tableEnd = tableStart.plusDays(DAYS);
+
+        // First night in the table, the night before it, the last night in it and the one after
+        assertStayMatchesNights(calendar, tableStart, tableStart.plusDays(10));
+        assertStayMatchesNights(calendar, tableStart.minusDays(1), tableStart.plusDays(10));
+        assertStayMatchesNights(calendar, tableEnd.minusDays(10), tableEnd);
+        assertStayMatchesNights(calendar, tableEnd.minusDays(10), tableEnd.plusDays(1));
+        // Entirely outside on either side
+        assertStayMatchesNights(calendar, tableStart.minusDays(40), tableStart.minusDays(20));
+        assertStayMatchesNights(calendar, tableEnd.plusDays(20), tableEnd.plusDays(40));
+        // A long stay across most of the table
+        assertStayMatchesNights(calendar, tableStart.plusDays(1), tableEnd.minusDays(1));
+    }
+
+    @Test
+    void randomStaysUnderOverlappingSeasonsMatchWalkingTheNights() {
+        LocalDate today = LocalDate.now();
+        pricingConfig.setSeasonalRules(List.of(
+                new SeasonalRule("summer", today.plusDays(200), today.plusDays(290), 1.4, 0),
+                new SeasonalRule("festival", today.plusDays(240), today.plusDays(249), 2.0, 5),
+                new SeasonalRule("blackout", today.plusDays(245), today.plusDays(260), 3.0, 5)));
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+
+        Random random = new Random(16);
+        for (int i = 0; i < 400_000; i++) {
+            // Mostly inside the table, some running off either end
+            LocalDate checkIn = today.plusDays(random.nextInt(DAYS + 200) - DAYS_BACK - 100);
+            assertStayMatchesNights(calendar, checkIn, checkIn.plusDays(1 + random.nextInt(30)));
+        }
+    }
+
+    @Test
+    void emptyOrBackwardStaysCostNothing() {
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+
+        assertThat(calendar.stayMultiplier(MONDAY, MONDAY)).isZero();
+        assertThat(calendar.stayMultiplier(MONDAY, MONDAY.minusDays(3))).isZero();
+        assertThat(calendar.roomCharges(List.of(), MONDAY, MONDAY.plusDays(2))).isZero();
+    }
+
+    @Test
+    void roomChargesAreTheBasePricesTimesTheStayMultiplier() {
+        RateCalendar calendar = pricingConfig.getRateCalendar();
+        List<RoomType> rooms = List.of(RoomFactory.create(RoomType.Type.SINGLE, 100.0, 2),
+                RoomFactory.create(RoomType.Type.DELUXE, 250.0, 2));
+
+        // Thursday, Friday and Saturday nights: 1.0 + 1.2 + 1.2
+        assertThat(calendar.roomCharges(rooms, MONDAY.plusDays(3), MONDAY.plusDays(6)))
+                .isCloseTo(350.0 * 3.4, within(1e-9));
+    }
+
+    private static void assertStayMatchesNights(RateCalendar calendar, LocalDate checkIn, LocalDate checkOut) {
+        double nights = 0.0;
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            nights += calendar.multiplierFor(night);
+        }
+        assertThat(calendar.stayMultiplier(checkIn, checkOut))
+                .as("%s to %s", checkIn, checkOut)
+                .isCloseTo(nights, within(1e-9));
+    }
+}
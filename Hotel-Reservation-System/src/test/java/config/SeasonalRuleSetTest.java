@@ -0,0 +1,112 @@
+package config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Overlapping seasonal rules resolved into intervals, and nightly lookups against them.
+ */
+class SeasonalRuleSetTest {
+    private static final LocalDate JULY_1 = LocalDate.of(2027, 7, 1);
+
+    @Test
+    void noRulesCoverNoNights() {
+        assertThat(SeasonalRuleSet.EMPTY.isEmpty()).isTrue();
+        assertThat(SeasonalRuleSet.EMPTY.intervalCount()).isZero();
+        assertThat(SeasonalRuleSet.EMPTY.ruleFor(JULY_1)).isEmpty();
+        assertThat(SeasonalRuleSet.EMPTY.multiplierOn(JULY_1.toEpochDay())).isNaN();
+    }
+
+    @Test
+    void bothNightsOfARuleAreIncluded() {
+        SeasonalRule festival = rule("festival", JULY_1, JULY_1.plusDays(9), 1.8, 0);
+        SeasonalRuleSet rules = new SeasonalRuleSet(List.of(festival));
+
+        assertThat(rules.ruleFor(JULY_1.minusDays(1))).isEmpty();
+        assertThat(rules.ruleFor(JULY_1)).contains(festival);
+        assertThat(rules.ruleFor(JULY_1.plusDays(9))).contains(festival);
+        assertThat(rules.ruleFor(JULY_1.plusDays(10))).isEmpty();
+        assertThat(rules.multiplierOn(JULY_1.plusDays(9).toEpochDay())).isEqualTo(1.8);
+    }
+
+    @Test
+    void aSingleNightRuleCoversOnlyThatNight() {
+        SeasonalRule newYearsEve = rule("newYearsEve", LocalDate.of(2027, 12, 31), LocalDate.of(2027, 12, 31), 2.5, 0);
+        SeasonalRuleSet rules = new SeasonalRuleSet(List.of(newYearsEve));
+
+        assertThat(rules.intervalCount()).isEqualTo(1);
+        assertThat(rules.ruleFor(LocalDate.of(2027, 12, 30))).isEmpty();
+        assertThat(rules.ruleFor(LocalDate.of(2027, 12, 31))).contains(newYearsEve);
+        assertThat(rules.ruleFor(LocalDate.of(2028, 1, 1))).isEmpty();
+    }
+
+    @Test
+    void higherPriorityWinsWhereRulesOverlapWhateverTheOrder() {
+        SeasonalRule summer = rule("summer", JULY_1, JULY_1.plusDays(30), 1.5, 0);
+        SeasonalRule festival = rule("festival", JULY_1.plusDays(10), JULY_1.plusDays(14), 1.8, 5);
+
+        for (List<SeasonalRule> order : List.of(List.of(summer, festival), List.of(festival, summer))) {
+            SeasonalRuleSet rules = new SeasonalRuleSet(order);
+            assertThat(rules.intervalCount()).isEqualTo(3);
+            assertThat(rules.ruleFor(JULY_1.plusDays(9))).contains(summer);
+            assertThat(rules.ruleFor(JULY_1.plusDays(10))).contains(festival);
+            assertThat(rules.ruleFor(JULY_1.plusDays(14))).contains(festival);
+            assertThat(rules.ruleFor(JULY_1.plusDays(15))).contains(summer);
+        }
+    }
+
+    @Test
+    void betweenEqualPrioritiesTheLaterRuleWins() {
+        SeasonalRule first = rule("first", JULY_1, JULY_1.plusDays(5), 1.5, 1);
+        SeasonalRule second = rule("second", JULY_1.plusDays(3), JULY_1.plusDays(8), 2.0, 1);
+
+        SeasonalRuleSet rules = new SeasonalRuleSet(List.of(first, second));
+        assertThat(rules.ruleFor(JULY_1.plusDays(2))).contains(first);
+        assertThat(rules.ruleFor(JULY_1.plusDays(3))).contains(second);
+        assertThat(rules.ruleFor(JULY_1.plusDays(5))).contains(second);
+
+        SeasonalRuleSet reversed = new SeasonalRuleSet(List.of(second, first));
+        assertThat(reversed.ruleFor(JULY_1.plusDays(5))).contains(first);
+        assertThat(reversed.ruleFor(JULY_1.plusDays(6))).contains(second);
+    }
+
+    @Test
+    void aRuleThatNeverWinsLeavesTheWinnerInOneInterval() {
+        SeasonalRule summer = rule("summer", JULY_1, JULY_1.plusDays(30), 1.5, 10);
+        SeasonalRule hidden = rule("hidden", JULY_1.plusDays(5), JULY_1.plusDays(7), 3.0, 0);
+
+        SeasonalRuleSet rules = new SeasonalRuleSet(List.of(summer, hidden));
+        assertThat(rules.intervalCount()).isEqualTo(1);
+        assertThat(rules.ruleFor(JULY_1.plusDays(6))).contains(summer);
+    }
+
+    @Test
+    void gapsBetweenRulesAreUncovered() {
+        SeasonalRule early = rule("early", JULY_1, JULY_1.plusDays(2), 1.5, 0);
+        SeasonalRule late = rule("late", JULY_1.plusDays(5), JULY_1.plusDays(6), 1.7, 0);
+
+        SeasonalRuleSet rules = new SeasonalRuleSet(List.of(late, early));
+        assertThat(rules.intervalCount()).isEqualTo(2);
+        assertThat(rules.ruleFor(JULY_1.plusDays(3))).isEmpty();
+        assertThat(rules.ruleFor(JULY_1.plusDays(4))).isEmpty();
+        assertThat(rules.ruleFor(JULY_1.plusDays(5))).contains(late);
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThatThrownBy(() -> rule(" ", JULY_1, JULY_1, 1.5, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rule("backwards", JULY_1, JULY_1.minusDays(1), 1.5, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rule("free", JULY_1, JULY_1, 0.0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SeasonalRule rule(String name, LocalDate firstNight, LocalDate lastNight, double multiplier,
+                                     int priority) {
+        return new SeasonalRule(name, firstNight, lastNight, multiplier, priority);
+    }
+}
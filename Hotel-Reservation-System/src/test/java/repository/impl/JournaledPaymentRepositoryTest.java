@@ -0,0 +1,179 @@
+package repository.impl;
+
+import model.Payment;
+import model.PaymentMethod;
+import model.PaymentType;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.PaymentRepository;
+import repository.journal.PaymentJournal;
+import service.TestHotel;
+import util.Money;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Payments captured through the journal over a real database: replay after a crash, a
+ * batch that never applies, and a journal that stays full.
+ */
+class JournaledPaymentRepositoryTest {
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(30);
+
+    private TestHotel hotel;
+    private Path journalPath;
+    private Path deadLetters;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        journalPath = Files.createTempFile("payments", ".journal");
+        Files.delete(journalPath);
+        deadLetters = journalPath.resolveSibling(journalPath.getFileName() + ".dead");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(deadLetters);
+    }
+
+    @Test
+    void paymentsCapturedBeforeACrashAreAppliedExactlyOnceOnReopen() throws Exception {
+        Reservation reservation = book(1);
+        PaymentJournal journal = PaymentJournal.open(journalPath, 16, 2);
+        PaymentJournal.Entry first = journal.append(draft(reservation, 10_000));
+        journal.append(draft(reservation, 2_500));
+        journal.append(draft(reservation, 1_000));
+        // The first was committed but the process died before the applied mark moved past it
+        hotel.paymentRepository().saveBatch(List.of(paymentOf(reservation, first)));
+        journal.close();
+
+        JournaledPaymentRepository reopened = new JournaledPaymentRepository(hotel.paymentRepository(),
+                hotel.reservationRepository(), PaymentJournal.open(journalPath, 16, 2));
+        assertThat(reopened.getPendingCount()).isZero();
+        assertThat(reopened.getJournal().getAppliedSequence()).isEqualTo(3);
+        reopened.close();
+
+        JournaledPaymentRepository again = new JournaledPaymentRepository(hotel.paymentRepository(),
+                hotel.reservationRepository(), PaymentJournal.open(journalPath, 16, 2));
+        assertThat(again.getJournal().recoveredEntries()).isEmpty();
+        again.close();
+
+        assertThat(hotel.paymentRepository().findByReservationId(reservation.getId()))
+                .extracting(payment -> Money.fromBigDecimal(payment.getAmount()))
+                .containsExactlyInAnyOrder(10_000L, 2_500L, 1_000L);
+        assertThat(hotel.paymentRepository().findLedgerTotals(reservation.getId())).get()
+                .extracting(totals -> totals.netCents()).isEqualTo(13_500L);
+    }
+
+    @Test
+    void aBatchThatKeepsFailingIsSplitAndTheBadPaymentSetAside() throws Exception {
+        Reservation good = book(1);
+        Reservation bad = book(2);
+        PaymentRepository rejectingBad = new PaymentRepositoryImpl(hotel.unitOfWork()) {
+            @Override
+            public int saveBatch(List<Payment> payments) {
+                for (Payment payment : payments) {
+                    if (payment.getReservation().getId().equals(bad.getId())) {
+                        throw new IllegalStateException("Rejected by the database");
+                    }
+                }
+                return super.saveBatch(payments);
+            }
+        };
+        JournaledPaymentRepository repository = new JournaledPaymentRepository(rejectingBad,
+                hotel.reservationRepository(), PaymentJournal.open(journalPath, 16, 2), false);
+        try {
+            repository.save(payment(good, 1_000));
+            Payment poisoned = repository.save(payment(bad, 2_000));
+            repository.save(payment(good, 3_000));
+
+            awaitApplied(repository);
+            assertThat(repository.getJournal().getAppliedSequence()).isEqualTo(3);
+            assertThat(hotel.paymentRepository().findByReservationId(good.getId())).hasSize(2);
+            assertThat(hotel.paymentRepository().findByReservationId(bad.getId())).isEmpty();
+            assertThat(Files.readAllLines(deadLetters)).singleElement().asString()
+                    .contains(poisoned.getIdempotencyKey());
+
+            // Later captures are no longer stuck behind it
+            repository.save(payment(good, 4_000));
+            awaitApplied(repository);
+            assertThat(hotel.paymentRepository().findByReservationId(good.getId())).hasSize(3);
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    void appendingToAFullJournalFailsAfterItsTimeout() throws Exception {
+        Reservation reservation = book(1);
+        try (PaymentJournal journal = PaymentJournal.open(journalPath, 2, 2)) {
+            journal.append(draft(reservation, 100));
+            journal.append(draft(reservation, 200));
+
+            long started = System.nanoTime();
+            assertThatThrownBy(() -> journal.append(draft(reservation, 300), 50))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("is full");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5_000);
+
+            // A slot frees once the applied mark is synced
+            journal.markApplied(1);
+            assertThat(journal.append(draft(reservation, 300)).sequence()).isEqualTo(3);
+        }
+    }
+
+    private Reservation book(int n) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(CHECK_IN);
+        reservation.setCheckOut(CHECK_IN.plusDays(2));
+        reservation.setStatus(ReservationStatus.BOOKED);
+        return hotel.reservationService().createReservation(reservation,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of());
+    }
+
+    private static PaymentJournal.Entry draft(Reservation reservation, long cents) {
+        return new PaymentJournal.Entry(0, reservation.getId(), PaymentMethod.CARD, PaymentType.NORMAL, cents,
+                LocalDateTime.now(), "Test", null);
+    }
+
+    private static Payment payment(Reservation reservation, long cents) {
+        Payment payment = new Payment();
+        payment.setReservation(reservation);
+        payment.setMethod(PaymentMethod.CARD);
+        payment.setType(PaymentType.NORMAL);
+        payment.setAmount(Money.toBigDecimal(cents));
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setCreatedBy("Test");
+        return payment;
+    }
+
+    private static Payment paymentOf(Reservation reservation, PaymentJournal.Entry entry) {
+        Payment payment = payment(reservation, entry.amountCents());
+        payment.setCreatedAt(entry.createdAt());
+        payment.setIdempotencyKey(entry.idempotencyKey());
+        return payment;
+    }
+
+    private static void awaitApplied(JournaledPaymentRepository repository) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (repository.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(repository.getPendingCount()).isZero();
+    }
+}
@@ -0,0 +1,127 @@
+package service;
+
+import config.ConfigService;
+import config.LoyaltyConfig;
+import config.PricingConfig;
+import controller.KioskPricingHelper;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.factory.RoomFactory;
+import service.pricing.PricingEngine;
+import service.pricing.QuoteCache;
+import service.strategy.BillingPipeline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiosk quotes priced through the default strategy, wired the way {@code Bootstrap} wires it.
+ */
+class BillingContextTest {
+    private static final LocalDate CHECK_IN = LocalDate.of(2027, 3, 1);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(3);
+
+    private Path directory;
+    private Path file;
+    private PricingConfig pricingConfig;
+    private ConfigService configService;
+    private TestHotel hotel;
+    private BillingContext billingContext;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("billing-test");
+        file = directory.resolve("application.properties");
+        Files.writeString(file, "pricing.weekdayMultiplier=1.0\n");
+        pricingConfig = new PricingConfig();
+        configService = new ConfigService(file, pricingConfig, new LoyaltyConfig());
+        configService.reload();
+        hotel = new TestHotel(new PricingEngine(pricingConfig));
+        billingContext = new BillingContext(hotel.pricingEngine());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        hotel.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    void repeatedKioskQuotesAreAnsweredFromTheCache() {
+        RoomType single = RoomFactory.create(RoomType.Type.SINGLE, 100.0, 2, 10);
+        RoomType deluxe = RoomFactory.create(RoomType.Type.DELUXE, 250.0, 2, 5);
+
+        KioskPricingHelper.BookingBreakdown first = KioskPricingHelper.calculate(List.of(single, deluxe),
+                List.of("WiFi", "Breakfast"), CHECK_IN, CHECK_OUT, billingContext);
+        // The same stay listed in another order, as the confirmation step prices it
+        double confirmed = billingContext.calculateTotal(List.of(deluxe, single), List.of("Breakfast", "WiFi"),
+                CHECK_IN, CHECK_OUT);
+        KioskPricingHelper.BookingBreakdown again = KioskPricingHelper.calculate(List.of(single, deluxe),
+                List.of("WiFi", "Breakfast"), CHECK_IN, CHECK_OUT, billingContext);
+
+        assertThat(billingContext.getStrategy()).isInstanceOf(BillingPipeline.class);
+        assertThat(confirmed).isEqualTo(first.total());
+        assertThat(again).isEqualTo(first);
+        QuoteCache.Stats stats = billingContext.getQuoteCacheStats();
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.hits()).isEqualTo(2);
+    }
+
+    @Test
+    void theKioskTotalIsWhatTheBookingStores() throws IOException {
+        Files.writeString(file, "pricing.weekdayMultiplier=1.1\n");
+        assertThat(configService.reload()).isTrue();
+        // Thursday to Sunday: one weekday night and two weekend nights
+        LocalDate checkIn = LocalDate.of(2027, 3, 4);
+        LocalDate checkOut = checkIn.plusDays(3);
+        List<RoomType> rooms = List.of(hotel.room(RoomType.Type.SINGLE), hotel.room(RoomType.Type.DELUXE));
+        List<String> addOns = List.of("WiFi", "Breakfast");
+
+        KioskPricingHelper.BookingBreakdown kiosk = KioskPricingHelper.calculate(rooms, addOns, checkIn, checkOut,
+                billingContext);
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(1));
+        reservation.setCheckIn(checkIn);
+        reservation.setCheckOut(checkOut);
+        reservation.setStatus(ReservationStatus.BOOKED);
+        Reservation booked = hotel.reservationService().createReservation(reservation, rooms, addOns);
+
+        // The multiplier is charged once per night by the rate calendar and not again on the subtotal
+        assertThat(kiosk.roomSubtotal()).isEqualTo(hotel.pricingEngine().roomCharges(rooms, checkIn, checkOut));
+        assertThat(booked.getTotalAmount()).isEqualTo(kiosk.total());
+        assertThat(hotel.reservationService().calculateReservationTotal(booked)).isEqualTo(kiosk.total());
+    }
+
+    @Test
+    void kioskBookingAndRecalculationShareTheDefaultStrategy() {
+        billingContext.setStrategy(BillingPipeline.builder().percentDiscount(10).build());
+        List<RoomType> rooms = List.of(hotel.room(RoomType.Type.DELUXE));
+        List<String> addOns = List.of("Breakfast");
+
+        KioskPricingHelper.BookingBreakdown kiosk = KioskPricingHelper.calculate(rooms, addOns, CHECK_IN, CHECK_OUT,
+                billingContext);
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(2));
+        reservation.setCheckIn(CHECK_IN);
+        reservation.setCheckOut(CHECK_OUT);
+        reservation.setStatus(ReservationStatus.BOOKED);
+        Reservation booked = hotel.reservationService().createReservation(reservation, rooms, addOns);
+        hotel.reservationService().recalculateAndUpdateTotal(booked.getId());
+
+        assertThat(kiosk.total()).isLessThan(kiosk.subtotal() + kiosk.tax());
+        assertThat(booked.getTotalAmount()).isEqualTo(kiosk.total());
+        assertThat(hotel.reservationService().findById(booked.getId())).get()
+                .extracting(Reservation::getTotalAmount).isEqualTo(kiosk.total());
+        assertThat(billingContext.calculateTotal(booked)).isEqualTo(kiosk.total());
+    }
+}
@@ -0,0 +1,111 @@
+package service;
+
+import config.LoyaltyConfig;
+import model.Guest;
+import model.LoyaltyEntryType;
+import model.LoyaltyLedgerEntry;
+import model.Payment;
+import model.PaymentMethod;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Points earned at check-out, wired the way {@code Bootstrap} wires it, and spent on a bill.
+ */
+class LoyaltyAccrualJobTest {
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(30);
+
+    private TestHotel hotel;
+    private LoyaltyConfig loyaltyConfig;
+    private LoyaltyService loyaltyService;
+    private LoyaltyAccrualJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        loyaltyConfig = new LoyaltyConfig();
+        loyaltyService = new LoyaltyService(loyaltyConfig, hotel.loyaltyRepository());
+        job = new LoyaltyAccrualJob(hotel.loyaltyRepository(), loyaltyService);
+        hotel.reservationService().addCheckOutListener(job::requestAccrual);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void aCheckedOutStayEarnsOnceAndThePointsCanBeSpent() throws Exception {
+        Reservation stay = book(1);
+        Guest guest = stay.getGuest();
+        loyaltyService.enrollGuest(guest);
+        int earned = loyaltyService.calculateEarnedPoints(stay.getTotalAmount());
+        assertThat(earned).isGreaterThanOrEqualTo(loyaltyConfig.getMinimumRedeemPoints());
+
+        hotel.reservationService().checkOut(stay.getId());
+        awaitBalance(guest.getId(), earned);
+
+        // Another check-out run and a full run credit nothing more
+        assertThat(job.run().posted()).isZero();
+        hotel.reservationService().checkOut(stay.getId());
+        assertThat(job.run().posted()).isZero();
+        assertThat(loyaltyService.getBalance(guest.getId())).isEqualTo(earned);
+        assertThat(loyaltyService.getHistory(guest.getId(), 10))
+                .filteredOn(entry -> entry.getType() == LoyaltyEntryType.EARN)
+                .singleElement()
+                .extracting(LoyaltyLedgerEntry::getPoints).isEqualTo((long) earned);
+
+        PaymentService paymentService = new PaymentService(hotel.reservationRepository(),
+                hotel.paymentRepository(), null, loyaltyService);
+        int points = loyaltyConfig.getMinimumRedeemPoints();
+        Optional<Payment> payment = paymentService.payWithPoints(stay.getId(), guest, points);
+
+        assertThat(payment).get().satisfies(paid -> {
+            assertThat(paid.getMethod()).isEqualTo(PaymentMethod.LOYALTY_POINTS);
+            assertThat(paid.getAmount()).isEqualByComparingTo(
+                    BigDecimal.valueOf(loyaltyConfig.calculateDiscount(points)));
+        });
+        assertThat(loyaltyService.getBalance(guest.getId())).isEqualTo(earned - points);
+    }
+
+    @Test
+    void staysNotCheckedOutEarnNothing() {
+        Reservation stay = book(1);
+        loyaltyService.enrollGuest(stay.getGuest());
+
+        LoyaltyAccrualJob.Summary summary = job.run();
+
+        assertThat(summary.posted()).isZero();
+        assertThat(loyaltyService.getBalance(stay.getGuest().getId())).isZero();
+    }
+
+    private Reservation book(int n) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(CHECK_IN);
+        reservation.setCheckOut(CHECK_IN.plusDays(2));
+        reservation.setStatus(ReservationStatus.CHECKED_IN);
+        return hotel.reservationService().createReservation(reservation,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of());
+    }
+
+    private void awaitBalance(Long guestId, long points) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (loyaltyService.getBalance(guestId) < points && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(loyaltyService.getBalance(guestId)).isEqualTo(points);
+    }
+}
@@ -0,0 +1,127 @@
+package service;
+
+import config.PricingConfig;
+import model.NightAudit;
+import model.Payment;
+import model.PaymentMethod;
+import model.PaymentType;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.pricing.PricingEngine;
+import util.Money;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Closing one seeded business day, read in pages smaller than the day so the read-ahead runs.
+ */
+class NightAuditJobTest {
+    private static final LocalDate DAY = LocalDate.now().plusDays(30);
+
+    private TestHotel hotel;
+    private NightAuditJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        job = new NightAuditJob(hotel.reservationRepository(), hotel.nightAuditRepository(),
+                new PricingEngine(new PricingConfig()), ForkJoinPool.commonPool(), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void closesADayWithInHouseDepartingNoShowAndUnpaidFolios() {
+        Reservation inHousePaid = book(1, DAY.minusDays(2), DAY.plusDays(2), ReservationStatus.CHECKED_IN);
+        pay(inHousePaid, Money.ofDollars(inHousePaid.getTotalAmount()));
+        Reservation inHouseOwing = book(2, DAY.minusDays(1), DAY.plusDays(1), ReservationStatus.CHECKED_IN);
+        pay(inHouseOwing, 5_000);
+        Reservation departing = book(3, DAY.minusDays(3), DAY, ReservationStatus.CHECKED_OUT);
+        Reservation noShow = book(4, DAY, DAY.plusDays(1), ReservationStatus.BOOKED);
+        pay(noShow, Money.ofDollars(noShow.getTotalAmount()));
+        Reservation cancelled = book(5, DAY.minusDays(1), DAY.plusDays(1), ReservationStatus.CANCELLED);
+        // Neither arriving, staying nor leaving on the day
+        book(6, DAY.plusDays(1), DAY.plusDays(3), ReservationStatus.BOOKED);
+
+        NightAuditJob.Result result = job.run(DAY);
+
+        NightAudit audit = result.audit();
+        assertThat(audit.getInHouse()).isEqualTo(2);
+        assertThat(audit.getDepartures()).isEqualTo(1);
+        assertThat(audit.getNoShows()).isEqualTo(1);
+        assertThat(audit.getRoomRevenueCents()).isPositive();
+        assertThat(audit.getRevenueCents()).isGreaterThanOrEqualTo(audit.getRoomRevenueCents());
+        // The departure owes its whole stay and comes first; the other still owes all but $50
+        assertThat(result.unpaidFolios()).extracting(NightAuditJob.Folio::reservationId)
+                .containsExactly(departing.getId(), inHouseOwing.getId());
+        assertThat(audit.getUnpaidFolios()).isEqualTo(2);
+        assertThat(audit.getUnpaidDepartures()).isEqualTo(1);
+        assertThat(audit.getOutstandingCents()).isEqualTo(Money.ofDollars(departing.getTotalAmount())
+                + Money.ofDollars(inHouseOwing.getTotalAmount()) - 5_000);
+        assertThat(result.unpaidFolios()).extracting(NightAuditJob.Folio::reservationId)
+                .doesNotContain(cancelled.getId());
+        assertThat(hotel.nightAuditRepository().findByDate(DAY)).get()
+                .extracting(NightAudit::getOutstandingCents).isEqualTo(audit.getOutstandingCents());
+    }
+
+    @Test
+    void auditingADayAgainReplacesItsRecord() {
+        Reservation departing = book(1, DAY.minusDays(2), DAY, ReservationStatus.CHECKED_OUT);
+        job.run(DAY);
+
+        // Settled after the first close
+        pay(departing, Money.ofDollars(departing.getTotalAmount()));
+        NightAuditJob.Result rerun = job.run(DAY);
+
+        assertThat(rerun.unpaidFolios()).isEmpty();
+        List<NightAudit> stored = hotel.nightAuditRepository().findRecent(10);
+        assertThat(stored).hasSize(1);
+        assertThat(stored.get(0).getBusinessDate()).isEqualTo(DAY);
+        assertThat(stored.get(0).getDepartures()).isEqualTo(1);
+        assertThat(stored.get(0).getUnpaidFolios()).isZero();
+        assertThat(stored.get(0).getOutstandingCents()).isZero();
+    }
+
+    @Test
+    void catchUpClosesYesterdayOnlyOnce() {
+        book(1, DAY.minusDays(2), DAY.plusDays(1), ReservationStatus.CHECKED_IN);
+
+        assertThat(job.catchUp(DAY.plusDays(1))).get()
+                .extracting(result -> result.audit().getInHouse()).isEqualTo(1);
+        assertThat(job.catchUp(DAY.plusDays(1))).isEmpty();
+        assertThat(hotel.nightAuditRepository().findRecent(10)).hasSize(1);
+    }
+
+    private Reservation book(int n, LocalDate checkIn, LocalDate checkOut, ReservationStatus status) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(checkIn);
+        reservation.setCheckOut(checkOut);
+        reservation.setStatus(status);
+        return hotel.reservationService().createReservation(reservation,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of("WiFi"));
+    }
+
+    private void pay(Reservation reservation, long cents) {
+        Payment payment = new Payment();
+        payment.setReservation(reservation);
+        payment.setMethod(PaymentMethod.CARD);
+        payment.setType(PaymentType.NORMAL);
+        payment.setAmount(Money.toBigDecimal(cents));
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setCreatedBy("Test");
+        hotel.paymentRepository().save(payment);
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import model.Payment;
+import model.PaymentMethod;
+import model.PaymentType;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.PaymentTotals;
+import util.Money;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The payment ledger checked against its payment rows after the rows or the ledger are tampered with.
+ */
+class PaymentLedgerReconcilerTest {
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(30);
+
+    private TestHotel hotel;
+    private PaymentLedgerReconciler reconciler;
+    private Reservation reservation;
+    private Reservation other;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        reconciler = new PaymentLedgerReconciler(hotel.paymentRepository());
+        reservation = book(1);
+        other = book(2);
+        pay(reservation, PaymentType.DEPOSIT, 5_000);
+        pay(reservation, PaymentType.NORMAL, 10_000);
+        pay(reservation, PaymentType.REFUND, 3_000);
+        pay(other, PaymentType.NORMAL, 7_500);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void theLedgerSplitsPaidAndRefundedAsThePaymentRowsDo() {
+        PaymentTotals expected = new PaymentTotals(15_000, 3_000, 3);
+
+        assertThat(hotel.paymentRepository().sumPayments(reservation.getId())).isEqualTo(expected);
+        assertThat(hotel.paymentRepository().findLedgerTotals(reservation.getId())).contains(expected);
+        assertThat(hotel.paymentRepository().sumPaymentsByReservation())
+                .containsEntry(reservation.getId(), expected)
+                .containsEntry(other.getId(), new PaymentTotals(7_500, 0, 1));
+        assertThat(reconciler.reconcile(false).consistent()).isTrue();
+    }
+
+    @Test
+    void aCorruptedLedgerRowIsReportedAndThenRebuilt() {
+        execute("UPDATE payment_ledger SET paid_cents = paid_cents + 999 WHERE reservation_id = ?", reservation.getId());
+
+        PaymentLedgerReconciler.Result found = reconciler.reconcile(false);
+
+        assertThat(found.checked()).isEqualTo(2);
+        assertThat(found.repaired()).isZero();
+        assertThat(found.mismatches()).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.reservationId()).isEqualTo(reservation.getId());
+            assertThat(mismatch.differenceCents()).isEqualTo(-999);
+        });
+        // Reporting alone leaves the row as it was
+        assertThat(hotel.paymentRepository().findLedgerTotals(reservation.getId()))
+                .get().extracting(PaymentTotals::paidCents).isEqualTo(15_999L);
+
+        PaymentLedgerReconciler.Result repaired = reconciler.reconcile(true);
+
+        assertThat(repaired.repaired()).isEqualTo(1);
+        assertThat(hotel.paymentRepository().findLedgerTotals(reservation.getId()))
+                .contains(hotel.paymentRepository().sumPayments(reservation.getId()));
+        assertThat(reconciler.reconcile(false).consistent()).isTrue();
+    }
+
+    @Test
+    void aMissingLedgerRowIsRebuiltFromThePayments() {
+        execute("DELETE FROM payment_ledger WHERE reservation_id = ?", other.getId());
+
+        PaymentLedgerReconciler.Result result = reconciler.reconcile(true);
+
+        assertThat(result.mismatches()).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.ledger()).isNull();
+            assertThat(mismatch.differenceCents()).isEqualTo(7_500);
+        });
+        assertThat(hotel.paymentRepository().findLedgerTotals(other.getId()))
+                .contains(new PaymentTotals(7_500, 0, 1));
+        assertThat(reconciler.reconcile(false).consistent()).isTrue();
+    }
+
+    private Reservation book(int n) {
+        Reservation draft = new Reservation();
+        draft.setGuest(TestHotel.guest(n));
+        draft.setCheckIn(CHECK_IN);
+        draft.setCheckOut(CHECK_IN.plusDays(2));
+        draft.setStatus(ReservationStatus.BOOKED);
+        return hotel.reservationService().createReservation(draft,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of());
+    }
+
+    private void pay(Reservation target, PaymentType type, long cents) {
+        Payment payment = new Payment();
+        payment.setReservation(target);
+        payment.setMethod(PaymentMethod.CARD);
+        payment.setType(type);
+        payment.setAmount(Money.toBigDecimal(cents));
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setCreatedBy("Test");
+        hotel.paymentRepository().save(payment);
+    }
+
+    private void execute(String sql, long reservationId) {
+        hotel.unitOfWork().run(entityManager -> entityManager.createNativeQuery(sql)
+                .setParameter(1, reservationId)
+                .executeUpdate());
+    }
+}
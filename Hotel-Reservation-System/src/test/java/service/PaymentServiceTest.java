@@ -0,0 +1,110 @@
+package service;
+
+import model.Payment;
+import model.PaymentMethod;
+import model.PaymentType;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Payments recorded at most once per idempotency key, over a real database.
+ */
+class PaymentServiceTest {
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(30);
+    private static final BigDecimal AMOUNT = new BigDecimal("120.00");
+
+    private TestHotel hotel;
+    private PaymentService paymentService;
+    private Reservation reservation;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        paymentService = newPaymentService();
+        Reservation draft = new Reservation();
+        draft.setGuest(TestHotel.guest(1));
+        draft.setCheckIn(CHECK_IN);
+        draft.setCheckOut(CHECK_IN.plusDays(2));
+        draft.setStatus(ReservationStatus.BOOKED);
+        reservation = hotel.reservationService().createReservation(draft,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void concurrentRetriesOfOneKeyWriteOnePayment() throws Exception {
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Payment>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return pay("card-capture-1", AMOUNT);
+                }));
+            }
+            start.countDown();
+            List<Long> ids = new ArrayList<>();
+            for (Future<Payment> future : futures) {
+                ids.add(future.get(60, TimeUnit.SECONDS).getId());
+            }
+            assertThat(ids).doesNotContainNull().containsOnly(ids.get(0));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(hotel.paymentRepository().findByReservationId(reservation.getId())).hasSize(1);
+    }
+
+    @Test
+    void aKeyRememberedOnlyInTheDatabaseStillAnswersTheRepeat() {
+        Payment first = pay("card-capture-1", AMOUNT);
+
+        // A restarted service has an empty window; the unique key column finds the original
+        paymentService = newPaymentService();
+        Payment repeat = pay("card-capture-1", AMOUNT);
+
+        assertThat(repeat.getId()).isEqualTo(first.getId());
+        assertThat(hotel.paymentRepository().findByReservationId(reservation.getId())).hasSize(1);
+    }
+
+    @Test
+    void reusingAKeyForADifferentAmountIsRejected() {
+        pay("card-capture-1", AMOUNT);
+
+        assertThatThrownBy(() -> pay("card-capture-1", new BigDecimal("80.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different payment");
+        assertThat(hotel.paymentRepository().findByReservationId(reservation.getId())).hasSize(1);
+    }
+
+    private PaymentService newPaymentService() {
+        return new PaymentService(hotel.reservationRepository(), hotel.paymentRepository(), null, null);
+    }
+
+    private Payment pay(String key, BigDecimal amount) {
+        return paymentService.processPayment(key, reservation.getId(), PaymentMethod.CARD, PaymentType.NORMAL, amount);
+    }
+}
@@ -0,0 +1,167 @@
+package service;
+
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Many sessions booking and reading at once, each through its own unit of work.
+ */
+class ReservationServiceConcurrencyTest {
+    /** Below the 20 connections of Hibernate's built-in pool, which every open unit of work holds one of. */
+    private static final int SESSIONS = 16;
+    private static final LocalDate FIRST_NIGHT = LocalDate.now().plusDays(30);
+
+    private TestHotel hotel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void parallelBookingsAreAllStoredWithTheirOwnGuestRoomsAndAddOns() throws Exception {
+        ReservationService service = hotel.reservationService();
+        RoomType single = hotel.room(RoomType.Type.SINGLE);
+
+        // Stays two nights apart never share a night, so every booking fits
+        List<Reservation> booked = runTogether(SESSIONS, n -> () -> {
+            Reservation reservation = new Reservation();
+            reservation.setGuest(TestHotel.guest(n));
+            reservation.setCheckIn(FIRST_NIGHT.plusDays(2L * n));
+            reservation.setCheckOut(FIRST_NIGHT.plusDays(2L * n + 2));
+            reservation.setStatus(ReservationStatus.BOOKED);
+            return service.createReservation(reservation, List.of(single), List.of("WiFi"));
+        });
+
+        assertThat(booked).hasSize(SESSIONS).allSatisfy(reservation -> assertThat(reservation.getId()).isNotNull());
+        assertThat(booked).extracting(Reservation::getId).doesNotHaveDuplicates();
+
+        // Loaded back detached, with everything the screens read already fetched
+        List<Reservation> stored = service.findAll();
+        assertThat(stored).hasSize(SESSIONS);
+        for (Reservation reservation : stored) {
+            int n = (int) (reservation.getCheckIn().toEpochDay() - FIRST_NIGHT.toEpochDay()) / 2;
+            assertThat(reservation.getGuest().getEmail()).isEqualTo("guest" + n + "@example.com");
+            assertThat(reservation.getRooms()).extracting(RoomType::getType).containsExactly(RoomType.Type.SINGLE);
+            assertThat(reservation.getAddOns()).hasSize(1);
+            assertThat(reservation.getTotalAmount()).isPositive();
+        }
+    }
+
+    @Test
+    void readsRunAlongsideWritesWithoutSharingAPersistenceContext() throws Exception {
+        ReservationService service = hotel.reservationService();
+        RoomType single = hotel.room(RoomType.Type.SINGLE);
+
+        List<Integer> seen = runTogether(SESSIONS, n -> () -> {
+            if (n % 2 == 0) {
+                Reservation reservation = new Reservation();
+                reservation.setGuest(TestHotel.guest(n));
+                reservation.setCheckIn(FIRST_NIGHT.plusDays(2L * n));
+                reservation.setCheckOut(FIRST_NIGHT.plusDays(2L * n + 1));
+                reservation.setStatus(ReservationStatus.BOOKED);
+                service.createReservation(reservation, List.of(single), List.of());
+                return -1;
+            }
+            return service.findAll().size();
+        });
+
+        assertThat(seen).filteredOn(count -> count >= 0).allSatisfy(count -> assertThat(count).isBetween(0, SESSIONS / 2));
+        assertThat(service.findAll()).hasSize(SESSIONS / 2);
+    }
+
+    @Test
+    void parallelUpdatesOfDifferentReservationsAllCommit() throws Exception {
+        ReservationService service = hotel.reservationService();
+        RoomType single = hotel.room(RoomType.Type.SINGLE);
+        List<Long> ids = new ArrayList<>();
+        for (int n = 0; n < SESSIONS; n++) {
+            Reservation reservation = new Reservation();
+            reservation.setGuest(TestHotel.guest(n));
+            reservation.setCheckIn(FIRST_NIGHT.plusDays(2L * n));
+            reservation.setCheckOut(FIRST_NIGHT.plusDays(2L * n + 1));
+            reservation.setStatus(ReservationStatus.BOOKED);
+            ids.add(service.createReservation(reservation, List.of(single), List.of()).getId());
+        }
+
+        runTogether(SESSIONS, n -> () -> {
+            service.cancelReservation(ids.get(n));
+            return null;
+        });
+
+        assertThat(service.findAll()).extracting(Reservation::getStatus).containsOnly(ReservationStatus.CANCELLED);
+    }
+
+    @Test
+    void roomsGivenOnlyByIdCountAgainstTheirStoredType() {
+        ReservationService service = hotel.reservationService();
+        Long deluxeId = hotel.room(RoomType.Type.DELUXE).getId();
+
+        for (int n = 0; n <= TestHotel.DELUXE_ROOMS; n++) {
+            RoomType byId = new RoomType();
+            byId.setId(deluxeId);
+            Reservation reservation = new Reservation();
+            reservation.setGuest(TestHotel.guest(n));
+            reservation.setCheckIn(FIRST_NIGHT);
+            reservation.setCheckOut(FIRST_NIGHT.plusDays(2));
+            reservation.setStatus(ReservationStatus.BOOKED);
+            if (n < TestHotel.DELUXE_ROOMS) {
+                service.createReservation(reservation, List.of(byId), List.of());
+            } else {
+                assertThatThrownBy(() -> service.createReservation(reservation, List.of(byId), List.of()))
+                        .isInstanceOf(ReservationConflictException.class);
+            }
+        }
+
+        assertThat(hotel.occupancyCalendar().bookedOn(RoomType.Type.DELUXE, FIRST_NIGHT))
+                .isEqualTo(TestHotel.DELUXE_ROOMS);
+    }
+
+    /**
+     * Start every task at the same moment on its own thread and return their results in order.
+     */
+    static <T> List<T> runTogether(int tasks, java.util.function.IntFunction<Callable<T>> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int n = 0; n < tasks; n++) {
+                Callable<T> work = task.apply(n);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return work.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
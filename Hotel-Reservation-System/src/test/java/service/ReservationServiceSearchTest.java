@@ -0,0 +1,69 @@
+package service;
+
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The single-field reservation searches, run against the database.
+ */
+class ReservationServiceSearchTest {
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(10);
+
+    private TestHotel hotel;
+    private Reservation booked;
+    private Reservation cancelled;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        booked = book(1, CHECK_IN, 2);
+        cancelled = book(2, CHECK_IN.plusDays(5), 3);
+        hotel.reservationService().cancelReservation(cancelled);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void searchByGuestNameMatchesPartOfEitherName() {
+        assertThat(hotel.reservationService().searchByGuestName("number1"))
+                .extracting(Reservation::getId).containsExactly(booked.getId());
+        assertThat(hotel.reservationService().searchByGuestName("GUEST")).hasSize(2);
+    }
+
+    @Test
+    void searchByDateRangeFindsStaysInsideTheRange() {
+        assertThat(hotel.reservationService().searchByDateRange(CHECK_IN, CHECK_IN.plusDays(4)))
+                .extracting(Reservation::getId).containsExactly(booked.getId());
+        assertThat(hotel.reservationService().searchByDateRange(CHECK_IN, CHECK_IN.plusDays(8))).hasSize(2);
+    }
+
+    @Test
+    void searchByStatusTakesTheStatusName() {
+        assertThat(hotel.reservationService().searchByStatus("BOOKED"))
+                .extracting(Reservation::getId).containsExactly(booked.getId());
+        assertThat(hotel.reservationService().searchByStatus("cancelled"))
+                .extracting(Reservation::getId).containsExactly(cancelled.getId());
+    }
+
+    private Reservation book(int n, LocalDate checkIn, int nights) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(checkIn);
+        reservation.setCheckOut(checkIn.plusDays(nights));
+        reservation.setStatus(ReservationStatus.BOOKED);
+        return hotel.reservationService().createReservation(reservation,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of());
+    }
+}
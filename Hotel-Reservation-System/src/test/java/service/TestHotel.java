@@ -0,0 +1,128 @@
+package service;
+
+import config.PricingConfig;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import model.Guest;
+import model.RoomType;
+import repository.GuestRepository;
+import repository.LoyaltyRepository;
+import repository.NightAuditRepository;
+import repository.PaymentRepository;
+import repository.RoomRepository;
+import repository.UnitOfWork;
+import repository.impl.GuestRepositoryImpl;
+import repository.impl.IndexedReservationRepository;
+import repository.impl.LoyaltyRepositoryImpl;
+import repository.impl.NightAuditRepositoryImpl;
+import repository.impl.PaymentRepositoryImpl;
+import repository.impl.ReservationRepositoryImpl;
+import repository.impl.RoomRepositoryImpl;
+import repository.index.OccupancyCalendar;
+import security.AuthenticationService;
+import service.availability.AvailabilityEngine;
+import service.availability.ReservationAdmission;
+import service.factory.RoomFactory;
+import service.pricing.PricingEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The booking stack wired the way {@code Bootstrap} wires it, over a throwaway SQLite
+ * database in a temporary directory.
+ */
+public final class TestHotel implements AutoCloseable {
+    public static final int SINGLE_ROOMS = 10;
+    public static final int DELUXE_ROOMS = 5;
+
+    private final Path directory;
+    private final EntityManagerFactory entityManagerFactory;
+    private final UnitOfWork unitOfWork;
+    private final GuestRepository guestRepository;
+    private final RoomRepository roomRepository;
+    private final IndexedReservationRepository reservationRepository;
+    private final OccupancyCalendar occupancyCalendar;
+    private final AvailabilityEngine availabilityEngine;
+    private final ReservationAdmission reservationAdmission;
+    private final ReservationService reservationService;
+    private final PaymentRepository paymentRepository;
+    private final NightAuditRepository nightAuditRepository;
+    private final LoyaltyRepository loyaltyRepository;
+    private final PricingEngine pricingEngine;
+
+    public TestHotel() throws IOException {
+        this(new PricingEngine(new PricingConfig()));
+    }
+
+    /**
+     * A hotel that prices its bookings with the given engine, e.g. one shared with a billing context.
+     */
+    public TestHotel(PricingEngine pricingEngine) throws IOException {
+        this.pricingEngine = pricingEngine;
+        directory = Files.createTempDirectory("hotel-test");
+        entityManagerFactory = Persistence.createEntityManagerFactory("hotelPU", Map.of(
+                "jakarta.persistence.jdbc.url", "jdbc:sqlite:" + directory.resolve("hotel.db")
+                        + "?journal_mode=WAL&busy_timeout=10000&transaction_mode=IMMEDIATE",
+                "hibernate.hbm2ddl.auto", "create"));
+        unitOfWork = new UnitOfWork(entityManagerFactory);
+
+        guestRepository = new GuestRepositoryImpl(unitOfWork);
+        roomRepository = new RoomRepositoryImpl(unitOfWork);
+        roomRepository.save(RoomFactory.create(RoomType.Type.SINGLE, 100.0, 2, SINGLE_ROOMS));
+        roomRepository.save(RoomFactory.create(RoomType.Type.DELUXE, 250.0, 2, DELUXE_ROOMS));
+
+        reservationRepository = new IndexedReservationRepository(
+                new ReservationRepositoryImpl(unitOfWork), unitOfWork);
+        occupancyCalendar = new OccupancyCalendar();
+        reservationRepository.addStayListener(occupancyCalendar);
+        availabilityEngine = new AvailabilityEngine(roomRepository, occupancyCalendar);
+        reservationAdmission = new ReservationAdmission(availabilityEngine, unitOfWork);
+        reservationService = new ReservationService(guestRepository, reservationRepository, roomRepository,
+                new AuthenticationService(), unitOfWork, reservationAdmission, pricingEngine);
+        paymentRepository = new PaymentRepositoryImpl(unitOfWork);
+        paymentRepository.createIdempotencyKeyIndex();
+        nightAuditRepository = new NightAuditRepositoryImpl(unitOfWork);
+        loyaltyRepository = new LoyaltyRepositoryImpl(unitOfWork);
+        loyaltyRepository.createAccrualIndex();
+    }
+
+    public static Guest guest(int n) {
+        Guest guest = new Guest();
+        guest.setFirstName("Guest");
+        guest.setLastName("Number" + n);
+        guest.setPhone("555" + String.format("%07d", n));
+        guest.setEmail("guest" + n + "@example.com");
+        return guest;
+    }
+
+    public RoomType room(RoomType.Type type) {
+        return roomRepository.findByType(type).orElseThrow();
+    }
+
+    public UnitOfWork unitOfWork() { return unitOfWork; }
+    public GuestRepository guestRepository() { return guestRepository; }
+    public IndexedReservationRepository reservationRepository() { return reservationRepository; }
+    public OccupancyCalendar occupancyCalendar() { return occupancyCalendar; }
+    public AvailabilityEngine availabilityEngine() { return availabilityEngine; }
+    public ReservationAdmission reservationAdmission() { return reservationAdmission; }
+    public ReservationService reservationService() { return reservationService; }
+    public PaymentRepository paymentRepository() { return paymentRepository; }
+    public NightAuditRepository nightAuditRepository() { return nightAuditRepository; }
+    public LoyaltyRepository loyaltyRepository() { return loyaltyRepository; }
+    public PricingEngine pricingEngine() { return pricingEngine; }
+
+    @Override
+    public void close() throws IOException {
+        entityManagerFactory.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package service.availability;
+
+import config.PricingConfig;
+import config.RateCalendar;
+import config.SeasonalRule;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.ReservationConflictException;
+import service.TestHotel;
+import service.pricing.PricingEngine;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The one-pass search checked against pricing and counting every candidate stay on its own.
+ */
+class FlexibleDateSearchTest {
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(6).with(DayOfWeek.MONDAY);
+
+    private PricingConfig pricingConfig;
+    private TestHotel hotel;
+    private FlexibleDateSearch search;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pricingConfig = new PricingConfig();
+        pricingConfig.setSeasonalRules(List.of(
+                new SeasonalRule("festival", MONDAY.plusDays(9), MONDAY.plusDays(12), 1.8, 0)));
+        hotel = new TestHotel(new PricingEngine(pricingConfig));
+        search = new FlexibleDateSearch(hotel.availabilityEngine(), hotel.occupancyCalendar(), pricingConfig);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void everyCandidateMatchesABruteForceCount() {
+        bookRandomStays(60, new Random(9), MONDAY, 24);
+
+        for (int nights : new int[] {1, 3, 7}) {
+            assertMatchesBruteForce(MONDAY.plusDays(10), nights, 9);
+        }
+    }
+
+    @Test
+    void aWindowReachingIntoThePastStartsToday() {
+        LocalDate today = LocalDate.now();
+        bookRandomStays(30, new Random(4), today, 10);
+
+        List<FlexibleDateSearch.DateOption> options = search.search(today.plusDays(2), 2, 5);
+
+        assertThat(options).first().extracting(FlexibleDateSearch.DateOption::checkIn).isEqualTo(today);
+        assertThat(options).last().extracting(FlexibleDateSearch.DateOption::checkIn).isEqualTo(today.plusDays(7));
+        assertMatchesBruteForce(today.plusDays(2), 2, 5);
+    }
+
+    @Test
+    void aSoldOutNightClosesEveryStayThatCoversIt() {
+        LocalDate soldOut = MONDAY.plusDays(4);
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(1));
+        reservation.setCheckIn(soldOut);
+        reservation.setCheckOut(soldOut.plusDays(1));
+        reservation.setStatus(ReservationStatus.BOOKED);
+        hotel.reservationService().createReservation(reservation,
+                new ArrayList<>(Collections.nCopies(TestHotel.DELUXE_ROOMS, hotel.room(RoomType.Type.DELUXE))),
+                List.of());
+
+        for (FlexibleDateSearch.DateOption option : search.search(soldOut, 3, 4)) {
+            boolean coversSoldOutNight = !option.checkIn().isAfter(soldOut) && option.checkOut().isAfter(soldOut);
+            assertThat(available(option, RoomType.Type.DELUXE))
+                    .as("deluxe rooms from %s", option.checkIn())
+                    .isEqualTo(coversSoldOutNight ? 0 : TestHotel.DELUXE_ROOMS);
+        }
+    }
+
+    /**
+     * Each candidate's rooms, counted night by night from the stored reservations, and its room
+     * price, summed night by night from the rate calendar.
+     */
+    private void assertMatchesBruteForce(LocalDate preferred, int nights, int windowDays) {
+        List<Reservation> stored = hotel.reservationService().findAll();
+        RateCalendar rates = pricingConfig.snapshot().getRateCalendar();
+        List<FlexibleDateSearch.DateOption> options = search.search(preferred, nights, windowDays);
+
+        LocalDate first = preferred.minusDays(windowDays).isBefore(LocalDate.now())
+                ? LocalDate.now()
+                : preferred.minusDays(windowDays);
+        assertThat(options).hasSize((int) (preferred.plusDays(windowDays).toEpochDay() - first.toEpochDay()) + 1);
+
+        for (int i = 0; i < options.size(); i++) {
+            FlexibleDateSearch.DateOption option = options.get(i);
+            LocalDate checkIn = first.plusDays(i);
+            assertThat(option.checkIn()).isEqualTo(checkIn);
+            assertThat(option.checkOut()).isEqualTo(checkIn.plusDays(nights));
+
+            for (FlexibleDateSearch.TypeQuote quote : option.quotes()) {
+                RoomType roomType = quote.roomType();
+                int busiest = 0;
+                double multiplier = 0.0;
+                for (LocalDate night = checkIn; night.isBefore(option.checkOut()); night = night.plusDays(1)) {
+                    busiest = Math.max(busiest, roomsBooked(stored, roomType.getType(), night));
+                    multiplier += rates.multiplierFor(night);
+                }
+                assertThat(quote.available())
+                        .as("%s rooms from %s for %d nights", roomType.getType(), checkIn, nights)
+                        .isEqualTo(Math.max(0, roomType.getTotalRooms() - busiest));
+                assertThat(quote.roomPrice())
+                        .as("%s price from %s for %d nights", roomType.getType(), checkIn, nights)
+                        .isCloseTo(roomType.getBasePrice() * multiplier, within(1e-6));
+            }
+        }
+    }
+
+    private static int roomsBooked(List<Reservation> stored, RoomType.Type type, LocalDate night) {
+        int booked = 0;
+        for (Reservation reservation : stored) {
+            if (reservation.getStatus() == ReservationStatus.BOOKED
+                    && !reservation.getCheckIn().isAfter(night) && reservation.getCheckOut().isAfter(night)) {
+                booked += (int) reservation.getRooms().stream().filter(room -> room.getType() == type).count();
+            }
+        }
+        return booked;
+    }
+
+    private static int available(FlexibleDateSearch.DateOption option, RoomType.Type type) {
+        return option.quotes().stream()
+                .filter(quote -> quote.roomType().getType() == type)
+                .mapToInt(FlexibleDateSearch.TypeQuote::available)
+                .findFirst().orElseThrow();
+    }
+
+    /**
+     * Stays of one to five nights starting within {@code spreadDays} of {@code from}; the ones
+     * that no longer fit are refused and left out, as they would be at the front desk.
+     */
+    private void bookRandomStays(int stays, Random random, LocalDate from, int spreadDays) {
+        RoomType.Type[] types = {RoomType.Type.SINGLE, RoomType.Type.DELUXE};
+        for (int n = 0; n < stays; n++) {
+            LocalDate checkIn = from.plusDays(random.nextInt(spreadDays));
+            Reservation reservation = new Reservation();
+            reservation.setGuest(TestHotel.guest(n));
+            reservation.setCheckIn(checkIn);
+            reservation.setCheckOut(checkIn.plusDays(1 + random.nextInt(5)));
+            reservation.setStatus(ReservationStatus.BOOKED);
+            RoomType room = hotel.room(types[random.nextInt(types.length)]);
+            try {
+                hotel.reservationService().createReservation(reservation,
+                        new ArrayList<>(Collections.nCopies(1 + random.nextInt(2), room)), List.of());
+            } catch (ReservationConflictException e) {
+                // Sold out for part of the stay
+            }
+        }
+    }
+}
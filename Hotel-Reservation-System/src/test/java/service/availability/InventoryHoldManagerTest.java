@@ -0,0 +1,116 @@
+package service.availability;
+
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.ReservationConflictException;
+import service.TestHotel;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Holds placed the way the kiosk places them, against the hotel's real inventory.
+ */
+class InventoryHoldManagerTest {
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(6).with(DayOfWeek.MONDAY);
+    private static final LocalDate THURSDAY = MONDAY.plusDays(3);
+
+    private TestHotel hotel;
+    private InventoryHoldManager holds;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        holds = new InventoryHoldManager(hotel.reservationAdmission(), hotel.occupancyCalendar(),
+                InventoryHoldManager.DEFAULT_HOLD_DURATION);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        holds.shutdown();
+        hotel.close();
+    }
+
+    @Test
+    void heldRoomsAreNotAvailableToAnyoneElse() {
+        holds.place(allDeluxe(), MONDAY, THURSDAY);
+
+        assertThat(deluxeFree(MONDAY, THURSDAY)).isZero();
+        // A stay overlapping one held night is refused as well; one after it is not
+        assertThat(deluxeFree(MONDAY.plusDays(2), MONDAY.plusDays(5))).isZero();
+        assertThat(deluxeFree(THURSDAY, THURSDAY.plusDays(2))).isEqualTo(TestHotel.DELUXE_ROOMS);
+        assertThatThrownBy(() -> book(1, null)).isInstanceOf(ReservationConflictException.class);
+        assertThatThrownBy(() -> holds.place(List.of(hotel.room(RoomType.Type.DELUXE)), MONDAY, MONDAY.plusDays(1)))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+
+    @Test
+    void confirmingABookingConsumesItsHold() {
+        InventoryHoldManager.Hold hold = holds.place(allDeluxe(), MONDAY, THURSDAY);
+
+        // The hold's own rooms count as free for the booking that confirms it
+        Reservation booked = book(1, hold.id());
+        holds.release(hold.id());
+
+        assertThat(booked.getId()).isNotNull();
+        assertThat(holds.find(hold.id())).isEmpty();
+        assertThat(holds.getActiveHoldCount()).isZero();
+        assertThat(deluxeFree(MONDAY, THURSDAY)).isZero();
+        for (LocalDate night = MONDAY; night.isBefore(THURSDAY); night = night.plusDays(1)) {
+            assertThat(hotel.occupancyCalendar().bookedOn(RoomType.Type.DELUXE, night))
+                    .isEqualTo(TestHotel.DELUXE_ROOMS);
+        }
+        // The booking, not a stale hold, is what keeps the next guest out
+        assertThatThrownBy(() -> holds.place(List.of(hotel.room(RoomType.Type.DELUXE)), MONDAY, THURSDAY))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+
+    @Test
+    void aHoldExpiresAfterItsDurationAndFreesItsRooms() throws InterruptedException {
+        holds.shutdown();
+        Duration duration = Duration.ofMillis(300);
+        holds = new InventoryHoldManager(hotel.reservationAdmission(), hotel.occupancyCalendar(), duration);
+        long placed = System.nanoTime();
+        InventoryHoldManager.Hold hold = holds.place(allDeluxe(), MONDAY, THURSDAY);
+        assertThat(deluxeFree(MONDAY, THURSDAY)).isZero();
+
+        long deadline = placed + TimeUnit.SECONDS.toNanos(30);
+        while (holds.find(hold.id()).isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        long heldFor = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - placed);
+
+        assertThat(holds.find(hold.id())).isEmpty();
+        assertThat(heldFor).isGreaterThanOrEqualTo(duration.toMillis());
+        assertThat(deluxeFree(MONDAY, THURSDAY)).isEqualTo(TestHotel.DELUXE_ROOMS);
+        assertThat(book(1, null).getId()).isNotNull();
+    }
+
+    private List<RoomType> allDeluxe() {
+        return Collections.nCopies(TestHotel.DELUXE_ROOMS, hotel.room(RoomType.Type.DELUXE));
+    }
+
+    private int deluxeFree(LocalDate checkIn, LocalDate checkOut) {
+        return hotel.availabilityEngine().getAvailableCounts(checkIn, checkOut).get(RoomType.Type.DELUXE);
+    }
+
+    private Reservation book(int n, Long holdId) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(MONDAY);
+        reservation.setCheckOut(THURSDAY);
+        reservation.setStatus(ReservationStatus.BOOKED);
+        return hotel.reservationService().createReservation(reservation, allDeluxe(), List.of(), holdId);
+    }
+}
@@ -0,0 +1,229 @@
+package service.availability;
+
+import model.Guest;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.ReservationConflictException;
+import service.TestHotel;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bookings racing for the same inventory through {@link ReservationAdmission}: however they
+ * interleave, no night may end up with more rooms booked than the hotel has.
+ */
+class ReservationAdmissionStressTest {
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(6).with(java.time.DayOfWeek.MONDAY);
+
+    private TestHotel hotel;
+    private ReservationAdmission admission;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        hotel = new TestHotel();
+        admission = hotel.reservationAdmission();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void contendedStayAdmitsExactlyTheRoomsThatExist() throws Exception {
+        Outcome outcome = race(32, n -> new Stay(RoomType.Type.DELUXE, 1, MONDAY, MONDAY.plusDays(3)));
+
+        assertThat(outcome.admitted()).isEqualTo(TestHotel.DELUXE_ROOMS);
+        assertThat(outcome.refused()).isEqualTo(32 - TestHotel.DELUXE_ROOMS);
+        assertNoNightOverbooked(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS, MONDAY, MONDAY.plusDays(3));
+    }
+
+    @Test
+    void staggeredStaysAcrossWeekStripesNeverOverbookANight() throws Exception {
+        // Five-night stays starting on successive days overlap their neighbours and span two
+        // or three weekly stripes each
+        Outcome outcome = race(40, n -> new Stay(RoomType.Type.SINGLE, 2,
+                MONDAY.plusDays(n % 12), MONDAY.plusDays(n % 12 + 5)));
+
+        assertThat(outcome.admitted()).isPositive();
+        assertThat(outcome.refused()).isPositive();
+        assertNoNightOverbooked(RoomType.Type.SINGLE, TestHotel.SINGLE_ROOMS, MONDAY, MONDAY.plusDays(17));
+    }
+
+    @Test
+    void mixedTypesOnOverlappingNightsAreCheckedPerType() throws Exception {
+        Outcome outcome = race(30, n -> n % 2 == 0
+                ? new Stay(RoomType.Type.SINGLE, 1, MONDAY, MONDAY.plusDays(2))
+                : new Stay(RoomType.Type.DELUXE, 1, MONDAY.plusDays(1), MONDAY.plusDays(3)));
+
+        assertThat(outcome.admitted()).isEqualTo(TestHotel.SINGLE_ROOMS + TestHotel.DELUXE_ROOMS);
+        assertNoNightOverbooked(RoomType.Type.SINGLE, TestHotel.SINGLE_ROOMS, MONDAY, MONDAY.plusDays(3));
+        assertNoNightOverbooked(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS, MONDAY, MONDAY.plusDays(3));
+    }
+
+    @Test
+    void disjointStripesAreAllAdmitted() throws Exception {
+        // One week each, so every booking takes its own stripe
+        Outcome outcome = race(16, n -> new Stay(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS,
+                MONDAY.plusWeeks(n), MONDAY.plusWeeks(n).plusDays(2)));
+
+        assertThat(outcome.admitted()).isEqualTo(16);
+        assertThat(outcome.refused()).isZero();
+        for (int n = 0; n < 16; n++) {
+            assertNoNightOverbooked(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS,
+                    MONDAY.plusWeeks(n), MONDAY.plusWeeks(n).plusDays(2));
+        }
+    }
+
+    @Test
+    void adminEditsMovingStaysOntoTheSameNightsNeverOverbook() throws Exception {
+        // Twelve single-room stays in weeks of their own, then every one moved onto the same three nights
+        int stays = 12;
+        List<Reservation> booked = new ArrayList<>();
+        for (int n = 0; n < stays; n++) {
+            Reservation reservation = new Reservation();
+            reservation.setGuest(TestHotel.guest(n));
+            reservation.setCheckIn(MONDAY.plusWeeks(n + 1));
+            reservation.setCheckOut(MONDAY.plusWeeks(n + 1).plusDays(2));
+            reservation.setStatus(ReservationStatus.BOOKED);
+            booked.add(hotel.reservationService().createReservation(reservation,
+                    List.of(hotel.room(RoomType.Type.DELUXE)), List.of()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(stays);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger moved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Reservation reservation : booked) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    reservation.setCheckIn(MONDAY);
+                    reservation.setCheckOut(MONDAY.plusDays(3));
+                    try {
+                        hotel.reservationService().updateReservation(reservation);
+                        moved.incrementAndGet();
+                    } catch (ReservationConflictException ex) {
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(moved.get()).isEqualTo(TestHotel.DELUXE_ROOMS);
+        assertThat(refused.get()).isEqualTo(stays - TestHotel.DELUXE_ROOMS);
+        assertNoNightOverbooked(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS, MONDAY, MONDAY.plusDays(3));
+
+        // A stay that was moved can be edited again: its own nights count as free
+        Reservation full = hotel.reservationService().findAll().stream()
+                .filter(reservation -> reservation.getCheckIn().equals(MONDAY))
+                .findFirst().orElseThrow();
+        full.setCheckOut(MONDAY.plusDays(2));
+        hotel.reservationService().updateReservation(full);
+        assertNoNightOverbooked(RoomType.Type.DELUXE, TestHotel.DELUXE_ROOMS, MONDAY, MONDAY.plusDays(3));
+    }
+
+    @Test
+    void admissionInsideAnOpenUnitOfWorkIsRejected() {
+        assertThatThrownBy(() -> hotel.unitOfWork().run(entityManager ->
+                admission.admit(Map.of(RoomType.Type.SINGLE, 1), MONDAY, MONDAY.plusDays(1), null, () -> null)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Every night's rooms, counted both from the occupancy calendar and from the stored
+     * reservations, stay within inventory.
+     */
+    private void assertNoNightOverbooked(RoomType.Type type, int rooms, LocalDate from, LocalDate to) {
+        List<Reservation> stored = hotel.reservationService().findAll();
+        for (LocalDate night = from; night.isBefore(to); night = night.plusDays(1)) {
+            int fromDatabase = 0;
+            for (Reservation reservation : stored) {
+                if (!reservation.getCheckIn().isAfter(night) && reservation.getCheckOut().isAfter(night)) {
+                    fromDatabase += (int) reservation.getRooms().stream().filter(room -> room.getType() == type).count();
+                }
+            }
+            assertThat(fromDatabase).as("%s rooms stored for %s", type, night).isLessThanOrEqualTo(rooms);
+            assertThat(hotel.occupancyCalendar().bookedOn(type, night))
+                    .as("%s rooms in the calendar for %s", type, night)
+                    .isEqualTo(fromDatabase);
+        }
+    }
+
+    private record Stay(RoomType.Type type, int rooms, LocalDate checkIn, LocalDate checkOut) {
+    }
+
+    private record Outcome(int admitted, int refused) {
+    }
+
+    /**
+     * Release every booking at once and count how many were admitted and refused.
+     */
+    private Outcome race(int bookings, java.util.function.IntFunction<Stay> stayFor) throws Exception {
+        List<Guest> guests = new ArrayList<>();
+        for (int n = 0; n < bookings; n++) {
+            guests.add(hotel.guestRepository().save(TestHotel.guest(n)));
+        }
+
+        // More threads than this would run out of pooled connections rather than rooms
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(bookings, 16));
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (int n = 0; n < bookings; n++) {
+                Stay stay = stayFor.apply(n);
+                Reservation reservation = new Reservation();
+                reservation.setGuest(guests.get(n));
+                reservation.setCheckIn(stay.checkIn());
+                reservation.setCheckOut(stay.checkOut());
+                reservation.setStatus(ReservationStatus.BOOKED);
+                reservation.setRooms(new ArrayList<>(Collections.nCopies(stay.rooms(), hotel.room(stay.type()))));
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        admission.admit(Map.of(stay.type(), stay.rooms()), stay.checkIn(), stay.checkOut(), null,
+                                () -> hotel.reservationRepository().save(reservation));
+                        admitted.incrementAndGet();
+                    } catch (ReservationConflictException ex) {
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Outcome(admitted.get(), refused.get());
+    }
+}
@@ -0,0 +1,119 @@
+package service.availability;
+
+import model.RoomType;
+import org.junit.jupiter.api.Test;
+import service.availability.RoomCombinationSolver.Objective;
+import service.availability.RoomCombinationSolver.Option;
+import service.availability.RoomCombinationSolver.Plan;
+import service.factory.RoomFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The solver's plans against every combination of the available rooms, for small parties.
+ */
+class RoomCombinationSolverTest {
+    private static final RoomType SINGLE = RoomFactory.create(RoomType.Type.SINGLE, 100.0, 1, 10);
+    private static final RoomType DOUBLE = RoomFactory.create(RoomType.Type.DOUBLE, 150.0, 2, 8);
+    private static final RoomType DELUXE = RoomFactory.create(RoomType.Type.DELUXE, 250.0, 3, 5);
+    private static final RoomType PENTHOUSE = RoomFactory.create(RoomType.Type.PENTHOUSE, 500.0, 6, 2);
+
+    @Test
+    void plansMatchBruteForceForSmallParties() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Option> options = List.of(
+                    new Option(SINGLE, random.nextInt(4), 5_000 + random.nextInt(20_000)),
+                    new Option(DOUBLE, random.nextInt(4), 8_000 + random.nextInt(30_000)),
+                    new Option(DELUXE, random.nextInt(3), 12_000 + random.nextInt(40_000)),
+                    new Option(PENTHOUSE, random.nextInt(2), 30_000 + random.nextInt(60_000)));
+            for (int guests = 1; guests <= 14; guests++) {
+                for (Objective objective : Objective.values()) {
+                    Optional<Plan> plan = RoomCombinationSolver.solve(guests, options, objective);
+                    Optional<long[]> expected = bruteForce(guests, options, objective);
+
+                    String context = "trial " + trial + ", " + guests + " guests, " + objective;
+                    assertThat(plan.isPresent()).as(context).isEqualTo(expected.isPresent());
+                    if (plan.isPresent()) {
+                        assertFeasible(plan.get(), guests, options, context);
+                        assertThat(plan.get().priceCents()).as(context).isEqualTo(expected.get()[0]);
+                        assertThat((long) plan.get().roomCount()).as(context).isEqualTo(expected.get()[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void whenTheCheapestTypeRunsOutTheNextBestIsUsed() {
+        // Doubles are the cheapest seat per guest, but only one is left
+        List<Option> options = List.of(
+                new Option(SINGLE, 10, 10_000),
+                new Option(DOUBLE, 1, 12_000),
+                new Option(DELUXE, 5, 30_000));
+
+        Plan plan = RoomCombinationSolver.solve(4, options, Objective.CHEAPEST).orElseThrow();
+
+        assertThat(plan.rooms()).containsExactly(SINGLE, SINGLE, DOUBLE);
+        assertThat(plan.priceCents()).isEqualTo(32_000);
+        assertThat(RoomCombinationSolver.solve(4, options, Objective.FEWEST_ROOMS).orElseThrow().rooms())
+                .containsExactly(SINGLE, DELUXE);
+    }
+
+    @Test
+    void aPartyLargerThanTheFreeRoomsHasNoPlan() {
+        List<Option> options = List.of(
+                new Option(SINGLE, 2, 10_000),
+                new Option(DOUBLE, 1, 15_000),
+                new Option(PENTHOUSE, 0, 50_000));
+
+        assertThat(RoomCombinationSolver.solve(4, options, Objective.CHEAPEST)).isPresent();
+        assertThat(RoomCombinationSolver.solve(5, options, Objective.CHEAPEST)).isEmpty();
+        assertThat(RoomCombinationSolver.solve(5, options, Objective.FEWEST_ROOMS)).isEmpty();
+        assertThat(RoomCombinationSolver.solve(0, options, Objective.CHEAPEST)).isEmpty();
+    }
+
+    private static void assertFeasible(Plan plan, int guests, List<Option> options, String context) {
+        int seats = 0;
+        long price = 0;
+        for (Option option : options) {
+            long count = plan.rooms().stream().filter(room -> room == option.roomType()).count();
+            assertThat(count).as(context).isLessThanOrEqualTo(option.available());
+            seats += (int) count * option.roomType().getCapacity();
+            price += count * option.priceCents();
+        }
+        assertThat(seats).as(context).isGreaterThanOrEqualTo(guests);
+        assertThat(plan.priceCents()).as(context).isEqualTo(price);
+    }
+
+    /**
+     * Best (price, rooms) over every count of every type, ordered by the objective.
+     */
+    private static Optional<long[]> bruteForce(int guests, List<Option> options, Objective objective) {
+        List<long[]> plans = new ArrayList<>();
+        enumerate(options, 0, 0, 0, 0, guests, plans);
+        return plans.stream().min((a, b) -> objective == Objective.CHEAPEST
+                ? (a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]))
+                : (a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[0], b[0])));
+    }
+
+    private static void enumerate(List<Option> options, int index, int seats, long price, long rooms, int guests,
+                                  List<long[]> plans) {
+        if (index == options.size()) {
+            if (seats >= guests) {
+                plans.add(new long[] {price, rooms});
+            }
+            return;
+        }
+        Option option = options.get(index);
+        for (int count = 0; count <= option.available(); count++) {
+            enumerate(options, index + 1, seats + count * option.roomType().getCapacity(),
+                    price + count * option.priceCents(), rooms + count, guests, plans);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package service.pricing;
+
+import config.PricingConfig;
+import model.Reservation;
+import model.ReservationStatus;
+import model.RoomType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.StayPricingRow;
+import repository.impl.ReservationRepositoryImpl;
+import service.TestHotel;
+import util.Money;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repricing after a rate change, read in pages smaller than the book of reservations.
+ */
+class BulkRepricingJobTest {
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(6).with(DayOfWeek.MONDAY);
+    private static final int PAGE_SIZE = 2;
+
+    private PricingConfig pricingConfig;
+    private TestHotel hotel;
+    private BulkRepricingJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pricingConfig = new PricingConfig();
+        hotel = new TestHotel(new PricingEngine(pricingConfig));
+        job = new BulkRepricingJob(hotel.reservationRepository(), hotel.pricingEngine(),
+                ForkJoinPool.commonPool(), PAGE_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Test
+    void everyPageIsRepricedAndTheSummaryAddsUp() {
+        List<Reservation> booked = new ArrayList<>();
+        for (int n = 0; n < 5; n++) {
+            booked.add(book(n, MONDAY.plusDays(n), n + 1));
+        }
+        Reservation cancelled = book(5, MONDAY, 2);
+        hotel.reservationService().cancelReservation(cancelled);
+        double cancelledTotal = cancelled.getTotalAmount();
+
+        pricingConfig.setWeekdayMultiplier(pricingConfig.getWeekdayMultiplier() * 1.2);
+        List<BulkRepricingJob.Progress> progress = new ArrayList<>();
+        BulkRepricingJob.Summary summary = job.reprice(MONDAY, progress::add);
+
+        assertThat(progress).extracting(BulkRepricingJob.Progress::pages).containsExactly(1, 2, 3);
+        assertThat(summary.scanned()).isEqualTo(5);
+        assertThat(summary.changed()).isEqualTo(5);
+        assertThat(summary.increased()).isEqualTo(5);
+        assertThat(summary.decreased()).isZero();
+        assertThat(summary.skipped()).isZero();
+
+        long before = 0;
+        long after = 0;
+        for (Reservation reservation : booked) {
+            before += Money.ofDollars(reservation.getTotalAmount());
+            after += Money.ofDollars(storedTotal(reservation));
+            assertThat(storedTotal(reservation)).isEqualTo(hotel.reservationService()
+                    .calculateReservationTotal(hotel.reservationService().findById(reservation.getId()).orElseThrow()));
+        }
+        assertThat(summary.totalBeforeCents()).isEqualTo(before);
+        assertThat(summary.totalAfterCents()).isEqualTo(after);
+        assertThat(summary.netChangeCents()).isEqualTo(after - before);
+        assertThat(summary.largestChanges()).hasSize(5)
+                .extracting(change -> Math.abs(change.deltaCents()))
+                .isSortedAccordingTo((a, b) -> Long.compare(b, a));
+        assertThat(storedTotal(cancelled)).isEqualTo(cancelledTotal);
+    }
+
+    @Test
+    void aStayEditedWhileItsPageIsPricedKeepsTheEdit() {
+        for (int n = 0; n < 4; n++) {
+            book(n, MONDAY.plusDays(n), 2);
+        }
+        List<Long> edited = new ArrayList<>();
+        ReservationRepositoryImpl editing = new ReservationRepositoryImpl(hotel.unitOfWork()) {
+            @Override
+            public List<StayPricingRow> findPricingPage(ReservationStatus status, LocalDate from, long afterId,
+                                                        int limit) {
+                List<StayPricingRow> page = super.findPricingPage(status, from, afterId, limit);
+                if (afterId == 0) {
+                    // The front desk changes the first stay after the job has read it
+                    long id = page.get(0).reservationId();
+                    setStoredTotal(id, "1.0");
+                    edited.add(id);
+                }
+                return page;
+            }
+        };
+        BulkRepricingJob racing = new BulkRepricingJob(editing, hotel.pricingEngine(),
+                ForkJoinPool.commonPool(), PAGE_SIZE);
+
+        pricingConfig.setWeekdayMultiplier(pricingConfig.getWeekdayMultiplier() * 1.2);
+        BulkRepricingJob.Summary summary = racing.reprice(MONDAY, null);
+
+        assertThat(summary.scanned()).isEqualTo(4);
+        assertThat(summary.skipped()).isEqualTo(1);
+        assertThat(summary.changed()).isEqualTo(3);
+        assertThat(hotel.reservationService().findById(edited.get(0))).get()
+                .extracting(Reservation::getTotalAmount).isEqualTo(1.0);
+    }
+
+    @Test
+    void aStayWithNoTotalOnFileIsPricedAndCountedAsChanged() {
+        Reservation priced = book(1, MONDAY, 2);
+        Reservation missing = book(2, MONDAY, 3);
+        setStoredTotal(missing.getId(), "NULL");
+
+        BulkRepricingJob.Summary summary = job.reprice(MONDAY, null);
+
+        assertThat(summary.scanned()).isEqualTo(2);
+        assertThat(summary.changed()).isEqualTo(1);
+        assertThat(summary.skipped()).isZero();
+        assertThat(summary.largestChanges()).singleElement()
+                .satisfies(change -> {
+                    assertThat(change.reservationId()).isEqualTo(missing.getId());
+                    assertThat(change.oldTotalCents()).isNull();
+                    assertThat(change.newTotalCents()).isEqualTo(Money.ofDollars(missing.getTotalAmount()));
+                });
+        assertThat(storedTotal(missing)).isEqualTo(missing.getTotalAmount());
+        assertThat(storedTotal(priced)).isEqualTo(priced.getTotalAmount());
+    }
+
+    private Reservation book(int n, LocalDate checkIn, int nights) {
+        Reservation reservation = new Reservation();
+        reservation.setGuest(TestHotel.guest(n));
+        reservation.setCheckIn(checkIn);
+        reservation.setCheckOut(checkIn.plusDays(nights));
+        reservation.setStatus(ReservationStatus.BOOKED);
+        return hotel.reservationService().createReservation(reservation,
+                List.of(hotel.room(RoomType.Type.SINGLE)), List.of("WiFi"));
+    }
+
+    private Double storedTotal(Reservation reservation) {
+        return hotel.reservationService().findById(reservation.getId()).orElseThrow().getTotalAmount();
+    }
+
+    private void setStoredTotal(long reservationId, String total) {
+        hotel.unitOfWork().run(entityManager -> entityManager
+                .createNativeQuery("UPDATE Reservation SET total_amount = " + total + " WHERE id = ?")
+                .setParameter(1, reservationId)
+                .executeUpdate());
+    }
+}
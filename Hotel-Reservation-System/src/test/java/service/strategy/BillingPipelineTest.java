@@ -0,0 +1,160 @@
+package service.strategy;
+
+import config.LoyaltyConfig;
+import org.junit.jupiter.api.Test;
+import service.LoyaltyService;
+import util.Money;
+
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Folding of declared steps into compiled operations, and rounding parity with the chains
+ * the pipeline replaces, each computed the way the hand-wrapped strategies did.
+ */
+class BillingPipelineTest {
+    private static final int AMOUNTS = 1_000_000;
+    /** Up to $100,000, in cents. */
+    private static final long MAX_CENTS = 10_000_000;
+
+    @Test
+    void runsOfLikeStepsFoldIntoOneOperationEach() {
+        BillingPipeline pipeline = BillingPipeline.builder()
+                .multiplier(1.2)
+                .multiplier(1.5)
+                .percentDiscount(10)
+                .pointsCredit(300)
+                .pointsCredit(200)
+                .floorAtZero()
+                .floorAtZero()
+                .build();
+
+        assertThat(pipeline.getSteps()).hasSize(7);
+        assertThat(pipeline.compiledLength()).isEqualTo(3);
+        // 10000 * 1.2 * 1.5 * 0.9 = 16200, less 500 of credit
+        assertThat(pipeline.apply(10_000)).isEqualTo(15_700);
+        assertThat(pipeline.apply(100)).isZero();
+    }
+
+    @Test
+    void stepsThatChangeNothingAreDropped() {
+        BillingPipeline pipeline = BillingPipeline.builder()
+                .multiplier(1.0)
+                .percentDiscount(0)
+                .pointsCredit(0)
+                .build();
+
+        assertThat(pipeline.compiledLength()).isZero();
+        assertThat(pipeline).isEqualTo(BillingPipeline.IDENTITY);
+        assertThat(BillingPipeline.of(List.of())).isSameAs(BillingPipeline.IDENTITY);
+        assertThat(pipeline.apply(12_345)).isEqualTo(12_345);
+    }
+
+    @Test
+    void pipelinesThatCompileAlikeAreEqual() {
+        BillingPipeline split = BillingPipeline.builder().pointsCredit(250).pointsCredit(250).floorAtZero().build();
+        BillingPipeline whole = BillingPipeline.builder().pointsCredit(500).floorAtZero().build();
+        BillingPipeline unfloored = BillingPipeline.builder().pointsCredit(500).build();
+
+        assertThat(split).isEqualTo(whole).hasSameHashCodeAs(whole);
+        assertThat(split).isNotEqualTo(unfloored);
+    }
+
+    @Test
+    void aFoldedRunRoundsOnceAtTheEnd() {
+        // 12.5% of 1004 cents is 125.5: the discount rounds up to 126, leaving 878
+        assertThat(BillingPipeline.builder().percentDiscount(12.5).build().apply(1004)).isEqualTo(878);
+        // Doubled in the same run, 878.5 * 2 is exact; rounding between the steps would give 1756
+        assertThat(BillingPipeline.builder().percentDiscount(12.5).multiplier(2).build().apply(1004)).isEqualTo(1757);
+        // Two discounts fold into 19% off, rounded once: 1000 less 190
+        assertThat(BillingPipeline.builder().percentDiscount(10).percentDiscount(10).build().apply(1000)).isEqualTo(810);
+    }
+
+    @Test
+    void invalidStepsAreRejected() {
+        assertThatThrownBy(() -> BillingPipeline.builder().percentDiscount(101)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BillingPipeline.builder().multiplier(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BillingPipeline.builder().pointsCredit(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BillingPipeline.builder().step(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void percentDiscountMatchesRoundingTheDiscountHalfUp() {
+        Random random = new Random(19);
+        for (int i = 0; i < AMOUNTS; i++) {
+            long base = random.nextLong(MAX_CENTS);
+            // Percentages to a hundredth, as the admin screens take them
+            double percent = random.nextInt(10_001) / 100.0;
+
+            long expected = Math.max(base - Money.percentOf(base, percent, RoundingMode.HALF_UP), 0);
+            long actual = BillingPipeline.builder().percentDiscount(percent).floorAtZero().build().apply(base);
+            assertThat(actual).as("%d cents less %s%%", base, percent).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void multiplierMatchesRoundingTheAmountHalfUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < AMOUNTS; i++) {
+            long base = random.nextLong(MAX_CENTS);
+            double factor = random.nextInt(301) / 100.0;
+
+            long expected = Money.multiply(base, factor, RoundingMode.HALF_UP);
+            assertThat(BillingPipeline.builder().multiplier(factor).build().apply(base))
+                    .as("%d cents times %s", base, factor).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void loyaltyRedemptionCreditsACentPerPointUpToTheCap() {
+        LoyaltyConfig config = new LoyaltyConfig();
+        config.setRedeemCap(5000);
+        LoyaltyService loyaltyService = new LoyaltyService(config);
+        Random random = new Random(25);
+        for (int i = 0; i < 10_000; i++) {
+            long base = random.nextLong(20_000);
+            int points = random.nextInt(8000);
+
+            long expected = Math.max(0, base - Math.min(points, config.getRedeemCap()));
+            assertThat(loyaltyService.redemption(points).apply(base)).isEqualTo(expected);
+        }
+        assertThat(loyaltyService.applyRedemption(30.00, 7000)).isZero();
+        assertThat(loyaltyService.applyRedemption(80.25, 1000)).isEqualTo(70.25);
+    }
+
+    @Test
+    void oneInstanceGivesTheSameResultsOnEveryThread() throws Exception {
+        BillingPipeline shared = BillingPipeline.builder()
+                .multiplier(1.2).percentDiscount(15).pointsCredit(500).floorAtZero().build();
+        long[] expected = new long[10_000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = shared.apply(i * 37L);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = pool.invokeAll(Collections.nCopies(8, () -> {
+                for (int i = 0; i < expected.length; i++) {
+                    if (shared.apply(i * 37L) != expected[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }), 60, TimeUnit.SECONDS);
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
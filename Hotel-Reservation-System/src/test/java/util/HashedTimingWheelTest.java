@@ -0,0 +1,62 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A small, fast wheel, so timeouts go round it several times before they are due.
+ */
+class HashedTimingWheelTest {
+    private static final long TICK_MILLIS = 10;
+    private static final int SLOTS = 4;
+
+    private final HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", TICK_MILLIS, SLOTS);
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void aTimeoutSeveralRoundsAheadWaitsForItsOwnRound() throws InterruptedException {
+        long scheduled = System.nanoTime();
+        AtomicLong shortFiredAfter = new AtomicLong();
+        AtomicBoolean longFiredFirst = new AtomicBoolean();
+        CountDownLatch longFired = new CountDownLatch(1);
+        // Both land in the same slot; the second is three rounds later
+        long shortDelay = 2 * TICK_MILLIS;
+        long longDelay = shortDelay + 3 * SLOTS * TICK_MILLIS;
+        wheel.schedule(() -> shortFiredAfter.set(System.nanoTime() - scheduled), shortDelay);
+        wheel.schedule(() -> {
+            longFiredFirst.set(shortFiredAfter.get() == 0);
+            longFired.countDown();
+        }, longDelay);
+
+        assertThat(longFired.await(5, TimeUnit.SECONDS)).isTrue();
+        long longFiredAfter = System.nanoTime() - scheduled;
+
+        assertThat(longFiredFirst).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(shortFiredAfter.get())).isGreaterThanOrEqualTo(shortDelay);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(longFiredAfter)).isGreaterThanOrEqualTo(longDelay);
+    }
+
+    @Test
+    void aCancelledTimeoutNeverRuns() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 3 * TICK_MILLIS);
+        timeout.cancel();
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 2 * SLOTS * TICK_MILLIS);
+
+        assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.isCancelled()).isTrue();
+        assertThat(ran).isFalse();
+    }
+}
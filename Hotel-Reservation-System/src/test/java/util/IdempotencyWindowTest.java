@@ -0,0 +1,84 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Expiry and eviction of remembered results, and the results that must survive them.
+ */
+class IdempotencyWindowTest {
+
+    @Test
+    void anExpiredResultIsForgottenAndTheWorkRunsAgain() throws InterruptedException {
+        IdempotencyWindow<Integer> window = new IdempotencyWindow<>(10, Duration.ofMillis(50));
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(window.execute("a", runs::incrementAndGet)).isEqualTo(1);
+        assertThat(window.execute("a", runs::incrementAndGet)).isEqualTo(1);
+        Thread.sleep(100);
+
+        assertThat(window.execute("a", runs::incrementAndGet)).isEqualTo(2);
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void aFullWindowDropsItsOldestResults() {
+        IdempotencyWindow<String> window = new IdempotencyWindow<>(2, Duration.ofMinutes(1));
+        AtomicInteger runs = new AtomicInteger();
+
+        for (String key : new String[] {"a", "b", "c"}) {
+            window.execute(key, () -> key + runs.incrementAndGet());
+        }
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.execute("c", () -> "c" + runs.incrementAndGet())).isEqualTo("c3");
+        assertThat(window.execute("a", () -> "a" + runs.incrementAndGet())).isEqualTo("a4");
+        assertThat(runs).hasValue(4);
+    }
+
+    @Test
+    void aRunningOperationIsNotDroppedToMakeRoom() throws Exception {
+        IdempotencyWindow<String> window = new IdempotencyWindow<>(1, Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> window.execute("slow", () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        window.execute("quick", () -> "quick");
+        release.countDown();
+
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(window.execute("slow", () -> "second")).isEqualTo("first");
+    }
+
+    @Test
+    void aFailedAttemptIsForgottenSoARetryRuns() {
+        IdempotencyWindow<String> window = new IdempotencyWindow<>(10, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> window.execute("a", () -> {
+            throw new IllegalStateException("declined");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(window.execute("a", () -> "retried")).isEqualTo("retried");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
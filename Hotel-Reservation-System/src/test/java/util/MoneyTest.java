@@ -0,0 +1,102 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rounding of fractional cents in every supported mode, on both sides of zero, and the
+ * conversions at the dollar and persistence boundaries.
+ */
+class MoneyTest {
+
+    @Test
+    void halfwayValuesRoundByModeOnBothSidesOfZero() {
+        assertThat(Money.round(12.5, RoundingMode.HALF_UP)).isEqualTo(13);
+        assertThat(Money.round(-12.5, RoundingMode.HALF_UP)).isEqualTo(-13);
+        assertThat(Money.round(12.5, RoundingMode.HALF_DOWN)).isEqualTo(12);
+        assertThat(Money.round(-12.5, RoundingMode.HALF_DOWN)).isEqualTo(-12);
+        assertThat(Money.round(12.5, RoundingMode.HALF_EVEN)).isEqualTo(12);
+        assertThat(Money.round(13.5, RoundingMode.HALF_EVEN)).isEqualTo(14);
+        assertThat(Money.round(-12.5, RoundingMode.HALF_EVEN)).isEqualTo(-12);
+        assertThat(Money.round(-13.5, RoundingMode.HALF_EVEN)).isEqualTo(-14);
+    }
+
+    @Test
+    void nonHalfwayValuesRoundToTheNearestCentInEveryHalfMode() {
+        for (RoundingMode mode : new RoundingMode[]{RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN}) {
+            assertThat(Money.round(12.4, mode)).as("%s", mode).isEqualTo(12);
+            assertThat(Money.round(12.6, mode)).as("%s", mode).isEqualTo(13);
+            assertThat(Money.round(-12.4, mode)).as("%s", mode).isEqualTo(-12);
+            assertThat(Money.round(-12.6, mode)).as("%s", mode).isEqualTo(-13);
+        }
+    }
+
+    @Test
+    void directedModesMatchBigDecimal() {
+        double[] values = {12.3, 12.7, -12.3, -12.7, 0.5, -0.5};
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+                RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN};
+        for (double value : values) {
+            for (RoundingMode mode : modes) {
+                long expected = BigDecimal.valueOf(value).setScale(0, mode).longValueExact();
+                assertThat(Money.round(value, mode)).as("%s %s", value, mode).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void wholeCentsAreLeftAlone() {
+        for (RoundingMode mode : new RoundingMode[]{RoundingMode.UP, RoundingMode.DOWN, RoundingMode.HALF_UP}) {
+            assertThat(Money.round(-7.0, mode)).isEqualTo(-7);
+            assertThat(Money.round(0.0, mode)).isZero();
+        }
+    }
+
+    @Test
+    void binaryNoiseRoundsAsTheValueItStandsFor() {
+        // 0.285 * 100 is 28.499999999999996 as a double
+        assertThat(Money.ofDollars(0.285)).isEqualTo(29);
+        assertThat(Money.round(12.499999999999998, RoundingMode.HALF_UP)).isEqualTo(13);
+        assertThat(Money.round(-12.499999999999998, RoundingMode.HALF_UP)).isEqualTo(-13);
+        assertThat(Money.ofDollars(1.005, RoundingMode.HALF_DOWN)).isEqualTo(100);
+    }
+
+    @Test
+    void ratesAndPercentagesOfAnAmountRoundOnce() {
+        assertThat(Money.multiply(1005, 0.10, RoundingMode.HALF_UP)).isEqualTo(101);
+        assertThat(Money.multiply(-1005, 0.10, RoundingMode.HALF_UP)).isEqualTo(-101);
+        assertThat(Money.percentOf(1004, 12.5, RoundingMode.HALF_UP)).isEqualTo(126);
+        assertThat(Money.percentOf(1004, 12.5, RoundingMode.HALF_DOWN)).isEqualTo(125);
+        assertThat(Money.percentOf(7_865_425, 18.0, RoundingMode.HALF_UP)).isEqualTo(1_415_777);
+    }
+
+    @Test
+    void persistenceBoundaryKeepsTwoDecimals() {
+        assertThat(Money.toBigDecimal(-123_456)).isEqualByComparingTo("-1234.56");
+        assertThat(Money.toBigDecimal(5).scale()).isEqualTo(2);
+        assertThat(Money.fromBigDecimal(new BigDecimal("19.995"))).isEqualTo(2000);
+        assertThat(Money.fromBigDecimal(new BigDecimal("-19.995"))).isEqualTo(-2000);
+        assertThat(Money.fromBigDecimal(null)).isZero();
+        assertThat(Money.toDollars(-1)).isEqualTo(-0.01);
+    }
+
+    @Test
+    void formatsSignAndThousands() {
+        assertThat(Money.format(123_456)).isEqualTo("$1,234.56");
+        assertThat(Money.format(-5)).isEqualTo("-$0.05");
+        assertThat(Money.format(0)).isEqualTo("$0.00");
+    }
+
+    @Test
+    void overflowIsAnErrorRatherThanAWrongAmount() {
+        assertThatThrownBy(() -> Money.add(Long.MAX_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.subtract(Long.MIN_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.round(1.0e16, RoundingMode.HALF_UP)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.round(Double.NaN, RoundingMode.HALF_UP)).isInstanceOf(ArithmeticException.class);
+    }
+}